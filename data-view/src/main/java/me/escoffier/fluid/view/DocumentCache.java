@@ -0,0 +1,66 @@
+package me.escoffier.fluid.view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of documents. When full, the least recently used document is evicted. Documents older than the
+ * time-to-live are ignored and removed on access. Not thread-safe.
+ */
+final class DocumentCache {
+
+  private final int maxSize;
+  private final long ttl;
+  private final LinkedHashMap<String, Entry> entries;
+
+  DocumentCache(int maxSize, long ttl) {
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    // Access order, so the eldest entry is the least recently used.
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > DocumentCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return the document, {@code null} if not cached or expired.
+   */
+  Map<String, Object> get(String key, long now) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (now - entry.time >= ttl) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.document;
+  }
+
+  void put(String key, Map<String, Object> document, long now) {
+    if (maxSize > 0) {
+      entries.put(key, new Entry(document, now));
+    }
+  }
+
+  void invalidate(String key) {
+    entries.remove(key);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private static final class Entry {
+    private final Map<String, Object> document;
+    private final long time;
+
+    Entry(Map<String, Object> document, long time) {
+      this.document = document;
+      this.time = time;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package me.escoffier.fluid.view;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import me.escoffier.fluid.models.BatchLoader;
+import me.escoffier.fluid.models.Message;
+import me.escoffier.fluid.models.Pair;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Enriches the messages of a stream with a document retrieved from a {@link DocumentView} collection (stream-table
+ * join). Use it with {@link me.escoffier.fluid.models.Source#composeFlowable(Function)}:
+ * <pre>
+ * {@code
+ * DocumentEnricher<Order> customers = DocumentEnricher.create(view, "customers", m -> m.payload().customerId());
+ * Source<Pair<Order, Map<String, Object>>> enriched = orders.composeFlowable(customers);
+ * }
+ * </pre>
+ * <p>
+ * The retrieved documents are kept in a bounded local cache, evicting the least recently used documents and
+ * expiring them after a time-to-live. Concurrent lookups of the same key are coalesced into a single one, and cache
+ * misses are batched by a {@link BatchLoader} using {@link DocumentView#findByIds(String, java.util.Collection)}.
+ * The order of the messages is preserved. Missing documents are empty. The emitted documents are read-only.
+ * <p>
+ * The cache is shared by all the streams using the same enricher.
+ *
+ * @param <T> the type of payload
+ */
+public final class DocumentEnricher<T>
+  implements Function<Flowable<Message<T>>, Flowable<Message<Pair<T, Map<String, Object>>>>> {
+
+  private final Function<Message<T>, String> keyFunction;
+  private final EnrichmentOptions options;
+  private final Scheduler scheduler;
+  private final DocumentCache cache;
+  private final BatchLoader<String, Map<String, Object>> loader;
+  private final AtomicLong hits = new AtomicLong();
+  /**
+   * The keys being retrieved, associated with {@code true} if they have been invalidated since the query was sent,
+   * guarded by {@code this}.
+   */
+  private final Map<String, Boolean> loading = new HashMap<>();
+
+  private DocumentEnricher(DocumentView view, String collection, Function<Message<T>, String> keyFunction,
+                           EnrichmentOptions options) {
+    Objects.requireNonNull(view, "The `view` must not be `null`");
+    Objects.requireNonNull(collection, "The `collection` must not be `null`");
+    this.keyFunction = Objects.requireNonNull(keyFunction, "The `keyFunction` must not be `null`");
+    this.options = Objects.requireNonNull(options, "The `options` must not be `null`");
+    this.scheduler = options.scheduler;
+    this.cache = new DocumentCache(options.cacheSize, options.ttl);
+    // The retrieved documents are cached once per query, before the coalesced lookups are notified.
+    this.loader = BatchLoader.create(keys -> query(view, collection, keys), options.batchSize,
+      Duration.ofMillis(options.linger), scheduler);
+  }
+
+  /**
+   * Creates a new enricher with the default options.
+   *
+   * @param view        the view, must not be {@code null}
+   * @param collection  the collection, must not be {@code null}
+   * @param keyFunction the function computing the document key of each message, must not be {@code null}, must not
+   *                    return {@code null}
+   * @param <T>         the type of payload
+   * @return the enricher
+   */
+  public static <T> DocumentEnricher<T> create(DocumentView view, String collection,
+                                               Function<Message<T>, String> keyFunction) {
+    return create(view, collection, keyFunction, EnrichmentOptions.create());
+  }
+
+  /**
+   * Creates a new enricher.
+   *
+   * @param view        the view, must not be {@code null}
+   * @param collection  the collection, must not be {@code null}
+   * @param keyFunction the function computing the document key of each message, must not be {@code null}, must not
+   *                    return {@code null}
+   * @param options     the options, must not be {@code null}
+   * @param <T>         the type of payload
+   * @return the enricher
+   */
+  public static <T> DocumentEnricher<T> create(DocumentView view, String collection,
+                                               Function<Message<T>, String> keyFunction, EnrichmentOptions options) {
+    return new DocumentEnricher<>(view, collection, keyFunction, options);
+  }
+
+  @Override
+  public Flowable<Message<Pair<T, Map<String, Object>>>> apply(Flowable<Message<T>> flow) {
+    return flow.concatMapEager(message -> {
+      String key = Objects.requireNonNull(keyFunction.apply(message), "The key of a message must not be `null`");
+      return lookup(key).map(document -> message.with(Pair.pair(message.payload(), document))).toFlowable();
+    }, options.concurrency, 1);
+  }
+
+  /**
+   * Removes the document with the given key from the cache, so it is retrieved again on the next lookup. If the
+   * document is being retrieved, the retrieved (possibly stale) document is not cached.
+   *
+   * @param key the key, must not be {@code null}
+   */
+  public synchronized void invalidate(String key) {
+    cache.invalidate(Objects.requireNonNull(key, "The `key` must not be `null`"));
+    loading.replace(key, true);
+  }
+
+  /**
+   * @return the number of lookups served by the cache.
+   */
+  public long hits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of lookups that required retrieving the document.
+   */
+  public long misses() {
+    return loader.misses();
+  }
+
+  /**
+   * @return the number of lookups that waited for the retrieval of the same document requested by another lookup.
+   */
+  public long coalesced() {
+    return loader.hits();
+  }
+
+  /**
+   * @return the number of queries sent to the view.
+   */
+  public long queries() {
+    return loader.batches();
+  }
+
+  /**
+   * @return the number of cached documents.
+   */
+  public synchronized int cacheSize() {
+    return cache.size();
+  }
+
+  private Single<Map<String, Object>> lookup(String key) {
+    synchronized (this) {
+      Map<String, Object> document = cache.get(key, scheduler.now(TimeUnit.MILLISECONDS));
+      if (document != null) {
+        hits.incrementAndGet();
+        return Single.just(document);
+      }
+    }
+    return loader.load(key).toSingle(Collections.emptyMap());
+  }
+
+  private Single<Map<String, Map<String, Object>>> query(DocumentView view, String collection, List<String> keys) {
+    return Single.defer(() -> {
+      loading(keys);
+      return view.findByIds(collection, keys).map(documents -> cached(keys, documents));
+    }).doOnError(failure -> loaded(keys));
+  }
+
+  private synchronized void loading(List<String> keys) {
+    for (String key : keys) {
+      loading.put(key, false);
+    }
+  }
+
+  private synchronized void loaded(List<String> keys) {
+    for (String key : keys) {
+      loading.remove(key);
+    }
+  }
+
+  /**
+   * Caches the retrieved documents, an empty document being cached for the missing keys. The documents invalidated
+   * while being retrieved are not cached.
+   *
+   * @return the read-only documents per key
+   */
+  private synchronized Map<String, Map<String, Object>> cached(List<String> keys,
+                                                              Map<String, Map<String, Object>> documents) {
+    long now = scheduler.now(TimeUnit.MILLISECONDS);
+    Map<String, Map<String, Object>> result = new HashMap<>();
+    for (String key : keys) {
+      Map<String, Object> document = documents.get(key);
+      Map<String, Object> readOnly = document == null ? Collections.emptyMap() : Collections.unmodifiableMap(document);
+      if (!Boolean.TRUE.equals(loading.remove(key))) {
+        cache.put(key, readOnly, now);
+      }
+      result.put(key, readOnly);
+    }
+    return result;
+  }
+}
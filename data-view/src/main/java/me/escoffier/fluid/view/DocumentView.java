@@ -5,6 +5,7 @@ import io.reactivex.Flowable;
 import io.reactivex.Single;
 import me.escoffier.fluid.models.Message;
 
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -38,6 +39,21 @@ public interface DocumentView {
    */
   Single<Map<String, Object>> findById(String collection, String key);
 
+  /**
+   * Finds a set of documents at once. Implementations should override this method to retrieve the documents in a
+   * single query. By default, the documents are retrieved one by one using {@link #findById(String, String)}.
+   *
+   * @param collection the name of the collection
+   * @param keys       the document keys
+   * @return a {@link Single} providing the retrieved {@code documents} by key. Like for
+   * {@link #findById(String, String)}, documents that have not been found are empty.
+   */
+  default Single<Map<String, Map<String, Object>>> findByIds(String collection, Collection<String> keys) {
+    return Flowable.fromIterable(keys)
+      .flatMapSingle(key -> findById(collection, key).map(document -> new DocumentWithKey(key, document)))
+      .toMap(DocumentWithKey::key, DocumentWithKey::document);
+  }
+
   /**
    * Retrieves the number of document stored in the collection.
    *
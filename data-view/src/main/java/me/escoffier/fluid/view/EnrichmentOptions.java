@@ -0,0 +1,142 @@
+package me.escoffier.fluid.view;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Configures a {@link DocumentEnricher}: the size and time-to-live of the local cache, how the cache misses are
+ * batched, and the maximum number of messages waiting for their document.
+ */
+public final class EnrichmentOptions {
+
+  /**
+   * The default maximum number of cached documents.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+  /**
+   * The default time-to-live of the cached documents.
+   */
+  public static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+
+  /**
+   * The default maximum number of documents retrieved by a single query.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 64;
+
+  /**
+   * The default maximum time a cache miss waits for its batch to be complete.
+   */
+  public static final Duration DEFAULT_LINGER = Duration.ofMillis(5);
+
+  /**
+   * The default maximum number of messages waiting for their document.
+   */
+  public static final int DEFAULT_CONCURRENCY = 256;
+
+  final int cacheSize;
+  final long ttl;
+  final int batchSize;
+  final long linger;
+  final int concurrency;
+  final Scheduler scheduler;
+
+  private EnrichmentOptions(int cacheSize, long ttl, int batchSize, long linger, int concurrency,
+                            Scheduler scheduler) {
+    this.cacheSize = cacheSize;
+    this.ttl = ttl;
+    this.batchSize = batchSize;
+    this.linger = linger;
+    this.concurrency = concurrency;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * @return new default options.
+   */
+  public static EnrichmentOptions create() {
+    return new EnrichmentOptions(DEFAULT_CACHE_SIZE, DEFAULT_TTL.toMillis(), DEFAULT_BATCH_SIZE,
+      DEFAULT_LINGER.toMillis(), DEFAULT_CONCURRENCY, Schedulers.computation());
+  }
+
+  /**
+   * Sets the maximum number of cached documents. When the cache is full, the least recently used document is evicted.
+   *
+   * @param size the size, must be positive, {@code 0} disables the cache
+   * @return the new options
+   */
+  public EnrichmentOptions withCacheSize(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("The cache `size` cannot be negative");
+    }
+    return new EnrichmentOptions(size, ttl, batchSize, linger, concurrency, scheduler);
+  }
+
+  /**
+   * Sets the time-to-live of the cached documents. The documents are retrieved again once expired.
+   *
+   * @param ttl the time-to-live, must not be {@code null}, must be at least 1 ms
+   * @return the new options
+   */
+  public EnrichmentOptions withTtl(Duration ttl) {
+    Objects.requireNonNull(ttl, "The `ttl` must not be `null`");
+    if (ttl.toMillis() < 1) {
+      throw new IllegalArgumentException("The `ttl` must be at least 1 ms");
+    }
+    return new EnrichmentOptions(cacheSize, ttl.toMillis(), batchSize, linger, concurrency, scheduler);
+  }
+
+  /**
+   * Sets the maximum number of documents retrieved by a single query.
+   *
+   * @param size the size, must be strictly positive
+   * @return the new options
+   */
+  public EnrichmentOptions withBatchSize(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("The batch `size` cannot be less than 1");
+    }
+    return new EnrichmentOptions(cacheSize, ttl, size, linger, concurrency, scheduler);
+  }
+
+  /**
+   * Sets the maximum time a cache miss waits for other misses before its batch is queried.
+   *
+   * @param linger the duration, must not be {@code null}, must not be negative
+   * @return the new options
+   */
+  public EnrichmentOptions withLinger(Duration linger) {
+    Objects.requireNonNull(linger, "The `linger` must not be `null`");
+    if (linger.isNegative()) {
+      throw new IllegalArgumentException("The `linger` cannot be negative");
+    }
+    return new EnrichmentOptions(cacheSize, ttl, batchSize, linger.toMillis(), concurrency, scheduler);
+  }
+
+  /**
+   * Sets the maximum number of messages waiting for their document. The upstream is not requested beyond this limit.
+   *
+   * @param concurrency the maximum, must be strictly positive
+   * @return the new options
+   */
+  public EnrichmentOptions withConcurrency(int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("The `concurrency` cannot be less than 1");
+    }
+    return new EnrichmentOptions(cacheSize, ttl, batchSize, linger, concurrency, scheduler);
+  }
+
+  /**
+   * Sets the scheduler used for the linger timer and to measure the age of the cached documents.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new options
+   */
+  public EnrichmentOptions using(Scheduler scheduler) {
+    return new EnrichmentOptions(cacheSize, ttl, batchSize, linger, concurrency,
+      Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"));
+  }
+}
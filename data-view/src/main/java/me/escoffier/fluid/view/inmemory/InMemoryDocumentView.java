@@ -6,6 +6,7 @@ import io.reactivex.Single;
 import me.escoffier.fluid.view.DocumentView;
 import me.escoffier.fluid.view.DocumentWithKey;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +46,23 @@ public class InMemoryDocumentView implements DocumentView {
     });
   }
 
+  @Override
+  public Single<Map<String, Map<String, Object>>> findByIds(String collection, Collection<String> keys) {
+    Objects.requireNonNull(collection, NULL_COLLECTION_MESSAGE);
+    Objects.requireNonNull(keys, "The `keys` must not be `null`");
+
+    return Single.fromCallable(() -> {
+      synchronized (this) {
+        Map<String, Map<String, Object>> collectionData = documents.computeIfAbsent(collection, k -> new LinkedHashMap<>());
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String key : keys) {
+          result.put(key, collectionData.getOrDefault(key, new LinkedHashMap<>()));
+        }
+        return result;
+      }
+    });
+  }
+
   @Override
   public synchronized Single<Long> count(String collection) {
     Objects.requireNonNull(collection, NULL_COLLECTION_MESSAGE);
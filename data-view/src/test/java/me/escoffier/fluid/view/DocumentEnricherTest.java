@@ -0,0 +1,170 @@
+package me.escoffier.fluid.view;
+
+import io.reactivex.Single;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.CompletableSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import me.escoffier.fluid.models.Message;
+import me.escoffier.fluid.models.Pair;
+import me.escoffier.fluid.models.Source;
+import me.escoffier.fluid.view.inmemory.InMemoryDocumentView;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocumentEnricherTest {
+
+  private final TestScheduler scheduler = new TestScheduler();
+
+  private final List<List<String>> queries = new CopyOnWriteArrayList<>();
+
+  private final InMemoryDocumentView view = new InMemoryDocumentView() {
+    @Override
+    public Single<Map<String, Map<String, Object>>> findByIds(String collection,
+                                                                         Collection<String> keys) {
+      queries.add(new ArrayList<>(keys));
+      return super.findByIds(collection, keys);
+    }
+  };
+
+  @Before
+  public void setUp() {
+    for (String name : new String[] {"alice", "bob", "carol"}) {
+      view.save("customers", name, Collections.singletonMap("name", name.toUpperCase())).blockingAwait();
+    }
+  }
+
+  private EnrichmentOptions options() {
+    return EnrichmentOptions.create().withBatchSize(3).withLinger(Duration.ofMillis(10)).using(scheduler);
+  }
+
+  @Test
+  public void testInvalidationDuringRetrievalIsNotUndone() {
+    CompletableSubject gate = CompletableSubject.create();
+    InMemoryDocumentView slow = new InMemoryDocumentView() {
+      @Override
+      public Single<Map<String, Map<String, Object>>> findByIds(String collection, Collection<String> keys) {
+        return super.findByIds(collection, keys).delaySubscription(gate);
+      }
+    };
+    slow.save("customers", "alice", Collections.singletonMap("name", "ALICE")).blockingAwait();
+    DocumentEnricher<String> enricher = DocumentEnricher.create(slow, "customers", Message::payload,
+      options().withBatchSize(1));
+    TestSubscriber<Message<Pair<String, Map<String, Object>>>> subscriber = Source.from("alice")
+      .composeFlowable(enricher)
+      .asFlowable().test();
+
+    // The document is invalidated (e.g. updated) while being retrieved.
+    enricher.invalidate("alice");
+    gate.onComplete();
+    subscriber.assertValueCount(1).assertComplete();
+    assertThat(enricher.cacheSize()).isEqualTo(0);
+
+    // The next lookup retrieves the document again.
+    Source.from("alice").composeFlowable(enricher).asFlowable().test().assertValueCount(1);
+    assertThat(enricher.misses()).isEqualTo(2);
+    assertThat(enricher.cacheSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void testMissesAreCoalescedAndBatched() {
+    DocumentEnricher<String> enricher = DocumentEnricher.create(view, "customers", Message::payload, options());
+    TestSubscriber<Message<Pair<String, Map<String, Object>>>> subscriber =
+      Source.from("alice", "bob", "alice", "carol", "alice", "dave")
+        .composeFlowable(enricher)
+        .asFlowable().test();
+
+    // The batch is full: alice, bob and carol are retrieved at once.
+    assertThat(queries).hasSize(1);
+    assertThat(queries.get(0)).containsExactly("alice", "bob", "carol");
+    // dave waits for the linger timer.
+    scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+    assertThat(queries).hasSize(2);
+    assertThat(queries.get(1)).containsExactly("dave");
+
+    assertThat(subscriber.values()).extracting(m -> m.payload().left())
+      .containsExactly("alice", "bob", "alice", "carol", "alice", "dave");
+    assertThat(subscriber.values()).extracting(m -> m.payload().right().get("name"))
+      .containsExactly("ALICE", "BOB", "ALICE", "CAROL", "ALICE", null);
+    subscriber.assertComplete();
+    // The second alice waits for the pending lookup, the third one is served by the cache.
+    assertThat(enricher.misses()).isEqualTo(4);
+    assertThat(enricher.coalesced()).isEqualTo(1);
+    assertThat(enricher.hits()).isEqualTo(1);
+    assertThat(enricher.queries()).isEqualTo(2);
+    // The document is cached once, and shared by the coalesced lookups and the cache hits.
+    List<Map<String, Object>> alices = new ArrayList<>();
+    subscriber.values().stream().filter(m -> m.payload().left().equals("alice"))
+      .forEach(m -> alices.add(m.payload().right()));
+    assertThat(alices).hasSize(3).allSatisfy(document -> assertThat(document).isSameAs(alices.get(0)));
+  }
+
+  @Test
+  public void testCache() {
+    DocumentEnricher<String> enricher = DocumentEnricher.create(view, "customers", Message::payload,
+      options().withCacheSize(2).withTtl(Duration.ofSeconds(1)).withBatchSize(1));
+
+    Source.from("alice", "bob").composeFlowable(enricher).asFlowable().test().assertValueCount(2);
+    Source.from("alice", "bob").composeFlowable(enricher).asFlowable().test().assertValueCount(2);
+    assertThat(enricher.hits()).isEqualTo(2);
+    assertThat(queries).hasSize(2);
+
+    // carol evicts the least recently used document: alice.
+    Source.from("bob", "carol", "alice").composeFlowable(enricher).asFlowable().test().assertValueCount(3);
+    assertThat(enricher.hits()).isEqualTo(3);
+    assertThat(enricher.cacheSize()).isEqualTo(2);
+
+    // Expired documents are retrieved again.
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+    view.save("customers", "alice", Collections.singletonMap("name", "Alice")).blockingAwait();
+    TestSubscriber<Message<Pair<String, Map<String, Object>>>> subscriber = Source.from("alice")
+      .composeFlowable(enricher).asFlowable().test();
+    assertThat(subscriber.values().get(0).payload().right()).containsEntry("name", "Alice");
+    assertThat(enricher.hits()).isEqualTo(3);
+  }
+
+  @Test
+  public void testBackpressure() {
+    DocumentEnricher<String> enricher = DocumentEnricher.create(view, "customers", Message::payload,
+      options().withConcurrency(2).withBatchSize(10));
+    PublishProcessor<String> processor = PublishProcessor.create();
+    TestSubscriber<Message<Pair<String, Map<String, Object>>>> subscriber = Source.fromPayloads(processor)
+      .composeFlowable(enricher).asFlowable().test();
+
+    processor.onNext("alice");
+    processor.onNext("bob");
+    assertThat(processor.offer("carol")).isFalse();
+    scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+    subscriber.assertValueCount(2);
+    assertThat(processor.offer("carol")).isTrue();
+  }
+
+  @Test
+  public void testFailure() {
+    InMemoryDocumentView failing = new InMemoryDocumentView() {
+      @Override
+      public Single<Map<String, Map<String, Object>>> findByIds(String collection,
+                                                                           Collection<String> keys) {
+        return Single.error(new IllegalStateException("boom"));
+      }
+    };
+    DocumentEnricher<String> enricher = DocumentEnricher.create(failing, "customers", Message::payload,
+      options().withBatchSize(1));
+
+    Source.from("alice").composeFlowable(enricher).asFlowable().test().assertError(IllegalStateException.class);
+    // The failure is not cached.
+    assertThat(enricher.cacheSize()).isEqualTo(0);
+  }
+
+}
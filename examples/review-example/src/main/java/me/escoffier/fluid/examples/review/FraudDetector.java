@@ -4,8 +4,9 @@ import io.vertx.core.json.JsonObject;
 import me.escoffier.fluid.annotations.Inbound;
 import me.escoffier.fluid.annotations.Outbound;
 import me.escoffier.fluid.annotations.Transformation;
+import me.escoffier.fluid.models.Broadcast;
+import me.escoffier.fluid.models.BroadcastOptions;
 import me.escoffier.fluid.models.Message;
-import me.escoffier.fluid.models.Pair;
 import me.escoffier.fluid.models.Sink;
 import me.escoffier.fluid.models.Source;
 
@@ -14,6 +15,8 @@ import me.escoffier.fluid.models.Source;
  */
 public class FraudDetector {
 
+  private static final String FRAUD = "fraud";
+
   @Inbound("movies")
   Source<JsonObject> reviews;
 
@@ -25,12 +28,16 @@ public class FraudDetector {
 
   @Transformation
   public void detect() {
-    Pair<Source<JsonObject>, Source<JsonObject>> streams = reviews
-      .branch(this::isFraud);
-
-    streams.left().to(fraud);
-    streams.right().to(valid);
-
+    // Each branch has its own bounded buffer, and a full buffer drops the new reviews instead of blocking the
+    // upstream, so a slow fraud sink does not stall the valid reviews.
+    Broadcast<JsonObject> streams = reviews
+      .map(message -> message.with(FRAUD, isFraud(message)))
+      .broadcast(2, BroadcastOptions.<JsonObject>create()
+        .withBufferSize(128)
+        .withOverflow(BroadcastOptions.Overflow.DROP_NEWEST));
+
+    streams.branch(0).filter(message -> message.<Boolean>get(FRAUD)).to(fraud);
+    streams.branch(1).filterNot(message -> message.<Boolean>get(FRAUD)).to(valid);
   }
 
   private boolean isFraud(Message<JsonObject> message) {
@@ -1,6 +1,5 @@
 package me.escoffier.fluid.examples.review;
 
-import io.reactivex.functions.BiFunction;
 import io.vertx.core.json.JsonObject;
 import me.escoffier.fluid.annotations.Inbound;
 import me.escoffier.fluid.annotations.Transformation;
@@ -18,40 +17,13 @@ public class ReviewGlobalRating {
   @Transformation
   public void computeStatistics() {
     reviews
-      .composeFlowable(flow ->
-        flow
-          .groupBy(data -> data.payload().getString("course"))
-          .flatMap(group ->
-            group.map(Message::payload)
-              .map(i -> i.getInteger("rating"))
-              .scan(Tuple.tuple(0L, 0.0, 0.0), average())
-              .map(tuple -> Pair.pair(group.getKey(), (double) tuple.nth(2)))
-              .map(Message::new)
-          )
-      )
+      .keyBy(data -> data.payload().getString("course"))
+      // The state of each course is a long[] holding the number of ratings and their sum, updated in place.
+      .aggregate(Aggregator.average(json -> json.getInteger("rating")))
+      .map(data -> data.with(Pair.pair((String) data.get(HeaderKey.GROUP_KEY), data.payload())))
       .to(Sink.forEachPayload(pair -> System.out.println("Rating of " + pair.left() + " : " + pair.right())));
   }
 
-  /**
-   * Function computing an average of {@link Integer}.
-   * It returns a {@link Tuple} structured as follows: 0: element-count, 1: sum of the element, 2: average
-   *
-   * @return a tuple containing in this order the number of element in the series, the sum of the element and the
-   * average.
-   */
-  public static BiFunction<Tuple, Integer, Tuple> average() {
-    return (tuple, rating) -> {
-      long count = tuple.nth(0);
-      double sum = tuple.nth(1);
-
-      count = count + 1;
-      sum = sum + rating;
-      double avg = sum / count;
-
-      return Tuple.tuple(count, sum, avg);
-    };
-  }
-
   private boolean isFraud(Message<JsonObject> message) {
     return Math.random() > 0.80;
   }
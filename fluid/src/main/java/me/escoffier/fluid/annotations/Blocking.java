@@ -0,0 +1,29 @@
+package me.escoffier.fluid.annotations;
+
+import me.escoffier.fluid.models.BlockingOptions;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that a {@link Function} method executes blocking code. The method is then invoked on a worker thread
+ * instead of the thread emitting the messages (often an event loop). The results are emitted in order.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Blocking {
+
+  /**
+   * Set the name of the thread pool running the method. If not set, the default blocking pool is used.
+   */
+  String pool() default "";
+
+  /**
+   * Set the maximum number of concurrent invocations.
+   */
+  int concurrency() default BlockingOptions.DEFAULT_CONCURRENCY;
+}
@@ -5,6 +5,7 @@ import io.vertx.reactivex.core.Vertx;
 import me.escoffier.fluid.annotations.Function;
 import me.escoffier.fluid.annotations.Transformation;
 import me.escoffier.fluid.config.FluidConfig;
+import me.escoffier.fluid.impl.BlockingPool;
 import me.escoffier.fluid.models.Sink;
 import me.escoffier.fluid.models.Source;
 import me.escoffier.fluid.registry.FluidRegistry;
@@ -13,6 +14,7 @@ import org.apache.commons.lang3.reflect.MethodUtils;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static me.escoffier.fluid.reflect.ReflectionHelper.*;
@@ -24,6 +26,7 @@ public class Fluid {
 
   private final Vertx vertx;
   private FluidConfig config;
+  private final AtomicBoolean closed = new AtomicBoolean();
 
   /**
    * Creates a new instance of Fluid.
@@ -70,6 +73,7 @@ public class Fluid {
     this.vertx = vertx;
     config = new FluidConfig();
     FluidRegistry.initialize(vertx, config);
+    BlockingPool.acquire();
   }
 
   /**
@@ -183,9 +187,13 @@ public class Fluid {
   }
 
   /**
-   * Close operation to release resources
+   * Close operation to release resources. The blocking pool, shared with the other instances, is shut down when the
+   * last instance is closed.
    */
   public void close() {
+    if (closed.compareAndSet(false, true)) {
+      BlockingPool.release();
+    }
     vertx.close();
   }
 }
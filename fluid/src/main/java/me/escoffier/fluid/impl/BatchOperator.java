@@ -0,0 +1,326 @@
+package me.escoffier.fluid.impl;
+
+import io.reactivex.FlowableOperator;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.internal.subscriptions.SubscriptionHelper;
+import io.reactivex.internal.util.BackpressureHelper;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * An operator grouping the items into lists. A list is emitted when it contains {@code maxSize} items, or, if a linger
+ * time is set, when the linger time has elapsed since the reception of its first item. The last (partial) list is
+ * emitted on completion.
+ * <p>
+ * Unlike {@code Flowable.buffer(time, unit, count)}, this operator respects the backpressure: for each list requested
+ * by the downstream, up to {@code maxSize} items are requested to the upstream. As a list emitted by the linger timer
+ * is partial, the items requested to the upstream and not yet received are taken into account, so the outstanding
+ * upstream demand never exceeds what the requested lists can hold.
+ * <p>
+ * The maximum size can change over time (adaptive batching): it is read when an item is added to a list and when
+ * items are requested to the upstream.
+ * <p>
+ * When {@code reuse} is enabled, the emitted lists are cleared and reused for the next batches once the downstream
+ * {@code onNext} call returns. This avoids allocating a list per batch, but is only correct when the downstream is
+ * known to consume the lists synchronously without retaining them, such as a {@code map} stage reducing each list
+ * (see {@code Source#batchReusingBuffer}). It must not be enabled when the lists can reach an asynchronous stage.
+ *
+ * @param <T> the type of item
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class BatchOperator<T> implements FlowableOperator<List<T>, T> {
+
+  private final IntSupplier maxSize;
+
+  /**
+   * The linger time in milliseconds, {@code 0} if disabled.
+   */
+  private final long linger;
+
+  private final Scheduler scheduler;
+
+  private final boolean reuse;
+
+  /**
+   * Creates a new operator.
+   *
+   * @param maxSize   the maximum number of items per list, must be strictly positive
+   * @param linger    the maximum time in milliseconds between the reception of the first item of a list and its
+   *                  emission, {@code 0} to emit only full lists (and the last one)
+   * @param scheduler the scheduler used for the linger timer, used only if {@code linger} is strictly positive
+   */
+  public BatchOperator(int maxSize, long linger, Scheduler scheduler) {
+    this(maxSize, linger, scheduler, false);
+  }
+
+  /**
+   * Creates a new operator.
+   *
+   * @param maxSize   the maximum number of items per list, must be strictly positive
+   * @param linger    the maximum time in milliseconds between the reception of the first item of a list and its
+   *                  emission, {@code 0} to emit only full lists (and the last one)
+   * @param scheduler the scheduler used for the linger timer, used only if {@code linger} is strictly positive
+   * @param reuse     whether the emitted lists are reused once the downstream {@code onNext} call has returned, only
+   *                  for downstreams consuming the lists synchronously
+   */
+  public BatchOperator(int maxSize, long linger, Scheduler scheduler, boolean reuse) {
+    this(fixed(maxSize), linger, scheduler, reuse);
+  }
+
+  /**
+   * Creates a new operator using a variable maximum size.
+   *
+   * @param maxSize   the supplier of the maximum number of items per list, must return strictly positive values
+   * @param linger    the maximum time in milliseconds between the reception of the first item of a list and its
+   *                  emission, {@code 0} to emit only full lists (and the last one)
+   * @param scheduler the scheduler used for the linger timer, used only if {@code linger} is strictly positive
+   * @param reuse     whether the emitted lists are reused once the downstream {@code onNext} call has returned, only
+   *                  for downstreams consuming the lists synchronously
+   */
+  public BatchOperator(IntSupplier maxSize, long linger, Scheduler scheduler, boolean reuse) {
+    if (linger < 0) {
+      throw new IllegalArgumentException("The linger time must be positive");
+    }
+    this.maxSize = maxSize;
+    this.linger = linger;
+    this.scheduler = scheduler;
+    this.reuse = reuse;
+  }
+
+  private static IntSupplier fixed(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The batch size must be strictly positive");
+    }
+    return () -> maxSize;
+  }
+
+  @Override
+  public Subscriber<? super T> apply(Subscriber<? super List<T>> subscriber) {
+    return new BatchSubscriber(subscriber);
+  }
+
+  private final class BatchSubscriber implements FlowableSubscriber<T>, Subscription {
+    private final Subscriber<? super List<T>> downstream;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    /**
+     * The lists ready to be emitted, guarded by {@code this}.
+     */
+    private final Queue<List<T>> ready = new ArrayDeque<>();
+    /**
+     * The emitted lists available for reuse, guarded by {@code this}.
+     */
+    private final Queue<List<T>> spare = new ArrayDeque<>();
+    /**
+     * The list being filled, guarded by {@code this}.
+     */
+    private List<T> current;
+    /**
+     * Identifies the list being filled, so a late timer does not emit the next one, guarded by {@code this}.
+     */
+    private long generation;
+    /**
+     * The number of items requested to the upstream and not yet received, {@code Long.MAX_VALUE} once the upstream
+     * demand is unbounded, guarded by {@code this}.
+     */
+    private long outstanding;
+    private Disposable timer;
+    private Subscription upstream;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private Throwable failure;
+
+    BatchSubscriber(Subscriber<? super List<T>> downstream) {
+      this.downstream = downstream;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      if (SubscriptionHelper.validate(upstream, s)) {
+        upstream = s;
+        downstream.onSubscribe(this);
+      }
+    }
+
+    @Override
+    public void onNext(T item) {
+      if (done) {
+        return;
+      }
+      synchronized (this) {
+        if (outstanding != Long.MAX_VALUE) {
+          outstanding--;
+        }
+        if (current == null) {
+          current = spare.poll();
+          if (current == null) {
+            current = new ArrayList<>(maxSize.getAsInt());
+          }
+          long id = ++generation;
+          if (linger > 0) {
+            timer = scheduler.scheduleDirect(() -> timeout(id), linger, TimeUnit.MILLISECONDS);
+          }
+        }
+        current.add(item);
+        if (current.size() >= maxSize.getAsInt()) {
+          flush();
+        }
+      }
+      drain();
+    }
+
+    private void timeout(long id) {
+      synchronized (this) {
+        if (id != generation || current == null) {
+          return;
+        }
+        flush();
+      }
+      drain();
+    }
+
+    /**
+     * Moves the current list to the ready lists. Must be called while holding the lock.
+     */
+    private void flush() {
+      ready.add(current);
+      current = null;
+      if (timer != null) {
+        timer.dispose();
+        timer = null;
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      synchronized (this) {
+        current = null;
+        ready.clear();
+        if (timer != null) {
+          timer.dispose();
+        }
+      }
+      failure = t;
+      done = true;
+      drain();
+    }
+
+    @Override
+    public void onComplete() {
+      synchronized (this) {
+        if (current != null) {
+          flush();
+        }
+      }
+      done = true;
+      drain();
+    }
+
+    @Override
+    public void request(long n) {
+      if (SubscriptionHelper.validate(n)) {
+        BackpressureHelper.add(requested, n);
+        long toRequest = replenish();
+        if (toRequest > 0) {
+          upstream.request(toRequest);
+        }
+        drain();
+      }
+    }
+
+    /**
+     * Computes the number of items to request to the upstream to fill the requested lists, and records them as
+     * outstanding. The lists already filled and the items of the current list are deduced, as are the items
+     * requested for lists emitted partially by the linger timer.
+     *
+     * @return the number of items to request to the upstream, {@code 0} if none
+     */
+    private synchronized long replenish() {
+      if (outstanding == Long.MAX_VALUE) {
+        return 0;
+      }
+      long r = requested.get();
+      if (r == Long.MAX_VALUE) {
+        outstanding = Long.MAX_VALUE;
+        return Long.MAX_VALUE;
+      }
+      long lists = r - ready.size();
+      long needed = BackpressureHelper.multiplyCap(lists, maxSize.getAsInt()) - (current == null ? 0 : current.size());
+      long toRequest = needed - outstanding;
+      if (toRequest <= 0) {
+        return 0;
+      }
+      outstanding += toRequest;
+      return toRequest;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      upstream.cancel();
+      synchronized (this) {
+        current = null;
+        ready.clear();
+        if (timer != null) {
+          timer.dispose();
+        }
+      }
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        long r = requested.get();
+        long emitted = 0;
+        while (emitted != r && !cancelled) {
+          List<T> list;
+          synchronized (this) {
+            list = ready.poll();
+          }
+          if (list == null) {
+            break;
+          }
+          downstream.onNext(list);
+          emitted++;
+          if (reuse) {
+            list.clear();
+            synchronized (this) {
+              spare.add(list);
+            }
+          }
+        }
+        if (emitted != 0) {
+          BackpressureHelper.produced(requested, emitted);
+        }
+        if (done && !cancelled) {
+          boolean empty;
+          synchronized (this) {
+            empty = ready.isEmpty();
+          }
+          if (failure != null) {
+            cancelled = true;
+            downstream.onError(failure);
+          } else if (empty) {
+            cancelled = true;
+            downstream.onComplete();
+          }
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package me.escoffier.fluid.impl;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The default pool used to run blocking calls (such as JDBC or file accesses) outside of the event loops.
+ * <p>
+ * When running on a JDK providing virtual threads (21+), each call runs on a new virtual thread. Otherwise, the calls
+ * run on a fixed pool of daemon threads named {@code fluid-blocking-N}. The virtual thread executor is looked up
+ * reflectively, so this class stays compatible with Java 8. In both cases, the callers bound the number of concurrent
+ * calls.
+ * <p>
+ * The pool is shared by all the {@link me.escoffier.fluid.framework.Fluid} instances of the JVM: each instance
+ * {@linkplain #acquire() acquires} it when created and {@linkplain #release() releases} it when closed, and the pool is
+ * shut down when the last instance is closed.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class BlockingPool {
+
+  private static final Logger LOGGER = LogManager.getLogger(BlockingPool.class);
+
+  /**
+   * The number of threads of the pool when virtual threads are not available.
+   */
+  private static final int POOL_SIZE = Math.max(16, 2 * Runtime.getRuntime().availableProcessors());
+
+  private static volatile Scheduler scheduler;
+
+  /**
+   * The executor backing {@link #scheduler}, guarded by the class.
+   */
+  private static ExecutorService executor;
+
+  private static volatile boolean virtual;
+
+  /**
+   * The number of acquisitions not yet released, guarded by the class.
+   */
+  private static int users;
+
+  private BlockingPool() {
+    // Avoid direct instantiation.
+  }
+
+  /**
+   * @return the scheduler of the pool, created on first use.
+   */
+  public static Scheduler scheduler() {
+    Scheduler current = scheduler;
+    if (current == null) {
+      synchronized (BlockingPool.class) {
+        current = scheduler;
+        if (current == null) {
+          executor = createExecutor();
+          current = Schedulers.from(executor);
+          scheduler = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Registers a user of the pool, such as a {@link me.escoffier.fluid.framework.Fluid} instance. The pool is not shut
+   * down by {@link #release()} until all the users have released it.
+   */
+  public static synchronized void acquire() {
+    users++;
+  }
+
+  /**
+   * Unregisters a user of the pool registered with {@link #acquire()}, shutting the pool down if it was the last one.
+   */
+  public static synchronized void release() {
+    if (users > 0 && --users == 0) {
+      shutdown();
+    }
+  }
+
+  /**
+   * Shuts the pool down, interrupting the running calls. The streams already using the pool cannot run blocking calls
+   * anymore, the next calls to {@link #scheduler()} create a new pool.
+   */
+  public static synchronized void shutdown() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      executor.shutdownNow();
+      scheduler = null;
+      executor = null;
+    }
+  }
+
+  /**
+   * @return {@code true} if the pool runs the calls on virtual threads. Only meaningful once the pool is created.
+   */
+  public static boolean usesVirtualThreads() {
+    return virtual;
+  }
+
+  private static ExecutorService createExecutor() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      ExecutorService executor = (ExecutorService) method.invoke(null);
+      virtual = true;
+      LOGGER.info("Blocking calls run on virtual threads");
+      return executor;
+    } catch (ReflectiveOperationException | RuntimeException e) { // NOSONAR - virtual threads not available
+      LOGGER.info("Virtual threads not available, blocking calls run on a pool of " + POOL_SIZE + " threads");
+      return Executors.newFixedThreadPool(POOL_SIZE, new BlockingThreadFactory());
+    }
+  }
+
+  private static class BlockingThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "fluid-blocking-" + counter.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
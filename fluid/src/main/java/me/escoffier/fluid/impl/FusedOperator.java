@@ -0,0 +1,230 @@
+package me.escoffier.fluid.impl;
+
+import io.reactivex.FlowableOperator;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.internal.subscriptions.SubscriptionHelper;
+import io.reactivex.plugins.RxJavaPlugins;
+import me.escoffier.fluid.models.Message;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * An operator executing a chain of consecutive stateless stages (map, filter and their payload variants) in a single
+ * {@code onNext} call. Compared to one RX operator per stage, it avoids the intermediate subscribers and the
+ * intermediate {@link Message} instances: as long as stages only manipulate the payload, the message is only rebuilt
+ * once, at the end of the chain.
+ * <p>
+ * Instances are immutable, {@link #then(Stage)} creates a new operator with the given stage appended.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class FusedOperator implements FlowableOperator<Message<Object>, Message<Object>> {
+
+  private final Stage[] stages;
+
+  private FusedOperator(Stage[] stages) {
+    this.stages = stages;
+  }
+
+  /**
+   * Creates a new operator executing the given stage.
+   *
+   * @param stage the stage, must not be {@code null}
+   * @return the operator
+   */
+  public static FusedOperator of(Stage stage) {
+    return new FusedOperator(new Stage[]{Objects.requireNonNull(stage)});
+  }
+
+  /**
+   * Creates a new operator executing the stages of the current operator and then the given one.
+   *
+   * @param stage the stage, must not be {@code null}
+   * @return the new operator
+   */
+  public FusedOperator then(Stage stage) {
+    Stage[] copy = Arrays.copyOf(stages, stages.length + 1);
+    copy[stages.length] = Objects.requireNonNull(stage);
+    return new FusedOperator(copy);
+  }
+
+  /**
+   * @return a description of the fused stages, such as {@code fused[mapPayload -> filter]}.
+   */
+  public String plan() {
+    return Arrays.stream(stages).map(Stage::name).collect(Collectors.joining(" -> ", "fused[", "]"));
+  }
+
+  @Override
+  public Subscriber<? super Message<Object>> apply(Subscriber<? super Message<Object>> subscriber) {
+    return new FusedSubscriber(subscriber, stages);
+  }
+
+  @Override
+  public String toString() {
+    return plan();
+  }
+
+  /**
+   * Executes the stages on the given message.
+   *
+   * @return the resulting message, {@code null} if the message has been filtered out
+   */
+  @SuppressWarnings("unchecked")
+  private static Message<Object> execute(Stage[] stages, Message<Object> message) {
+    Message<Object> current = message;
+    // The payload is tracked separately, the message is only updated when a stage requires it.
+    Object payload = message.payload();
+    for (Stage stage : stages) {
+      if (stage.onPayload) {
+        if (stage.mapper != null) {
+          payload = Objects.requireNonNull(stage.mapper.apply(payload), "The mapper function returned a null value.");
+        } else if (stage.predicate.test(payload) == stage.negate) {
+          return null;
+        }
+      } else {
+        if (payload != current.payload()) {
+          current = current.with(payload);
+        }
+        if (stage.mapper != null) {
+          current = (Message<Object>) Objects.requireNonNull(stage.mapper.apply(current),
+            "The mapper function returned a null value.");
+          payload = current.payload();
+        } else if (stage.predicate.test(current) == stage.negate) {
+          return null;
+        }
+      }
+    }
+    if (payload != current.payload()) {
+      current = current.with(payload);
+    }
+    return current;
+  }
+
+  /**
+   * A stateless stage.
+   */
+  public static final class Stage {
+    private final String name;
+    private final boolean onPayload;
+    private final boolean negate;
+    private final Function<Object, Object> mapper;
+    private final Predicate<Object> predicate;
+
+    @SuppressWarnings("unchecked")
+    private Stage(String name, boolean onPayload, boolean negate, Function<?, ?> mapper, Predicate<?> predicate) {
+      this.name = name;
+      this.onPayload = onPayload;
+      this.negate = negate;
+      this.mapper = (Function<Object, Object>) mapper;
+      this.predicate = (Predicate<Object>) predicate;
+    }
+
+    public static <I, O> Stage map(Function<Message<I>, Message<O>> mapper) {
+      return new Stage("map", false, false, mapper, null);
+    }
+
+    public static <I, O> Stage mapPayload(Function<I, O> mapper) {
+      return new Stage("mapPayload", true, false, mapper, null);
+    }
+
+    public static <I> Stage filter(Predicate<Message<I>> predicate) {
+      return new Stage("filter", false, false, null, predicate);
+    }
+
+    public static <I> Stage filterPayload(Predicate<I> predicate) {
+      return new Stage("filterPayload", true, false, null, predicate);
+    }
+
+    public static <I> Stage filterNot(Predicate<Message<I>> predicate) {
+      return new Stage("filterNot", false, true, null, predicate);
+    }
+
+    public static <I> Stage filterNotPayload(Predicate<I> predicate) {
+      return new Stage("filterNotPayload", true, true, null, predicate);
+    }
+
+    public String name() {
+      return name;
+    }
+  }
+
+  private static final class FusedSubscriber implements FlowableSubscriber<Message<Object>>, Subscription {
+
+    private final Subscriber<? super Message<Object>> downstream;
+    private final Stage[] stages;
+    private Subscription upstream;
+    private boolean done;
+
+    FusedSubscriber(Subscriber<? super Message<Object>> downstream, Stage[] stages) {
+      this.downstream = downstream;
+      this.stages = stages;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      if (SubscriptionHelper.validate(upstream, s)) {
+        upstream = s;
+        downstream.onSubscribe(this);
+      }
+    }
+
+    @Override
+    public void onNext(Message<Object> message) {
+      if (done) {
+        return;
+      }
+      Message<Object> result;
+      try {
+        result = execute(stages, message);
+      } catch (Throwable e) {
+        Exceptions.throwIfFatal(e);
+        upstream.cancel();
+        onError(e);
+        return;
+      }
+      if (result == null) {
+        // Filtered out, replenish.
+        upstream.request(1);
+      } else {
+        downstream.onNext(result);
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      if (done) {
+        RxJavaPlugins.onError(t);
+        return;
+      }
+      done = true;
+      downstream.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+      if (done) {
+        return;
+      }
+      done = true;
+      downstream.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+      upstream.request(n);
+    }
+
+    @Override
+    public void cancel() {
+      upstream.cancel();
+    }
+  }
+}
@@ -22,6 +22,11 @@ public class ListSink<OUT> implements Sink<OUT> {
     return Completable.fromAction(() -> values.add(message));
   }
 
+  @Override
+  public Completable dispatchBatch(List<Message<OUT>> messages) {
+    return Completable.fromAction(() -> values.addAll(messages));
+  }
+
   public synchronized List<OUT> values() {
     return values.stream().map(Message::payload)
       .collect(Collectors.toList());
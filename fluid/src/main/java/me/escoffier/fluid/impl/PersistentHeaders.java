@@ -0,0 +1,504 @@
+package me.escoffier.fluid.impl;
+
+import java.util.*;
+
+/**
+ * An immutable, persistent map used to store the headers of a {@link me.escoffier.fluid.models.Message}.
+ * <p>
+ * Adding or removing a header does not copy the whole map: small maps (up to {@link #INLINE_THRESHOLD} entries) are
+ * stored in a flat array preserving the insertion order, larger maps are stored in a hash array mapped trie sharing
+ * all the untouched branches with the previous version. So, {@link #plus(String, Object)} and {@link #minus(String)}
+ * are {@code O(log32 n)} and only allocate the modified path.
+ * <p>
+ * Keys must not be {@code null}, values can be {@code null}. All the mutation methods inherited from {@link Map}
+ * throw {@link UnsupportedOperationException}.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class PersistentHeaders extends AbstractMap<String, Object> {
+
+  /**
+   * The maximum number of entries stored in the inline (flat) array. Above this threshold, the entries are stored in
+   * a trie.
+   */
+  static final int INLINE_THRESHOLD = 8;
+
+  private static final Object[] NO_ENTRIES = new Object[0];
+
+  private static final PersistentHeaders EMPTY = new PersistentHeaders(NO_ENTRIES, null, 0);
+
+  /**
+   * The inline entries stored as {@code [k0, v0, k1, v1...]}, {@code null} when the entries are stored in the trie.
+   */
+  private final Object[] inline;
+
+  /**
+   * The root of the trie, {@code null} when the entries are stored inline.
+   */
+  private final Node root;
+
+  private final int size;
+
+  private Set<Entry<String, Object>> entries;
+
+  private PersistentHeaders(Object[] inline, Node root, int size) {
+    this.inline = inline;
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * @return the empty set of headers.
+   */
+  public static PersistentHeaders empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates a {@link PersistentHeaders} containing the entries from the given map. If the given map is already a
+   * {@link PersistentHeaders}, it is returned as it is.
+   *
+   * @param map the map, must not be {@code null}, must not contain {@code null} keys
+   * @return the persistent headers
+   */
+  public static PersistentHeaders from(Map<String, ?> map) {
+    Objects.requireNonNull(map, "The `map` must not be `null`");
+    if (map instanceof PersistentHeaders) {
+      return (PersistentHeaders) map;
+    }
+    PersistentHeaders result = EMPTY;
+    for (Entry<String, ?> entry : map.entrySet()) {
+      result = result.plus(entry.getKey(), entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Creates a new version of the headers associating the given value to the given key.
+   *
+   * @param key   the key, must not be {@code null}
+   * @param value the value, can be {@code null}
+   * @return the new version, the current instance if the key was already associated to the same value
+   */
+  public PersistentHeaders plus(String key, Object value) {
+    Objects.requireNonNull(key, "The `key` must not be `null`");
+    if (inline != null) {
+      int index = indexOf(key);
+      if (index >= 0) {
+        if (inline[index + 1] == value) {
+          return this;
+        }
+        Object[] copy = inline.clone();
+        copy[index + 1] = value;
+        return new PersistentHeaders(copy, null, size);
+      }
+      if (size < INLINE_THRESHOLD) {
+        Object[] copy = Arrays.copyOf(inline, inline.length + 2);
+        copy[inline.length] = key;
+        copy[inline.length + 1] = value;
+        return new PersistentHeaders(copy, null, size + 1);
+      }
+      // Switch to the trie.
+      Node node = BitmapNode.EMPTY;
+      boolean[] added = new boolean[1];
+      for (int i = 0; i < inline.length; i += 2) {
+        String k = (String) inline[i];
+        node = node.put(0, hash(k), k, inline[i + 1], added);
+      }
+      node = node.put(0, hash(key), key, value, added);
+      return new PersistentHeaders(null, node, size + 1);
+    }
+
+    boolean[] added = new boolean[1];
+    Node node = root.put(0, hash(key), key, value, added);
+    if (node == root) {
+      return this;
+    }
+    return new PersistentHeaders(null, node, added[0] ? size + 1 : size);
+  }
+
+  /**
+   * Creates a new version of the headers without the given key.
+   *
+   * @param key the key, must not be {@code null}
+   * @return the new version, the current instance if the key was not present
+   */
+  public PersistentHeaders minus(String key) {
+    Objects.requireNonNull(key, "The `key` must not be `null`");
+    if (inline != null) {
+      int index = indexOf(key);
+      if (index < 0) {
+        return this;
+      }
+      if (size == 1) {
+        return EMPTY;
+      }
+      Object[] copy = new Object[inline.length - 2];
+      System.arraycopy(inline, 0, copy, 0, index);
+      System.arraycopy(inline, index + 2, copy, index, inline.length - index - 2);
+      return new PersistentHeaders(copy, null, size - 1);
+    }
+
+    Node node = root.remove(0, hash(key), key);
+    if (node == root) {
+      return this;
+    }
+    if (node == null) {
+      return EMPTY;
+    }
+    return new PersistentHeaders(null, node, size - 1);
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    if (inline != null) {
+      int index = indexOf((String) key);
+      return index >= 0 ? inline[index + 1] : null;
+    }
+    return root.find(0, hash((String) key), (String) key, null);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (!(key instanceof String)) {
+      return false;
+    }
+    if (inline != null) {
+      return indexOf((String) key) >= 0;
+    }
+    return root.find(0, hash((String) key), (String) key, NOT_FOUND) != NOT_FOUND;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    if (entries == null) {
+      entries = new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return inline != null ? new InlineIterator(inline) : new TrieIterator(root);
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+    return entries;
+  }
+
+  private int indexOf(String key) {
+    for (int i = 0; i < inline.length; i += 2) {
+      if (key.equals(inline[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static final Object NOT_FOUND = new Object();
+
+  /**
+   * A node of the trie.
+   */
+  private interface Node {
+
+    Object find(int shift, int hash, String key, Object notFound);
+
+    /**
+     * @return the new node, {@code this} if nothing has changed
+     */
+    Node put(int shift, int hash, String key, Object value, boolean[] added);
+
+    /**
+     * @return the new node, {@code this} if nothing has changed, {@code null} if the node is now empty
+     */
+    Node remove(int shift, int hash, String key);
+
+  }
+
+  /**
+   * A node storing up to 32 slots, indexed by a 5-bits fragment of the hash. Each slot is stored as two entries in the
+   * array: either {@code [key, value]} or {@code [null, child node]}.
+   */
+  private static final class BitmapNode implements Node {
+
+    static final BitmapNode EMPTY = new BitmapNode(0, NO_ENTRIES);
+
+    final int bitmap;
+    final Object[] array;
+
+    BitmapNode(int bitmap, Object[] array) {
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    private static int bit(int hash, int shift) {
+      return 1 << ((hash >>> shift) & 0x1f);
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    public Object find(int shift, int hash, String key, Object notFound) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return notFound;
+      }
+      int idx = 2 * index(bit);
+      Object k = array[idx];
+      Object v = array[idx + 1];
+      if (k == null) {
+        return ((Node) v).find(shift + 5, hash, key, notFound);
+      }
+      return key.equals(k) ? v : notFound;
+    }
+
+    @Override
+    public Node put(int shift, int hash, String key, Object value, boolean[] added) {
+      int bit = bit(hash, shift);
+      int idx = 2 * index(bit);
+      if ((bitmap & bit) != 0) {
+        Object k = array[idx];
+        Object v = array[idx + 1];
+        if (k == null) {
+          Node child = ((Node) v).put(shift + 5, hash, key, value, added);
+          if (child == v) {
+            return this;
+          }
+          return new BitmapNode(bitmap, set(array, idx + 1, child));
+        }
+        if (key.equals(k)) {
+          if (v == value) {
+            return this;
+          }
+          return new BitmapNode(bitmap, set(array, idx + 1, value));
+        }
+        added[0] = true;
+        Node child = createNode(shift + 5, (String) k, v, hash, key, value);
+        Object[] copy = array.clone();
+        copy[idx] = null;
+        copy[idx + 1] = child;
+        return new BitmapNode(bitmap, copy);
+      }
+
+      added[0] = true;
+      Object[] copy = new Object[array.length + 2];
+      System.arraycopy(array, 0, copy, 0, idx);
+      copy[idx] = key;
+      copy[idx + 1] = value;
+      System.arraycopy(array, idx, copy, idx + 2, array.length - idx);
+      return new BitmapNode(bitmap | bit, copy);
+    }
+
+    @Override
+    public Node remove(int shift, int hash, String key) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int idx = 2 * index(bit);
+      Object k = array[idx];
+      Object v = array[idx + 1];
+      if (k == null) {
+        Node child = ((Node) v).remove(shift + 5, hash, key);
+        if (child == v) {
+          return this;
+        }
+        if (child != null) {
+          return new BitmapNode(bitmap, set(array, idx + 1, child));
+        }
+      } else if (!key.equals(k)) {
+        return this;
+      }
+
+      if (bitmap == bit) {
+        return null;
+      }
+      Object[] copy = new Object[array.length - 2];
+      System.arraycopy(array, 0, copy, 0, idx);
+      System.arraycopy(array, idx + 2, copy, idx, array.length - idx - 2);
+      return new BitmapNode(bitmap ^ bit, copy);
+    }
+
+    private static Node createNode(int shift, String k1, Object v1, int h2, String k2, Object v2) {
+      int h1 = hash(k1);
+      if (h1 == h2) {
+        return new CollisionNode(h1, new Object[]{k1, v1, k2, v2});
+      }
+      boolean[] added = new boolean[1];
+      return EMPTY.put(shift, h1, k1, v1, added).put(shift, h2, k2, v2, added);
+    }
+  }
+
+  /**
+   * A node storing the entries whose keys have the same hash.
+   */
+  private static final class CollisionNode implements Node {
+
+    final int hash;
+    final Object[] array;
+
+    CollisionNode(int hash, Object[] array) {
+      this.hash = hash;
+      this.array = array;
+    }
+
+    private int indexOf(String key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public Object find(int shift, int hash, String key, Object notFound) {
+      int idx = indexOf(key);
+      return idx >= 0 ? array[idx + 1] : notFound;
+    }
+
+    @Override
+    public Node put(int shift, int hash, String key, Object value, boolean[] added) {
+      if (hash != this.hash) {
+        // Nest the collision node into a bitmap node so the new key can be stored.
+        return new BitmapNode(1 << ((this.hash >>> shift) & 0x1f), new Object[]{null, this})
+          .put(shift, hash, key, value, added);
+      }
+      int idx = indexOf(key);
+      if (idx >= 0) {
+        if (array[idx + 1] == value) {
+          return this;
+        }
+        return new CollisionNode(hash, set(array, idx + 1, value));
+      }
+      added[0] = true;
+      Object[] copy = Arrays.copyOf(array, array.length + 2);
+      copy[array.length] = key;
+      copy[array.length + 1] = value;
+      return new CollisionNode(hash, copy);
+    }
+
+    @Override
+    public Node remove(int shift, int hash, String key) {
+      int idx = indexOf(key);
+      if (idx < 0) {
+        return this;
+      }
+      if (array.length == 2) {
+        return null;
+      }
+      Object[] copy = new Object[array.length - 2];
+      System.arraycopy(array, 0, copy, 0, idx);
+      System.arraycopy(array, idx + 2, copy, idx, array.length - idx - 2);
+      return new CollisionNode(hash, copy);
+    }
+  }
+
+  private static Object[] set(Object[] array, int index, Object value) {
+    Object[] copy = array.clone();
+    copy[index] = value;
+    return copy;
+  }
+
+  private static final class InlineIterator implements Iterator<Entry<String, Object>> {
+    private final Object[] array;
+    private int index;
+
+    InlineIterator(Object[] array) {
+      this.array = array;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < array.length;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (index >= array.length) {
+        throw new NoSuchElementException();
+      }
+      Entry<String, Object> entry = new SimpleImmutableEntry<>((String) array[index], array[index + 1]);
+      index += 2;
+      return entry;
+    }
+  }
+
+  /**
+   * Depth-first iterator on the trie. The maximum depth of the trie is 8 (7 bitmap levels and a collision node).
+   */
+  private static final class TrieIterator implements Iterator<Entry<String, Object>> {
+    private final Object[][] arrays = new Object[8][];
+    private final int[] positions = new int[8];
+    private int depth;
+    private Entry<String, Object> next;
+
+    TrieIterator(Node root) {
+      arrays[0] = array(root);
+      advance();
+    }
+
+    private static Object[] array(Node node) {
+      return node instanceof BitmapNode ? ((BitmapNode) node).array : ((CollisionNode) node).array;
+    }
+
+    private void advance() {
+      next = null;
+      while (depth >= 0) {
+        Object[] array = arrays[depth];
+        int position = positions[depth];
+        if (position >= array.length) {
+          depth--;
+          continue;
+        }
+        positions[depth] = position + 2;
+        Object k = array[position];
+        if (k == null) {
+          depth++;
+          arrays[depth] = array((Node) array[position + 1]);
+          positions[depth] = 0;
+        } else {
+          next = new SimpleImmutableEntry<>((String) k, array[position + 1]);
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Entry<String, Object> current = next;
+      advance();
+      return current;
+    }
+  }
+}
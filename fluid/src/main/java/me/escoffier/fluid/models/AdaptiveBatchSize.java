@@ -0,0 +1,148 @@
+package me.escoffier.fluid.models;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Adapts a batch size to keep the batch processing latency under a target, using an AIMD (additive increase,
+ * multiplicative decrease) policy. The latencies are recorded in samples of {@code sampleSize} batches. At the end of
+ * each sample, the 99th percentile of the sample is compared to the target:
+ * <ul>
+ * <li>if it is under the target, the batch size is increased by {@code increment},</li>
+ * <li>otherwise, the batch size is halved.</li>
+ * </ul>
+ * The batch size always stays between the given bounds. The samples contain at least {@link #MIN_SAMPLE_SIZE}
+ * batches: with smaller samples the 99th percentile would be the maximum latency, and a single slow batch would halve
+ * the batch size.
+ * <p>
+ * Instances are passed to {@link SinkOptions#withAdaptiveBatchSize(AdaptiveBatchSize)}, in which case the latency of
+ * the {@link Sink#dispatchBatch(java.util.List)} calls are recorded automatically, or to
+ * {@link Source#batch(AdaptiveBatchSize, Duration)}, in which case the consumer records the latencies using
+ * {@link #record(Duration)}. The current batch size is exposed by {@link #size()}. All methods are thread-safe.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class AdaptiveBatchSize {
+
+  /**
+   * The minimum number of batches per sample, so the 99th percentile ignores the slowest batch of the sample.
+   */
+  public static final int MIN_SAMPLE_SIZE = 100;
+
+  private static final int DEFAULT_SAMPLE_SIZE = MIN_SAMPLE_SIZE;
+
+  private final long target;
+
+  private final int min;
+
+  private final int max;
+
+  private final int increment;
+
+  /**
+   * The latencies of the current sample in nanoseconds, guarded by {@code this}.
+   */
+  private final long[] sample;
+
+  private int count;
+
+  private volatile int size;
+
+  private volatile long lastP99 = -1;
+
+  private AdaptiveBatchSize(long target, int min, int max, int increment, int sampleSize) {
+    this.target = target;
+    this.min = min;
+    this.max = max;
+    this.increment = increment;
+    this.sample = new long[sampleSize];
+    this.size = min;
+  }
+
+  /**
+   * Creates a new instance starting with a batch size of {@code min}, incremented by 1 and using samples of
+   * {@link #MIN_SAMPLE_SIZE} batches.
+   *
+   * @param targetP99 the target for the 99th percentile of the batch latency, must be at least 1 ms
+   * @param min       the minimum batch size, must be strictly positive
+   * @param max       the maximum batch size, must be greater or equal to {@code min}
+   * @return the new instance
+   */
+  public static AdaptiveBatchSize create(Duration targetP99, int min, int max) {
+    return create(targetP99, min, max, 1, DEFAULT_SAMPLE_SIZE);
+  }
+
+  /**
+   * Creates a new instance starting with a batch size of {@code min}.
+   *
+   * @param targetP99  the target for the 99th percentile of the batch latency, must be at least 1 ms
+   * @param min        the minimum batch size, must be strictly positive
+   * @param max        the maximum batch size, must be greater or equal to {@code min}
+   * @param increment  the number of messages added to the batch size when the latency is under the target, must be
+   *                   strictly positive
+   * @param sampleSize the number of batches between two adjustments, must be at least {@link #MIN_SAMPLE_SIZE}
+   * @return the new instance
+   */
+  public static AdaptiveBatchSize create(Duration targetP99, int min, int max, int increment, int sampleSize) {
+    Objects.requireNonNull(targetP99, "The `targetP99` must not be `null`");
+    if (targetP99.toMillis() <= 0) {
+      throw new IllegalArgumentException("The target latency must be at least 1 ms");
+    }
+    if (min <= 0 || max < min) {
+      throw new IllegalArgumentException("Invalid bounds, `min` must be strictly positive and `max` greater or "
+        + "equal to `min`");
+    }
+    if (increment <= 0) {
+      throw new IllegalArgumentException("The `increment` must be strictly positive");
+    }
+    if (sampleSize < MIN_SAMPLE_SIZE) {
+      throw new IllegalArgumentException("The `sampleSize` must be at least " + MIN_SAMPLE_SIZE
+        + ", otherwise the 99th percentile is the maximum latency");
+    }
+    return new AdaptiveBatchSize(targetP99.toNanos(), min, max, increment, sampleSize);
+  }
+
+  /**
+   * @return the current batch size.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the 99th percentile of the latency of the last complete sample, {@code null} if no sample has been
+   * completed yet.
+   */
+  public Duration lastP99() {
+    long p99 = lastP99;
+    return p99 < 0 ? null : Duration.ofNanos(p99);
+  }
+
+  /**
+   * Records the latency of a batch, and adjusts the batch size if the current sample is complete.
+   *
+   * @param latency the latency, must not be {@code null}
+   */
+  public void record(Duration latency) {
+    Objects.requireNonNull(latency, "The `latency` must not be `null`");
+    record(latency.toNanos());
+  }
+
+  synchronized void record(long nanos) {
+    sample[count++] = nanos;
+    if (count < sample.length) {
+      return;
+    }
+    count = 0;
+    long[] sorted = sample.clone();
+    Arrays.sort(sorted);
+    long p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+    lastP99 = p99;
+    if (p99 <= target) {
+      size = (int) Math.min(max, (long) size + increment);
+    } else {
+      size = Math.max(min, size / 2);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package me.escoffier.fluid.models;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Computes a result incrementally from a set of payloads, such as the payloads of a window. Payloads are added one by
+ * one to an <em>accumulator</em>, so the payloads themselves do not need to be retained.
+ *
+ * @param <T>   the type of payload
+ * @param <ACC> the type of accumulator
+ * @param <R>   the type of result
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public interface Aggregator<T, ACC, R> {
+
+  /**
+   * @return a new empty accumulator.
+   */
+  ACC create();
+
+  /**
+   * Adds the given payload to the accumulator.
+   *
+   * @param accumulator the accumulator
+   * @param payload     the payload
+   * @return the updated accumulator, can be the same instance
+   */
+  ACC add(ACC accumulator, T payload);
+
+  /**
+   * Computes the result from the accumulator.
+   *
+   * @param accumulator the accumulator
+   * @return the result, must not be {@code null}
+   */
+  R result(ACC accumulator);
+
+  /**
+   * Creates an {@link Aggregator} from the given functions.
+   *
+   * @param create the function creating the accumulators, must not be {@code null}
+   * @param add    the function adding a payload to an accumulator, must not be {@code null}
+   * @param result the function computing the result, must not be {@code null}
+   * @param <T>    the type of payload
+   * @param <ACC>  the type of accumulator
+   * @param <R>    the type of result
+   * @return the aggregator
+   */
+  static <T, ACC, R> Aggregator<T, ACC, R> of(Supplier<ACC> create, BiFunction<ACC, T, ACC> add,
+                                              Function<ACC, R> result) {
+    Objects.requireNonNull(create, "The `create` function must not be `null`");
+    Objects.requireNonNull(add, "The `add` function must not be `null`");
+    Objects.requireNonNull(result, "The `result` function must not be `null`");
+    return new Aggregator<T, ACC, R>() {
+      @Override
+      public ACC create() {
+        return create.get();
+      }
+
+      @Override
+      public ACC add(ACC accumulator, T payload) {
+        return add.apply(accumulator, payload);
+      }
+
+      @Override
+      public R result(ACC accumulator) {
+        return result.apply(accumulator);
+      }
+    };
+  }
+
+  /**
+   * Creates an {@link Aggregator} folding the payloads, the accumulator being the result. The same {@code zero} instance
+   * starts every accumulation, so it must be immutable, and the function must return a new value instead of mutating
+   * its input. Use {@link #collect(Supplier, BiConsumer)} to fold into a mutable container.
+   *
+   * @param zero     the initial value, must not be {@code null}
+   * @param function the accumulator function, must not be {@code null}
+   * @param <T>      the type of payload
+   * @param <R>      the type of result
+   * @return the aggregator
+   */
+  static <T, R> Aggregator<T, R, R> fold(R zero, BiFunction<R, T, R> function) {
+    Objects.requireNonNull(zero, "The `zero` value must not be `null`");
+    return of(() -> zero, function, Function.identity());
+  }
+
+  /**
+   * Creates an {@link Aggregator} adding the payloads to a mutable container, the container being the result. Unlike
+   * {@link #fold(Object, BiFunction)}, each accumulation starts from a new container.
+   *
+   * @param supplier    the function creating the containers, must not be {@code null}, must not return {@code null}
+   * @param accumulator the function adding a payload to a container, must not be {@code null}
+   * @param <T>         the type of payload
+   * @param <R>         the type of container
+   * @return the aggregator
+   */
+  static <T, R> Aggregator<T, R, R> collect(Supplier<R> supplier, BiConsumer<R, T> accumulator) {
+    Objects.requireNonNull(supplier, "The `supplier` function must not be `null`");
+    Objects.requireNonNull(accumulator, "The `accumulator` function must not be `null`");
+    return of(supplier, (container, t) -> {
+      accumulator.accept(container, t);
+      return container;
+    }, Function.identity());
+  }
+
+  /**
+   * @param <T> the type of payload
+   * @return an {@link Aggregator} counting the payloads.
+   */
+  static <T> Aggregator<T, long[], Long> count() {
+    return of(() -> new long[1], (acc, t) -> {
+      acc[0]++;
+      return acc;
+    }, acc -> acc[0]);
+  }
+
+  /**
+   * @param function the function extracting the value to average from the payloads, must not be {@code null}
+   * @param <T>      the type of payload
+   * @return an {@link Aggregator} computing the average of the values extracted from the payloads. The accumulator
+   * holds the number of values and their sum, so the values are not boxed.
+   */
+  static <T> Aggregator<T, long[], Double> average(ToLongFunction<T> function) {
+    Objects.requireNonNull(function, "The `function` must not be `null`");
+    return of(() -> new long[2], (acc, t) -> {
+      acc[0]++;
+      acc[1] += function.applyAsLong(t);
+      return acc;
+    }, acc -> (double) acc[1] / acc[0]);
+  }
+}
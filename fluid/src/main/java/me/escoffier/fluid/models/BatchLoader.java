@@ -0,0 +1,249 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.MaybeSubject;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Collects the keys requested within a short period and retrieves their values with a single call, for example to a
+ * remote service. The keys are sent when the batch is full, or when the first key of the batch has waited for the
+ * {@code linger} duration. A key requested again while its value is being retrieved is not sent twice: all the
+ * requesters receive the same value. Values are not retained once delivered.
+ * <p>
+ * Use it with {@link Source#enrich(Function, BatchLoader)}, or directly with {@link #load(Object)}.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public final class BatchLoader<K, V> {
+
+  /**
+   * The default maximum number of keys per call.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+  /**
+   * The default maximum time a key waits for its batch to be sent.
+   */
+  public static final Duration DEFAULT_LINGER = Duration.ofMillis(1);
+
+  private final Function<List<K>, Single<Map<K, V>>> function;
+  private final int maxBatchSize;
+  private final long linger;
+  private final Scheduler scheduler;
+
+  private final Map<K, MaybeSubject<V>> pending = new HashMap<>();
+  private List<K> batch = new ArrayList<>();
+  private long generation;
+
+  private final AtomicLong loads = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+
+  private BatchLoader(Function<List<K>, Single<Map<K, V>>> function, int maxBatchSize, long linger,
+                      Scheduler scheduler) {
+    this.function = function;
+    this.maxBatchSize = maxBatchSize;
+    this.linger = linger;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Creates a new loader sending at most {@link #DEFAULT_MAX_BATCH_SIZE} keys per call, and waiting at most
+   * {@link #DEFAULT_LINGER} for a batch to be complete.
+   *
+   * @param function the function retrieving the values of a list of distinct keys, must not be {@code null}. The keys
+   *                 missing from the returned map have no value.
+   * @param <K>      the type of key
+   * @param <V>      the type of value
+   * @return the loader
+   */
+  public static <K, V> BatchLoader<K, V> create(Function<List<K>, Single<Map<K, V>>> function) {
+    return create(function, DEFAULT_MAX_BATCH_SIZE, DEFAULT_LINGER);
+  }
+
+  /**
+   * Creates a new loader.
+   *
+   * @param function     the function retrieving the values of a list of distinct keys, must not be {@code null}. The
+   *                     keys missing from the returned map have no value.
+   * @param maxBatchSize the maximum number of keys per call, must be strictly positive
+   * @param linger       the maximum time a key waits for its batch to be sent, must not be {@code null}, must not be
+   *                     negative
+   * @param <K>          the type of key
+   * @param <V>          the type of value
+   * @return the loader
+   */
+  public static <K, V> BatchLoader<K, V> create(Function<List<K>, Single<Map<K, V>>> function, int maxBatchSize,
+                                                Duration linger) {
+    return create(function, maxBatchSize, linger, Schedulers.computation());
+  }
+
+  /**
+   * Same as {@link #create(Function, int, Duration)} but uses the given scheduler for the linger timer.
+   *
+   * @param function     the function retrieving the values of a list of distinct keys, must not be {@code null}
+   * @param maxBatchSize the maximum number of keys per call, must be strictly positive
+   * @param linger       the maximum time a key waits for its batch to be sent, must not be {@code null}, must not be
+   *                     negative
+   * @param scheduler    the scheduler, must not be {@code null}
+   * @param <K>          the type of key
+   * @param <V>          the type of value
+   * @return the loader
+   */
+  public static <K, V> BatchLoader<K, V> create(Function<List<K>, Single<Map<K, V>>> function, int maxBatchSize,
+                                                Duration linger, Scheduler scheduler) {
+    Objects.requireNonNull(function, "The `function` must not be `null`");
+    Objects.requireNonNull(linger, "The `linger` must not be `null`");
+    Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`");
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("The `maxBatchSize` cannot be less than 1");
+    }
+    if (linger.isNegative()) {
+      throw new IllegalArgumentException("The `linger` cannot be negative");
+    }
+    return new BatchLoader<>(function, maxBatchSize, linger.toMillis(), scheduler);
+  }
+
+  /**
+   * Retrieves the value associated with the given key. The key is added to the current batch when the returned
+   * {@link Maybe} is subscribed.
+   *
+   * @param key the key, must not be {@code null}
+   * @return a {@link Maybe} emitting the value, empty if the key has no value, failed if the call failed
+   */
+  public Maybe<V> load(K key) {
+    Objects.requireNonNull(key, "The `key` must not be `null`");
+    return Maybe.defer(() -> enqueue(key));
+  }
+
+  /**
+   * @return the number of keys requested.
+   */
+  public long loads() {
+    return loads.get();
+  }
+
+  /**
+   * @return the number of requested keys that were already being retrieved, and so were not sent again.
+   */
+  public long hits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of requested keys that were sent.
+   */
+  public long misses() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of calls.
+   */
+  public long batches() {
+    return batches.get();
+  }
+
+  /**
+   * @return the average number of keys per call, {@code 0} if no call has been made.
+   */
+  public double averageBatchSize() {
+    long count = batches.get();
+    return count == 0 ? 0 : (double) misses.get() / count;
+  }
+
+  private Maybe<V> enqueue(K key) {
+    loads.incrementAndGet();
+    List<K> ready = null;
+    MaybeSubject<V> subject;
+    synchronized (this) {
+      subject = pending.get(key);
+      if (subject != null) {
+        hits.incrementAndGet();
+        return subject;
+      }
+      misses.incrementAndGet();
+      subject = MaybeSubject.create();
+      pending.put(key, subject);
+      batch.add(key);
+      if (batch.size() >= maxBatchSize) {
+        ready = takeBatch();
+      } else if (batch.size() == 1) {
+        long current = generation;
+        scheduler.scheduleDirect(() -> flush(current), linger, TimeUnit.MILLISECONDS);
+      }
+    }
+    if (ready != null) {
+      call(ready);
+    }
+    return subject;
+  }
+
+  /**
+   * Called by the linger timer, the batch may have been sent already because it was full.
+   */
+  private void flush(long expected) {
+    List<K> ready;
+    synchronized (this) {
+      if (expected != generation || batch.isEmpty()) {
+        return;
+      }
+      ready = takeBatch();
+    }
+    call(ready);
+  }
+
+  private List<K> takeBatch() {
+    List<K> ready = batch;
+    batch = new ArrayList<>();
+    generation++;
+    return ready;
+  }
+
+  private void call(List<K> keys) {
+    batches.incrementAndGet();
+    Single.defer(() -> function.apply(keys)).subscribe(
+      values -> completed(keys, values),
+      failure -> failed(keys, failure));
+  }
+
+  private void completed(List<K> keys, Map<K, V> values) {
+    List<MaybeSubject<V>> subjects = remove(keys);
+    for (int i = 0; i < keys.size(); i++) {
+      V value = values.get(keys.get(i));
+      if (value == null) {
+        subjects.get(i).onComplete();
+      } else {
+        subjects.get(i).onSuccess(value);
+      }
+    }
+  }
+
+  private void failed(List<K> keys, Throwable failure) {
+    for (MaybeSubject<V> subject : remove(keys)) {
+      subject.onError(failure);
+    }
+  }
+
+  private synchronized List<MaybeSubject<V>> remove(List<K> keys) {
+    List<MaybeSubject<V>> subjects = new ArrayList<>(keys.size());
+    for (K key : keys) {
+      subjects.add(pending.remove(key));
+    }
+    return subjects;
+  }
+}
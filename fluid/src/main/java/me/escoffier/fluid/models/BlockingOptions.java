@@ -0,0 +1,111 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Scheduler;
+import me.escoffier.fluid.impl.BlockingPool;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Configures {@link Source#mapBlocking(Function, BlockingOptions)}: where the blocking calls run, how many run
+ * concurrently, and whether the order of the messages is preserved.
+ * <p>
+ * By default, the calls run on the {@link BlockingPool} (virtual threads when available), at most 16 concurrently,
+ * and the order is preserved.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class BlockingOptions {
+
+  /**
+   * The default maximum number of concurrent calls.
+   */
+  public static final int DEFAULT_CONCURRENCY = 16;
+
+  /**
+   * The scheduler, {@code null} to use the {@link BlockingPool}.
+   */
+  private final Scheduler scheduler;
+
+  final int concurrency;
+
+  final boolean ordered;
+
+  private BlockingOptions(Scheduler scheduler, int concurrency, boolean ordered) {
+    this.scheduler = scheduler;
+    this.concurrency = concurrency;
+    this.ordered = ordered;
+  }
+
+  /**
+   * @return new default options.
+   */
+  public static BlockingOptions create() {
+    return new BlockingOptions(null, DEFAULT_CONCURRENCY, true);
+  }
+
+  /**
+   * Runs the calls on the thread pool registered with the given name, for example declared in the {@code pools}
+   * section of the configuration. Use a pool of type {@code worker} to run the calls on a Vert.x worker pool.
+   *
+   * @param pool the name of the pool, must not be {@code null}, must be registered
+   * @return the new options
+   */
+  public BlockingOptions withPool(String pool) {
+    return new BlockingOptions(DefaultSource.lookupScheduler(pool), concurrency, ordered);
+  }
+
+  /**
+   * Runs the calls on the given scheduler.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new options
+   */
+  public BlockingOptions withScheduler(Scheduler scheduler) {
+    return new BlockingOptions(Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"), concurrency,
+      ordered);
+  }
+
+  /**
+   * Sets the maximum number of concurrent calls.
+   *
+   * @param concurrency the maximum, must be strictly positive
+   * @return the new options
+   */
+  public BlockingOptions withConcurrency(int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("The `concurrency` cannot be less than 1");
+    }
+    return new BlockingOptions(scheduler, concurrency, ordered);
+  }
+
+  /**
+   * Emits the results as soon as they are available, instead of in the order of the incoming messages.
+   *
+   * @return the new options
+   */
+  public BlockingOptions unordered() {
+    return new BlockingOptions(scheduler, concurrency, false);
+  }
+
+  /**
+   * @return the scheduler running the calls.
+   */
+  public Scheduler scheduler() {
+    return scheduler == null ? BlockingPool.scheduler() : scheduler;
+  }
+
+  /**
+   * @return the maximum number of concurrent calls.
+   */
+  public int concurrency() {
+    return concurrency;
+  }
+
+  /**
+   * @return whether the order of the messages is preserved.
+   */
+  public boolean ordered() {
+    return ordered;
+  }
+}
@@ -0,0 +1,95 @@
+package me.escoffier.fluid.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The branches created by {@link Source#broadcast(int, BroadcastOptions)}, with their metrics.
+ * <p>
+ * Each branch receives all the messages of the broadcast source. The lag of a branch is the number of messages
+ * waiting in its buffer, i.e. how far the fastest branches are ahead of it.
+ *
+ * @param <T> the type of payload
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class Broadcast<T> {
+
+  private final Router<T> router;
+
+  private final List<Source<T>> branches;
+
+  Broadcast(Router<T> router, String name, Map<String, Object> attributes) {
+    this.router = router;
+    List<Source<T>> list = new ArrayList<>();
+    for (int i = 0; i < router.outputs(); i++) {
+      list.add(new DefaultSource<>(router.output(i), name, attributes));
+    }
+    this.branches = Collections.unmodifiableList(list);
+  }
+
+  /**
+   * @return the branches, each of them can only be subscribed once.
+   */
+  public List<Source<T>> branches() {
+    return branches;
+  }
+
+  /**
+   * @param branch the branch, between 0 (included) and {@link #size()} (excluded)
+   * @return the source of the given branch
+   */
+  public Source<T> branch(int branch) {
+    return branches.get(branch);
+  }
+
+  /**
+   * @return the number of branches.
+   */
+  public int size() {
+    return branches.size();
+  }
+
+  /**
+   * Gets the number of messages waiting in the buffer of the given branch.
+   *
+   * @param branch the branch, between 0 (included) and {@link #size()} (excluded)
+   * @return the number of buffered messages
+   */
+  public long lag(int branch) {
+    return router.queued(branch);
+  }
+
+  /**
+   * Gets the number of messages dropped by the given branch because its buffer was full. With the
+   * {@link BroadcastOptions.Overflow#SPILL} policy, it counts the messages dropped because too many dispatches to the
+   * spill sink were pending.
+   *
+   * @param branch the branch, between 0 (included) and {@link #size()} (excluded)
+   * @return the number of dropped messages
+   */
+  public long dropped(int branch) {
+    return router.dropped(branch);
+  }
+
+  /**
+   * Gets the number of messages successfully dispatched to the spill sink instead of the given branch.
+   *
+   * @param branch the branch, between 0 (included) and {@link #size()} (excluded)
+   * @return the number of spilled messages
+   */
+  public long spilled(int branch) {
+    return router.spilled(branch);
+  }
+
+  /**
+   * Gets the number of messages the spill sink failed to dispatch instead of the given branch.
+   *
+   * @param branch the branch, between 0 (included) and {@link #size()} (excluded)
+   * @return the number of failed spills
+   */
+  public long spillFailures(int branch) {
+    return router.spillFailures(branch);
+  }
+}
@@ -0,0 +1,124 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+
+import java.util.Objects;
+
+/**
+ * Configures the branches created by {@link Source#broadcast(int, BroadcastOptions)}.
+ * <p>
+ * Each branch has its own buffer, so a fast branch can run ahead of a slow one until the buffer of the slow branch is
+ * full. What happens then depends on the {@link Overflow} policy.
+ *
+ * @param <T> the type of payload
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class BroadcastOptions<T> {
+
+  /**
+   * The policy applied when a message is broadcast to a branch having a full buffer.
+   */
+  public enum Overflow {
+    /**
+     * The upstream is not requested until the buffer has room again, slowing down all the branches.
+     */
+    BLOCK,
+    /**
+     * The oldest message of the buffer is dropped.
+     */
+    DROP_OLDEST,
+    /**
+     * The new message is dropped.
+     */
+    DROP_NEWEST,
+    /**
+     * The new message is dispatched to the spill sink. When too many dispatches to the spill sink are pending, the
+     * message is dropped.
+     */
+    SPILL
+  }
+
+  final int bufferSize;
+
+  final Overflow overflow;
+
+  final Sink<T> spill;
+
+  /**
+   * The maximum number of dispatches to the spill sink not yet completed.
+   */
+  final int maxPendingSpills;
+
+  private BroadcastOptions(int bufferSize, Overflow overflow, Sink<T> spill, int maxPendingSpills) {
+    this.bufferSize = bufferSize;
+    this.overflow = overflow;
+    this.spill = spill;
+    this.maxPendingSpills = maxPendingSpills;
+  }
+
+  /**
+   * @param <T> the type of payload
+   * @return new options using buffers of {@link Flowable#bufferSize()} messages and the {@link Overflow#BLOCK} policy.
+   */
+  public static <T> BroadcastOptions<T> create() {
+    return new BroadcastOptions<>(Flowable.bufferSize(), Overflow.BLOCK, null, Flowable.bufferSize());
+  }
+
+  /**
+   * Sets the size of the buffer of each branch.
+   *
+   * @param size the maximum number of messages waiting in the buffer of each branch, must be strictly positive
+   * @return the new options
+   */
+  public BroadcastOptions<T> withBufferSize(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("The buffer size must be strictly positive");
+    }
+    return new BroadcastOptions<>(size, overflow, spill, maxPendingSpills);
+  }
+
+  /**
+   * Sets the policy applied when the buffer of a branch is full. Use {@link #withSpill(Sink)} for
+   * {@link Overflow#SPILL}.
+   *
+   * @param overflow the policy, must not be {@code null}
+   * @return the new options
+   */
+  public BroadcastOptions<T> withOverflow(Overflow overflow) {
+    Objects.requireNonNull(overflow, "The `overflow` must not be `null`");
+    if (overflow == Overflow.SPILL) {
+      throw new IllegalArgumentException("The spill policy requires a sink, use `withSpill`");
+    }
+    return new BroadcastOptions<>(bufferSize, overflow, null, maxPendingSpills);
+  }
+
+  /**
+   * Uses the {@link Overflow#SPILL} policy: when the buffer of a branch is full, the messages are dispatched to the
+   * given sink instead. At most {@link Flowable#bufferSize()} dispatches to the sink can be pending, the following
+   * messages are dropped.
+   *
+   * @param sink the sink, must not be {@code null}
+   * @return the new options
+   */
+  public BroadcastOptions<T> withSpill(Sink<T> sink) {
+    return withSpill(sink, Flowable.bufferSize());
+  }
+
+  /**
+   * Uses the {@link Overflow#SPILL} policy: when the buffer of a branch is full, the messages are dispatched to the
+   * given sink instead. When {@code maxPending} dispatches to the sink are not completed yet, the following messages
+   * are dropped, so a slow spill sink cannot accumulate an unbounded number of messages.
+   *
+   * @param sink       the sink, must not be {@code null}
+   * @param maxPending the maximum number of pending dispatches to the sink, shared by all the branches, must be
+   *                   strictly positive
+   * @return the new options
+   */
+  public BroadcastOptions<T> withSpill(Sink<T> sink, int maxPending) {
+    Objects.requireNonNull(sink, "The `sink` must not be `null`");
+    if (maxPending <= 0) {
+      throw new IllegalArgumentException("The maximum number of pending spills must be strictly positive");
+    }
+    return new BroadcastOptions<>(bufferSize, Overflow.SPILL, sink, maxPending);
+  }
+}
@@ -0,0 +1,81 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Describes a {@link MemoCache}: its maximum size and the optional time-to-live of its entries.
+ * <p>
+ * By default, the cache holds at most {@link #DEFAULT_MAXIMUM_SIZE} entries, which never expire.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class CacheSpec {
+
+  /**
+   * The default maximum number of entries.
+   */
+  public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  final int maximumSize;
+
+  /**
+   * The time-to-live in milliseconds, {@code 0} if the entries do not expire.
+   */
+  final long ttl;
+
+  final Scheduler scheduler;
+
+  private CacheSpec(int maximumSize, long ttl, Scheduler scheduler) {
+    this.maximumSize = maximumSize;
+    this.ttl = ttl;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * @return a new default specification.
+   */
+  public static CacheSpec create() {
+    return new CacheSpec(DEFAULT_MAXIMUM_SIZE, 0, Schedulers.computation());
+  }
+
+  /**
+   * Sets the maximum number of entries. When the cache is full, inserting a new entry evicts another one.
+   *
+   * @param size the maximum size, must be strictly positive
+   * @return the new specification
+   */
+  public CacheSpec withMaximumSize(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("The maximum `size` cannot be less than 1");
+    }
+    return new CacheSpec(size, ttl, scheduler);
+  }
+
+  /**
+   * Sets the time-to-live of the entries, measured from their insertion. Expired entries are computed again.
+   *
+   * @param ttl the time-to-live, must not be {@code null}, must be at least 1 ms
+   * @return the new specification
+   */
+  public CacheSpec withTtl(Duration ttl) {
+    Objects.requireNonNull(ttl, "The `ttl` must not be `null`");
+    if (ttl.toMillis() < 1) {
+      throw new IllegalArgumentException("The `ttl` must be at least 1 ms");
+    }
+    return new CacheSpec(maximumSize, ttl.toMillis(), scheduler);
+  }
+
+  /**
+   * Sets the scheduler used to measure the age of the entries.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new specification
+   */
+  public CacheSpec using(Scheduler scheduler) {
+    return new CacheSpec(maximumSize, ttl, Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"));
+  }
+}
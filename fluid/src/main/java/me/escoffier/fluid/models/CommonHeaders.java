@@ -14,6 +14,12 @@ public final class CommonHeaders {
 
   public static final String GROUP_KEY = "fluid-group-key";
 
+  public static final String WINDOW_START = "fluid.window.start";
+
+  public static final String WINDOW_END = "fluid.window.end";
+
+  public static final String BATCH_SIZE = "fluid.batch.size";
+
 
   private CommonHeaders() {
     // Avoid direct instantiation.
@@ -21,39 +27,49 @@ public final class CommonHeaders {
 
 
   @SuppressWarnings("unchecked")
-  public static <T> T original(Message message) {
-    return (T) message.get(ORIGINAL);
+  public static <T> T original(Message<?> message) {
+    return (T) message.get(HeaderKey.ORIGINAL);
   }
 
   @SuppressWarnings("unchecked")
-  public static <T> Optional<T> originalOpt(Message message) {
-    return message.getOpt(ORIGINAL);
+  public static <T> Optional<T> originalOpt(Message<?> message) {
+    return (Optional<T>) message.getOpt(HeaderKey.ORIGINAL);
   }
 
-  public static String address(Message message) {
-    return (String) message.get(ADDRESS);
+  public static String address(Message<?> message) {
+    return message.get(HeaderKey.ADDRESS);
   }
 
-  @SuppressWarnings("unchecked")
-  public static Optional<String> addressOpt(Message message) {
-    return message.getOpt(ADDRESS);
+  public static Optional<String> addressOpt(Message<?> message) {
+    return message.getOpt(HeaderKey.ADDRESS);
   }
 
-  public static String key(Message message) {
-    return (String) message.get(KEY);
+  public static String key(Message<?> message) {
+    return message.get(HeaderKey.KEY);
   }
 
-  @SuppressWarnings("unchecked")
-  public static Optional<String> keyOpt(Message message) {
-    return message.getOpt(KEY);
+  public static Optional<String> keyOpt(Message<?> message) {
+    return message.getOpt(HeaderKey.KEY);
+  }
+
+  public static ResponseCallback responseCallback(Message<?> message) {
+    return message.get(HeaderKey.RESPONSE_CALLBACK);
+  }
+
+  public static Optional<ResponseCallback> responseCallbackOpt(Message<?> message) {
+    return message.getOpt(HeaderKey.RESPONSE_CALLBACK);
+  }
+
+  public static Long windowStart(Message<?> message) {
+    return message.get(HeaderKey.WINDOW_START);
   }
 
-  public static ResponseCallback responseCallback(Message message) {
-    return (ResponseCallback) message.get(RESPONSE_CALLBACK);
+  public static Long windowEnd(Message<?> message) {
+    return message.get(HeaderKey.WINDOW_END);
   }
 
-  public static Optional<ResponseCallback> responseCallbackOpt(Message message) {
-    return (Optional<ResponseCallback>) message.getOpt(RESPONSE_CALLBACK);
+  public static Integer batchSize(Message<?> message) {
+    return message.get(HeaderKey.BATCH_SIZE);
   }
 
 }
@@ -0,0 +1,159 @@
+package me.escoffier.fluid.models;
+
+import java.time.Duration;
+
+/**
+ * Limits the number of concurrent dispatches to a sink, adapting the limit to the observed dispatch latency. Use
+ * {@link Sink#withConcurrencyLimit(ConcurrencyLimiter)} to wrap a sink. When a wrapped sink is passed to
+ * {@link Source#to(Sink)}, the source is only requested when the number of in-flight dispatches is under the limit, so
+ * the messages wait in the source (backpressure) and not in a buffer.
+ * <p>
+ * The limit is adapted using the TCP Vegas algorithm. The minimum latency observed approximates the latency of the
+ * sink when it is not saturated. For each completed dispatch, the number of queued dispatches is estimated as
+ * {@code limit * (1 - minLatency / latency)}:
+ * <ul>
+ * <li>if it is under {@code alpha}, the sink is not saturated and the limit is increased by 1, unless the limit is
+ * not reached (the limit is not the bottleneck),</li>
+ * <li>if it is above {@code beta}, the sink is saturated and the limit is decreased by 1.</li>
+ * </ul>
+ * A failed dispatch halves the limit. The minimum latency is reset periodically so the limiter adapts when the sink
+ * gets slower. The limit always stays between the given bounds. All methods are thread-safe, and a limiter can be
+ * shared by several sinks.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class ConcurrencyLimiter {
+
+  private static final int ALPHA = 3;
+
+  private static final int BETA = 6;
+
+  /**
+   * The number of samples after which the minimum latency is reset.
+   */
+  private static final int PROBE_INTERVAL = 1000;
+
+  private final int min;
+
+  private final int max;
+
+  private int limit;
+
+  private int inFlight;
+
+  private long minLatency;
+
+  private int samples;
+
+  private ConcurrencyLimiter(int initial, int min, int max) {
+    this.limit = initial;
+    this.min = min;
+    this.max = max;
+  }
+
+  /**
+   * @return a new limiter starting with a limit of 20, between 1 and 1000.
+   */
+  public static ConcurrencyLimiter create() {
+    return create(20, 1, 1000);
+  }
+
+  /**
+   * Creates a new limiter.
+   *
+   * @param initial the initial limit, must be between {@code min} and {@code max}
+   * @param min     the minimum limit, must be strictly positive
+   * @param max     the maximum limit, must be greater or equal to {@code min}
+   * @return the new limiter
+   */
+  public static ConcurrencyLimiter create(int initial, int min, int max) {
+    if (min <= 0 || max < min) {
+      throw new IllegalArgumentException("Invalid bounds, `min` must be strictly positive and `max` greater or "
+        + "equal to `min`");
+    }
+    if (initial < min || initial > max) {
+      throw new IllegalArgumentException("The initial limit must be between `min` and `max`");
+    }
+    return new ConcurrencyLimiter(initial, min, max);
+  }
+
+  /**
+   * @return the current limit.
+   */
+  public synchronized int limit() {
+    return limit;
+  }
+
+  /**
+   * @return the number of in-flight dispatches.
+   */
+  public synchronized int inFlight() {
+    return inFlight;
+  }
+
+  /**
+   * @return the minimum latency observed since the last reset, {@code null} if none.
+   */
+  public synchronized Duration minLatency() {
+    return minLatency == 0 ? null : Duration.ofNanos(minLatency);
+  }
+
+  /**
+   * Acquires a permit if the limit is not reached.
+   *
+   * @return {@code true} if the permit has been acquired
+   */
+  synchronized boolean tryAcquire() {
+    if (inFlight >= limit) {
+      return false;
+    }
+    inFlight++;
+    return true;
+  }
+
+  /**
+   * Acquires a permit even if the limit is reached.
+   */
+  synchronized void acquire() {
+    inFlight++;
+  }
+
+  /**
+   * Releases a permit without updating the limit, when it has not been used for a dispatch.
+   */
+  synchronized void cancel() {
+    inFlight--;
+  }
+
+  /**
+   * Releases the permit of a completed dispatch and adapts the limit.
+   *
+   * @param latency the latency of the dispatch in nanoseconds
+   * @param success whether the dispatch has succeeded
+   */
+  synchronized void release(long latency, boolean success) {
+    int concurrency = inFlight;
+    inFlight--;
+    if (!success) {
+      limit = Math.max(min, limit / 2);
+      return;
+    }
+    long rtt = Math.max(1, latency);
+    if (++samples >= PROBE_INTERVAL) {
+      samples = 0;
+      minLatency = 0;
+    }
+    if (minLatency == 0 || rtt < minLatency) {
+      minLatency = rtt;
+    }
+    double queue = limit * (1 - (double) minLatency / rtt);
+    if (queue < ALPHA) {
+      // Only increase when the limit is the bottleneck.
+      if (concurrency * 2 >= limit) {
+        limit = Math.min(max, limit + 1);
+      }
+    } else if (queue > BETA) {
+      limit = Math.max(min, limit - 1);
+    }
+  }
+}
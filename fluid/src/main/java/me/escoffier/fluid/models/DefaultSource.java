@@ -1,17 +1,29 @@
 package me.escoffier.fluid.models;
 
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
+import me.escoffier.fluid.impl.BatchOperator;
+import me.escoffier.fluid.impl.FusedOperator;
+import me.escoffier.fluid.impl.FusedOperator.Stage;
+import me.escoffier.fluid.registry.FluidRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.util.Strings;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 import static me.escoffier.fluid.models.Pair.pair;
 
@@ -26,13 +38,35 @@ public class DefaultSource<T> implements Source<T> {
   public static final String FILTER_CANNOT_BE_NULL_MESSAGE = "The `filter` function cannot be `null`";
   private final Publisher<Message<T>> flow;
 
+  /**
+   * The publisher on which the {@link #fused} stages are applied. Same as {@link #flow} if there are no fused stages.
+   */
+  private final Publisher<Message<Object>> upstream;
+
+  /**
+   * The consecutive stateless stages (map, filter...) executed by a single operator, {@code null} if none.
+   */
+  private final FusedOperator fused;
+
   private final String name;
 
   private final Map<String, Object> attributes;
 
+  @SuppressWarnings("unchecked")
   public DefaultSource(Publisher<Message<T>> items, String name, Map<String, Object> attr) {
-    Objects.requireNonNull(items, "The given `items` cannot be `null`");
-    this.flow = items;
+    this((Publisher) Objects.requireNonNull(items, "The given `items` cannot be `null`"), null, name, attr);
+  }
+
+  @SuppressWarnings("unchecked")
+  private DefaultSource(Publisher<Message<Object>> upstream, FusedOperator fused, String name,
+                        Map<String, Object> attr) {
+    this.upstream = upstream;
+    this.fused = fused;
+    if (fused == null) {
+      this.flow = (Publisher) upstream;
+    } else {
+      this.flow = (Publisher) Flowable.fromPublisher(upstream).lift(fused);
+    }
     this.name = name;
     if (attr != null) {
       this.attributes = Collections.unmodifiableMap(new HashMap<>(attr));
@@ -41,17 +75,25 @@ public class DefaultSource<T> implements Source<T> {
     }
   }
 
+  /**
+   * Creates a new source appending the given stage to the fused stages of the current source.
+   */
+  private <X> Source<X> fuse(Stage stage) {
+    FusedOperator operator = fused == null ? FusedOperator.of(stage) : fused.then(stage);
+    return new DefaultSource<>(upstream, operator, name, attributes);
+  }
+
   @Override
   public Source<T> named(String name) {
     if (Strings.isBlank(name)) {
       throw new IllegalArgumentException("The name cannot be `null` or blank");
     }
-    return new DefaultSource<>(flow, name, attributes);
+    return new DefaultSource<>(upstream, fused, name, attributes);
   }
 
   @Override
   public Source<T> unnamed() {
-    return new DefaultSource<>(flow, null, attributes);
+    return new DefaultSource<>(upstream, fused, null, attributes);
   }
 
   @Override
@@ -59,7 +101,7 @@ public class DefaultSource<T> implements Source<T> {
     Map<String, Object> attr = new HashMap<>(attributes);
     attr.put(Objects.requireNonNull(key, "The key must not be `null`"),
       Objects.requireNonNull(value, "The value must not be `null`"));
-    return new DefaultSource<>(flow, name, attr);
+    return new DefaultSource<>(upstream, fused, name, attr);
   }
 
   @Override
@@ -67,7 +109,7 @@ public class DefaultSource<T> implements Source<T> {
     Objects.requireNonNull(key, "name must not be `null`");
     Map<String, Object> attr = new HashMap<>(attributes);
     attr.remove(key);
-    return new DefaultSource<>(flow, name, attr);
+    return new DefaultSource<>(upstream, fused, name, attr);
   }
 
   @Override
@@ -91,45 +133,112 @@ public class DefaultSource<T> implements Source<T> {
     return Optional.ofNullable((T) attributes.get(Objects.requireNonNull(key, "The key must not be `null`")));
   }
 
-  // TODO dispatchOn to select on which thread pool the source emit the data
+  @Override
+  public Source<T> dispatchOn(Scheduler scheduler) {
+    return dispatchOn(scheduler, Flowable.bufferSize());
+  }
+
+  @Override
+  public Source<T> dispatchOn(Scheduler scheduler, int bufferSize) {
+    Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`");
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("The `bufferSize` must be strictly positive");
+    }
+    return new DefaultSource<>(Flowable.fromPublisher(flow).observeOn(scheduler, false, bufferSize), name, attributes);
+  }
+
+  @Override
+  public ParallelSource<T> parallel(int parallelism, Scheduler scheduler) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("The `parallelism` must be strictly positive");
+    }
+    Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`");
+    Flowable<Sequenced<T>> sequenced = Flowable.defer(() -> {
+      long[] counter = {0};
+      return Flowable.fromPublisher(flow).map(m -> new Sequenced<>(counter[0]++, m));
+    });
+    return new ParallelSource<>(sequenced.parallel(parallelism).runOn(scheduler), name, attributes);
+  }
+
+  @Override
+  public <K> KeyedSource<K, T> keyBy(Function<Message<T>, K> keyFunction) {
+    Objects.requireNonNull(keyFunction, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return new KeyedSource<>(flow, keyFunction, name, attributes);
+  }
+
+  static Scheduler lookupScheduler(String pool) {
+    Scheduler scheduler = FluidRegistry.scheduler(Objects.requireNonNull(pool, "The `pool` must not be `null`"));
+    if (scheduler == null) {
+      throw new IllegalArgumentException("Unknown thread pool `" + pool + "`");
+    }
+    return scheduler;
+  }
+
+  @Override
+  public Source<T> emitOn(Scheduler scheduler) {
+    Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`");
+    return new DefaultSource<>(Flowable.fromPublisher(flow).subscribeOn(scheduler), name, attributes);
+  }
 
   @Override
   public <X> Source<X> map(Function<Message<T>, Message<X>> mapper) {
     Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
-    return new DefaultSource<>(Flowable.fromPublisher(flow).map(mapper::apply), name, attributes);
+    return fuse(Stage.map(mapper));
   }
 
   @Override
   public <X> Source<X> mapPayload(Function<T, X> mapper) {
     Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
-    Flowable<Message<X>> flowable = Flowable.fromPublisher(flow).map(d -> d.with(mapper.apply(d.payload())));
-    return new DefaultSource<>(flowable, name, attributes);
+    return fuse(Stage.mapPayload(mapper));
+  }
+
+  @Override
+  public LongSource mapToLong(ToLongFunction<T> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    Flowable<LongMessage> flowable = Flowable.fromPublisher(flow)
+      .map(d -> new LongMessage(mapper.applyAsLong(d.payload()), d));
+    return new LongSource(flowable, name, attributes);
+  }
+
+  @Override
+  public DoubleSource mapToDouble(ToDoubleFunction<T> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    Flowable<DoubleMessage> flowable = Flowable.fromPublisher(flow)
+      .map(d -> new DoubleMessage(mapper.applyAsDouble(d.payload()), d));
+    return new DoubleSource(flowable, name, attributes);
   }
 
   @Override
   public Source<T> filter(Predicate<Message<T>> filter) {
     Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
-    return new DefaultSource<>(Flowable.fromPublisher(flow).filter(filter::test), name, attributes);
+    return fuse(Stage.filter(filter));
   }
 
   @Override
   public Source<T> filterPayload(Predicate<T> filter) {
     Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
-    Flowable<Message<T>> flowable = Flowable.fromPublisher(flow).filter(d -> filter.test(d.payload()));
-    return new DefaultSource<>(flowable, name, attributes);
+    return fuse(Stage.filterPayload(filter));
   }
 
   @Override
   public Source<T> filterNot(Predicate<Message<T>> filter) {
     Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
-    return new DefaultSource<>(Flowable.fromPublisher(flow).filter(d -> !filter.test(d)), name, attributes);
+    return fuse(Stage.filterNot(filter));
   }
 
   @Override
   public Source<T> filterNotPayload(Predicate<T> filter) {
     Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
-    Flowable<Message<T>> flowable = Flowable.fromPublisher(flow).filter(d -> !filter.test(d.payload()));
-    return new DefaultSource<>(flowable, name, attributes);
+    return fuse(Stage.filterNotPayload(filter));
+  }
+
+  @Override
+  public String plan() {
+    String source = name != null ? name : "source";
+    if (fused == null) {
+      return source;
+    }
+    return source + " -> " + fused.plan();
   }
 
   @Override
@@ -192,6 +301,59 @@ public class DefaultSource<T> implements Source<T> {
     return new DefaultSource<>(flowable, name, attributes);
   }
 
+  @Override
+  public <X> Source<X> mapAsync(Function<Message<T>, Single<Message<X>>> mapper, int concurrency) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    checkConcurrency(concurrency);
+    return new DefaultSource<>(Flowable.fromPublisher(flow).flatMapSingle(mapper::apply, false, concurrency),
+      name, attributes);
+  }
+
+  @Override
+  public <X> Source<X> mapAsyncOrdered(Function<Message<T>, Single<Message<X>>> mapper, int concurrency) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    checkConcurrency(concurrency);
+    // concatMapEager subscribes to up to `concurrency` singles and buffers the results completed out of order.
+    return new DefaultSource<>(Flowable.fromPublisher(flow)
+      .concatMapEager(data -> mapper.apply(data).toFlowable(), concurrency, 1), name, attributes);
+  }
+
+  @Override
+  public <X> Source<X> mapPayloadAsync(Function<T, Single<X>> mapper, int concurrency) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return mapAsync(data -> mapper.apply(data.payload()).map(data::with), concurrency);
+  }
+
+  @Override
+  public <X> Source<X> mapPayloadAsyncOrdered(Function<T, Single<X>> mapper, int concurrency) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return mapAsyncOrdered(data -> mapper.apply(data.payload()).map(data::with), concurrency);
+  }
+
+  private static void checkConcurrency(int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("The `concurrency` cannot be less than 1");
+    }
+  }
+
+  /**
+   * Converts a {@link CompletionStage} into a {@link Single}.
+   */
+  static <X> Single<X> toSingle(CompletionStage<X> stage) {
+    Objects.requireNonNull(stage, "The function returned a `null` completion stage");
+    return Single.create(emitter -> stage.whenComplete((result, failure) -> {
+      if (failure instanceof CompletionException && failure.getCause() != null) {
+        emitter.onError(failure.getCause());
+      } else if (failure != null) {
+        emitter.onError(failure);
+      } else if (result == null) {
+        emitter.onError(new NullPointerException("The completion stage completed with `null`"));
+      } else {
+        emitter.onSuccess(result);
+      }
+    }));
+  }
+
   @Override
   public <X> Source<X> scan(Message<X> zero, BiFunction<Message<X>, Message<T>, Message<X>> function) {
     Objects.requireNonNull(function, "The `function` cannot be `null`");
@@ -215,13 +377,76 @@ public class DefaultSource<T> implements Source<T> {
     Objects.requireNonNull(keySupplier, "The function computing the key must not be `null`");
     return Flowable.fromPublisher(flow)
       .groupBy(keySupplier::apply)
-      .flatMapSingle(gf -> {
-        GroupedDataStream<K, T> stream = new GroupedDataStream<>(gf.getKey(), gf);
-        return Single.just(stream);
-      });
+      .map(gf -> new GroupedDataStream<>(gf.getKey(), gf));
   }
 
-  // TODO Windowing here
+  @Override
+  public <K> Publisher<GroupedDataStream<K, T>> groupBy(Function<Message<T>, K> keySupplier,
+                                                        GroupByOptions<K> options) {
+    Objects.requireNonNull(keySupplier, "The function computing the key must not be `null`");
+    Objects.requireNonNull(options, "The `options` must not be `null`");
+    return Flowable.fromPublisher(flow)
+      .groupBy(keySupplier::apply, m -> m, false, Flowable.bufferSize(),
+        notifier -> new EvictingGroupMap<>(options, notifier))
+      .map(gf -> new GroupedDataStream<>(gf.getKey(), gf));
+  }
+
+  @Override
+  public Source<List<T>> batch(int maxSize, Duration maxLatency, Scheduler scheduler) {
+    return batch(new BatchOperator<>(maxSize, checkLatency(maxLatency, scheduler), scheduler));
+  }
+
+  @Override
+  public <R> Source<R> batchReusingBuffer(int maxSize, Duration maxLatency, Function<List<T>, R> function,
+                                          Scheduler scheduler) {
+    Objects.requireNonNull(function, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    // The reduction runs synchronously within the onNext call of the batching operator, so the buffer can be
+    // recycled as soon as the call returns.
+    Flowable<Message<R>> flowable = Flowable.fromPublisher(flow)
+      .lift(new BatchOperator<Message<T>>(maxSize, checkLatency(maxLatency, scheduler), scheduler, true))
+      .map(messages -> messages.get(0).<R>with(Objects.requireNonNull(function.apply(new PayloadList<>(messages)),
+        "The function must not return `null`"))
+        .with(HeaderKey.BATCH_SIZE, messages.size()));
+    return new DefaultSource<>(flowable, name, attributes);
+  }
+
+  @Override
+  public Source<List<T>> batch(AdaptiveBatchSize size, Duration maxLatency, Scheduler scheduler) {
+    Objects.requireNonNull(size, "The `size` must not be `null`");
+    return batch(new BatchOperator<>(size::size, checkLatency(maxLatency, scheduler), scheduler, false));
+  }
+
+  private Source<List<T>> batch(BatchOperator<Message<T>> operator) {
+    Flowable<Message<List<T>>> flowable = Flowable.fromPublisher(flow)
+      .lift(operator)
+      .map(messages -> messages.get(0).<List<T>>with(new PayloadList<>(messages))
+        .with(HeaderKey.BATCH_SIZE, messages.size()));
+    return new DefaultSource<>(flowable, name, attributes);
+  }
+
+  private static long checkLatency(Duration maxLatency, Scheduler scheduler) {
+    Objects.requireNonNull(maxLatency, "The `maxLatency` must not be `null`");
+    Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`");
+    if (maxLatency.toMillis() <= 0) {
+      throw new IllegalArgumentException("The maximum latency must be at least 1 ms");
+    }
+    return maxLatency.toMillis();
+  }
+
+  @Override
+  public <ACC, R> Source<R> window(Windows windows, Aggregator<T, ACC, R> aggregator) {
+    Objects.requireNonNull(windows, "The `windows` must not be `null`");
+    Objects.requireNonNull(aggregator, "The `aggregator` must not be `null`");
+    return new DefaultSource<>(WindowOperator.apply(flow, windows, aggregator), name, attributes);
+  }
+
+  @Override
+  public <ACC, R> Source<R> window(Windows windows, EventTime<T> eventTime, Aggregator<T, ACC, R> aggregator) {
+    Objects.requireNonNull(windows, "The `windows` must not be `null`");
+    Objects.requireNonNull(eventTime, "The `eventTime` must not be `null`");
+    Objects.requireNonNull(aggregator, "The `aggregator` must not be `null`");
+    return new DefaultSource<>(WindowOperator.apply(flow, windows, eventTime, aggregator), name, attributes);
+  }
 
   @Override
   public Source<T> log(String loggerName) {
@@ -287,34 +512,117 @@ public class DefaultSource<T> implements Source<T> {
     return streams;
   }
 
+  @Override
+  public Broadcast<T> broadcast(int numberOfBranches, BroadcastOptions<T> options) {
+    Objects.requireNonNull(options, "The options must not be `null`");
+    if (numberOfBranches <= 1) {
+      throw new IllegalArgumentException("The number of branch must be at least 2");
+    }
+    return new Broadcast<>(new Router<>(flow, numberOfBranches, options), name, attributes);
+  }
+
   @Override
   public Pair<Source<T>, Source<T>> branch(Predicate<Message<T>> condition) {
-    List<Source<T>> sources = broadcast(2);
-    Source<T> left = sources.get(0).filter(condition);
-    Source<T> right = sources.get(0).filterNot(condition);
-    return pair(left, right);
+    Objects.requireNonNull(condition, "The condition must not be `null`");
+    List<Source<T>> sources = route(2, m -> condition.test(m) ? 0 : 1);
+    return pair(sources.get(0), sources.get(1));
   }
 
   @Override
   public Pair<Source<T>, Source<T>> branchOnPayload(Predicate<T> condition) {
-    List<Source<T>> sources = broadcast(2);
-    Source<T> left = sources.get(0).filterPayload(condition);
-    Source<T> right = sources.get(0).filterNotPayload(condition);
-    return pair(left, right);
+    Objects.requireNonNull(condition, "The condition must not be `null`");
+    List<Source<T>> sources = route(2, m -> condition.test(m.payload()) ? 0 : 1);
+    return pair(sources.get(0), sources.get(1));
   }
 
-  // TODO Multi-branch
+  @Override
+  public List<Source<T>> route(int outputs, int bufferSize, ToIntFunction<Message<T>> classifier) {
+    Objects.requireNonNull(classifier, "The classifier must not be `null`");
+    if (outputs <= 0) {
+      throw new IllegalArgumentException("The number of outputs must be strictly positive");
+    }
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("The buffer size must be strictly positive");
+    }
+
+    Router<T> router = new Router<>(flow, outputs, bufferSize, classifier);
+    List<Source<T>> streams = new ArrayList<>(outputs);
+    for (int i = 0; i < outputs; i++) {
+      streams.add(new DefaultSource<>(router.output(i), name, attributes));
+    }
+    return streams;
+  }
 
   @Override
-  public Sink<T> to(Sink<T> sink) {
+  public Map<String, Source<T>> route(Function<Message<T>, String> classifier, String... names) {
+    Objects.requireNonNull(classifier, "The classifier must not be `null`");
+    if (names == null || names.length == 0) {
+      throw new IllegalArgumentException("At least one name must be given");
+    }
+
+    Map<String, Integer> indexes = new HashMap<>();
+    for (String n : names) {
+      if (Strings.isBlank(n)) {
+        throw new IllegalArgumentException("Illegal name for source. The name must not be `null` or blank");
+      }
+      if (indexes.put(n, indexes.size()) != null) {
+        throw new IllegalArgumentException("Duplicated name `" + n + "`");
+      }
+    }
+
+    Router<T> router = new Router<>(flow, names.length, Flowable.bufferSize(), m -> {
+      String selected = classifier.apply(m);
+      Integer index = indexes.get(selected);
+      if (index == null) {
+        throw new IllegalArgumentException("Unknown output `" + selected + "`");
+      }
+      return index;
+    });
+    Map<String, Source<T>> streams = new LinkedHashMap<>();
+    for (int i = 0; i < names.length; i++) {
+      streams.put(names[i], new DefaultSource<>(router.output(i), names[i], attributes));
+    }
+    return streams;
+  }
+
+  @Override
+  public Sink<T> to(Sink<T> sink, SinkOptions options) {
     Objects.requireNonNull(sink, "The sink must not be `null`");
-    Flowable.fromPublisher(flow)
-      .flatMapCompletable(sink::dispatch)
+    Objects.requireNonNull(options, "The options must not be `null`");
+    // A limited sink is driven by its limiter, the wrapped sink is called directly.
+    ConcurrencyLimiter limiter = sink instanceof LimitedSink ? ((LimitedSink<T>) sink).limiter() : null;
+    Sink<T> target = limiter != null ? ((LimitedSink<T>) sink).delegate() : sink;
+    Flowable<Message<T>> flowable = Flowable.fromPublisher(flow);
+    Completable completable;
+    if (options.adaptive != null) {
+      AdaptiveBatchSize adaptive = options.adaptive;
+      completable = dispatch(
+        flowable.lift(new BatchOperator<Message<T>>(adaptive::size, options.linger, options.scheduler, false)),
+        batch -> Completable.defer(() -> {
+          long begin = System.nanoTime();
+          return target.dispatchBatch(batch).doOnTerminate(() -> adaptive.record(System.nanoTime() - begin));
+        }), options, limiter);
+    } else if (options.batchSize == 1) {
+      completable = dispatch(flowable, target::dispatch, options, limiter);
+    } else {
+      completable = dispatch(
+        flowable.lift(new BatchOperator<>(options.batchSize, options.linger, options.scheduler)),
+        target::dispatchBatch, options, limiter);
+    }
+    completable
       .doOnError(Throwable::printStackTrace) // TODO error reporting
       .subscribe();
     return sink;
   }
 
+  private static <X> Completable dispatch(Flowable<X> flowable, Function<X, Completable> dispatch,
+                                          SinkOptions options, ConcurrencyLimiter limiter) {
+    if (limiter != null) {
+      return new LimitedDispatch<>(flowable, dispatch, limiter);
+    }
+    return flowable.flatMapCompletable(dispatch::apply, false, options.maxInFlight);
+  }
+
   @Override
   public Flowable<Message<T>> asFlowable() {
     return Flowable.fromPublisher(this);
@@ -326,6 +634,56 @@ public class DefaultSource<T> implements Source<T> {
       name, attributes);
   }
 
+  @Override
+  public <K> Source<T> distinct(Function<Message<T>, K> keyFunction, DistinctSpec spec) {
+    Objects.requireNonNull(keyFunction, "The `keyFunction` must not be `null`");
+    Objects.requireNonNull(spec, "The `spec` must not be `null`");
+    return new DefaultSource<>(DistinctOperator.apply(flow, keyFunction, spec), name, attributes);
+  }
+
+  @Override
+  public <O, K> Source<Pair<T, O>> join(Publisher<Message<O>> other, Function<Message<T>, K> leftKey,
+                                        Function<Message<O>, K> rightKey, Duration window, Scheduler scheduler) {
+    return join(other, leftKey, rightKey, window, scheduler,
+      (l, r) -> l.with(pair(l.payload(), r.payload())), false, false);
+  }
+
+  @Override
+  public <O, K> Source<Pair<T, Optional<O>>> leftJoin(Publisher<Message<O>> other, Function<Message<T>, K> leftKey,
+                                                      Function<Message<O>, K> rightKey, Duration window,
+                                                      Scheduler scheduler) {
+    return join(other, leftKey, rightKey, window, scheduler,
+      (l, r) -> l.with(pair(l.payload(), r == null ? Optional.<O>empty() : Optional.of(r.payload()))), true, false);
+  }
+
+  @Override
+  public <O, K> Source<Pair<Optional<T>, Optional<O>>> outerJoin(Publisher<Message<O>> other,
+                                                                 Function<Message<T>, K> leftKey,
+                                                                 Function<Message<O>, K> rightKey, Duration window,
+                                                                 Scheduler scheduler) {
+    return join(other, leftKey, rightKey, window, scheduler, (l, r) -> {
+      Optional<T> left = l == null ? Optional.empty() : Optional.of(l.payload());
+      Optional<O> right = r == null ? Optional.empty() : Optional.of(r.payload());
+      return l == null ? r.with(pair(left, right)) : l.with(pair(left, right));
+    }, true, true);
+  }
+
+  private <O, K, R> Source<R> join(Publisher<Message<O>> other, Function<Message<T>, K> leftKey,
+                                   Function<Message<O>, K> rightKey, Duration window, Scheduler scheduler,
+                                   BiFunction<Message<T>, Message<O>, Message<R>> combiner,
+                                   boolean keepLeft, boolean keepRight) {
+    Objects.requireNonNull(other, "The `other` source must not be `null`");
+    Objects.requireNonNull(leftKey, "The `leftKey` function must not be `null`");
+    Objects.requireNonNull(rightKey, "The `rightKey` function must not be `null`");
+    Objects.requireNonNull(window, "The `window` must not be `null`");
+    Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`");
+    if (window.toMillis() < 1) {
+      throw new IllegalArgumentException("The `window` must be at least 1 ms");
+    }
+    return new DefaultSource<>(JoinOperator.apply(flow, other, leftKey, rightKey, window.toMillis(), scheduler,
+      combiner, keepLeft, keepRight), name, attributes);
+  }
+
   @Override
   public Source<Tuple> zipWith(Source... sources) {
     Publisher[] publishers = Arrays.stream(sources).map((Function<Source, Flowable>) Source::asFlowable).toArray(Publisher[]::new);
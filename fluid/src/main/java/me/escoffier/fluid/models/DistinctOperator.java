@@ -0,0 +1,225 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import org.reactivestreams.Publisher;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Implements {@link Source#distinct(Function, DistinctSpec)}. Each subscription has its own set of seen keys. Messages
+ * without key are never considered as duplicates.
+ */
+final class DistinctOperator {
+
+  private DistinctOperator() {
+    // Avoid direct instantiation.
+  }
+
+  static <T, K> Flowable<Message<T>> apply(Publisher<Message<T>> flow, Function<Message<T>, K> keyFunction,
+                                          DistinctSpec spec) {
+    return Flowable.defer(() -> {
+      Seen seen = create(spec);
+      return Flowable.fromPublisher(flow).filter(message -> {
+        K key = keyFunction.apply(message);
+        return key == null || seen.add(key, spec.scheduler.now(TimeUnit.MILLISECONDS));
+      });
+    });
+  }
+
+  private static Seen create(DistinctSpec spec) {
+    switch (spec.mode) {
+      case COUNT:
+        return new ExactSeen(spec.keys, Long.MAX_VALUE);
+      case TIME:
+        return new ExactSeen(spec.keys, spec.duration);
+      case APPROXIMATE:
+        return new BloomSeen(spec.keys, spec.falsePositiveRate);
+      default:
+        return new WindowedSeen(spec.keys, spec.duration);
+    }
+  }
+
+  private interface Seen {
+    /**
+     * Records the key.
+     *
+     * @return {@code true} if the key has not been seen before, {@code false} if the message is a duplicate
+     */
+    boolean add(Object key, long now);
+  }
+
+  /**
+   * The keys with the time they have been first seen, in insertion order, so the oldest key is always the first one.
+   */
+  private static final class ExactSeen implements Seen {
+    private final int maximumKeys;
+    private final long retention;
+    private final LinkedHashMap<Object, Long> keys = new LinkedHashMap<>();
+
+    ExactSeen(int maximumKeys, long retention) {
+      this.maximumKeys = maximumKeys;
+      this.retention = retention;
+    }
+
+    @Override
+    public boolean add(Object key, long now) {
+      Iterator<Map.Entry<Object, Long>> iterator = keys.entrySet().iterator();
+      while (iterator.hasNext() && now - iterator.next().getValue() >= retention) {
+        iterator.remove();
+      }
+      if (keys.containsKey(key)) {
+        return false;
+      }
+      keys.put(key, now);
+      if (keys.size() > maximumKeys) {
+        iterator = keys.entrySet().iterator();
+        iterator.next();
+        iterator.remove();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The keys seen in the current tumbling window.
+   */
+  private static final class WindowedSeen implements Seen {
+    private final int maximumKeys;
+    private final long window;
+    private final Set<Object> keys = new HashSet<>();
+    private long end = Long.MIN_VALUE;
+
+    WindowedSeen(int maximumKeys, long window) {
+      this.maximumKeys = maximumKeys;
+      this.window = window;
+    }
+
+    @Override
+    public boolean add(Object key, long now) {
+      if (now >= end) {
+        keys.clear();
+        end = now - Math.floorMod(now, window) + window;
+      }
+      if (keys.size() >= maximumKeys) {
+        return !keys.contains(key);
+      }
+      return keys.add(key);
+    }
+  }
+
+  /**
+   * Two rotating Bloom filters. The keys are added to the current filter. When it is full, the previous filter is
+   * discarded and the current one becomes the previous one. Each filter is sized for half of the false positive rate,
+   * as a key is checked against both.
+   */
+  private static final class BloomSeen implements Seen {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int capacity;
+    private final int bits;
+    private final int hashes;
+    private long[] current;
+    private long[] previous;
+    private int count;
+
+    BloomSeen(int capacity, double falsePositiveRate) {
+      this.capacity = capacity;
+      double rate = falsePositiveRate / 2;
+      double ln2 = Math.log(2);
+      long size = (long) Math.ceil(-capacity * Math.log(rate) / (ln2 * ln2));
+      this.bits = (int) Math.min(Math.max(size, 64), Integer.MAX_VALUE - 63);
+      this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+      this.current = new long[(bits + 63) / 64];
+    }
+
+    @Override
+    public boolean add(Object key, long now) {
+      long hash = hash(key);
+      int h1 = (int) hash;
+      // Odd, so the probes never collapse on a single bit.
+      int h2 = (int) (hash >>> 32) | 1;
+      if (contains(current, h1, h2) || (previous != null && contains(previous, h1, h2))) {
+        return false;
+      }
+      if (count == capacity) {
+        previous = current;
+        current = new long[previous.length];
+        count = 0;
+      }
+      for (int i = 0; i < hashes; i++) {
+        int index = index(h1, h2, i);
+        current[index >>> 6] |= 1L << index;
+      }
+      count++;
+      return true;
+    }
+
+    private boolean contains(long[] filter, int h1, int h2) {
+      for (int i = 0; i < hashes; i++) {
+        int index = index(h1, h2, i);
+        if ((filter[index >>> 6] & (1L << index)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Double hashing: the i-th index is {@code h1 + i * h2}.
+     */
+    private int index(int h1, int h2, int i) {
+      return Math.floorMod(h1 + i * h2, bits);
+    }
+
+    /**
+     * Computes a 64-bit hash from the content of the key, so keys with the same {@code hashCode} (such as "Aa" and
+     * "BB") are still distinguished. Keys that are neither character sequences, numbers nor byte arrays are hashed
+     * from both their {@code hashCode} and their {@code toString}.
+     */
+    private static long hash(Object key) {
+      if (key instanceof CharSequence) {
+        return mix(hash((CharSequence) key));
+      } else if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+        return mix(((Number) key).longValue());
+      } else if (key instanceof byte[]) {
+        long h = FNV_OFFSET;
+        for (byte b : (byte[]) key) {
+          h = (h ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return mix(h);
+      }
+      return mix(((long) key.hashCode() << 32) ^ hash(key.toString()));
+    }
+
+    /**
+     * FNV-1a over the characters.
+     */
+    private static long hash(CharSequence sequence) {
+      long h = FNV_OFFSET;
+      for (int i = 0; i < sequence.length(); i++) {
+        h = (h ^ sequence.charAt(i)) * FNV_PRIME;
+      }
+      return h;
+    }
+
+    /**
+     * Spreads the bits of the given value (finalizer of MurmurHash3).
+     */
+    private static long mix(long value) {
+      long h = value;
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+    }
+  }
+}
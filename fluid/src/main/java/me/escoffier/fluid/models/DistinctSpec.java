@@ -0,0 +1,151 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Describes how {@link Source#distinct(Function, DistinctSpec)} remembers the keys already seen, so the memory used
+ * to remove duplicates stays bounded:
+ * <ul>
+ * <li>{@link #exact(int)} remembers the last {@code n} distinct keys,</li>
+ * <li>{@link #exact(Duration)} remembers each key for a given duration after it has been first seen,</li>
+ * <li>{@link #approximate(int, double)} uses Bloom filters, so a small fraction of the distinct messages can be
+ * mistaken for duplicates and dropped, but the memory is constant and small,</li>
+ * <li>{@link #windowed(Duration)} removes the duplicates within tumbling time windows, and forgets all the keys at the
+ * end of each window.</li>
+ * </ul>
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class DistinctSpec {
+
+  /**
+   * The default maximum number of keys remembered by {@link #exact(Duration)} and {@link #windowed(Duration)}.
+   */
+  public static final int DEFAULT_MAXIMUM_KEYS = 100_000;
+
+  enum Mode {
+    COUNT, TIME, APPROXIMATE, WINDOWED
+  }
+
+  final Mode mode;
+
+  /**
+   * The maximum number of keys, or the number of keys per filter for {@link Mode#APPROXIMATE}.
+   */
+  final int keys;
+
+  /**
+   * The retention or window duration in milliseconds, unused by the count-based modes.
+   */
+  final long duration;
+
+  final double falsePositiveRate;
+
+  final Scheduler scheduler;
+
+  private DistinctSpec(Mode mode, int keys, long duration, double falsePositiveRate, Scheduler scheduler) {
+    this.mode = mode;
+    this.keys = keys;
+    this.duration = duration;
+    this.falsePositiveRate = falsePositiveRate;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Remembers the last {@code maximumKeys} distinct keys. A duplicate arriving after more than {@code maximumKeys}
+   * other distinct keys is not removed.
+   *
+   * @param maximumKeys the number of keys, must be strictly positive
+   * @return the specification
+   */
+  public static DistinctSpec exact(int maximumKeys) {
+    checkKeys(maximumKeys);
+    return new DistinctSpec(Mode.COUNT, maximumKeys, 0, 0, Schedulers.computation());
+  }
+
+  /**
+   * Remembers each key for the given duration after it has been first seen, and at most
+   * {@link #DEFAULT_MAXIMUM_KEYS} keys.
+   *
+   * @param retention the duration, must not be {@code null}, must be at least 1 ms
+   * @return the specification
+   */
+  public static DistinctSpec exact(Duration retention) {
+    return exact(retention, DEFAULT_MAXIMUM_KEYS);
+  }
+
+  /**
+   * Remembers each key for the given duration after it has been first seen, and at most {@code maximumKeys} keys. When
+   * more keys are seen within the duration, the oldest ones are forgotten.
+   *
+   * @param retention   the duration, must not be {@code null}, must be at least 1 ms
+   * @param maximumKeys the maximum number of keys, must be strictly positive
+   * @return the specification
+   */
+  public static DistinctSpec exact(Duration retention, int maximumKeys) {
+    checkKeys(maximumKeys);
+    return new DistinctSpec(Mode.TIME, maximumKeys, checkDuration(retention), 0, Schedulers.computation());
+  }
+
+  /**
+   * Remembers at least the last {@code expectedKeys} distinct keys using two rotating Bloom filters: when the current
+   * filter contains {@code expectedKeys} keys, the oldest filter is discarded and a new one is started. The memory used
+   * does not depend on the size of the keys: roughly {@code 2 * expectedKeys * 1.44 * log2(1 / falsePositiveRate)}
+   * bits. The filters use a 64-bit hash of the content of character sequences, numbers and byte arrays. Other keys
+   * are hashed from their {@code hashCode} and {@code toString}, so keys equal on both are indistinguishable.
+   *
+   * @param expectedKeys      the number of keys per filter, must be strictly positive
+   * @param falsePositiveRate the probability that a distinct message is mistaken for a duplicate, must be in
+   *                          {@code ]0, 1[}
+   * @return the specification
+   */
+  public static DistinctSpec approximate(int expectedKeys, double falsePositiveRate) {
+    checkKeys(expectedKeys);
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("The `falsePositiveRate` must be in ]0, 1[");
+    }
+    return new DistinctSpec(Mode.APPROXIMATE, expectedKeys, 0, falsePositiveRate, Schedulers.computation());
+  }
+
+  /**
+   * Removes the duplicates within tumbling windows of the given duration, aligned on the epoch. All the keys are
+   * forgotten at the end of each window. At most {@link #DEFAULT_MAXIMUM_KEYS} keys are remembered per window, the
+   * following keys are not deduplicated.
+   *
+   * @param window the duration of the windows, must not be {@code null}, must be at least 1 ms
+   * @return the specification
+   */
+  public static DistinctSpec windowed(Duration window) {
+    return new DistinctSpec(Mode.WINDOWED, DEFAULT_MAXIMUM_KEYS, checkDuration(window), 0, Schedulers.computation());
+  }
+
+  /**
+   * Sets the scheduler used to measure the time by the time-based modes.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new specification
+   */
+  public DistinctSpec using(Scheduler scheduler) {
+    return new DistinctSpec(mode, keys, duration, falsePositiveRate,
+      Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"));
+  }
+
+  private static void checkKeys(int keys) {
+    if (keys < 1) {
+      throw new IllegalArgumentException("The number of keys cannot be less than 1");
+    }
+  }
+
+  private static long checkDuration(Duration duration) {
+    Objects.requireNonNull(duration, "The `duration` must not be `null`");
+    if (duration.toMillis() < 1) {
+      throw new IllegalArgumentException("The `duration` must be at least 1 ms");
+    }
+    return duration.toMillis();
+  }
+}
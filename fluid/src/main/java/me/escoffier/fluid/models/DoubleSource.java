@@ -0,0 +1,138 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import org.reactivestreams.Publisher;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.*;
+
+import static me.escoffier.fluid.models.DefaultSource.FILTER_CANNOT_BE_NULL_MESSAGE;
+import static me.escoffier.fluid.models.DefaultSource.FUNCTION_CANNOT_BE_NULL_MESSAGE;
+
+/**
+ * A source emitting {@link DoubleMessage}, i.e. messages with a primitive {@code double} payload. Instances are created
+ * using {@link Source#mapToDouble(ToDoubleFunction)} or {@link LongSource#mapToDouble(LongToDoubleFunction)}.
+ * <p>
+ * The payloads are never boxed, including in the aggregation operators ({@link #sum()}, {@link #average()}...) whose
+ * state is kept in primitive fields. The aggregation operators are <em>running</em> aggregations: they emit the
+ * current value for each received message, and the emitted message carries the headers of the received message.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class DoubleSource extends PrimitiveSource<DoubleMessage> {
+
+  public DoubleSource(Publisher<DoubleMessage> items, String name, Map<String, Object> attr) {
+    super(items, name, attr);
+  }
+
+  /**
+   * Transforms each incoming payload using the given function.
+   *
+   * @param mapper the mapper function, must not be {@code null}
+   * @return the new source
+   */
+  public DoubleSource map(DoubleUnaryOperator mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return new DoubleSource(asFlowable().map(m -> m.with(mapper.applyAsDouble(m.payload()))), name(), attributes());
+  }
+
+  /**
+   * Discards all messages containing payload not passing the given predicate.
+   *
+   * @param filter the predicate, must not be {@code null}
+   * @return the new source
+   */
+  public DoubleSource filter(DoublePredicate filter) {
+    Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
+    return new DoubleSource(asFlowable().filter(m -> filter.test(m.payload())), name(), attributes());
+  }
+
+  /**
+   * Transforms each incoming payload into a {@code long}.
+   *
+   * @param mapper the mapper function, must not be {@code null}
+   * @return the new source
+   */
+  public LongSource mapToLong(DoubleToLongFunction mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return new LongSource(asFlowable().map(m -> m.withLong(mapper.applyAsLong(m.payload()))), name(), attributes());
+  }
+
+  /**
+   * Transforms each incoming payload into an object.
+   *
+   * @param mapper the mapper function, must not be {@code null}, must not return {@code null}
+   * @param <X>    the type of payload of the resulting messages
+   * @return the new source
+   */
+  public <X> Source<X> mapToObj(DoubleFunction<X> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return new DefaultSource<>(asFlowable().map(m -> m.withObject(mapper.apply(m.payload()))), name(), attributes());
+  }
+
+  /**
+   * @return a {@link Source} emitting the boxed payloads.
+   */
+  public Source<Double> boxed() {
+    return new DefaultSource<>(asFlowable().map(DoubleMessage::boxed), name(), attributes());
+  }
+
+  /**
+   * Creates a new source emitting, for each incoming message, the result of the given accumulator function applied on
+   * the previously emitted value (or {@code zero} for the first message) and the incoming payload. Unlike
+   * {@link Source#scan(Message, BiFunction)}, the initial value is not emitted.
+   *
+   * @param zero     the initial value
+   * @param function the accumulator function, must not be {@code null}
+   * @return the new source
+   */
+  public DoubleSource scan(double zero, DoubleBinaryOperator function) {
+    Objects.requireNonNull(function, "The `function` cannot be `null`");
+    Flowable<DoubleMessage> flowable = Flowable.defer(() -> {
+      double[] current = {zero};
+      return asFlowable().map(m -> {
+        current[0] = function.applyAsDouble(current[0], m.payload());
+        return m.with(current[0]);
+      });
+    });
+    return new DoubleSource(flowable, name(), attributes());
+  }
+
+  /**
+   * @return a source emitting the running sum of the payloads.
+   */
+  public DoubleSource sum() {
+    return scan(0.0, Double::sum);
+  }
+
+  /**
+   * @return a source emitting the running minimum of the payloads.
+   */
+  public DoubleSource min() {
+    return scan(Double.POSITIVE_INFINITY, Math::min);
+  }
+
+  /**
+   * @return a source emitting the running maximum of the payloads.
+   */
+  public DoubleSource max() {
+    return scan(Double.NEGATIVE_INFINITY, Math::max);
+  }
+
+  /**
+   * @return a source emitting the running average of the payloads.
+   */
+  public DoubleSource average() {
+    Flowable<DoubleMessage> flowable = Flowable.defer(() -> {
+      double[] countAndSum = new double[2];
+      return asFlowable().map(m -> {
+        countAndSum[0]++;
+        countAndSum[1] += m.payload();
+        return m.with(countAndSum[1] / countAndSum[0]);
+      });
+    });
+    return new DoubleSource(flowable, name(), attributes());
+  }
+
+}
@@ -0,0 +1,121 @@
+package me.escoffier.fluid.models;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * Configures the event-time processing of windows, see {@link Source#window(Windows, EventTime, Aggregator)}.
+ * <p>
+ * The time of each message is read using a <em>timestamp extractor</em>, such as {@link #fromHeader(String)} to use
+ * the {@code timestamp} header set by the Kafka source. Windows are closed by the <em>watermark</em>, which is the
+ * highest timestamp seen so far minus the maximum out-of-orderness. So, results only depend on the timestamps of the
+ * messages and not on the time at which they are received, which gives the same results when replaying a stream at
+ * full speed.
+ * <p>
+ * When an idle timeout is configured and no message has been received during this timeout, the watermark advances with
+ * the processing time, so the pending windows are closed even if the stream stops. It advances from its last position
+ * (the highest timestamp minus the maximum out-of-orderness), so the out-of-orderness allowance also applies to idle
+ * sources. Messages received after all the windows they belong to have been closed are <em>late</em>: they are
+ * dispatched to the late sink if any, and discarded otherwise.
+ *
+ * @param <T> the type of payload
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class EventTime<T> {
+
+  final ToLongFunction<Message<T>> extractor;
+
+  final long maxOutOfOrderness;
+
+  /**
+   * The idle timeout in milliseconds, {@code 0} if disabled.
+   */
+  final long idleTimeout;
+
+  final Sink<T> lateSink;
+
+  private EventTime(ToLongFunction<Message<T>> extractor, long maxOutOfOrderness, long idleTimeout,
+                    Sink<T> lateSink) {
+    this.extractor = extractor;
+    this.maxOutOfOrderness = maxOutOfOrderness;
+    this.idleTimeout = idleTimeout;
+    this.lateSink = lateSink;
+  }
+
+  /**
+   * Creates a new event-time configuration using the given timestamp extractor, without out-of-orderness, idle
+   * timeout or late sink.
+   *
+   * @param extractor the function returning the timestamp of a message in milliseconds, must not be {@code null}
+   * @param <T>       the type of payload
+   * @return the configuration
+   */
+  public static <T> EventTime<T> of(ToLongFunction<Message<T>> extractor) {
+    return new EventTime<>(Objects.requireNonNull(extractor, "The `extractor` must not be `null`"), 0, 0, null);
+  }
+
+  /**
+   * Creates a new event-time configuration reading the timestamp from the given header. The value of the header must
+   * be a {@link Number} (milliseconds since the epoch), an {@link Instant} or a {@link Date}.
+   *
+   * @param header the name of the header, must not be {@code null}
+   * @param <T>    the type of payload
+   * @return the configuration
+   */
+  public static <T> EventTime<T> fromHeader(String header) {
+    Objects.requireNonNull(header, "The `header` must not be `null`");
+    return of(message -> {
+      Object value = message.get(header);
+      if (value instanceof Number) {
+        return ((Number) value).longValue();
+      } else if (value instanceof Instant) {
+        return ((Instant) value).toEpochMilli();
+      } else if (value instanceof Date) {
+        return ((Date) value).getTime();
+      }
+      throw new IllegalArgumentException("Invalid timestamp in header `" + header + "`: " + value);
+    });
+  }
+
+  /**
+   * Sets the maximum delay between a message and a message with a higher timestamp received before it.
+   *
+   * @param duration the duration, must not be {@code null} or negative
+   * @return the new configuration
+   */
+  public EventTime<T> withMaxOutOfOrderness(Duration duration) {
+    Objects.requireNonNull(duration, "The `duration` must not be `null`");
+    if (duration.isNegative()) {
+      throw new IllegalArgumentException("The max out-of-orderness must not be negative");
+    }
+    return new EventTime<>(extractor, duration.toMillis(), idleTimeout, lateSink);
+  }
+
+  /**
+   * Sets the duration after which the source is considered idle if no message has been received.
+   *
+   * @param duration the duration, must be at least 1 ms
+   * @return the new configuration
+   */
+  public EventTime<T> withIdleTimeout(Duration duration) {
+    Objects.requireNonNull(duration, "The `duration` must not be `null`");
+    if (duration.toMillis() <= 0) {
+      throw new IllegalArgumentException("The idle timeout must be at least 1 ms");
+    }
+    return new EventTime<>(extractor, maxOutOfOrderness, duration.toMillis(), lateSink);
+  }
+
+  /**
+   * Sets the sink receiving the late messages.
+   *
+   * @param sink the sink, must not be {@code null}
+   * @return the new configuration
+   */
+  public EventTime<T> withLateSink(Sink<T> sink) {
+    return new EventTime<>(extractor, maxOutOfOrderness, idleTimeout,
+      Objects.requireNonNull(sink, "The `sink` must not be `null`"));
+  }
+}
@@ -0,0 +1,150 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.functions.Consumer;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The map of groups given to {@link io.reactivex.Flowable#groupBy(io.reactivex.functions.Function,
+ * io.reactivex.functions.Function, boolean, int, io.reactivex.functions.Function)} to bound the groups according to
+ * {@link GroupByOptions}. Entries are kept in access order, so the eldest entry is the least recently used group.
+ * Evicted groups are passed to the RX eviction notifier, which completes them.
+ * <p>
+ * Accessed serially by the group-by operator.
+ */
+final class EvictingGroupMap<K> extends AbstractMap<K, Object> {
+
+  private final LinkedHashMap<Object, Group> groups = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final GroupByOptions<K> options;
+
+  private final Consumer<Object> notifier;
+
+  EvictingGroupMap(GroupByOptions<K> options, Consumer<Object> notifier) {
+    this.options = options;
+    this.notifier = notifier;
+  }
+
+  @Override
+  public Object get(Object key) {
+    long now = now();
+    expire(now);
+    Group entry = groups.get(key);
+    if (entry == null) {
+      return null;
+    }
+    entry.accessed = now;
+    return entry.group;
+  }
+
+  @Override
+  public Object put(K key, Object group) {
+    long now = now();
+    expire(now);
+    Group previous = groups.put(key, new Group(group, now));
+    while (groups.size() > options.maxGroups) {
+      Iterator<Map.Entry<Object, Group>> iterator = groups.entrySet().iterator();
+      Map.Entry<Object, Group> eldest = iterator.next();
+      iterator.remove();
+      evicted(eldest);
+    }
+    return previous == null ? null : previous.group;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    Group entry = groups.remove(key);
+    return entry == null ? null : entry.group;
+  }
+
+  @Override
+  public void clear() {
+    groups.clear();
+  }
+
+  @Override
+  public int size() {
+    return groups.size();
+  }
+
+  @Override
+  public Set<Map.Entry<K, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<K, Object>>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Iterator<Map.Entry<K, Object>> iterator() {
+        Iterator<Map.Entry<Object, Group>> iterator = groups.entrySet().iterator();
+        return new Iterator<Map.Entry<K, Object>>() {
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public Map.Entry<K, Object> next() {
+            Map.Entry<Object, Group> next = iterator.next();
+            return new SimpleImmutableEntry<>((K) next.getKey(), next.getValue().group);
+          }
+
+          @Override
+          public void remove() {
+            iterator.remove();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return groups.size();
+      }
+    };
+  }
+
+  private long now() {
+    return options.idleTimeout == 0 ? 0 : options.scheduler.now(TimeUnit.MILLISECONDS);
+  }
+
+  private void expire(long now) {
+    if (options.idleTimeout == 0) {
+      return;
+    }
+    Iterator<Map.Entry<Object, Group>> iterator = groups.entrySet().iterator();
+    // Access order: stop at the first group that is not idle.
+    while (iterator.hasNext()) {
+      Map.Entry<Object, Group> eldest = iterator.next();
+      if (now - eldest.getValue().accessed < options.idleTimeout) {
+        return;
+      }
+      iterator.remove();
+      evicted(eldest);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void evicted(Map.Entry<Object, Group> entry) {
+    try {
+      notifier.accept(entry.getValue().group);
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to evict the group " + entry.getKey(), e);
+    }
+    if (options.onEviction != null) {
+      options.onEviction.accept((K) entry.getKey());
+    }
+  }
+
+  private static final class Group {
+    private final Object group;
+    private long accessed;
+
+    Group(Object group, long accessed) {
+      this.group = group;
+      this.accessed = accessed;
+    }
+  }
+}
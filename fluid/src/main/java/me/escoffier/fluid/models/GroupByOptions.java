@@ -0,0 +1,98 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounds the groups created by {@link Source#groupBy(Function, GroupByOptions)}.
+ * <p>
+ * When the maximum number of live groups is reached, the least recently used group is evicted. When an idle timeout is
+ * set, the groups that have not received a message during the timeout are evicted. Expiration is checked when
+ * messages are received, so an idle group is evicted when the next message (of any group) arrives. Evicted groups are
+ * completed, and a new group is created if a message with the same key is received later.
+ *
+ * @param <K> the type of key
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class GroupByOptions<K> {
+
+  final int maxGroups;
+
+  /**
+   * The idle timeout in milliseconds, {@code 0} if disabled.
+   */
+  final long idleTimeout;
+
+  final Consumer<K> onEviction;
+
+  final Scheduler scheduler;
+
+  private GroupByOptions(int maxGroups, long idleTimeout, Consumer<K> onEviction, Scheduler scheduler) {
+    this.maxGroups = maxGroups;
+    this.idleTimeout = idleTimeout;
+    this.onEviction = onEviction;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * @param <K> the type of key
+   * @return new options without bound, idle timeout or eviction callback.
+   */
+  public static <K> GroupByOptions<K> create() {
+    return new GroupByOptions<>(Integer.MAX_VALUE, 0, null, Schedulers.computation());
+  }
+
+  /**
+   * Sets the maximum number of live groups.
+   *
+   * @param max the maximum number of groups, must be strictly positive
+   * @return the new options
+   */
+  public GroupByOptions<K> withMaxGroups(int max) {
+    if (max <= 0) {
+      throw new IllegalArgumentException("The maximum number of groups must be strictly positive");
+    }
+    return new GroupByOptions<>(max, idleTimeout, onEviction, scheduler);
+  }
+
+  /**
+   * Sets the duration after which a group not receiving messages is evicted.
+   *
+   * @param timeout the timeout, must be at least 1 ms
+   * @return the new options
+   */
+  public GroupByOptions<K> withIdleTimeout(Duration timeout) {
+    Objects.requireNonNull(timeout, "The `timeout` must not be `null`");
+    if (timeout.toMillis() <= 0) {
+      throw new IllegalArgumentException("The idle timeout must be at least 1 ms");
+    }
+    return new GroupByOptions<>(maxGroups, timeout.toMillis(), onEviction, scheduler);
+  }
+
+  /**
+   * Sets the callback called with the key of each evicted group.
+   *
+   * @param callback the callback, must not be {@code null}
+   * @return the new options
+   */
+  public GroupByOptions<K> withEvictionCallback(Consumer<K> callback) {
+    return new GroupByOptions<>(maxGroups, idleTimeout,
+      Objects.requireNonNull(callback, "The `callback` must not be `null`"), scheduler);
+  }
+
+  /**
+   * Creates new options reading the time from the given scheduler.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new options
+   */
+  public GroupByOptions<K> using(Scheduler scheduler) {
+    return new GroupByOptions<>(maxGroups, idleTimeout, onEviction,
+      Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"));
+  }
+}
@@ -6,9 +6,11 @@ import org.reactivestreams.Subscriber;
 
 import java.util.Objects;
 
-import static me.escoffier.fluid.models.CommonHeaders.GROUP_KEY;
-
 /**
+ * A stream of messages sharing the same key, created by {@link Source#groupBy(java.util.function.Function)}. The key is
+ * available using {@link #key()}: the messages are emitted as received, without adding the key to their headers. Use
+ * {@link #withKeyHeader()} to get the messages with the {@link CommonHeaders#GROUP_KEY} header.
+ *
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
 public class GroupedDataStream<K, T> implements Publisher<Message<T>> {
@@ -18,8 +20,7 @@ public class GroupedDataStream<K, T> implements Publisher<Message<T>> {
 
   public GroupedDataStream(K key, Publisher<Message<T>> items) {
     this.key = Objects.requireNonNull(key, "The `key` cannot be `null`");
-    this.items = Flowable.fromPublisher(Objects.requireNonNull(items, "The `items` cannot be `null`"))
-      .map(d -> d.with(GROUP_KEY, key));
+    this.items = Objects.requireNonNull(items, "The `items` cannot be `null`");
   }
 
   @Override
@@ -30,4 +31,12 @@ public class GroupedDataStream<K, T> implements Publisher<Message<T>> {
   public K key() {
     return key;
   }
+
+  /**
+   * @return a publisher emitting the messages of this group with the {@link CommonHeaders#GROUP_KEY} header set to the
+   * key of the group.
+   */
+  public Publisher<Message<T>> withKeyHeader() {
+    return Flowable.fromPublisher(items).map(d -> d.with(HeaderKey.GROUP_KEY, key));
+  }
 }
@@ -0,0 +1,220 @@
+package me.escoffier.fluid.models;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A typed key identifying a {@link Message} header.
+ * <p>
+ * <em>Well-known</em> keys (such as the ones from {@link CommonHeaders}) are associated with a fixed slot index. The
+ * values of these headers are stored in a compact array inside the {@link Message}, so reading and writing them does
+ * not require hashing the key. Other keys are stored in the string-keyed header map.
+ * <p>
+ * Values are checked against the type of the key when read, avoiding unchecked casts.
+ *
+ * @param <T> the type of value associated with the key
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class HeaderKey<T> {
+
+  /**
+   * The maximum number of well-known keys.
+   */
+  static final int MAX_SLOTS = 32;
+
+  private static final AtomicInteger SLOTS = new AtomicInteger();
+
+  private static final Map<String, HeaderKey<?>> WELL_KNOWN = new ConcurrentHashMap<>();
+
+  private static final HeaderKey<?>[] BY_SLOT = new HeaderKey<?>[MAX_SLOTS];
+
+  /**
+   * The original data (record, event bus message...) from which the message has been created.
+   */
+  public static final HeaderKey<Object> ORIGINAL = wellKnown(CommonHeaders.ORIGINAL, Object.class);
+
+  /**
+   * The address (topic, event bus address...) from which the message has been received.
+   */
+  public static final HeaderKey<String> ADDRESS = wellKnown(CommonHeaders.ADDRESS, String.class);
+
+  /**
+   * The key of the message (Kafka record key...).
+   */
+  public static final HeaderKey<String> KEY = wellKnown(CommonHeaders.KEY, String.class);
+
+  /**
+   * The callback to use to reply to the message.
+   */
+  public static final HeaderKey<ResponseCallback> RESPONSE_CALLBACK
+    = wellKnown(CommonHeaders.RESPONSE_CALLBACK, ResponseCallback.class);
+
+  /**
+   * The key of the group the message belongs to.
+   */
+  public static final HeaderKey<Object> GROUP_KEY = wellKnown(CommonHeaders.GROUP_KEY, Object.class);
+
+  /**
+   * The start of the window from which a message has been computed.
+   */
+  public static final HeaderKey<Long> WINDOW_START = wellKnown(CommonHeaders.WINDOW_START, Long.class);
+
+  /**
+   * The end (exclusive) of the window from which a message has been computed.
+   */
+  public static final HeaderKey<Long> WINDOW_END = wellKnown(CommonHeaders.WINDOW_END, Long.class);
+
+  /**
+   * The number of messages grouped in a batch.
+   */
+  public static final HeaderKey<Integer> BATCH_SIZE = wellKnown(CommonHeaders.BATCH_SIZE, Integer.class);
+
+  private final String name;
+
+  private final Class<T> type;
+
+  /**
+   * The slot index, {@code -1} if the key is not a well-known key.
+   */
+  private final int slot;
+
+  private HeaderKey(String name, Class<T> type, int slot) {
+    this.name = name;
+    this.type = type;
+    this.slot = slot;
+  }
+
+  /**
+   * Gets a key for the given name. If the name matches a well-known key, the well-known key is returned.
+   *
+   * @param name the name of the header, must not be {@code null}
+   * @param type the type of value, must not be {@code null}
+   * @param <T>  the type of value
+   * @return the key
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> HeaderKey<T> of(String name, Class<T> type) {
+    Objects.requireNonNull(name, "The `name` must not be `null`");
+    Objects.requireNonNull(type, "The `type` must not be `null`");
+    HeaderKey<?> known = WELL_KNOWN.get(name);
+    if (known != null) {
+      if (!known.type.isAssignableFrom(type)) {
+        throw new IllegalArgumentException("The header `" + name + "` is a well-known header of type "
+          + known.type.getName() + ", " + type.getName() + " requested");
+      }
+      return (HeaderKey<T>) known;
+    }
+    return new HeaderKey<>(name, type, -1);
+  }
+
+  /**
+   * Declares a well-known key, stored in a fixed slot of the {@link Message}. This method is intended to be called
+   * once, in a static initializer, by components emitting or reading the header on every message. Declaring the
+   * same name twice returns the already declared key.
+   *
+   * @param name the name of the header, must not be {@code null}
+   * @param type the type of value, must not be {@code null}
+   * @param <T>  the type of value
+   * @return the key
+   * @throws IllegalStateException if too many well-known keys have been declared
+   */
+  @SuppressWarnings("unchecked")
+  public static synchronized <T> HeaderKey<T> wellKnown(String name, Class<T> type) {
+    Objects.requireNonNull(name, "The `name` must not be `null`");
+    Objects.requireNonNull(type, "The `type` must not be `null`");
+    HeaderKey<?> known = WELL_KNOWN.get(name);
+    if (known != null) {
+      if (known.type != type) {
+        throw new IllegalArgumentException("The header `" + name + "` is already declared with the type "
+          + known.type.getName());
+      }
+      return (HeaderKey<T>) known;
+    }
+    int slot = SLOTS.get();
+    if (slot >= MAX_SLOTS) {
+      throw new IllegalStateException("Too many well-known headers, the maximum is " + MAX_SLOTS);
+    }
+    HeaderKey<T> key = new HeaderKey<>(name, type, slot);
+    BY_SLOT[slot] = key;
+    WELL_KNOWN.put(name, key);
+    SLOTS.incrementAndGet();
+    return key;
+  }
+
+  /**
+   * Looks for the well-known key with the given name. Connectors creating messages with lazy headers (see
+   * {@link Message#lazy(Object, java.util.function.Supplier)}) use it to set the well-known headers eagerly.
+   *
+   * @param name the name
+   * @return the key, {@code null} if the name is not a well-known key
+   */
+  public static HeaderKey<?> lookup(String name) {
+    return WELL_KNOWN.get(name);
+  }
+
+  /**
+   * Gets the well-known key stored in the given slot.
+   *
+   * @param slot the slot index
+   * @return the key
+   */
+  static HeaderKey<?> bySlot(int slot) {
+    return BY_SLOT[slot];
+  }
+
+  /**
+   * @return the name of the header.
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * @return the type of value associated with the header.
+   */
+  public Class<T> type() {
+    return type;
+  }
+
+  /**
+   * @return the slot index, {@code -1} if the key is not a well-known key.
+   */
+  int slot() {
+    return slot;
+  }
+
+  /**
+   * @return whether or not the key is a well-known key stored in a fixed slot.
+   */
+  public boolean isWellKnown() {
+    return slot >= 0;
+  }
+
+  T cast(Object value) {
+    return type.cast(value);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    HeaderKey<?> other = (HeaderKey<?>) o;
+    return name.equals(other.name) && type == other.type;
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
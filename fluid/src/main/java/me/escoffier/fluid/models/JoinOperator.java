@@ -0,0 +1,219 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Implements the windowed joins of {@link Source}, such as
+ * {@link Source#join(Publisher, Function, Function, java.time.Duration)}.
+ * <p>
+ * Each side is buffered in a hash table indexed by key. A message is matched against the messages of the other side
+ * received at most {@code window} before it, and stays in the table for {@code window}, so the retained messages are
+ * bounded by the window, not by the length of the streams. Expired messages are removed when a message is received
+ * and by a periodic timer. For left and outer joins, the messages that expire without having been matched are emitted
+ * alone. When both sides complete, the unmatched messages still buffered are emitted.
+ */
+final class JoinOperator {
+
+  private static final Object TICK = new Object();
+
+  private JoinOperator() {
+    // Avoid direct instantiation.
+  }
+
+  /**
+   * Joins the two streams.
+   *
+   * @param combiner   builds the result from the left and right messages, one of them being {@code null} for the
+   *                   unmatched messages
+   * @param keepLeft   whether unmatched left messages are emitted
+   * @param keepRight  whether unmatched right messages are emitted
+   */
+  @SuppressWarnings("unchecked")
+  static <T, O, K, R> Flowable<Message<R>> apply(Publisher<Message<T>> left, Publisher<Message<O>> right,
+                                                 Function<Message<T>, K> leftKey, Function<Message<O>, K> rightKey,
+                                                 long window, Scheduler scheduler,
+                                                 BiFunction<Message<T>, Message<O>, Message<R>> combiner,
+                                                 boolean keepLeft, boolean keepRight) {
+    long period = Math.max(1, window / 4);
+    return Flowable.defer(() -> {
+      State<T, O, K, R> state = new State<>(leftKey, rightKey, window, combiner, keepLeft, keepRight);
+      Flowable<Object> events = Flowable.merge(
+        Flowable.fromPublisher(left).map(m -> new Side(true, m)),
+        Flowable.fromPublisher(right).map(m -> new Side(false, m)))
+        .publish(messages -> {
+          Flowable<Object> ticks = Flowable.interval(period, period, TimeUnit.MILLISECONDS, scheduler)
+            .onBackpressureDrop()
+            .map(x -> TICK)
+            .takeUntil(messages.ignoreElements().toFlowable());
+          // Merging serializes the messages and the ticks, so the state is never accessed concurrently.
+          return Flowable.merge(messages, ticks);
+        });
+      return events
+        .concatMapIterable(event -> {
+          long now = scheduler.now(TimeUnit.MILLISECONDS);
+          if (event == TICK) {
+            return state.expire(now);
+          }
+          Side side = (Side) event;
+          if (side.left) {
+            return state.onLeft(now, (Message<T>) side.message);
+          }
+          return state.onRight(now, (Message<O>) side.message);
+        })
+        .concatWith(Flowable.defer(() -> Flowable.fromIterable(state.flush())));
+    });
+  }
+
+  private static final class Side {
+    private final boolean left;
+    private final Message<?> message;
+
+    Side(boolean left, Message<?> message) {
+      this.left = left;
+      this.message = message;
+    }
+  }
+
+  private static final class Entry<K, X> {
+    private final K key;
+    private final Message<X> message;
+    private final long time;
+    private boolean matched;
+
+    Entry(K key, Message<X> message, long time) {
+      this.key = key;
+      this.message = message;
+      this.time = time;
+    }
+  }
+
+  /**
+   * The messages of one side, by key and in arrival order. As the time is the reception time, the oldest message is
+   * always the head of both the arrival queue and its key queue.
+   */
+  private static final class Table<K, X> {
+    private final Map<K, ArrayDeque<Entry<K, X>>> byKey = new HashMap<>();
+    private final ArrayDeque<Entry<K, X>> arrivals = new ArrayDeque<>();
+
+    void add(Entry<K, X> entry) {
+      byKey.computeIfAbsent(entry.key, k -> new ArrayDeque<>(2)).add(entry);
+      arrivals.add(entry);
+    }
+
+    Iterable<Entry<K, X>> get(K key) {
+      ArrayDeque<Entry<K, X>> entries = byKey.get(key);
+      return entries == null ? Collections.emptyList() : entries;
+    }
+
+    /**
+     * Removes the entries received before {@code limit} and returns the unmatched ones if {@code keep} is set.
+     */
+    List<Entry<K, X>> expire(long limit, boolean keep) {
+      List<Entry<K, X>> unmatched = Collections.emptyList();
+      while (!arrivals.isEmpty() && arrivals.peek().time < limit) {
+        Entry<K, X> entry = arrivals.poll();
+        ArrayDeque<Entry<K, X>> entries = byKey.get(entry.key);
+        entries.poll();
+        if (entries.isEmpty()) {
+          byKey.remove(entry.key);
+        }
+        if (keep && !entry.matched) {
+          if (unmatched.isEmpty()) {
+            unmatched = new ArrayList<>();
+          }
+          unmatched.add(entry);
+        }
+      }
+      return unmatched;
+    }
+  }
+
+  private static final class State<T, O, K, R> {
+    private final Function<Message<T>, K> leftKey;
+    private final Function<Message<O>, K> rightKey;
+    private final long window;
+    private final BiFunction<Message<T>, Message<O>, Message<R>> combiner;
+    private final boolean keepLeft;
+    private final boolean keepRight;
+    private final Table<K, T> lefts = new Table<>();
+    private final Table<K, O> rights = new Table<>();
+
+    State(Function<Message<T>, K> leftKey, Function<Message<O>, K> rightKey, long window,
+          BiFunction<Message<T>, Message<O>, Message<R>> combiner, boolean keepLeft, boolean keepRight) {
+      this.leftKey = leftKey;
+      this.rightKey = rightKey;
+      this.window = window;
+      this.combiner = combiner;
+      this.keepLeft = keepLeft;
+      this.keepRight = keepRight;
+    }
+
+    List<Message<R>> onLeft(long now, Message<T> message) {
+      K key = Objects.requireNonNull(leftKey.apply(message), "The key of a message must not be `null`");
+      List<Message<R>> results = expire(now);
+      Entry<K, T> entry = new Entry<>(key, message, now);
+      for (Entry<K, O> other : rights.get(key)) {
+        results = append(results, combiner.apply(message, other.message));
+        other.matched = true;
+        entry.matched = true;
+      }
+      lefts.add(entry);
+      return results;
+    }
+
+    List<Message<R>> onRight(long now, Message<O> message) {
+      K key = Objects.requireNonNull(rightKey.apply(message), "The key of a message must not be `null`");
+      List<Message<R>> results = expire(now);
+      Entry<K, O> entry = new Entry<>(key, message, now);
+      for (Entry<K, T> other : lefts.get(key)) {
+        results = append(results, combiner.apply(other.message, message));
+        other.matched = true;
+        entry.matched = true;
+      }
+      rights.add(entry);
+      return results;
+    }
+
+    List<Message<R>> expire(long now) {
+      long limit = now - window;
+      List<Message<R>> results = Collections.emptyList();
+      for (Entry<K, T> entry : lefts.expire(limit, keepLeft)) {
+        results = append(results, combiner.apply(entry.message, null));
+      }
+      for (Entry<K, O> entry : rights.expire(limit, keepRight)) {
+        results = append(results, combiner.apply(null, entry.message));
+      }
+      return results;
+    }
+
+    List<Message<R>> flush() {
+      List<Message<R>> results = new ArrayList<>();
+      for (Entry<K, T> entry : lefts.expire(Long.MAX_VALUE, keepLeft)) {
+        results.add(combiner.apply(entry.message, null));
+      }
+      for (Entry<K, O> entry : rights.expire(Long.MAX_VALUE, keepRight)) {
+        results.add(combiner.apply(null, entry.message));
+      }
+      return results;
+    }
+  }
+
+  private static <X> List<X> append(List<X> list, X item) {
+    List<X> result = list.isEmpty() ? new ArrayList<>(2) : list;
+    result.add(item);
+    return result;
+  }
+}
@@ -0,0 +1,175 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import org.reactivestreams.Publisher;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static me.escoffier.fluid.models.DefaultSource.FUNCTION_CANNOT_BE_NULL_MESSAGE;
+
+/**
+ * A source whose messages are associated with a key, computed using the function given to
+ * {@link Source#keyBy(Function)}. The key function has the same signature as the one used by
+ * {@link Source#groupBy(Function)}.
+ *
+ * @param <K> the type of key
+ * @param <T> the type of payload
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class KeyedSource<K, T> {
+
+  /**
+   * Marker used for the messages not changing the aggregated value, filtered out.
+   */
+  private static final Message<?> UNCHANGED = new Message<>(Boolean.TRUE);
+
+  private final Publisher<Message<T>> flow;
+
+  private final Function<Message<T>, K> keyFunction;
+
+  private final String name;
+
+  private final Map<String, Object> attributes;
+
+  KeyedSource(Publisher<Message<T>> flow, Function<Message<T>, K> keyFunction, String name,
+              Map<String, Object> attributes) {
+    this.flow = flow;
+    this.keyFunction = keyFunction;
+    this.name = name;
+    this.attributes = attributes;
+  }
+
+  /**
+   * @return the key function.
+   */
+  public Function<Message<T>, K> keyFunction() {
+    return keyFunction;
+  }
+
+  /**
+   * Partitions the messages into {@code shards} shards according to their key. A given key is always processed by the
+   * same shard, and each shard runs on its own thread, so the messages sharing the same key are processed in order
+   * while different keys are processed concurrently.
+   *
+   * @param shards the number of shards, must be strictly positive
+   * @return the sharded source
+   */
+  public ShardedSource<T> parallel(int shards) {
+    if (shards <= 0) {
+      throw new IllegalArgumentException("The number of shards must be strictly positive");
+    }
+    return new ShardedSource<>(flow, m -> shard(keyFunction.apply(m), shards), shards, name, attributes);
+  }
+
+  /**
+   * Aggregates the payloads per key. For each message, the function is called with the current value associated with
+   * the key of the message (or {@code initial}) and the payload. The result becomes the new value of the key and is
+   * emitted, but only if it differs (according to {@link Object#equals(Object)}) from the previous value. So, values
+   * should be immutable. The emitted messages keep the headers of the incoming message and carry the key in the
+   * {@link CommonHeaders#GROUP_KEY} header.
+   * <p>
+   * The state is kept in an unbounded {@link KeyedStateStore} created for each subscription.
+   *
+   * @param initial  the initial value of each key, must not be {@code null}
+   * @param function the function computing the new value, must not be {@code null}, must not return {@code null}
+   * @param <V>      the type of value
+   * @return the source emitting the updated values
+   */
+  public <V> Source<V> aggregate(V initial, BiFunction<V, T, V> function) {
+    Objects.requireNonNull(initial, "The `initial` value must not be `null`");
+    Objects.requireNonNull(function, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return new DefaultSource<>(Flowable.defer(() -> aggregate(initial, function, KeyedStateStore.<K, V>create())
+      .asFlowable()), name, attributes);
+  }
+
+  /**
+   * Same as {@link #aggregate(Object, BiFunction)} but using the given store, which can be bounded, evict idle keys
+   * and be queried while the stream is running. The store is shared by all the subscriptions of the returned source.
+   *
+   * @param initial  the initial value of each key, must not be {@code null}
+   * @param function the function computing the new value, must not be {@code null}, must not return {@code null}
+   * @param store    the store, must not be {@code null}
+   * @param <V>      the type of value
+   * @return the source emitting the updated values
+   */
+  @SuppressWarnings("unchecked")
+  public <V> Source<V> aggregate(V initial, BiFunction<V, T, V> function, KeyedStateStore<K, V> store) {
+    Objects.requireNonNull(initial, "The `initial` value must not be `null`");
+    Objects.requireNonNull(function, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    Objects.requireNonNull(store, "The `store` must not be `null`");
+    Flowable<Message<V>> flowable = Flowable.fromPublisher(flow)
+      .map(message -> {
+        K key = Objects.requireNonNull(keyFunction.apply(message), "The key function returned `null`");
+        V value = store.update(key, initial, previous -> function.apply(previous, message.payload()));
+        if (value == null) {
+          return (Message<V>) UNCHANGED;
+        }
+        return message.with(value).with(HeaderKey.GROUP_KEY, key);
+      })
+      .filter(message -> message != UNCHANGED);
+    return new DefaultSource<>(flowable, name, attributes);
+  }
+
+  /**
+   * Aggregates the payloads per key using the given {@link Aggregator}. Each key has its own accumulator, created on
+   * the first message with this key, to which the payloads are added. Unlike {@link #aggregate(Object, BiFunction)},
+   * the accumulator can be mutable and updated in place, such as a {@code long[]}, so no value is boxed per message.
+   * The result is computed after each update and emitted only if it differs from the previous result. The emitted
+   * messages keep the headers of the incoming message and carry the key in the {@link CommonHeaders#GROUP_KEY} header.
+   * <p>
+   * The accumulators are kept in an unbounded {@link KeyedStateStore} created for each subscription.
+   *
+   * @param aggregator the aggregator, must not be {@code null}
+   * @param <ACC>      the type of accumulator
+   * @param <R>        the type of result
+   * @return the source emitting the updated results
+   */
+  public <ACC, R> Source<R> aggregate(Aggregator<T, ACC, R> aggregator) {
+    Objects.requireNonNull(aggregator, "The `aggregator` must not be `null`");
+    return new DefaultSource<>(Flowable.defer(() -> aggregate(aggregator, KeyedStateStore.<K, ACC>create())
+      .asFlowable()), name, attributes);
+  }
+
+  /**
+   * Same as {@link #aggregate(Aggregator)} but using the given store, holding the accumulators. The store is shared by
+   * all the subscriptions of the returned source.
+   *
+   * @param aggregator the aggregator, must not be {@code null}
+   * @param store      the store, must not be {@code null}
+   * @param <ACC>      the type of accumulator
+   * @param <R>        the type of result
+   * @return the source emitting the updated results
+   */
+  @SuppressWarnings("unchecked")
+  public <ACC, R> Source<R> aggregate(Aggregator<T, ACC, R> aggregator, KeyedStateStore<K, ACC> store) {
+    Objects.requireNonNull(aggregator, "The `aggregator` must not be `null`");
+    Objects.requireNonNull(store, "The `store` must not be `null`");
+    Flowable<Message<R>> flowable = Flowable.fromPublisher(flow)
+      .map(message -> {
+        K key = Objects.requireNonNull(keyFunction.apply(message), "The key function returned `null`");
+        R result = store.accumulate(key, message.payload(), aggregator);
+        if (result == null) {
+          return (Message<R>) UNCHANGED;
+        }
+        return message.with(result).with(HeaderKey.GROUP_KEY, key);
+      })
+      .filter(message -> message != UNCHANGED);
+    return new DefaultSource<>(flowable, name, attributes);
+  }
+
+  /**
+   * Computes the shard of the given key.
+   *
+   * @param key    the key, can be {@code null}
+   * @param shards the number of shards
+   * @return the shard, between 0 (included) and {@code shards} (excluded)
+   */
+  static int shard(Object key, int shards) {
+    int hash = Objects.hashCode(key);
+    // Spread the higher bits, as done by java.util.HashMap.
+    return Math.floorMod(hash ^ (hash >>> 16), shards);
+  }
+}
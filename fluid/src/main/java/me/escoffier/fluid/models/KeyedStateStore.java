@@ -0,0 +1,432 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A store associating a value with keys, used by {@link KeyedSource#aggregate(Object, BiFunction, KeyedStateStore)}
+ * to keep the per-key state. The store can be queried while the stream is running.
+ * <p>
+ * The store is an open-addressing hash map (linear probing, no entry objects). The entries are also linked in access
+ * order, which allows:
+ * <ul>
+ * <li>bounding the number of entries, the least recently used entry being evicted when the bound is reached,</li>
+ * <li>evicting the entries not accessed during a given time-to-live.</li>
+ * </ul>
+ * <p>
+ * {@code null} keys and values are not supported. All methods are thread-safe.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class KeyedStateStore<K, V> {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final int NONE = -1;
+
+  private final int maxSize;
+
+  /**
+   * The time-to-live in milliseconds, {@code 0} if disabled.
+   */
+  private final long ttl;
+
+  private final Scheduler scheduler;
+
+  private Object[] keys;
+  private Object[] values;
+  private long[] accessed;
+  private int[] previous;
+  private int[] next;
+  private int mask;
+
+  private int head = NONE;
+  private int tail = NONE;
+  private int size;
+  private long evictions;
+
+  private KeyedStateStore(int maxSize, long ttl, Scheduler scheduler) {
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    this.scheduler = scheduler;
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param <K> the type of key
+   * @param <V> the type of value
+   * @return a new unbounded store, without time-to-live.
+   */
+  public static <K, V> KeyedStateStore<K, V> create() {
+    return new KeyedStateStore<>(Integer.MAX_VALUE, 0, Schedulers.computation());
+  }
+
+  /**
+   * Creates a new store containing at most {@code maxSize} entries. When full, the least recently used entry is
+   * evicted.
+   *
+   * @param maxSize the maximum number of entries, must be strictly positive
+   * @param <K>     the type of key
+   * @param <V>     the type of value
+   * @return the new store
+   */
+  public static <K, V> KeyedStateStore<K, V> create(int maxSize) {
+    return create(maxSize, null, Schedulers.computation());
+  }
+
+  /**
+   * Creates a new store containing at most {@code maxSize} entries, and evicting the entries not accessed (read or
+   * written) during the given time-to-live.
+   *
+   * @param maxSize   the maximum number of entries, must be strictly positive, use {@link Integer#MAX_VALUE} for an
+   *                  unbounded store
+   * @param ttl       the time-to-live, {@code null} to disable expiration
+   * @param scheduler the scheduler providing the time, must not be {@code null}
+   * @param <K>       the type of key
+   * @param <V>       the type of value
+   * @return the new store
+   */
+  public static <K, V> KeyedStateStore<K, V> create(int maxSize, Duration ttl, Scheduler scheduler) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The `maxSize` must be strictly positive");
+    }
+    long millis = 0;
+    if (ttl != null) {
+      millis = ttl.toMillis();
+      if (millis <= 0) {
+        throw new IllegalArgumentException("The `ttl` must be at least 1 ms");
+      }
+    }
+    return new KeyedStateStore<>(maxSize, millis,
+      Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"));
+  }
+
+  /**
+   * Gets the value associated with the given key.
+   *
+   * @param key the key, must not be {@code null}
+   * @return the value, {@code null} if none
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized V get(K key) {
+    Objects.requireNonNull(key, "The `key` must not be `null`");
+    long now = now();
+    expire(now);
+    int slot = find(key);
+    if (slot == NONE) {
+      return null;
+    }
+    touch(slot, now);
+    return (V) values[slot];
+  }
+
+  /**
+   * Associates the given value with the given key.
+   *
+   * @param key   the key, must not be {@code null}
+   * @param value the value, must not be {@code null}
+   * @return the previous value, {@code null} if none
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized V put(K key, V value) {
+    Objects.requireNonNull(key, "The `key` must not be `null`");
+    Objects.requireNonNull(value, "The `value` must not be `null`");
+    long now = now();
+    expire(now);
+    int slot = find(key);
+    if (slot != NONE) {
+      V previousValue = (V) values[slot];
+      values[slot] = value;
+      touch(slot, now);
+      return previousValue;
+    }
+    insert(key, value, now);
+    return null;
+  }
+
+  /**
+   * Updates the value associated with the given key.
+   *
+   * @param key      the key, must not be {@code null}
+   * @param initial  the value used as previous value if the key has no value, must not be {@code null}
+   * @param function the function computing the new value from the previous one, must not return {@code null}
+   * @return the new value, {@code null} if it is equal to the previous value (or {@code initial})
+   */
+  @SuppressWarnings("unchecked")
+  synchronized V update(K key, V initial, Function<V, V> function) {
+    long now = now();
+    expire(now);
+    int slot = find(key);
+    V previousValue = slot == NONE ? initial : (V) values[slot];
+    V value = Objects.requireNonNull(function.apply(previousValue), "The function returned a `null` value");
+    if (slot == NONE) {
+      insert(key, value, now);
+    } else {
+      values[slot] = value;
+      touch(slot, now);
+    }
+    return value.equals(previousValue) ? null : value;
+  }
+
+  /**
+   * Adds the payload to the accumulator associated with the given key (created if the key has no value), and computes
+   * the aggregated result. The accumulator can be updated in place.
+   *
+   * @param key        the key, must not be {@code null}
+   * @param payload    the payload
+   * @param aggregator the aggregator, its accumulators are the values of the store
+   * @param <T>        the type of payload
+   * @param <R>        the type of result
+   * @return the new result, {@code null} if it is equal to the result computed before adding the payload
+   */
+  @SuppressWarnings("unchecked")
+  synchronized <T, R> R accumulate(K key, T payload, Aggregator<T, V, R> aggregator) {
+    long now = now();
+    expire(now);
+    int slot = find(key);
+    V accumulator = slot == NONE ? aggregator.create() : (V) values[slot];
+    R previousResult = slot == NONE ? null : aggregator.result(accumulator);
+    accumulator = Objects.requireNonNull(aggregator.add(accumulator, payload),
+      "The aggregator returned a `null` accumulator");
+    if (slot == NONE) {
+      insert(key, accumulator, now);
+    } else {
+      values[slot] = accumulator;
+      touch(slot, now);
+    }
+    R result = Objects.requireNonNull(aggregator.result(accumulator), "The aggregator returned a `null` result");
+    return result.equals(previousResult) ? null : result;
+  }
+
+  /**
+   * Removes the value associated with the given key.
+   *
+   * @param key the key, must not be {@code null}
+   * @return the removed value, {@code null} if none
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized V remove(K key) {
+    Objects.requireNonNull(key, "The `key` must not be `null`");
+    expire(now());
+    int slot = find(key);
+    if (slot == NONE) {
+      return null;
+    }
+    V value = (V) values[slot];
+    delete(slot);
+    return value;
+  }
+
+  /**
+   * @return the number of entries, expired entries not yet removed included.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of entries evicted because the store was full or because they expired.
+   */
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  /**
+   * Calls the given consumer for each entry, from the least recently used to the most recently used.
+   *
+   * @param consumer the consumer, must not be {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized void forEach(BiConsumer<K, V> consumer) {
+    Objects.requireNonNull(consumer, "The `consumer` must not be `null`");
+    expire(now());
+    for (int slot = head; slot != NONE; slot = next[slot]) {
+      consumer.accept((K) keys[slot], (V) values[slot]);
+    }
+  }
+
+  /**
+   * Removes all the entries.
+   */
+  public synchronized void clear() {
+    Arrays.fill(keys, null);
+    Arrays.fill(values, null);
+    head = NONE;
+    tail = NONE;
+    size = 0;
+  }
+
+  private long now() {
+    return ttl == 0 ? 0 : scheduler.now(TimeUnit.MILLISECONDS);
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    accessed = new long[capacity];
+    previous = new int[capacity];
+    next = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  private int home(Object key) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private int find(Object key) {
+    int slot = home(key);
+    Object current;
+    while ((current = keys[slot]) != null) {
+      if (current.equals(key)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NONE;
+  }
+
+  private void insert(Object key, Object value, long now) {
+    if ((size + 1) * 4 > keys.length * 3) {
+      resize();
+    }
+    int slot = home(key);
+    while (keys[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    accessed[slot] = now;
+    link(slot);
+    size++;
+    while (size > maxSize) {
+      delete(head);
+      evictions++;
+    }
+  }
+
+  private void resize() {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    long[] oldAccessed = accessed;
+    int[] oldNext = next;
+    int oldHead = head;
+    allocate(oldKeys.length * 2);
+    head = NONE;
+    tail = NONE;
+    // Re-insert in access order to preserve the LRU order.
+    for (int old = oldHead; old != NONE; old = oldNext[old]) {
+      int slot = home(oldKeys[old]);
+      while (keys[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = oldKeys[old];
+      values[slot] = oldValues[old];
+      accessed[slot] = oldAccessed[old];
+      link(slot);
+    }
+  }
+
+  /**
+   * Appends the slot at the tail (most recently used) of the access list.
+   */
+  private void link(int slot) {
+    previous[slot] = tail;
+    next[slot] = NONE;
+    if (tail == NONE) {
+      head = slot;
+    } else {
+      next[tail] = slot;
+    }
+    tail = slot;
+  }
+
+  private void unlink(int slot) {
+    if (previous[slot] == NONE) {
+      head = next[slot];
+    } else {
+      next[previous[slot]] = next[slot];
+    }
+    if (next[slot] == NONE) {
+      tail = previous[slot];
+    } else {
+      previous[next[slot]] = previous[slot];
+    }
+  }
+
+  private void touch(int slot, long now) {
+    accessed[slot] = now;
+    if (slot != tail) {
+      unlink(slot);
+      link(slot);
+    }
+  }
+
+  private void expire(long now) {
+    if (ttl == 0) {
+      return;
+    }
+    // The head is the least recently accessed entry.
+    while (head != NONE && accessed[head] + ttl <= now) {
+      delete(head);
+      evictions++;
+    }
+  }
+
+  /**
+   * Deletes the entry stored in the given slot, shifting back the following entries of the probe sequence so that
+   * lookups never stop on a hole.
+   */
+  private void delete(int slot) {
+    unlink(slot);
+    keys[slot] = null;
+    values[slot] = null;
+    size--;
+    int hole = slot;
+    int current = slot;
+    while (true) {
+      current = (current + 1) & mask;
+      Object key = keys[current];
+      if (key == null) {
+        return;
+      }
+      int home = home(key);
+      // Move the entry if its home is not cyclically in (hole, current].
+      boolean movable = hole <= current ? (home <= hole || home > current) : (home <= hole && home > current);
+      if (movable) {
+        move(current, hole);
+        hole = current;
+      }
+    }
+  }
+
+  private void move(int from, int to) {
+    keys[to] = keys[from];
+    values[to] = values[from];
+    accessed[to] = accessed[from];
+    previous[to] = previous[from];
+    next[to] = next[from];
+    if (previous[to] == NONE) {
+      head = to;
+    } else {
+      next[previous[to]] = to;
+    }
+    if (next[to] == NONE) {
+      tail = to;
+    } else {
+      previous[next[to]] = to;
+    }
+    keys[from] = null;
+    values[from] = null;
+  }
+}
@@ -0,0 +1,246 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Completable;
+import io.reactivex.CompletableObserver;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.internal.subscriptions.SubscriptionHelper;
+import io.reactivex.plugins.RxJavaPlugins;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Dispatches the items of a publisher, requesting an item only when the {@link ConcurrencyLimiter} grants a permit.
+ * The permit is released, and the latency of the dispatch recorded, when the dispatch completes. Used by
+ * {@link Source#to(Sink, SinkOptions)} for the sinks created with {@link Sink#withConcurrencyLimit(ConcurrencyLimiter)}.
+ * <p>
+ * To guarantee progress when the limiter is shared, a permit is acquired even if the limit is reached when the
+ * dispatcher has no in-flight dispatch.
+ *
+ * @param <X> the type of item
+ */
+final class LimitedDispatch<X> extends Completable {
+
+  private final Publisher<X> upstream;
+
+  private final Function<X, Completable> dispatch;
+
+  private final ConcurrencyLimiter limiter;
+
+  LimitedDispatch(Publisher<X> upstream, Function<X, Completable> dispatch, ConcurrencyLimiter limiter) {
+    this.upstream = upstream;
+    this.dispatch = dispatch;
+    this.limiter = limiter;
+  }
+
+  @Override
+  protected void subscribeActual(CompletableObserver observer) {
+    upstream.subscribe(new DispatchSubscriber(observer));
+  }
+
+  private final class DispatchSubscriber implements FlowableSubscriber<X>, Disposable {
+    private final CompletableObserver downstream;
+    private final CompositeDisposable dispatches = new CompositeDisposable();
+    private final AtomicInteger wip = new AtomicInteger();
+    private Subscription subscription;
+    /**
+     * The number of permits acquired for requested items not received yet, guarded by {@code this}.
+     */
+    private int reserved;
+    /**
+     * The number of in-flight dispatches, guarded by {@code this}.
+     */
+    private int active;
+    /**
+     * Whether the upstream has completed, guarded by {@code this}.
+     */
+    private boolean done;
+    /**
+     * Whether the downstream has been notified or has disposed, guarded by {@code this}.
+     */
+    private boolean terminated;
+
+    DispatchSubscriber(CompletableObserver downstream) {
+      this.downstream = downstream;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      if (SubscriptionHelper.validate(subscription, s)) {
+        subscription = s;
+        downstream.onSubscribe(this);
+        fill();
+      }
+    }
+
+    private void fill() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        while (true) {
+          synchronized (this) {
+            if (done || terminated) {
+              break;
+            }
+            if (!limiter.tryAcquire()) {
+              if (reserved + active > 0) {
+                break;
+              }
+              limiter.acquire();
+            }
+            reserved++;
+          }
+          subscription.request(1);
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    @Override
+    public void onNext(X item) {
+      synchronized (this) {
+        if (terminated) {
+          return;
+        }
+        reserved--;
+        active++;
+      }
+      long begin = System.nanoTime();
+      Completable completable;
+      try {
+        completable = dispatch.apply(item);
+      } catch (Throwable e) {
+        Exceptions.throwIfFatal(e);
+        completed(begin, e);
+        return;
+      }
+      completable.subscribe(new CompletableObserver() {
+        private Disposable disposable;
+
+        @Override
+        public void onSubscribe(Disposable d) {
+          disposable = d;
+          dispatches.add(d);
+        }
+
+        @Override
+        public void onComplete() {
+          dispatches.delete(disposable);
+          completed(begin, null);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+          dispatches.delete(disposable);
+          completed(begin, e);
+        }
+      });
+    }
+
+    private void completed(long begin, Throwable failure) {
+      boolean complete;
+      synchronized (this) {
+        if (terminated) {
+          return;
+        }
+        active--;
+        limiter.release(System.nanoTime() - begin, failure == null);
+        complete = failure == null && done && active == 0;
+      }
+      if (failure != null) {
+        terminate(failure);
+      } else if (complete) {
+        terminate(null);
+      } else {
+        fill();
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      terminate(t);
+    }
+
+    @Override
+    public void onComplete() {
+      boolean complete;
+      synchronized (this) {
+        done = true;
+        releaseReserved();
+        complete = active == 0;
+      }
+      if (complete) {
+        terminate(null);
+      }
+    }
+
+    /**
+     * Releases the permits acquired for items that will not be received. Must be called while holding the lock.
+     */
+    private void releaseReserved() {
+      for (; reserved > 0; reserved--) {
+        limiter.cancel();
+      }
+    }
+
+    /**
+     * Cancels everything and releases the permits. Must be called while holding the lock.
+     *
+     * @return {@code true} if the subscriber was not terminated yet
+     */
+    private boolean cleanup() {
+      if (terminated) {
+        return false;
+      }
+      terminated = true;
+      releaseReserved();
+      for (; active > 0; active--) {
+        limiter.cancel();
+      }
+      return true;
+    }
+
+    private void terminate(Throwable failure) {
+      synchronized (this) {
+        if (!cleanup()) {
+          if (failure != null) {
+            RxJavaPlugins.onError(failure);
+          }
+          return;
+        }
+      }
+      subscription.cancel();
+      dispatches.dispose();
+      if (failure == null) {
+        downstream.onComplete();
+      } else {
+        downstream.onError(failure);
+      }
+    }
+
+    @Override
+    public void dispose() {
+      synchronized (this) {
+        if (!cleanup()) {
+          return;
+        }
+      }
+      subscription.cancel();
+      dispatches.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+      synchronized (this) {
+        return terminated;
+      }
+    }
+  }
+}
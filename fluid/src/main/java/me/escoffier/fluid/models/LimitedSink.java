@@ -0,0 +1,86 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Completable;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A sink whose concurrent dispatches are limited by a {@link ConcurrencyLimiter}. Instances are created using
+ * {@link Sink#withConcurrencyLimit(ConcurrencyLimiter)}.
+ * <p>
+ * When passed to {@link Source#to(Sink)}, the source is only requested when the limiter grants a permit. When the
+ * dispatch methods are called directly, the dispatches are counted and their latency recorded, but they are not
+ * delayed.
+ *
+ * @param <T> the type of payload
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class LimitedSink<T> implements Sink<T> {
+
+  private final Sink<T> sink;
+
+  private final ConcurrencyLimiter limiter;
+
+  LimitedSink(Sink<T> sink, ConcurrencyLimiter limiter) {
+    this.sink = sink;
+    this.limiter = limiter;
+  }
+
+  /**
+   * @return the limiter.
+   */
+  public ConcurrencyLimiter limiter() {
+    return limiter;
+  }
+
+  /**
+   * @return the wrapped sink.
+   */
+  Sink<T> delegate() {
+    return sink;
+  }
+
+  @Override
+  public Completable dispatch(Message<T> message) {
+    return measure(() -> sink.dispatch(message));
+  }
+
+  @Override
+  public Completable dispatchBatch(List<Message<T>> messages) {
+    return measure(() -> sink.dispatchBatch(messages));
+  }
+
+  @Override
+  public String name() {
+    return sink.name();
+  }
+
+  private Completable measure(Callable<Completable> dispatch) {
+    return Completable.defer(() -> {
+      limiter.acquire();
+      long begin = System.nanoTime();
+      Completable completable;
+      try {
+        completable = dispatch.call();
+      } catch (Exception e) {
+        limiter.release(System.nanoTime() - begin, false);
+        return Completable.error(e);
+      }
+      // The permit is released exactly once: when the dispatch terminates, or when it is disposed before.
+      AtomicBoolean released = new AtomicBoolean();
+      return completable
+        .doOnEvent(err -> {
+          if (released.compareAndSet(false, true)) {
+            limiter.release(System.nanoTime() - begin, err == null);
+          }
+        })
+        .doOnDispose(() -> {
+          if (released.compareAndSet(false, true)) {
+            limiter.cancel();
+          }
+        });
+    });
+  }
+}
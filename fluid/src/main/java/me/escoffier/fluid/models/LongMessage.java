@@ -0,0 +1,139 @@
+package me.escoffier.fluid.models;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A message carrying a primitive {@code long} payload. It avoids boxing the payload when processing numeric streams
+ * (see {@link LongSource}).
+ * <p>
+ * The headers are not copied: they are read from the {@link Message} from which this message has been created.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class LongMessage {
+
+  /**
+   * Message used as header carrier when the message has no headers.
+   */
+  static final Message<Boolean> NO_HEADERS = new Message<>(Boolean.TRUE);
+
+  private final long payload;
+
+  /**
+   * The message providing the headers, its payload is ignored.
+   */
+  private final Message<?> carrier;
+
+  /**
+   * Creates a new instance of {@link LongMessage} without headers.
+   *
+   * @param payload the payload
+   */
+  public LongMessage(long payload) {
+    this(payload, NO_HEADERS);
+  }
+
+  /**
+   * Creates a new instance of {@link LongMessage} with the headers of the given message.
+   *
+   * @param payload the payload
+   * @param headers the message providing the headers, must not be {@code null}
+   */
+  public LongMessage(long payload, Message<?> headers) {
+    this.payload = payload;
+    this.carrier = Objects.requireNonNull(headers, "The `headers` message must not be `null`");
+  }
+
+  /**
+   * @return the payload
+   */
+  public long payload() {
+    return payload;
+  }
+
+  /**
+   * Creates a new instance of {@link LongMessage} with the same headers but with the new payload.
+   *
+   * @param payload the payload
+   * @return the new instance
+   */
+  public LongMessage with(long payload) {
+    return new LongMessage(payload, carrier);
+  }
+
+  /**
+   * Creates a new instance of {@link DoubleMessage} with the same headers but with the new payload.
+   *
+   * @param payload the payload
+   * @return the new instance
+   */
+  public DoubleMessage withDouble(double payload) {
+    return new DoubleMessage(payload, carrier);
+  }
+
+  /**
+   * Creates a new instance of {@link Message} with the same headers but with the new payload.
+   *
+   * @param payload the payload, must not be {@code null}
+   * @param <O>     the type of payload
+   * @return the new instance
+   */
+  public <O> Message<O> withObject(O payload) {
+    return carrier.with(payload);
+  }
+
+  /**
+   * Creates a new instance of {@link LongMessage} copying the current instance and adding the given header.
+   *
+   * @param key   the key of the header to add, must not be {@code null}
+   * @param value the value to associate to the key
+   * @return the new instance
+   */
+  public LongMessage with(String key, Object value) {
+    return new LongMessage(payload, carrier.with(key, value));
+  }
+
+  /**
+   * Retrieves the value associated with the passed key in the headers.
+   *
+   * @param key the key, must not be {@code null}
+   * @param <X> the expected type
+   * @return the value, {@code null} if not found
+   */
+  public <X> X get(String key) {
+    return carrier.get(key);
+  }
+
+  /**
+   * Retrieves the value associated with the passed key in the headers.
+   *
+   * @param key the key, must not be {@code null}
+   * @param <X> the type of value
+   * @return the value, {@code null} if not found
+   */
+  public <X> X get(HeaderKey<X> key) {
+    return carrier.get(key);
+  }
+
+  /**
+   * @return the headers, never {@code null}
+   */
+  public Map<String, Object> headers() {
+    return carrier.headers();
+  }
+
+  /**
+   * Boxes the payload and creates a {@link Message} with the same headers.
+   *
+   * @return the message
+   */
+  public Message<Long> boxed() {
+    return carrier.with(payload);
+  }
+
+  @Override
+  public String toString() {
+    return boxed().toString();
+  }
+}
@@ -0,0 +1,276 @@
+package me.escoffier.fluid.models;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache memoizing the results of a pure function, used by
+ * {@link Source#mapPayloadCached(Function, Function, MemoCache)}.
+ * <p>
+ * The eviction policy is a segmented LRU: new entries go into a <em>probation</em> segment, and entries read again
+ * are promoted to a <em>protected</em> segment holding up to 80% of the entries. The victims are taken from the
+ * probation segment, so entries read only once (such as a scan over many distinct keys) do not evict the frequently
+ * read ones. Reads are lock-free: they only mark the entry as referenced, and the segments are reordered from these
+ * marks when an entry is inserted (second-chance approximation of the LRU order). Insertions are serialized.
+ * <p>
+ * The cache can be shared by several streams.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class MemoCache<K, V> {
+
+  private final CacheSpec spec;
+  private final int protectedMaximumSize;
+  private final ConcurrentHashMap<K, Node<K, V>> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Guarded by {@code this}.
+   */
+  private final Segment<K, V> probation = new Segment<>();
+
+  /**
+   * Guarded by {@code this}.
+   */
+  private final Segment<K, V> protect = new Segment<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private MemoCache(CacheSpec spec) {
+    this.spec = spec;
+    this.protectedMaximumSize = (int) (spec.maximumSize * 0.8);
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param spec the specification, must not be {@code null}
+   * @param <K>  the type of key
+   * @param <V>  the type of value
+   * @return the cache
+   */
+  public static <K, V> MemoCache<K, V> create(CacheSpec spec) {
+    return new MemoCache<>(Objects.requireNonNull(spec, "The `spec` must not be `null`"));
+  }
+
+  /**
+   * Gets the value associated with the given key, or computes and caches it. Concurrent calls for the same missing
+   * key may compute the value several times, so the function must be pure.
+   *
+   * @param key      the key, must not be {@code null}
+   * @param function the function computing the value, must not return {@code null}
+   * @return the value
+   */
+  public V get(K key, Function<? super K, ? extends V> function) {
+    V value = getIfPresent(key);
+    if (value == null) {
+      value = Objects.requireNonNull(function.apply(key), "The computed value must not be `null`");
+      put(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * Gets the value associated with the given key.
+   *
+   * @param key the key, must not be {@code null}
+   * @return the value, {@code null} if the key is not cached or has expired
+   */
+  public V getIfPresent(K key) {
+    Node<K, V> node = entries.get(Objects.requireNonNull(key, "The `key` must not be `null`"));
+    if (node == null) {
+      misses.increment();
+      return null;
+    }
+    if (spec.ttl > 0 && now() - node.time >= spec.ttl) {
+      misses.increment();
+      remove(node);
+      return null;
+    }
+    node.referenced = true;
+    hits.increment();
+    return node.value;
+  }
+
+  /**
+   * Associates the given value with the given key, evicting an entry if the cache is full.
+   *
+   * @param key   the key, must not be {@code null}
+   * @param value the value, must not be {@code null}
+   */
+  public void put(K key, V value) {
+    Node<K, V> node = new Node<>(Objects.requireNonNull(key, "The `key` must not be `null`"),
+      Objects.requireNonNull(value, "The `value` must not be `null`"), spec.ttl > 0 ? now() : 0);
+    synchronized (this) {
+      Node<K, V> previous = entries.put(key, node);
+      if (previous != null) {
+        previous.segment.unlink(previous);
+      }
+      probation.add(node);
+      while (entries.size() > spec.maximumSize) {
+        evict();
+      }
+    }
+  }
+
+  /**
+   * Removes the entry associated with the given key.
+   *
+   * @param key the key, must not be {@code null}
+   */
+  public synchronized void invalidate(K key) {
+    Node<K, V> node = entries.remove(Objects.requireNonNull(key, "The `key` must not be `null`"));
+    if (node != null) {
+      node.segment.unlink(node);
+    }
+  }
+
+  /**
+   * Removes all the entries.
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    probation.clear();
+    protect.clear();
+  }
+
+  /**
+   * @return the number of entries.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of lookups that found a value.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups that did not find a value.
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of entries evicted because the cache was full.
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return the ratio of lookups that found a value, {@code 1.0} if there was no lookup.
+   */
+  public double hitRatio() {
+    long hit = hits.sum();
+    long total = hit + misses.sum();
+    return total == 0 ? 1.0 : (double) hit / total;
+  }
+
+  private long now() {
+    return spec.scheduler.now(TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void remove(Node<K, V> node) {
+    // The node may have been replaced or evicted concurrently.
+    if (entries.remove(node.key, node)) {
+      node.segment.unlink(node);
+    }
+  }
+
+  /**
+   * Evicts an entry. Each iteration either evicts an entry or clears a reference mark, so it terminates.
+   */
+  private void evict() {
+    while (true) {
+      Node<K, V> candidate = probation.first();
+      if (candidate.referenced) {
+        // Read while in probation: promote.
+        candidate.referenced = false;
+        probation.unlink(candidate);
+        protect.add(candidate);
+        while (protect.size > protectedMaximumSize) {
+          Node<K, V> demoted = protect.first();
+          protect.unlink(demoted);
+          if (demoted.referenced) {
+            demoted.referenced = false;
+            protect.add(demoted);
+          } else {
+            probation.add(demoted);
+          }
+        }
+      } else {
+        probation.unlink(candidate);
+        entries.remove(candidate.key, candidate);
+        evictions.increment();
+        return;
+      }
+    }
+  }
+
+  private static final class Node<K, V> {
+    private final K key;
+    private final V value;
+    private final long time;
+    private volatile boolean referenced;
+    private Segment<K, V> segment;
+    private Node<K, V> previous;
+    private Node<K, V> next;
+
+    Node(K key, V value, long time) {
+      this.key = key;
+      this.value = value;
+      this.time = time;
+    }
+  }
+
+  /**
+   * A doubly-linked list of nodes, from the least to the most recently added.
+   */
+  private static final class Segment<K, V> {
+    private final Node<K, V> sentinel = new Node<>(null, null, 0);
+    private int size;
+
+    Segment() {
+      sentinel.previous = sentinel;
+      sentinel.next = sentinel;
+    }
+
+    Node<K, V> first() {
+      return sentinel.next;
+    }
+
+    void add(Node<K, V> node) {
+      node.segment = this;
+      node.previous = sentinel.previous;
+      node.next = sentinel;
+      sentinel.previous.next = node;
+      sentinel.previous = node;
+      size++;
+    }
+
+    void unlink(Node<K, V> node) {
+      node.previous.next = node.next;
+      node.next.previous = node.previous;
+      node.previous = null;
+      node.next = null;
+      size--;
+    }
+
+    void clear() {
+      sentinel.previous = sentinel;
+      sentinel.next = sentinel;
+      size = 0;
+    }
+  }
+}
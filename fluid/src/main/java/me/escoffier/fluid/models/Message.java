@@ -1,6 +1,9 @@
 package me.escoffier.fluid.models;
 
+import me.escoffier.fluid.impl.PersistentHeaders;
+
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -8,15 +11,41 @@ import java.util.stream.Collectors;
  */
 public class Message<T> {
 
+  /**
+   * Marker stored in a slot when a well-known header is explicitly associated with {@code null}.
+   */
+  private static final Object NULL_VALUE = new Object();
+
   /**
    * The payload, must not be {@code null}
    */
   private final T payload;
 
   /**
-   * A set of headers.
+   * A set of headers. The headers are stored in a persistent map, so adding or removing a header shares most of the
+   * structure with the headers of the current message. Well-known headers (see {@link HeaderKey}) are not stored in
+   * this map, but in {@link #slots}.
+   * <p>
+   * {@code null} until the lazy headers provided by {@link #decoder} are decoded.
    */
-  private final Map<String, Object> headers;
+  private volatile PersistentHeaders headers;
+
+  /**
+   * The function decoding the (string-keyed) headers on first access, {@code null} if the headers are already
+   * available. See {@link #lazy(Object, Supplier)}.
+   */
+  private volatile Supplier<Map<String, Object>> decoder;
+
+  /**
+   * The values of the well-known headers, indexed by {@link HeaderKey#slot()}. {@code null} if the message does not
+   * have any well-known header. A {@code null} entry means that the header is not set.
+   */
+  private final Object[] slots;
+
+  /**
+   * The merged view of {@link #headers} and {@link #slots}, computed on demand.
+   */
+  private Map<String, Object> view;
 
   /**
    * Creates a new instance of {@link Message}. This constructor does not set any headers (empty map).
@@ -25,7 +54,8 @@ public class Message<T> {
    */
   public Message(T payload) {
     this.payload = Objects.requireNonNull(payload);
-    this.headers = Collections.emptyMap();
+    this.headers = PersistentHeaders.empty();
+    this.slots = null;
   }
 
   /**
@@ -36,8 +66,83 @@ public class Message<T> {
    */
   public Message(T payload, Map<String, Object> headers) {
     this.payload = Objects.requireNonNull(payload);
-    this.headers = Collections
-      .unmodifiableMap(new HashMap<>(Objects.requireNonNull(headers)));
+    Objects.requireNonNull(headers);
+    PersistentHeaders map = PersistentHeaders.from(headers);
+    Object[] values = null;
+    for (Map.Entry<String, Object> entry : headers.entrySet()) {
+      HeaderKey<?> key = HeaderKey.lookup(entry.getKey());
+      if (key != null) {
+        values = set(values, key.slot(), entry.getValue());
+        map = map.minus(entry.getKey());
+      }
+    }
+    this.headers = map;
+    this.slots = values;
+  }
+
+  private Message(T payload, PersistentHeaders headers, Supplier<Map<String, Object>> decoder, Object[] slots) {
+    this.payload = payload;
+    this.headers = headers;
+    this.decoder = decoder;
+    this.slots = slots;
+  }
+
+  /**
+   * Creates a new instance of {@link Message} whose headers are decoded lazily. The given supplier is only called when
+   * the headers are accessed (using {@link #get(String)}, {@link #headers()}...) or modified. Transforming the payload
+   * or setting well-known headers (see {@link HeaderKey}) does not decode the headers.
+   * <p>
+   * This method is intended to be used by connectors creating a message for each received record, when most of the
+   * record metadata is never read. Well-known headers provided by the supplier are ignored, they must be set using
+   * {@link #with(HeaderKey, Object)}. The supplier may be called more than once, and so must be side-effect free.
+   *
+   * @param payload the payload, must not be {@code null}
+   * @param headers the supplier providing the headers, must not be {@code null}, must not return {@code null}
+   * @param <T>     the type of payload
+   * @return the new message
+   */
+  public static <T> Message<T> lazy(T payload, Supplier<Map<String, Object>> headers) {
+    return new Message<>(Objects.requireNonNull(payload), null,
+      Objects.requireNonNull(headers, "The `headers` supplier must not be `null`"), null);
+  }
+
+  /**
+   * Creates a new message with the given payload and slots, sharing the string-keyed headers of the current message
+   * without decoding them.
+   */
+  private <O> Message<O> derive(O payload, Object[] slots) {
+    PersistentHeaders map = headers;
+    Supplier<Map<String, Object>> supplier = map == null ? decoder : null;
+    if (map == null && supplier == null) {
+      // Decoded concurrently, `headers` is written before `decoder` is cleared.
+      map = headers;
+    }
+    return new Message<>(payload, map, supplier, slots);
+  }
+
+  /**
+   * @return the string-keyed headers, decoded if needed.
+   */
+  private PersistentHeaders map() {
+    PersistentHeaders map = headers;
+    if (map == null) {
+      Supplier<Map<String, Object>> supplier = decoder;
+      if (supplier == null) {
+        // Decoded concurrently.
+        return headers;
+      }
+      Map<String, Object> decoded = Objects.requireNonNull(supplier.get(), "The decoded headers must not be `null`");
+      map = PersistentHeaders.from(decoded);
+      for (String key : decoded.keySet()) {
+        if (HeaderKey.lookup(key) != null) {
+          // Well-known headers are stored in slots.
+          map = map.minus(key);
+        }
+      }
+      headers = map;
+      decoder = null;
+    }
+    return map;
   }
 
   /**
@@ -48,7 +153,7 @@ public class Message<T> {
    * @return the new instance
    */
   public <O> Message<O> with(O payload) {
-    return new Message<>(Objects.requireNonNull(payload), headers());
+    return derive(Objects.requireNonNull(payload), slots);
   }
 
   /**
@@ -60,7 +165,11 @@ public class Message<T> {
    */
   @SuppressWarnings("unchecked")
   public <X> X get(String key) {
-    return (X) headers.get(Objects.requireNonNull(key));
+    HeaderKey<?> known = HeaderKey.lookup(Objects.requireNonNull(key));
+    if (known != null) {
+      return (X) slot(known.slot());
+    }
+    return (X) map().get(key);
   }
 
   /**
@@ -70,9 +179,36 @@ public class Message<T> {
    * @param <X> the expected type
    * @return an {@link Optional} containing the value if present
    */
-  @SuppressWarnings("unchecked")
   public <X> Optional<X> getOpt(String key) {
-    return Optional.ofNullable((X) headers.get(Objects.requireNonNull(key)));
+    return Optional.ofNullable(get(key));
+  }
+
+  /**
+   * Retrieves the value associated with the passed key in the headers. Well-known keys are read from their slot,
+   * without hashing.
+   *
+   * @param key the key, must not be {@code null}
+   * @param <X> the type of value
+   * @return the value, {@code null} if not found
+   * @throws ClassCastException if the value is not an instance of the key type
+   */
+  public <X> X get(HeaderKey<X> key) {
+    Objects.requireNonNull(key);
+    if (key.isWellKnown()) {
+      return key.cast(slot(key.slot()));
+    }
+    return key.cast(map().get(key.name()));
+  }
+
+  /**
+   * Same as {@link #get(HeaderKey)} but returns an {@link Optional} as result.
+   *
+   * @param key the key, must not be {@code null}
+   * @param <X> the type of value
+   * @return an {@link Optional} containing the value if present
+   */
+  public <X> Optional<X> getOpt(HeaderKey<X> key) {
+    return Optional.ofNullable(get(key));
   }
 
   /**
@@ -84,9 +220,28 @@ public class Message<T> {
    * @return the new instance of {@link Message}
    */
   public Message<T> with(String key, Object value) {
-    Map<String, Object> copy = new HashMap<>(headers);
-    copy.put(Objects.requireNonNull(key), value);
-    return new Message<>(payload, copy);
+    HeaderKey<?> known = HeaderKey.lookup(Objects.requireNonNull(key));
+    if (known != null) {
+      return derive(payload, set(copy(slots), known.slot(), value));
+    }
+    return new Message<>(payload, map().plus(key, value), null, slots);
+  }
+
+  /**
+   * Creates a new instance of {@link Message} copying the current instance and adding the given header. Well-known keys
+   * are written in their slot, without hashing.
+   *
+   * @param key   the key of the header to add, must not be {@code null}
+   * @param value the value to associate to the key
+   * @param <X>   the type of value
+   * @return the new instance of {@link Message}
+   */
+  public <X> Message<T> with(HeaderKey<X> key, X value) {
+    Objects.requireNonNull(key);
+    if (key.isWellKnown()) {
+      return derive(payload, set(copy(slots), key.slot(), value));
+    }
+    return new Message<>(payload, map().plus(key.name(), value), null, slots);
   }
 
   /**
@@ -97,18 +252,55 @@ public class Message<T> {
    * @return the new instance of {@link Message}
    */
   public Message<T> without(String key) {
-    Map<String, Object> copy = new HashMap<>(headers);
-    copy.remove(Objects.requireNonNull(key));
-    return new Message<>(payload, copy);
+    HeaderKey<?> known = HeaderKey.lookup(Objects.requireNonNull(key));
+    if (known != null) {
+      return without(known);
+    }
+    return new Message<>(payload, map().minus(key), null, slots);
+  }
+
+  /**
+   * Creates a new instance of {@link Message} copying the current instance without the given header. This method does
+   * not check whether or not the header was present.
+   *
+   * @param key the key of the header to remove, must not be {@code null}
+   * @return the new instance of {@link Message}
+   */
+  public Message<T> without(HeaderKey<?> key) {
+    Objects.requireNonNull(key);
+    if (!key.isWellKnown()) {
+      return new Message<>(payload, map().minus(key.name()), null, slots);
+    }
+    if (slots == null || key.slot() >= slots.length || slots[key.slot()] == null) {
+      return this;
+    }
+    Object[] copy = slots.clone();
+    copy[key.slot()] = null;
+    return derive(payload, copy);
   }
 
   /**
    * Gets the set of headers associated with the current {@link Message}.
    *
-   * @return the headers, never {@code null}. An empty map is returned if the {@link Message} has no headers.
+   * @return the headers, never {@code null}. An empty map is returned if the {@link Message} has no headers. The
+   * returned map is immutable.
    */
   public Map<String, Object> headers() {
-    return headers;
+    if (slots == null) {
+      return map();
+    }
+    Map<String, Object> merged = view;
+    if (merged == null) {
+      PersistentHeaders result = map();
+      for (int i = 0; i < slots.length; i++) {
+        if (slots[i] != null) {
+          result = result.plus(HeaderKey.bySlot(i).name(), slot(i));
+        }
+      }
+      merged = result;
+      view = merged;
+    }
+    return merged;
   }
 
   /**
@@ -118,8 +310,35 @@ public class Message<T> {
     return payload;
   }
 
+  private Object slot(int index) {
+    if (slots == null || index >= slots.length) {
+      return null;
+    }
+    Object value = slots[index];
+    return value == NULL_VALUE ? null : value;
+  }
+
+  private static Object[] copy(Object[] slots) {
+    return slots == null ? null : slots.clone();
+  }
+
+  /**
+   * Sets the slot at the given index, the passed array may be modified. It is grown if needed.
+   */
+  private static Object[] set(Object[] slots, int index, Object value) {
+    Object[] result = slots;
+    if (result == null) {
+      result = new Object[index + 1];
+    } else if (index >= result.length) {
+      result = Arrays.copyOf(result, index + 1);
+    }
+    result[index] = value == null ? NULL_VALUE : value;
+    return result;
+  }
+
   @Override
   public String toString() {
+    Map<String, Object> headers = headers();
     StringBuilder builder = new StringBuilder("{\"payload\":\"" + payload.toString() + "\", \"headers\":");
     if (!headers.isEmpty()) {
       builder.append("{");
@@ -0,0 +1,175 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.parallel.ParallelFlowable;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static me.escoffier.fluid.models.DefaultSource.FILTER_CANNOT_BE_NULL_MESSAGE;
+import static me.escoffier.fluid.models.DefaultSource.FUNCTION_CANNOT_BE_NULL_MESSAGE;
+
+/**
+ * A source processing the messages on several <em>rails</em> concurrently. Instances are created using
+ * {@link Source#parallel(int)}. Once the parallel section is done, the rails must be joined using
+ * {@link #sequential()} (messages emitted as soon as they are processed) or {@link #sequentialOrdered()} (messages
+ * emitted in the order in which they have been received).
+ * <p>
+ * This class relies on RX Java {@link ParallelFlowable}. Each incoming message gets a sequence number, which is used
+ * to restore the order in {@link #sequentialOrdered()}. The headers of the messages are kept intact.
+ *
+ * @param <T> the type of payload
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class ParallelSource<T> {
+
+  private final ParallelFlowable<Sequenced<T>> rails;
+
+  private final String name;
+
+  private final Map<String, Object> attributes;
+
+  ParallelSource(ParallelFlowable<Sequenced<T>> rails, String name, Map<String, Object> attributes) {
+    this.rails = rails;
+    this.name = name;
+    this.attributes = attributes;
+  }
+
+  /**
+   * @return the number of rails.
+   */
+  public int parallelism() {
+    return rails.parallelism();
+  }
+
+  /**
+   * Transforms the messages using the given function. The function is called concurrently from the different rails.
+   *
+   * @param mapper the mapper function, must not be {@code null}, must not return {@code null}
+   * @param <X>    the type of payload of the resulting messages
+   * @return the new parallel source
+   */
+  public <X> ParallelSource<X> map(Function<Message<T>, Message<X>> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return new ParallelSource<>(rails.map(s -> s.with(apply(s.messages, mapper))), name, attributes);
+  }
+
+  /**
+   * Transforms the payloads using the given function. The function is called concurrently from the different rails.
+   *
+   * @param mapper the mapper function, must not be {@code null}, must not return {@code null}
+   * @param <X>    the type of the resulting payloads
+   * @return the new parallel source
+   */
+  public <X> ParallelSource<X> mapPayload(Function<T, X> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return map(m -> m.with(mapper.apply(m.payload())));
+  }
+
+  /**
+   * Discards the messages not passing the given predicate.
+   *
+   * @param filter the predicate, must not be {@code null}
+   * @return the new parallel source
+   */
+  public ParallelSource<T> filter(Predicate<Message<T>> filter) {
+    Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
+    return new ParallelSource<>(rails.map(s -> s.with(retain(s.messages, filter))), name, attributes);
+  }
+
+  /**
+   * Discards the messages with a payload not passing the given predicate.
+   *
+   * @param filter the predicate, must not be {@code null}
+   * @return the new parallel source
+   */
+  public ParallelSource<T> filterPayload(Predicate<T> filter) {
+    Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
+    return filter(m -> filter.test(m.payload()));
+  }
+
+  /**
+   * Transforms each message into a stream of messages. In ordered mode, the messages produced from one incoming
+   * message are emitted in the order of the returned publisher.
+   *
+   * @param mapper the mapper function, must not be {@code null}
+   * @param <X>    the type of payload of the resulting messages
+   * @return the new parallel source
+   */
+  public <X> ParallelSource<X> flatMap(Function<Message<T>, Publisher<Message<X>>> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return new ParallelSource<>(rails.flatMap(s ->
+      Flowable.fromIterable(s.messages)
+        .concatMap(mapper::apply)
+        .toList()
+        .map(s::with)
+        .toFlowable()
+    ), name, attributes);
+  }
+
+  /**
+   * Transforms each payload into a stream of payloads. The produced messages get the headers of the incoming message.
+   *
+   * @param mapper the mapper function, must not be {@code null}
+   * @param <X>    the type of the resulting payloads
+   * @return the new parallel source
+   */
+  public <X> ParallelSource<X> flatMapPayload(Function<T, Publisher<X>> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return flatMap(m -> Flowable.fromPublisher(mapper.apply(m.payload())).map(m::with));
+  }
+
+  /**
+   * Joins the rails, emitting the messages as soon as they are processed. The order is not preserved.
+   *
+   * @return the resulting source
+   */
+  public Source<T> sequential() {
+    return new DefaultSource<>(rails.sequential().concatMapIterable(s -> s.messages), name, attributes);
+  }
+
+  /**
+   * Joins the rails, emitting the messages in the order in which they have been received by the parallel source. A
+   * processed message may be retained until all the messages received before it have been processed.
+   *
+   * @return the resulting source
+   */
+  public Source<T> sequentialOrdered() {
+    Flowable<Message<T>> flowable = Flowable.defer(() -> {
+      Sequenced.Reorderer<T> reorderer = new Sequenced.Reorderer<>();
+      return rails.sequential().concatMapIterable(reorderer::offer);
+    });
+    return new DefaultSource<>(flowable, name, attributes);
+  }
+
+  private static <I, O> List<Message<O>> apply(List<Message<I>> messages, Function<Message<I>, Message<O>> mapper) {
+    if (messages.size() == 1) {
+      return Collections.singletonList(Objects.requireNonNull(mapper.apply(messages.get(0)),
+        "The mapper function returned a null value."));
+    }
+    List<Message<O>> result = new ArrayList<>(messages.size());
+    for (Message<I> message : messages) {
+      result.add(Objects.requireNonNull(mapper.apply(message), "The mapper function returned a null value."));
+    }
+    return result;
+  }
+
+  private static <I> List<Message<I>> retain(List<Message<I>> messages, Predicate<Message<I>> filter) {
+    if (messages.size() == 1) {
+      return filter.test(messages.get(0)) ? messages : Collections.emptyList();
+    }
+    List<Message<I>> result = new ArrayList<>(messages.size());
+    for (Message<I> message : messages) {
+      if (filter.test(message)) {
+        result.add(message);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,30 @@
+package me.escoffier.fluid.models;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A read-only view on the payloads of a list of messages, used as payload of the batches emitted by
+ * {@link Source#batch(int, java.time.Duration)}. The payloads are not copied.
+ *
+ * @param <T> the type of payload
+ */
+final class PayloadList<T> extends AbstractList<T> implements RandomAccess {
+
+  private final List<Message<T>> messages;
+
+  PayloadList(List<Message<T>> messages) {
+    this.messages = messages;
+  }
+
+  @Override
+  public T get(int index) {
+    return messages.get(index).payload();
+  }
+
+  @Override
+  public int size() {
+    return messages.size();
+  }
+}
@@ -0,0 +1,66 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The base class of the sources emitting messages with a primitive payload ({@link LongSource} and
+ * {@link DoubleSource}). It holds the flow, the name and the attributes of the source, the operators being implemented
+ * by the subclasses using the primitive functional interfaces.
+ * <p>
+ * These sources do not implement {@link Source}, as its operators would box the payloads.
+ *
+ * @param <M> the type of message
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public abstract class PrimitiveSource<M> implements Publisher<M> {
+
+  private final Publisher<M> flow;
+
+  private final String name;
+
+  private final Map<String, Object> attributes;
+
+  PrimitiveSource(Publisher<M> items, String name, Map<String, Object> attr) {
+    this.flow = Objects.requireNonNull(items, "The given `items` cannot be `null`");
+    this.name = name;
+    if (attr != null) {
+      this.attributes = Collections.unmodifiableMap(new HashMap<>(attr));
+    } else {
+      this.attributes = Collections.emptyMap();
+    }
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super M> s) {
+    flow.subscribe(s);
+  }
+
+  /**
+   * @return the name of the source, {@code null} if not named.
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * @return the attributes of the source, passed to the sources created from it.
+   */
+  Map<String, Object> attributes() {
+    return attributes;
+  }
+
+  /**
+   * @return the current source as a RX Java 2 {@link Flowable}.
+   */
+  public Flowable<M> asFlowable() {
+    return Flowable.fromPublisher(flow);
+  }
+
+}
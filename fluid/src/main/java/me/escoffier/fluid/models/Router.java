@@ -0,0 +1,386 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.Flowable;
+import io.reactivex.internal.queue.SpscLinkedArrayQueue;
+import io.reactivex.internal.subscriptions.EmptySubscription;
+import io.reactivex.internal.subscriptions.SubscriptionHelper;
+import io.reactivex.internal.util.BackpressureHelper;
+import io.reactivex.plugins.RxJavaPlugins;
+import me.escoffier.fluid.models.BroadcastOptions.Overflow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+
+/**
+ * Implements {@link Source#route(int, ToIntFunction)} and {@link Source#broadcast(int, BroadcastOptions)}: subscribes
+ * once to the upstream and pushes each message to the queue of the output selected by the classifier (evaluated once
+ * per message), or to the queues of all the outputs when broadcasting.
+ * <p>
+ * Each output has its own queue and its own demand. With the {@link Overflow#BLOCK} policy, the upstream is requested
+ * so that the queues can never overflow: the number of requested but not yet received messages never exceeds the free
+ * space of the fullest queue. So, a slow output only slows down the others once its queue is full. With the other
+ * policies, the upstream is requested regardless of the outputs, and the messages that do not fit are dropped or
+ * spilled. The upstream is subscribed when all the outputs have been subscribed, and cancelled when all the outputs
+ * have been cancelled.
+ *
+ * @param <T> the type of payload
+ */
+final class Router<T> implements FlowableSubscriber<Message<T>> {
+
+  private static final Logger LOGGER = LogManager.getLogger(Router.class);
+
+  private final Publisher<Message<T>> upstream;
+
+  /**
+   * The classifier, {@code null} when broadcasting.
+   */
+  private final ToIntFunction<Message<T>> classifier;
+
+  private final Overflow overflow;
+
+  private final Sink<T> spill;
+
+  private final int maxPendingSpills;
+
+  /**
+   * The number of dispatches to the spill sink not yet completed.
+   */
+  private final AtomicInteger pendingSpills = new AtomicInteger();
+
+  private final int capacity;
+
+  private final List<Output> outputs;
+
+  private final AtomicInteger subscribed = new AtomicInteger();
+
+  private final AtomicInteger wip = new AtomicInteger();
+
+  /**
+   * The number of messages requested to the upstream and not yet received.
+   */
+  private final AtomicLong outstanding = new AtomicLong();
+
+  private final AtomicReference<Subscription> subscription = new AtomicReference<>();
+
+  private volatile boolean done;
+
+  private Throwable failure;
+
+  Router(Publisher<Message<T>> upstream, int outputs, int capacity, ToIntFunction<Message<T>> classifier) {
+    this(upstream, outputs, capacity, classifier, Overflow.BLOCK, null, 0);
+  }
+
+  Router(Publisher<Message<T>> upstream, int outputs, BroadcastOptions<T> options) {
+    this(upstream, outputs, options.bufferSize, null, options.overflow, options.spill, options.maxPendingSpills);
+  }
+
+  private Router(Publisher<Message<T>> upstream, int outputs, int capacity, ToIntFunction<Message<T>> classifier,
+                 Overflow overflow, Sink<T> spill, int maxPendingSpills) {
+    this.upstream = upstream;
+    this.classifier = classifier;
+    this.overflow = overflow;
+    this.spill = spill;
+    this.maxPendingSpills = maxPendingSpills;
+    this.capacity = capacity;
+    this.outputs = new ArrayList<>(outputs);
+    for (int i = 0; i < outputs; i++) {
+      this.outputs.add(new Output(capacity));
+    }
+  }
+
+  /**
+   * @return the number of outputs.
+   */
+  int outputs() {
+    return outputs.size();
+  }
+
+  /**
+   * @param index the index of the output
+   * @return the publisher of the output
+   */
+  Publisher<Message<T>> output(int index) {
+    return outputs.get(index);
+  }
+
+  /**
+   * @param index the index of the output
+   * @return the number of messages waiting in the queue of the output
+   */
+  int queued(int index) {
+    return outputs.get(index).queued.get();
+  }
+
+  /**
+   * @param index the index of the output
+   * @return the number of messages dropped because the queue of the output was full (and, when spilling, too many
+   * spills were pending)
+   */
+  long dropped(int index) {
+    return outputs.get(index).dropped.get();
+  }
+
+  /**
+   * @param index the index of the output
+   * @return the number of messages successfully dispatched to the spill sink because the queue of the output was full
+   */
+  long spilled(int index) {
+    return outputs.get(index).spilled.get();
+  }
+
+  /**
+   * @param index the index of the output
+   * @return the number of messages the spill sink failed to dispatch
+   */
+  long spillFailures(int index) {
+    return outputs.get(index).spillFailures.get();
+  }
+
+  @Override
+  public void onSubscribe(Subscription s) {
+    if (SubscriptionHelper.setOnce(subscription, s)) {
+      drain();
+    }
+  }
+
+  @Override
+  public void onNext(Message<T> message) {
+    if (done) {
+      return;
+    }
+    if (classifier == null) {
+      for (Output output : outputs) {
+        output.offer(message);
+      }
+      received();
+      return;
+    }
+    int index;
+    try {
+      index = classifier.applyAsInt(message);
+      if (index < 0 || index >= outputs.size()) {
+        throw new IllegalArgumentException("Invalid output " + index + ", the router has " + outputs.size()
+          + " outputs");
+      }
+    } catch (Throwable e) {
+      Exceptions.throwIfFatal(e);
+      outstanding.decrementAndGet();
+      SubscriptionHelper.cancel(subscription);
+      onError(e);
+      return;
+    }
+    outputs.get(index).offer(message);
+    received();
+  }
+
+  /**
+   * Accounts for a received message once it has been enqueued. Until then, the message is still counted as
+   * outstanding, so a concurrent drain never sees its slot as free.
+   */
+  private void received() {
+    outstanding.decrementAndGet();
+    drain();
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    if (done) {
+      RxJavaPlugins.onError(t);
+      return;
+    }
+    failure = t;
+    done = true;
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    if (done) {
+      return;
+    }
+    done = true;
+    drain();
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      boolean terminated = done;
+      // Read before the queues: a message no longer outstanding is already counted in its queue.
+      long pending = outstanding.get();
+      long free = capacity;
+      boolean allCancelled = true;
+      for (Output output : outputs) {
+        output.drain(terminated);
+        if (!output.cancelled) {
+          allCancelled = false;
+          free = Math.min(free, capacity - output.queued.get());
+        }
+      }
+      if (overflow != Overflow.BLOCK) {
+        // The outputs never block the upstream.
+        free = capacity;
+      }
+      Subscription s = subscription.get();
+      if (allCancelled) {
+        SubscriptionHelper.cancel(subscription);
+      } else if (s != null && !terminated) {
+        // Worst case, all the outstanding messages go to the fullest queue.
+        long toRequest = free - pending;
+        if (toRequest > 0) {
+          outstanding.addAndGet(toRequest);
+          s.request(toRequest);
+        }
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private final class Output implements Publisher<Message<T>>, Subscription {
+    private final SpscLinkedArrayQueue<Message<T>> queue;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong spillFailures = new AtomicLong();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicBoolean once = new AtomicBoolean();
+    private Subscriber<? super Message<T>> downstream;
+    private volatile boolean cancelled;
+    private boolean terminated;
+
+    Output(int capacity) {
+      this.queue = new SpscLinkedArrayQueue<>(Math.min(capacity, Flowable.bufferSize()));
+    }
+
+    /**
+     * Enqueues the message, applying the overflow policy if the queue is full. Called from the upstream thread.
+     */
+    void offer(Message<T> message) {
+      if (cancelled) {
+        return;
+      }
+      if (queued.get() >= capacity) {
+        switch (overflow) {
+          case DROP_NEWEST:
+            dropped.incrementAndGet();
+            return;
+          case SPILL:
+            if (pendingSpills.incrementAndGet() > maxPendingSpills) {
+              // The spill sink does not keep up.
+              pendingSpills.decrementAndGet();
+              dropped.incrementAndGet();
+              return;
+            }
+            spill.dispatch(message)
+              .subscribe(() -> {
+                spilled.incrementAndGet();
+                pendingSpills.decrementAndGet();
+              }, err -> {
+                spillFailures.incrementAndGet();
+                pendingSpills.decrementAndGet();
+                LOGGER.error("Unable to dispatch a message to the spill sink", err);
+              });
+            return;
+          default:
+            // BLOCK: cannot happen as the upstream is not requested when a queue is full (a message stays counted as
+            // outstanding until it is enqueued).
+            // DROP_OLDEST: the oldest messages are removed by the drain loop (the consumer side of the queue).
+            break;
+        }
+      }
+      queue.offer(message);
+      queued.incrementAndGet();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Message<T>> subscriber) {
+      if (!once.compareAndSet(false, true)) {
+        EmptySubscription.error(new IllegalStateException("A routed source can only be subscribed once"), subscriber);
+        return;
+      }
+      downstream = subscriber;
+      subscriber.onSubscribe(this);
+      if (subscribed.incrementAndGet() == outputs.size()) {
+        upstream.subscribe(Router.this);
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (SubscriptionHelper.validate(n)) {
+        BackpressureHelper.add(requested, n);
+        Router.this.drain();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      if (!cancelled) {
+        cancelled = true;
+        Router.this.drain();
+      }
+    }
+
+    /**
+     * Emits the queued messages according to the demand. Called from the serialized drain loop.
+     */
+    void drain(boolean upstreamDone) {
+      if (terminated) {
+        return;
+      }
+      if (cancelled) {
+        queue.clear();
+        queued.set(0);
+        terminated = true;
+        return;
+      }
+      if (overflow == Overflow.DROP_OLDEST) {
+        while (queued.get() > capacity) {
+          queue.poll();
+          queued.decrementAndGet();
+          dropped.incrementAndGet();
+        }
+      }
+      if (downstream == null) {
+        return;
+      }
+      long r = requested.get();
+      long emitted = 0;
+      while (emitted != r) {
+        Message<T> message = queue.poll();
+        if (message == null) {
+          break;
+        }
+        queued.decrementAndGet();
+        downstream.onNext(message);
+        emitted++;
+      }
+      if (emitted != 0) {
+        BackpressureHelper.produced(requested, emitted);
+      }
+      if (upstreamDone && queue.isEmpty()) {
+        terminated = true;
+        if (failure != null) {
+          downstream.onError(failure);
+        } else {
+          downstream.onComplete();
+        }
+      }
+    }
+  }
+}
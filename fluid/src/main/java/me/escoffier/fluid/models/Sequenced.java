@@ -0,0 +1,71 @@
+package me.escoffier.fluid.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The unit of work traveling in the rails of a {@link ParallelSource}: the messages produced from the incoming message
+ * having the given sequence number. The list is empty if the message has been filtered out, and may contain several
+ * messages after a {@code flatMap}. Keeping exactly one instance per incoming message allows restoring the input order.
+ *
+ * @param <T> the type of payload
+ */
+final class Sequenced<T> {
+
+  final long sequence;
+
+  final List<Message<T>> messages;
+
+  Sequenced(long sequence, List<Message<T>> messages) {
+    this.sequence = sequence;
+    this.messages = messages;
+  }
+
+  Sequenced(long sequence, Message<T> message) {
+    this(sequence, Collections.singletonList(message));
+  }
+
+  <X> Sequenced<X> with(List<Message<X>> messages) {
+    return new Sequenced<>(sequence, messages);
+  }
+
+  /**
+   * Restores the order of the {@link Sequenced} instances. Not thread-safe, one instance must be used per
+   * subscription, and the instances must be offered serially.
+   *
+   * @param <T> the type of payload
+   */
+  static final class Reorderer<T> {
+
+    private final Map<Long, List<Message<T>>> pending = new HashMap<>();
+
+    private long expected;
+
+    /**
+     * Offers the given instance.
+     *
+     * @param sequenced the instance
+     * @return the messages that can be emitted, in order, possibly empty
+     */
+    List<Message<T>> offer(Sequenced<T> sequenced) {
+      if (sequenced.sequence != expected) {
+        pending.put(sequenced.sequence, sequenced.messages);
+        return Collections.emptyList();
+      }
+      expected++;
+      if (pending.isEmpty()) {
+        return sequenced.messages;
+      }
+      List<Message<T>> ready = new ArrayList<>(sequenced.messages);
+      List<Message<T>> next;
+      while ((next = pending.remove(expected)) != null) {
+        ready.addAll(next);
+        expected++;
+      }
+      return ready;
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import org.reactivestreams.Publisher;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import static me.escoffier.fluid.models.DefaultSource.FILTER_CANNOT_BE_NULL_MESSAGE;
+import static me.escoffier.fluid.models.DefaultSource.FUNCTION_CANNOT_BE_NULL_MESSAGE;
+
+/**
+ * A source processing the messages on several shards, the shard of a message being computed from its key. Instances
+ * are created using {@code source.keyBy(fn).parallel(n)}.
+ * <p>
+ * Each shard has its own single-threaded executor, created when the resulting source is subscribed and shut down when
+ * the subscription terminates. Stages appended to this source are executed on the shard thread, so the messages with
+ * the same key are processed strictly in order. Use {@link #sequential()} to merge the shards back.
+ * <p>
+ * The number of messages waiting in the queue of each shard is available using {@link #queueDepth(int)}. The metrics
+ * are kept per subscription, and report the latest subscription of the source, or of a source derived from it.
+ *
+ * @param <T> the type of payload
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class ShardedSource<T> {
+
+  private final Publisher<Message<Object>> upstream;
+
+  private final ToIntFunction<Message<Object>> shardFunction;
+
+  private final int shards;
+
+  /**
+   * The stages executed on each shard.
+   */
+  private final Function<Flowable<Message<Object>>, Flowable<Message<T>>> stages;
+
+  /**
+   * The metrics of the latest subscription, shared with the derived sources.
+   */
+  private final AtomicReference<Metrics> metrics;
+
+  private final String name;
+
+  private final Map<String, Object> attributes;
+
+  @SuppressWarnings("unchecked")
+  <I> ShardedSource(Publisher<Message<I>> upstream, ToIntFunction<Message<I>> shardFunction, int shards, String name,
+                    Map<String, Object> attributes) {
+    this((Publisher) upstream, (ToIntFunction) shardFunction, shards, f -> (Flowable) f,
+      new AtomicReference<>(new Metrics(shards)), name, attributes);
+  }
+
+  private ShardedSource(Publisher<Message<Object>> upstream, ToIntFunction<Message<Object>> shardFunction, int shards,
+                        Function<Flowable<Message<Object>>, Flowable<Message<T>>> stages,
+                        AtomicReference<Metrics> metrics, String name, Map<String, Object> attributes) {
+    this.upstream = upstream;
+    this.shardFunction = shardFunction;
+    this.shards = shards;
+    this.stages = stages;
+    this.metrics = metrics;
+    this.name = name;
+    this.attributes = attributes;
+  }
+
+  private <X> ShardedSource<X> append(Function<Flowable<Message<T>>, Flowable<Message<X>>> stage) {
+    return new ShardedSource<>(upstream, shardFunction, shards, stages.andThen(stage), metrics, name, attributes);
+  }
+
+  /**
+   * @return the number of shards.
+   */
+  public int parallelism() {
+    return shards;
+  }
+
+  /**
+   * Gets the number of messages waiting to be processed by the given shard, for the latest subscription.
+   *
+   * @param shard the shard, between 0 (included) and {@link #parallelism()} (excluded)
+   * @return the number of queued messages
+   */
+  public long queueDepth(int shard) {
+    return metrics.get().queued.get(shard);
+  }
+
+  /**
+   * Gets the number of messages processed by the given shard, for the latest subscription.
+   *
+   * @param shard the shard, between 0 (included) and {@link #parallelism()} (excluded)
+   * @return the number of messages dequeued by the shard
+   */
+  public long processed(int shard) {
+    return metrics.get().processed.get(shard);
+  }
+
+  /**
+   * Transforms the messages using the given function, executed on the shard thread.
+   *
+   * @param mapper the mapper function, must not be {@code null}, must not return {@code null}
+   * @param <X>    the type of payload of the resulting messages
+   * @return the new sharded source
+   */
+  public <X> ShardedSource<X> map(Function<Message<T>, Message<X>> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return append(f -> f.map(mapper::apply));
+  }
+
+  /**
+   * Transforms the payloads using the given function, executed on the shard thread.
+   *
+   * @param mapper the mapper function, must not be {@code null}, must not return {@code null}
+   * @param <X>    the type of the resulting payloads
+   * @return the new sharded source
+   */
+  public <X> ShardedSource<X> mapPayload(Function<T, X> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return append(f -> f.map(m -> m.with(mapper.apply(m.payload()))));
+  }
+
+  /**
+   * Discards the messages not passing the given predicate.
+   *
+   * @param filter the predicate, must not be {@code null}
+   * @return the new sharded source
+   */
+  public ShardedSource<T> filter(Predicate<Message<T>> filter) {
+    Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
+    return append(f -> f.filter(filter::test));
+  }
+
+  /**
+   * Discards the messages with a payload not passing the given predicate.
+   *
+   * @param filter the predicate, must not be {@code null}
+   * @return the new sharded source
+   */
+  public ShardedSource<T> filterPayload(Predicate<T> filter) {
+    Objects.requireNonNull(filter, FILTER_CANNOT_BE_NULL_MESSAGE);
+    return append(f -> f.filter(m -> filter.test(m.payload())));
+  }
+
+  /**
+   * Transforms each message into a stream of messages. To preserve the per-key order, the returned publishers are
+   * concatenated.
+   *
+   * @param mapper the mapper function, must not be {@code null}
+   * @param <X>    the type of payload of the resulting messages
+   * @return the new sharded source
+   */
+  public <X> ShardedSource<X> flatMap(Function<Message<T>, Publisher<Message<X>>> mapper) {
+    Objects.requireNonNull(mapper, FUNCTION_CANNOT_BE_NULL_MESSAGE);
+    return append(f -> f.concatMap(mapper::apply));
+  }
+
+  /**
+   * Merges the shards. The messages having the same key are emitted in order, there are no ordering guarantees
+   * between keys.
+   *
+   * @return the resulting source
+   */
+  public Source<T> sequential() {
+    Flowable<Message<T>> flowable = Flowable.using(
+      () -> {
+        ShardExecutors executors = new ShardExecutors(shards, name);
+        metrics.set(executors.metrics);
+        return executors;
+      },
+      executors -> {
+        Metrics metrics = executors.metrics;
+        return Flowable.fromPublisher(upstream)
+          .groupBy(shardFunction::applyAsInt)
+          .flatMap(group -> {
+            int shard = group.getKey();
+            Flowable<Message<Object>> queued = group
+              .doOnNext(m -> metrics.queued.incrementAndGet(shard))
+              .observeOn(executors.schedulers[shard])
+              .doOnNext(m -> {
+                metrics.queued.decrementAndGet(shard);
+                metrics.processed.incrementAndGet(shard);
+              });
+            return stages.apply(queued);
+          }, shards);
+      },
+      ShardExecutors::shutdown);
+    return new DefaultSource<>(flowable, name, attributes);
+  }
+
+  private static class Metrics {
+    private final AtomicLongArray queued;
+    private final AtomicLongArray processed;
+
+    Metrics(int shards) {
+      queued = new AtomicLongArray(shards);
+      processed = new AtomicLongArray(shards);
+    }
+  }
+
+  private static class ShardExecutors {
+    private final ExecutorService[] executors;
+    private final Scheduler[] schedulers;
+    private final Metrics metrics;
+
+    ShardExecutors(int shards, String name) {
+      metrics = new Metrics(shards);
+      executors = new ExecutorService[shards];
+      schedulers = new Scheduler[shards];
+      String prefix = "fluid-shard-" + (name == null ? "" : name + "-");
+      for (int i = 0; i < shards; i++) {
+        String threadName = prefix + i;
+        executors[i] = Executors.newSingleThreadExecutor(runnable -> {
+          Thread thread = new Thread(runnable, threadName);
+          thread.setDaemon(true);
+          return thread;
+        });
+        schedulers[i] = Schedulers.from(executors[i]);
+      }
+    }
+
+    void shutdown() {
+      for (ExecutorService executor : executors) {
+        executor.shutdown();
+      }
+    }
+  }
+}
@@ -1,11 +1,13 @@
 package me.escoffier.fluid.models;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import me.escoffier.fluid.impl.HeadSink;
 import me.escoffier.fluid.impl.ListSink;
 import me.escoffier.fluid.impl.ScanSink;
 import me.escoffier.fluid.impl.TailSink;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -23,6 +25,19 @@ public interface Sink<OUT> {
     return dispatch(new Message<>(data));
   }
 
+  /**
+   * Dispatches a batch of messages. This method is called by {@link Source#to(Sink, SinkOptions)} when batching is
+   * enabled. The default implementation dispatches the messages one by one, in order. Sinks able to write several
+   * messages at once should override it.
+   *
+   * @param messages the messages, must not be {@code null}
+   * @return a completable completed when all the messages have been dispatched
+   */
+  default Completable dispatchBatch(List<Message<OUT>> messages) {
+    Objects.requireNonNull(messages, "The `messages` must not be `null`");
+    return Flowable.fromIterable(messages).concatMapCompletable(this::dispatch);
+  }
+
   default String name() {
     return null;
   }
@@ -54,6 +69,18 @@ public interface Sink<OUT> {
     };
   }
 
+  /**
+   * Wraps the current sink to limit the number of concurrent dispatches, the limit being adapted by the given limiter
+   * according to the dispatch latency. When the returned sink is passed to {@link Source#to(Sink)}, the source is only
+   * requested when the limit allows a new dispatch.
+   *
+   * @param limiter the limiter, must not be {@code null}
+   * @return the limited sink
+   */
+  default LimitedSink<OUT> withConcurrencyLimit(ConcurrencyLimiter limiter) {
+    return new LimitedSink<>(this, Objects.requireNonNull(limiter, "The `limiter` must not be `null`"));
+  }
+
   static <T> Sink<T> forEach(Consumer<Message<T>> consumer) {
     // TODO here we could detect if the consumer wants data or just the payload.
     return data -> Completable.fromAction(() -> consumer.accept(data));
@@ -0,0 +1,130 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Configures how {@link Source#to(Sink, SinkOptions)} dispatches the messages to the sink.
+ * <p>
+ * When the batch size is greater than 1, the messages are grouped and passed to {@link Sink#dispatchBatch(List)}. A
+ * batch is dispatched when it is full, or when the linger time has elapsed since the reception of its first message.
+ * The number of dispatches (of single messages or batches) running concurrently is bounded by the maximum number of
+ * in-flight dispatches; the source is not requested while this bound is reached.
+ * <p>
+ * When the sink has been created with {@link Sink#withConcurrencyLimit(ConcurrencyLimiter)}, the number of in-flight
+ * dispatches is bounded by the adaptive limit of the limiter instead of the maximum number of in-flight dispatches.
+ * <p>
+ * Instead of a fixed batch size, an {@link AdaptiveBatchSize} can be used. The latency of each
+ * {@link Sink#dispatchBatch(List)} call is then recorded, and the batch size adapted to stay under the target latency.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class SinkOptions {
+
+  /**
+   * The default maximum number of in-flight dispatches.
+   */
+  public static final int DEFAULT_MAX_IN_FLIGHT = 128;
+
+  final int batchSize;
+
+  /**
+   * The linger time in milliseconds, {@code 0} if disabled.
+   */
+  final long linger;
+
+  final int maxInFlight;
+
+  /**
+   * The adaptive batch size, {@code null} if the batch size is fixed.
+   */
+  final AdaptiveBatchSize adaptive;
+
+  final Scheduler scheduler;
+
+  private SinkOptions(int batchSize, AdaptiveBatchSize adaptive, long linger, int maxInFlight, Scheduler scheduler) {
+    this.batchSize = batchSize;
+    this.adaptive = adaptive;
+    this.linger = linger;
+    this.maxInFlight = maxInFlight;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * @return new options dispatching the messages one by one, with at most {@link #DEFAULT_MAX_IN_FLIGHT} in-flight
+   * dispatches.
+   */
+  public static SinkOptions create() {
+    return new SinkOptions(1, null, 0, DEFAULT_MAX_IN_FLIGHT, Schedulers.computation());
+  }
+
+  /**
+   * Sets the maximum number of messages per batch.
+   *
+   * @param size the size, must be strictly positive, {@code 1} disables batching. Replaces the adaptive batch size,
+   *             if set.
+   * @return the new options
+   */
+  public SinkOptions withBatchSize(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("The batch size must be strictly positive");
+    }
+    return new SinkOptions(size, null, linger, maxInFlight, scheduler);
+  }
+
+  /**
+   * Adapts the batch size using the given {@link AdaptiveBatchSize}, fed with the latency of the
+   * {@link Sink#dispatchBatch(List)} calls. Setting a linger time is recommended, so a batch is not held until it
+   * reaches a batch size that has just increased.
+   *
+   * @param adaptive the adaptive batch size, must not be {@code null}
+   * @return the new options
+   */
+  public SinkOptions withAdaptiveBatchSize(AdaptiveBatchSize adaptive) {
+    return new SinkOptions(0, Objects.requireNonNull(adaptive, "The `adaptive` must not be `null`"), linger,
+      maxInFlight, scheduler);
+  }
+
+  /**
+   * Sets the maximum time a message waits for its batch to be full. Without linger time, only full batches (and the
+   * last one) are dispatched.
+   *
+   * @param linger the linger time, must be at least 1 ms
+   * @return the new options
+   */
+  public SinkOptions withLinger(Duration linger) {
+    Objects.requireNonNull(linger, "The `linger` must not be `null`");
+    if (linger.toMillis() <= 0) {
+      throw new IllegalArgumentException("The linger time must be at least 1 ms");
+    }
+    return new SinkOptions(batchSize, adaptive, linger.toMillis(), maxInFlight, scheduler);
+  }
+
+  /**
+   * Sets the maximum number of dispatches running concurrently.
+   *
+   * @param max the maximum, must be strictly positive
+   * @return the new options
+   */
+  public SinkOptions withMaxInFlight(int max) {
+    if (max <= 0) {
+      throw new IllegalArgumentException("The maximum number of in-flight dispatches must be strictly positive");
+    }
+    return new SinkOptions(batchSize, adaptive, linger, max, scheduler);
+  }
+
+  /**
+   * Creates new options using the given scheduler for the linger timer.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new options
+   */
+  public SinkOptions using(Scheduler scheduler) {
+    return new SinkOptions(batchSize, adaptive, linger, maxInFlight,
+      Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"));
+  }
+}
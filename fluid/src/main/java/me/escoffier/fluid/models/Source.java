@@ -2,16 +2,25 @@ package me.escoffier.fluid.models;
 
 import io.reactivex.Flowable;
 import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import io.vertx.reactivex.core.Context;
+import io.vertx.reactivex.core.RxHelper;
 import org.reactivestreams.Publisher;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * Represents a data source. It emits {@link Message <T>}.
@@ -174,6 +183,24 @@ public interface Source<T> extends Publisher<Message<T>> {
    */
   <X> Source<X> mapPayload(Function<T, X> mapper);
 
+  /**
+   * Transforms each incoming payload into a primitive {@code long}. The resulting {@link LongSource} does not box the
+   * payloads, and provides numeric aggregations ({@link LongSource#sum()}, {@link LongSource#average()}...).
+   *
+   * @param mapper the mapper function, must not be {@code null}
+   * @return the new source
+   */
+  LongSource mapToLong(ToLongFunction<T> mapper);
+
+  /**
+   * Transforms each incoming payload into a primitive {@code double}. The resulting {@link DoubleSource} does not box
+   * the payloads, and provides numeric aggregations ({@link DoubleSource#sum()}, {@link DoubleSource#average()}...).
+   *
+   * @param mapper the mapper function, must not be {@code null}
+   * @return the new source
+   */
+  DoubleSource mapToDouble(ToDoubleFunction<T> mapper);
+
   /**
    * Creates a new {@link Source} discarding all messages not passing the given predicate.
    *
@@ -206,6 +233,110 @@ public interface Source<T> extends Publisher<Message<T>> {
    */
   Source<T> filterNotPayload(Predicate<T> filter);
 
+  /**
+   * Creates a new {@link Source} from the current one dispatching the messages on the given scheduler: the stages
+   * appended to the returned source are executed on the scheduler threads and not on the thread emitting the
+   * messages (often a Vert.x event loop). Messages are queued in a bounded buffer of
+   * {@link Flowable#bufferSize()} elements, the upstream being requested according to the buffer consumption.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new source
+   */
+  Source<T> dispatchOn(Scheduler scheduler);
+
+  /**
+   * Same as {@link #dispatchOn(Scheduler)} but with a configurable buffer size.
+   *
+   * @param scheduler  the scheduler, must not be {@code null}
+   * @param bufferSize the size of the buffer, must be strictly positive
+   * @return the new source
+   */
+  Source<T> dispatchOn(Scheduler scheduler, int bufferSize);
+
+  /**
+   * Same as {@link #dispatchOn(Scheduler)} but dispatching the messages on the given Vert.x context.
+   *
+   * @param context the context, must not be {@code null}
+   * @return the new source
+   */
+  default Source<T> dispatchOn(Context context) {
+    return dispatchOn(RxHelper.scheduler(Objects.requireNonNull(context, "The `context` must not be `null`")));
+  }
+
+  /**
+   * Same as {@link #dispatchOn(Scheduler)} but dispatching the messages on the named thread pool. Pools are
+   * configured in the {@code pools} section of the Fluid configuration or registered in the {@link me.escoffier.fluid.registry.FluidRegistry}.
+   *
+   * @param pool the name of the pool, must not be {@code null}
+   * @return the new source
+   * @throws IllegalArgumentException if there is no pool with the given name
+   */
+  default Source<T> dispatchOn(String pool) {
+    return dispatchOn(DefaultSource.lookupScheduler(pool));
+  }
+
+  /**
+   * Creates a new {@link Source} from the current one subscribing to the upstream on the given scheduler. Unlike
+   * {@link #dispatchOn(Scheduler)}, the upstream emission (including the stages appended before this call) runs on
+   * the scheduler threads.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new source
+   */
+  Source<T> emitOn(Scheduler scheduler);
+
+  /**
+   * Same as {@link #emitOn(Scheduler)} but using the given Vert.x context.
+   *
+   * @param context the context, must not be {@code null}
+   * @return the new source
+   */
+  default Source<T> emitOn(Context context) {
+    return emitOn(RxHelper.scheduler(Objects.requireNonNull(context, "The `context` must not be `null`")));
+  }
+
+  /**
+   * Same as {@link #emitOn(Scheduler)} but using the named thread pool.
+   *
+   * @param pool the name of the pool, must not be {@code null}
+   * @return the new source
+   * @throws IllegalArgumentException if there is no pool with the given name
+   */
+  default Source<T> emitOn(String pool) {
+    return emitOn(DefaultSource.lookupScheduler(pool));
+  }
+
+  /**
+   * Creates a {@link ParallelSource} processing the messages of the current source on {@code parallelism} rails running
+   * on the RX computation scheduler.
+   *
+   * @param parallelism the number of rails, must be strictly positive
+   * @return the parallel source
+   */
+  default ParallelSource<T> parallel(int parallelism) {
+    return parallel(parallelism, Schedulers.computation());
+  }
+
+  /**
+   * Creates a {@link ParallelSource} processing the messages of the current source on {@code parallelism} rails running
+   * on the given scheduler.
+   *
+   * @param parallelism the number of rails, must be strictly positive
+   * @param scheduler   the scheduler, must not be {@code null}
+   * @return the parallel source
+   */
+  ParallelSource<T> parallel(int parallelism, Scheduler scheduler);
+
+  /**
+   * Describes the processing plan of the current source. Consecutive stateless stages ({@link #map(Function)},
+   * {@link #mapPayload(Function)}, {@link #filter(Predicate)} and their variants) are fused and executed by a single
+   * operator. For instance, {@code source.mapPayload(f).filter(p).plan()} returns
+   * {@code source -> fused[mapPayload -> filter]}.
+   *
+   * @return the description of the plan
+   */
+  String plan();
+
   /**
    * Creates a new {@link Source} taking all messages from the current source and transforming them with the given
    * function. This function can executes asynchronous actions or transforms a single message into a set of messages.
@@ -268,6 +399,215 @@ public interface Source<T> extends Publisher<Message<T>> {
    */
   <X> Source<X> flatMapPayload(Function<T, Publisher<X>> mapper, int maxConcurrency);
 
+  /**
+   * Transforms the messages using the given asynchronous function. Up to {@code concurrency} calls run concurrently,
+   * and the results are emitted as soon as they are available, so the order of the messages is not preserved. Use
+   * {@link #mapAsyncOrdered(Function, int)} to preserve it.
+   *
+   * @param mapper      the function, must not be {@code null}, must not return {@code null}
+   * @param concurrency the maximum number of concurrent calls, must be strictly positive
+   * @param <X>         the type of payload contained in the returned messages
+   * @return the new source
+   */
+  <X> Source<X> mapAsync(Function<Message<T>, Single<Message<X>>> mapper, int concurrency);
+
+  /**
+   * Transforms the messages using the given asynchronous function. Up to {@code concurrency} calls run concurrently,
+   * and the results are emitted in the order of the incoming messages: a result completed before the results of the
+   * previous messages waits in a reorder buffer (of at most {@code concurrency} results).
+   *
+   * @param mapper      the function, must not be {@code null}, must not return {@code null}
+   * @param concurrency the maximum number of concurrent calls, must be strictly positive
+   * @param <X>         the type of payload contained in the returned messages
+   * @return the new source
+   */
+  <X> Source<X> mapAsyncOrdered(Function<Message<T>, Single<Message<X>>> mapper, int concurrency);
+
+  /**
+   * Same as {@link #mapAsync(Function, int)} but applies the function on the payload of the incoming messages. The
+   * headers of the incoming messages are preserved.
+   *
+   * @param mapper      the function, must not be {@code null}, must not return {@code null}
+   * @param concurrency the maximum number of concurrent calls, must be strictly positive
+   * @param <X>         the type of payload returned by the function
+   * @return the new source
+   */
+  <X> Source<X> mapPayloadAsync(Function<T, Single<X>> mapper, int concurrency);
+
+  /**
+   * Same as {@link #mapAsyncOrdered(Function, int)} but applies the function on the payload of the incoming messages.
+   * The headers of the incoming messages are preserved.
+   *
+   * @param mapper      the function, must not be {@code null}, must not return {@code null}
+   * @param concurrency the maximum number of concurrent calls, must be strictly positive
+   * @param <X>         the type of payload returned by the function
+   * @return the new source
+   */
+  <X> Source<X> mapPayloadAsyncOrdered(Function<T, Single<X>> mapper, int concurrency);
+
+  /**
+   * Same as {@link #mapPayloadAsync(Function, int)} but the function returns a {@link CompletionStage}, called when the
+   * resulting source requests the message.
+   *
+   * @param mapper      the function, must not be {@code null}, must not return {@code null}
+   * @param concurrency the maximum number of concurrent calls, must be strictly positive
+   * @param <X>         the type of payload returned by the function
+   * @return the new source
+   */
+  default <X> Source<X> mapPayloadAsyncStage(Function<T, CompletionStage<X>> mapper, int concurrency) {
+    Objects.requireNonNull(mapper, "The `mapper` must not be `null`");
+    return mapPayloadAsync(payload -> DefaultSource.toSingle(mapper.apply(payload)), concurrency);
+  }
+
+  /**
+   * Same as {@link #mapPayloadAsyncOrdered(Function, int)} but the function returns a {@link CompletionStage}, called
+   * when the resulting source requests the message.
+   *
+   * @param mapper      the function, must not be {@code null}, must not return {@code null}
+   * @param concurrency the maximum number of concurrent calls, must be strictly positive
+   * @param <X>         the type of payload returned by the function
+   * @return the new source
+   */
+  default <X> Source<X> mapPayloadAsyncStageOrdered(Function<T, CompletionStage<X>> mapper, int concurrency) {
+    Objects.requireNonNull(mapper, "The `mapper` must not be `null`");
+    return mapPayloadAsyncOrdered(payload -> DefaultSource.toSingle(mapper.apply(payload)), concurrency);
+  }
+
+  /**
+   * Removes the duplicated messages, identified using their {@link CommonHeaders#KEY} header, such as the duplicates
+   * caused by at-least-once delivery. Messages without this header are never removed. The given specification bounds
+   * the memory used to remember the keys already seen.
+   *
+   * @param spec the specification, must not be {@code null}
+   * @return the new source
+   */
+  default Source<T> distinct(DistinctSpec spec) {
+    return distinct(CommonHeaders::key, spec);
+  }
+
+  /**
+   * Removes the duplicated messages, identified using the given key function. Messages for which the function returns
+   * {@code null} are never removed. The given specification bounds the memory used to remember the keys already seen.
+   * Each subscription remembers its own keys.
+   *
+   * @param keyFunction the function computing the key of each message, must not be {@code null}. The keys must
+   *                    implement {@code hashCode} and {@code equals}.
+   * @param spec        the specification, must not be {@code null}
+   * @param <K>         the type of key
+   * @return the new source
+   */
+  <K> Source<T> distinct(Function<Message<T>, K> keyFunction, DistinctSpec spec);
+
+  /**
+   * Same as {@link #mapPayload(Function)} but memoizes the results of the function in a bounded cache, so the
+   * function is not called again for a payload with an already seen key. The function must be pure and expensive
+   * enough to be worth caching (parsing, lookup, scoring...). The cache is shared by all the subscriptions of the
+   * returned source.
+   *
+   * @param keyFunction the function computing the cache key of each payload, must not be {@code null}, must not return
+   *                    {@code null}
+   * @param mapper      the function, must not be {@code null}, must not return {@code null}
+   * @param spec        the specification of the cache, must not be {@code null}
+   * @param <K>         the type of key
+   * @param <X>         the type of payload returned by the function
+   * @return the new source
+   */
+  default <K, X> Source<X> mapPayloadCached(Function<T, K> keyFunction, Function<T, X> mapper, CacheSpec spec) {
+    return mapPayloadCached(keyFunction, mapper, MemoCache.create(spec));
+  }
+
+  /**
+   * Same as {@link #mapPayloadCached(Function, Function, CacheSpec)} but uses the given cache, for example to share
+   * it between several sources or to observe its {@link MemoCache#hitRatio() hit ratio}.
+   *
+   * @param keyFunction the function computing the cache key of each payload, must not be {@code null}, must not return
+   *                    {@code null}
+   * @param mapper      the function, must not be {@code null}, must not return {@code null}
+   * @param cache       the cache, must not be {@code null}
+   * @param <K>         the type of key
+   * @param <X>         the type of payload returned by the function
+   * @return the new source
+   */
+  default <K, X> Source<X> mapPayloadCached(Function<T, K> keyFunction, Function<T, X> mapper, MemoCache<K, X> cache) {
+    Objects.requireNonNull(keyFunction, "The `keyFunction` must not be `null`");
+    Objects.requireNonNull(mapper, "The `mapper` must not be `null`");
+    Objects.requireNonNull(cache, "The `cache` must not be `null`");
+    return mapPayload(payload -> cache.get(keyFunction.apply(payload), key -> mapper.apply(payload)));
+  }
+
+  /**
+   * Enriches each message with the value associated with its key, retrieved using the given {@link BatchLoader}. The
+   * keys requested within a short period are retrieved with a single call, and a key is not requested again while its
+   * value is being retrieved. The messages emitted by this new source contain {@link Pair} instances encapsulating the
+   * payload and the value, empty if the key has no value. Headers and order are preserved. At most
+   * {@link Flowable#bufferSize()} messages wait for their value.
+   *
+   * @param keyFunction the function computing the key of each message, must not be {@code null}, must not return
+   *                    {@code null}
+   * @param loader      the loader, must not be {@code null}
+   * @param <K>         the type of key
+   * @param <V>         the type of value
+   * @return the new source
+   */
+  default <K, V> Source<Pair<T, Optional<V>>> enrich(Function<Message<T>, K> keyFunction, BatchLoader<K, V> loader) {
+    return enrich(keyFunction, loader, Flowable.bufferSize());
+  }
+
+  /**
+   * Same as {@link #enrich(Function, BatchLoader)} but configures the maximum number of messages waiting for their
+   * value. This number also bounds the size of the batches.
+   *
+   * @param keyFunction the function computing the key of each message, must not be {@code null}, must not return
+   *                    {@code null}
+   * @param loader      the loader, must not be {@code null}
+   * @param concurrency the maximum number of messages waiting for their value, must be strictly positive
+   * @param <K>         the type of key
+   * @param <V>         the type of value
+   * @return the new source
+   */
+  default <K, V> Source<Pair<T, Optional<V>>> enrich(Function<Message<T>, K> keyFunction, BatchLoader<K, V> loader,
+                                                     int concurrency) {
+    Objects.requireNonNull(keyFunction, "The `keyFunction` must not be `null`");
+    Objects.requireNonNull(loader, "The `loader` must not be `null`");
+    return mapAsyncOrdered(message -> loader.load(keyFunction.apply(message))
+      .map(Optional::of)
+      .toSingle(Optional.empty())
+      .map(value -> message.with(Pair.pair(message.payload(), value))), concurrency);
+  }
+
+  /**
+   * Applies a blocking function (JDBC call, file access, legacy client...) on the payload of each message. The function
+   * runs on the default blocking pool, so it never blocks the thread emitting the messages, such as an event loop.
+   * At most {@link BlockingOptions#DEFAULT_CONCURRENCY} calls run concurrently and the order is preserved.
+   *
+   * @param mapper the function, must not be {@code null}, must not return {@code null}
+   * @param <X>    the type of payload returned by the function
+   * @return the new source
+   */
+  default <X> Source<X> mapBlocking(Function<T, X> mapper) {
+    return mapBlocking(mapper, BlockingOptions.create());
+  }
+
+  /**
+   * Same as {@link #mapBlocking(Function)} but configures the pool running the calls, the maximum number of
+   * concurrent calls and whether the order is preserved.
+   *
+   * @param mapper  the function, must not be {@code null}, must not return {@code null}
+   * @param options the options, must not be {@code null}
+   * @param <X>     the type of payload returned by the function
+   * @return the new source
+   */
+  default <X> Source<X> mapBlocking(Function<T, X> mapper, BlockingOptions options) {
+    Objects.requireNonNull(mapper, "The `mapper` must not be `null`");
+    Objects.requireNonNull(options, "The `options` must not be `null`");
+    Scheduler scheduler = options.scheduler();
+    Function<T, Single<X>> call = payload -> Single.fromCallable(() -> mapper.apply(payload)).subscribeOn(scheduler);
+    if (options.ordered) {
+      return mapPayloadAsyncOrdered(call, options.concurrency);
+    }
+    return mapPayloadAsync(call, options.concurrency);
+  }
+
   /**
    * Creates a new source emitting its {@code zero} message and then applies the current and next value to the
    * given function, emitting the next current value.
@@ -302,6 +642,142 @@ public interface Source<T> extends Publisher<Message<T>> {
    */
   <K> Publisher<GroupedDataStream<K, T>> groupBy(Function<Message<T>, K> keySupplier);
 
+  /**
+   * Same as {@link #groupBy(Function)} but bounding the live groups according to the given options: maximum number of
+   * groups, idle timeout and eviction callback. Evicted groups are completed. If a message with the key of an evicted
+   * group is received, a new group is emitted.
+   *
+   * @param keySupplier the function providing the key for the given message, must not be {@code null}, must not return
+   *                    {@code null}.
+   * @param options     the options, must not be {@code null}
+   * @param <K>         The type of the key
+   * @return the created publisher
+   */
+  <K> Publisher<GroupedDataStream<K, T>> groupBy(Function<Message<T>, K> keySupplier, GroupByOptions<K> options);
+
+  /**
+   * Groups the messages of the current source into batches. A batch is emitted when it contains {@code maxSize}
+   * messages, or when {@code maxLatency} has elapsed since the reception of its first message, so under low load a
+   * message is never held longer than {@code maxLatency}. The last batch is emitted when the current source completes.
+   * <p>
+   * The batches are emitted according to the downstream demand: for each requested batch, {@code maxSize} messages are
+   * requested to the current source. The emitted message carries the headers of the first message of the batch and the
+   * {@link CommonHeaders#BATCH_SIZE} header. Its payload is a read-only list of the payloads of the batched messages.
+   *
+   * @param maxSize    the maximum number of messages per batch, must be strictly positive
+   * @param maxLatency the maximum time a message waits for its batch to be emitted, must be at least 1 ms
+   * @return the new source
+   */
+  default Source<List<T>> batch(int maxSize, Duration maxLatency) {
+    return batch(maxSize, maxLatency, Schedulers.computation());
+  }
+
+  /**
+   * Same as {@link #batch(int, Duration)} but uses the given scheduler for the latency timer.
+   *
+   * @param maxSize    the maximum number of messages per batch, must be strictly positive
+   * @param maxLatency the maximum time a message waits for its batch to be emitted, must be at least 1 ms
+   * @param scheduler  the scheduler, must not be {@code null}
+   * @return the new source
+   */
+  Source<List<T>> batch(int maxSize, Duration maxLatency, Scheduler scheduler);
+
+  /**
+   * Same as {@link #batch(int, Duration)} but the maximum batch size is provided by the given
+   * {@link AdaptiveBatchSize}. The consumer of the batches reports the time spent processing each batch using
+   * {@link AdaptiveBatchSize#record(Duration)}, and the batch size is adapted to keep this latency under the target.
+   *
+   * @param size       the adaptive batch size, must not be {@code null}
+   * @param maxLatency the maximum time a message waits for its batch to be emitted, must be at least 1 ms
+   * @return the new source
+   */
+  default Source<List<T>> batch(AdaptiveBatchSize size, Duration maxLatency) {
+    return batch(size, maxLatency, Schedulers.computation());
+  }
+
+  /**
+   * Same as {@link #batch(AdaptiveBatchSize, Duration)} but uses the given scheduler for the latency timer.
+   *
+   * @param size       the adaptive batch size, must not be {@code null}
+   * @param maxLatency the maximum time a message waits for its batch to be emitted, must be at least 1 ms
+   * @param scheduler  the scheduler, must not be {@code null}
+   * @return the new source
+   */
+  Source<List<T>> batch(AdaptiveBatchSize size, Duration maxLatency, Scheduler scheduler);
+
+  /**
+   * Same as {@link #batch(int, Duration)} but each batch is reduced by the given function, and the buffer holding the
+   * messages of a batch is reused for the next batches once the function has returned, avoiding an allocation per
+   * batch. The function is called synchronously by the batching stage, so the buffer is never exposed to the
+   * (possibly asynchronous) downstream stages. The function must not retain the list nor return it. The emitted
+   * messages carry the headers of the first message of their batch and the {@link CommonHeaders#BATCH_SIZE} header.
+   *
+   * @param maxSize    the maximum number of messages per batch, must be strictly positive
+   * @param maxLatency the maximum time a message waits for its batch to be emitted, must be at least 1 ms
+   * @param function   the function computing the payload emitted for each batch, must not be {@code null}, must not
+   *                   return {@code null}
+   * @param <R>        the type of payload computed from the batches
+   * @return the new source
+   */
+  default <R> Source<R> batchReusingBuffer(int maxSize, Duration maxLatency, Function<List<T>, R> function) {
+    return batchReusingBuffer(maxSize, maxLatency, function, Schedulers.computation());
+  }
+
+  /**
+   * Same as {@link #batchReusingBuffer(int, Duration, Function)} but uses the given scheduler for the latency timer.
+   *
+   * @param maxSize    the maximum number of messages per batch, must be strictly positive
+   * @param maxLatency the maximum time a message waits for its batch to be emitted, must be at least 1 ms
+   * @param function   the function computing the payload emitted for each batch, must not be {@code null}, must not
+   *                   return {@code null}
+   * @param scheduler  the scheduler, must not be {@code null}
+   * @param <R>        the type of payload computed from the batches
+   * @return the new source
+   */
+  <R> Source<R> batchReusingBuffer(int maxSize, Duration maxLatency, Function<List<T>, R> function,
+                                   Scheduler scheduler);
+
+  /**
+   * Splits the messages of the current source into windows and emits, for each window, the result computed by the
+   * given aggregator. The payloads are added to the accumulator of their window(s) as they arrive, so only the
+   * accumulators of the open windows are retained, not the messages. The emitted messages carry the
+   * {@link CommonHeaders#WINDOW_START} and {@link CommonHeaders#WINDOW_END} headers: message indexes for count-based
+   * windows, timestamps in milliseconds for time-based windows. Open windows are emitted when the current source
+   * completes.
+   *
+   * @param windows    the description of the windows, must not be {@code null}
+   * @param aggregator the aggregator, must not be {@code null}
+   * @param <ACC>      the type of accumulator
+   * @param <R>        the type of result
+   * @return the new source
+   */
+  <ACC, R> Source<R> window(Windows windows, Aggregator<T, ACC, R> aggregator);
+
+  /**
+   * Same as {@link #window(Windows, Aggregator)} but using event time: the messages are assigned to windows according
+   * to their timestamp, and windows are emitted when the watermark passes their end, see {@link EventTime}. Only
+   * time-based tumbling and sliding windows are supported.
+   *
+   * @param windows    the description of the windows, must not be {@code null}
+   * @param eventTime  the event-time configuration, must not be {@code null}
+   * @param aggregator the aggregator, must not be {@code null}
+   * @param <ACC>      the type of accumulator
+   * @param <R>        the type of result
+   * @return the new source
+   * @throws IllegalArgumentException if the windows are count-based or session windows
+   */
+  <ACC, R> Source<R> window(Windows windows, EventTime<T> eventTime, Aggregator<T, ACC, R> aggregator);
+
+  /**
+   * Associates a key with each message of the current source. The key function has the same signature as the one
+   * given to {@link #groupBy(Function)}.
+   *
+   * @param keyFunction the function computing the key of the messages, must not be {@code null}
+   * @param <K>         the type of key
+   * @return the keyed source
+   */
+  <K> KeyedSource<K, T> keyBy(Function<Message<T>, K> keyFunction);
+
   Source<T> log(String loggerName);
 
   /**
@@ -323,6 +799,20 @@ public interface Source<T> extends Publisher<Message<T>> {
    */
   Map<String, Source<T>> broadcast(String... names);
 
+  /**
+   * Creates a set of sources all receiving the messages from the current source. Unlike {@link #broadcast(int)}, where
+   * all the branches progress at the pace of the slowest one, each branch has its own buffer, so a fast branch can run
+   * ahead of a slow one. The given options configure the size of the buffers and the policy applied when a buffer is
+   * full. The returned {@link Broadcast} exposes the branches and their lag.
+   * <p>
+   * The current source is subscribed when all the branches are subscribed. Each branch can only be subscribed once.
+   *
+   * @param numberOfBranches the number of branch, must be strictly greater than 1.
+   * @param options          the options, must not be {@code null}
+   * @return the branches
+   */
+  Broadcast<T> broadcast(int numberOfBranches, BroadcastOptions<T> options);
+
   /**
    * Creates a pair of sources. These sources receives the message from the current source. However, depending whether or
    * not they match the given predicates they are emitted in the first source or in the second source. This construct can
@@ -345,12 +835,66 @@ public interface Source<T> extends Publisher<Message<T>> {
   Pair<Source<T>, Source<T>> branchOnPayload(Predicate<T> condition);
 
   /**
-   * Connects the current source to a sink. The sink is a terminal operation.
+   * Creates a set of sources, each message of the current source being emitted by exactly one of them. The given
+   * classifier is called once per message and returns the index of the source emitting it. Unlike
+   * {@link #broadcast(int)} followed by filters, the message is neither copied to each branch nor tested by each
+   * branch.
+   * <p>
+   * Each created source has its own buffer (of {@link Flowable#bufferSize()} messages) and its own demand, so a slow
+   * source only slows down the others when its buffer is full. The current source is subscribed when all the created
+   * sources are subscribed. Each created source can only be subscribed once.
+   *
+   * @param outputs    the number of sources to create, must be strictly positive
+   * @param classifier the function returning the index of the source emitting the message, between {@code 0} and
+   *                   {@code outputs - 1}, must not be {@code null}
+   * @return the list of sources
+   */
+  default List<Source<T>> route(int outputs, ToIntFunction<Message<T>> classifier) {
+    return route(outputs, Flowable.bufferSize(), classifier);
+  }
+
+  /**
+   * Same as {@link #route(int, ToIntFunction)} but lets you configure the size of the buffer of each created source.
+   *
+   * @param outputs    the number of sources to create, must be strictly positive
+   * @param bufferSize the maximum number of messages waiting in the buffer of each source, must be strictly positive
+   * @param classifier the function returning the index of the source emitting the message, between {@code 0} and
+   *                   {@code outputs - 1}, must not be {@code null}
+   * @return the list of sources
+   */
+  List<Source<T>> route(int outputs, int bufferSize, ToIntFunction<Message<T>> classifier);
+
+  /**
+   * Same as {@link #route(int, ToIntFunction)} but the created sources are named, and the classifier returns the name
+   * of the source emitting the message. A message classified with an unknown name fails the stream.
+   *
+   * @param classifier the function returning the name of the source emitting the message, must not be {@code null}
+   * @param names      the names of the created sources. Must not be {@code null}, must not contain {@code null} or be
+   *                   blank.
+   * @return the {@link Map} associating the names to the created source.
+   */
+  Map<String, Source<T>> route(Function<Message<T>, String> classifier, String... names);
+
+  /**
+   * Connects the current source to a sink. The sink is a terminal operation. The messages are dispatched one by one,
+   * with at most {@link SinkOptions#DEFAULT_MAX_IN_FLIGHT} in-flight dispatches.
    *
    * @param sink the sink, must not be {@code null}
    * @return the passed sink
    */
-  Sink<T> to(Sink<T> sink);
+  default Sink<T> to(Sink<T> sink) {
+    return to(sink, SinkOptions.create());
+  }
+
+  /**
+   * Connects the current source to a sink. The sink is a terminal operation. The given options configure the batching
+   * of the messages (passed to {@link Sink#dispatchBatch(List)}) and the maximum number of in-flight dispatches.
+   *
+   * @param sink    the sink, must not be {@code null}
+   * @param options the options, must not be {@code null}
+   * @return the passed sink
+   */
+  Sink<T> to(Sink<T> sink, SinkOptions options);
 
   /**
    * @return the current source as a RX Java 2 {@link Flowable}.
@@ -388,6 +932,118 @@ public interface Source<T> extends Publisher<Message<T>> {
    */
   Source<Tuple> zipWith(Source... sources);
 
+  /**
+   * Creates a new source correlating the messages from the current source (left) and from another source (right) by
+   * key. Unlike {@link #zipWith(Publisher)}, which pairs the messages by position, a left and a right message are
+   * associated when they have the same key and are received at most {@code window} apart. Each message can be
+   * associated with several messages of the other side. The messages emitted by this new source contain {@link Pair}
+   * instances encapsulating the two payloads. Headers from the left message are preserved.
+   * <p>
+   * The messages of both sides are buffered for {@code window} only, so the memory used is bounded by the window, not
+   * by the length of the streams. Unmatched messages are dropped.
+   *
+   * @param other    the other source, must not be {@code null}
+   * @param leftKey  the function computing the key of the messages of the current source, must not be {@code null},
+   *                 must not return {@code null}
+   * @param rightKey the function computing the key of the messages of the other source, must not be {@code null},
+   *                 must not return {@code null}
+   * @param window   the maximum time between two associated messages, must be at least 1 ms
+   * @param <O>      the type of payload of the other source
+   * @param <K>      the type of key
+   * @return the new source
+   */
+  default <O, K> Source<Pair<T, O>> join(Publisher<Message<O>> other, Function<Message<T>, K> leftKey,
+                                         Function<Message<O>, K> rightKey, Duration window) {
+    return join(other, leftKey, rightKey, window, Schedulers.computation());
+  }
+
+  /**
+   * Same as {@link #join(Publisher, Function, Function, Duration)} but uses the given scheduler to measure the time and
+   * expire the buffered messages.
+   *
+   * @param other     the other source, must not be {@code null}
+   * @param leftKey   the function computing the key of the messages of the current source, must not be {@code null}
+   * @param rightKey  the function computing the key of the messages of the other source, must not be {@code null}
+   * @param window    the maximum time between two associated messages, must be at least 1 ms
+   * @param scheduler the scheduler, must not be {@code null}
+   * @param <O>       the type of payload of the other source
+   * @param <K>       the type of key
+   * @return the new source
+   */
+  <O, K> Source<Pair<T, O>> join(Publisher<Message<O>> other, Function<Message<T>, K> leftKey,
+                                 Function<Message<O>, K> rightKey, Duration window, Scheduler scheduler);
+
+  /**
+   * Same as {@link #join(Publisher, Function, Function, Duration)} but the messages of the current source that are not
+   * associated with any message of the other source are emitted when they expire, with an empty right value.
+   *
+   * @param other    the other source, must not be {@code null}
+   * @param leftKey  the function computing the key of the messages of the current source, must not be {@code null}
+   * @param rightKey the function computing the key of the messages of the other source, must not be {@code null}
+   * @param window   the maximum time between two associated messages, must be at least 1 ms
+   * @param <O>      the type of payload of the other source
+   * @param <K>      the type of key
+   * @return the new source
+   */
+  default <O, K> Source<Pair<T, Optional<O>>> leftJoin(Publisher<Message<O>> other, Function<Message<T>, K> leftKey,
+                                                       Function<Message<O>, K> rightKey, Duration window) {
+    return leftJoin(other, leftKey, rightKey, window, Schedulers.computation());
+  }
+
+  /**
+   * Same as {@link #leftJoin(Publisher, Function, Function, Duration)} but uses the given scheduler to measure the time
+   * and expire the buffered messages.
+   *
+   * @param other     the other source, must not be {@code null}
+   * @param leftKey   the function computing the key of the messages of the current source, must not be {@code null}
+   * @param rightKey  the function computing the key of the messages of the other source, must not be {@code null}
+   * @param window    the maximum time between two associated messages, must be at least 1 ms
+   * @param scheduler the scheduler, must not be {@code null}
+   * @param <O>       the type of payload of the other source
+   * @param <K>       the type of key
+   * @return the new source
+   */
+  <O, K> Source<Pair<T, Optional<O>>> leftJoin(Publisher<Message<O>> other, Function<Message<T>, K> leftKey,
+                                               Function<Message<O>, K> rightKey, Duration window,
+                                               Scheduler scheduler);
+
+  /**
+   * Same as {@link #join(Publisher, Function, Function, Duration)} but the messages of both sources that are not
+   * associated with any message of the other side are emitted when they expire, with an empty value for the other
+   * side. Headers from the left message are preserved, or from the right message if there is no left message.
+   *
+   * @param other    the other source, must not be {@code null}
+   * @param leftKey  the function computing the key of the messages of the current source, must not be {@code null}
+   * @param rightKey the function computing the key of the messages of the other source, must not be {@code null}
+   * @param window   the maximum time between two associated messages, must be at least 1 ms
+   * @param <O>      the type of payload of the other source
+   * @param <K>      the type of key
+   * @return the new source
+   */
+  default <O, K> Source<Pair<Optional<T>, Optional<O>>> outerJoin(Publisher<Message<O>> other,
+                                                                  Function<Message<T>, K> leftKey,
+                                                                  Function<Message<O>, K> rightKey,
+                                                                  Duration window) {
+    return outerJoin(other, leftKey, rightKey, window, Schedulers.computation());
+  }
+
+  /**
+   * Same as {@link #outerJoin(Publisher, Function, Function, Duration)} but uses the given scheduler to measure the
+   * time and expire the buffered messages.
+   *
+   * @param other     the other source, must not be {@code null}
+   * @param leftKey   the function computing the key of the messages of the current source, must not be {@code null}
+   * @param rightKey  the function computing the key of the messages of the other source, must not be {@code null}
+   * @param window    the maximum time between two associated messages, must be at least 1 ms
+   * @param scheduler the scheduler, must not be {@code null}
+   * @param <O>       the type of payload of the other source
+   * @param <K>       the type of key
+   * @return the new source
+   */
+  <O, K> Source<Pair<Optional<T>, Optional<O>>> outerJoin(Publisher<Message<O>> other, Function<Message<T>, K> leftKey,
+                                                          Function<Message<O>, K> rightKey, Duration window,
+                                                          Scheduler scheduler);
+
   /**
    * Creates a new source merging messages from the current source and another one.
    *
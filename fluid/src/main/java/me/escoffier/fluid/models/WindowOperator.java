@@ -0,0 +1,375 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implements {@link Source#window(Windows, Aggregator)}. Only the accumulators of the open windows are kept in memory.
+ * <p>
+ * Time-based windows are closed either when a message is received after the end of the window, or by a periodic
+ * timer, so results are emitted shortly after the end of the window even if no message is received. When the source
+ * completes, the open windows are closed and their results emitted.
+ * <p>
+ * With event time, the windows are closed by the watermark computed from the timestamps of the messages, see
+ * {@link EventTime}.
+ */
+final class WindowOperator {
+
+  private static final Logger LOGGER = LogManager.getLogger(WindowOperator.class);
+
+  private static final Object TICK = new Object();
+
+  /**
+   * The maximum period of the timer in milliseconds, so long windows are not closed long after their end.
+   */
+  private static final long MAX_TICK_PERIOD = 1000;
+
+  private WindowOperator() {
+    // Avoid direct instantiation.
+  }
+
+  static <T, ACC, R> Flowable<Message<R>> apply(Publisher<Message<T>> flow, Windows windows,
+                                               Aggregator<T, ACC, R> aggregator) {
+    return Flowable.defer(() -> {
+      State<T, R> state;
+      switch (windows.kind) {
+        case COUNT:
+          CountWindows<T, ACC, R> count = new CountWindows<>(windows, aggregator);
+          return Flowable.fromPublisher(flow)
+            .concatMapIterable(m -> count.onPayload(m.payload()))
+            .concatWith(Flowable.defer(() -> Flowable.fromIterable(count.flush())));
+        case TIME:
+          state = new TimeWindows<>(windows, aggregator);
+          break;
+        default:
+          state = new SessionWindow<>(windows, aggregator);
+          break;
+      }
+      return timed(flow, windows.scheduler, tickPeriod(windows.slide), state);
+    });
+  }
+
+  static <T, ACC, R> Flowable<Message<R>> apply(Publisher<Message<T>> flow, Windows windows, EventTime<T> eventTime,
+                                               Aggregator<T, ACC, R> aggregator) {
+    if (windows.kind != Windows.Kind.TIME) {
+      throw new IllegalArgumentException("Event time is only supported by time-based tumbling and sliding windows");
+    }
+    // Without idle timeout, no timer is needed.
+    long period = eventTime.idleTimeout == 0 ? 0 : tickPeriod(eventTime.idleTimeout);
+    return Flowable.defer(() -> timed(flow, windows.scheduler, period,
+      new EventTimeWindows<>(windows, eventTime, aggregator)));
+  }
+
+  /**
+   * Computes the period of the timer closing the windows: a quarter of the given duration, between 1 millisecond and
+   * {@link #MAX_TICK_PERIOD}.
+   */
+  private static long tickPeriod(long duration) {
+    return Math.max(1, Math.min(duration / 4, MAX_TICK_PERIOD));
+  }
+
+  /**
+   * Drives the given state with the messages and, if {@code period} is strictly positive, a periodic timer.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T, R> Flowable<Message<R>> timed(Publisher<Message<T>> flow, Scheduler scheduler, long period,
+                                                   State<T, R> state) {
+    Flowable<Object> events;
+    if (period > 0) {
+      events = Flowable.fromPublisher(flow)
+        .publish(messages -> {
+          Flowable<Object> ticks = Flowable.interval(period, period, TimeUnit.MILLISECONDS, scheduler)
+            .onBackpressureDrop()
+            .map(x -> TICK)
+            .takeUntil(messages.ignoreElements().toFlowable());
+          // Merging serializes the messages and the ticks, so the state is never accessed concurrently.
+          return Flowable.merge(messages, ticks);
+        });
+    } else {
+      events = Flowable.fromPublisher(flow);
+    }
+    return events
+      .concatMapIterable(event -> {
+        long now = scheduler.now(TimeUnit.MILLISECONDS);
+        if (event == TICK) {
+          return state.close(now);
+        }
+        return state.onMessage(now, (Message<T>) event);
+      })
+      .concatWith(Flowable.defer(() -> Flowable.fromIterable(state.flush())));
+  }
+
+  private static <ACC, R> Message<R> result(Aggregator<?, ACC, R> aggregator, ACC accumulator, long start, long end) {
+    return new Message<>(aggregator.result(accumulator))
+      .with(HeaderKey.WINDOW_START, start)
+      .with(HeaderKey.WINDOW_END, end);
+  }
+
+  private static <X> List<X> append(List<X> list, X item) {
+    List<X> result = list.isEmpty() ? new ArrayList<>(2) : list;
+    result.add(item);
+    return result;
+  }
+
+  private interface State<T, R> {
+    List<Message<R>> onMessage(long now, Message<T> message);
+
+    List<Message<R>> close(long now);
+
+    List<Message<R>> flush();
+  }
+
+  /**
+   * Count-based windows, the start and end of the windows are message indexes.
+   */
+  private static final class CountWindows<T, ACC, R> {
+    private final long size;
+    private final long slide;
+    private final Aggregator<T, ACC, R> aggregator;
+    private final ArrayDeque<Open<ACC>> open = new ArrayDeque<>();
+    private long index;
+
+    CountWindows(Windows windows, Aggregator<T, ACC, R> aggregator) {
+      this.size = windows.size;
+      this.slide = windows.slide;
+      this.aggregator = aggregator;
+    }
+
+    List<Message<R>> onPayload(T payload) {
+      if (index % slide == 0) {
+        open.add(new Open<>(index, aggregator.create()));
+      }
+      for (Open<ACC> window : open) {
+        window.accumulator = aggregator.add(window.accumulator, payload);
+      }
+      index++;
+      List<Message<R>> results = Collections.emptyList();
+      while (!open.isEmpty() && index - open.peek().start >= size) {
+        Open<ACC> window = open.poll();
+        results = append(results, result(aggregator, window.accumulator, window.start, window.start + size));
+      }
+      return results;
+    }
+
+    List<Message<R>> flush() {
+      List<Message<R>> results = new ArrayList<>(open.size());
+      for (Open<ACC> window : open) {
+        results.add(result(aggregator, window.accumulator, window.start, index));
+      }
+      open.clear();
+      return results;
+    }
+  }
+
+  private static final class Open<ACC> {
+    private final long start;
+    private ACC accumulator;
+
+    Open(long start, ACC accumulator) {
+      this.start = start;
+      this.accumulator = accumulator;
+    }
+  }
+
+  /**
+   * Time-based tumbling and sliding windows, aligned on the epoch.
+   */
+  private static final class TimeWindows<T, ACC, R> implements State<T, R> {
+    private final long size;
+    private final long slide;
+    private final Aggregator<T, ACC, R> aggregator;
+    private final TreeMap<Long, ACC> open = new TreeMap<>();
+
+    TimeWindows(Windows windows, Aggregator<T, ACC, R> aggregator) {
+      this.size = windows.size;
+      this.slide = windows.slide;
+      this.aggregator = aggregator;
+    }
+
+    @Override
+    public List<Message<R>> onMessage(long now, Message<T> message) {
+      List<Message<R>> results = close(now);
+      T payload = message.payload();
+      for (long start = now - Math.floorMod(now, slide); start > now - size; start -= slide) {
+        ACC accumulator = open.get(start);
+        if (accumulator == null) {
+          accumulator = aggregator.create();
+        }
+        open.put(start, aggregator.add(accumulator, payload));
+      }
+      return results;
+    }
+
+    @Override
+    public List<Message<R>> close(long now) {
+      List<Message<R>> results = Collections.emptyList();
+      while (!open.isEmpty() && open.firstKey() + size <= now) {
+        Map.Entry<Long, ACC> window = open.pollFirstEntry();
+        results = append(results, result(aggregator, window.getValue(), window.getKey(), window.getKey() + size));
+      }
+      return results;
+    }
+
+    @Override
+    public List<Message<R>> flush() {
+      List<Message<R>> results = new ArrayList<>(open.size());
+      for (Map.Entry<Long, ACC> window : open.entrySet()) {
+        results.add(result(aggregator, window.getValue(), window.getKey(), window.getKey() + size));
+      }
+      open.clear();
+      return results;
+    }
+  }
+
+  /**
+   * Session window, closed after an inactivity gap. The end of the window is the time of the last message plus the
+   * gap.
+   */
+  private static final class SessionWindow<T, ACC, R> implements State<T, R> {
+    private final long gap;
+    private final Aggregator<T, ACC, R> aggregator;
+    private ACC accumulator;
+    private boolean open;
+    private long start;
+    private long last;
+
+    SessionWindow(Windows windows, Aggregator<T, ACC, R> aggregator) {
+      this.gap = windows.size;
+      this.aggregator = aggregator;
+    }
+
+    @Override
+    public List<Message<R>> onMessage(long now, Message<T> message) {
+      List<Message<R>> results = close(now);
+      if (!open) {
+        open = true;
+        start = now;
+        accumulator = aggregator.create();
+      }
+      accumulator = aggregator.add(accumulator, message.payload());
+      last = now;
+      return results;
+    }
+
+    @Override
+    public List<Message<R>> close(long now) {
+      if (open && now >= last + gap) {
+        return flush();
+      }
+      return Collections.emptyList();
+    }
+
+    @Override
+    public List<Message<R>> flush() {
+      if (!open) {
+        return Collections.emptyList();
+      }
+      open = false;
+      Message<R> result = result(aggregator, accumulator, start, last + gap);
+      accumulator = null;
+      return Collections.singletonList(result);
+    }
+  }
+
+  /**
+   * Event-time tumbling and sliding windows, closed when the watermark passes their end.
+   */
+  private static final class EventTimeWindows<T, ACC, R> implements State<T, R> {
+    private final long size;
+    private final long slide;
+    private final EventTime<T> eventTime;
+    private final Aggregator<T, ACC, R> aggregator;
+    private final TreeMap<Long, ACC> open = new TreeMap<>();
+    private long maxTimestamp = Long.MIN_VALUE;
+    private long watermark = Long.MIN_VALUE;
+    private long lastArrival;
+
+    EventTimeWindows(Windows windows, EventTime<T> eventTime, Aggregator<T, ACC, R> aggregator) {
+      this.size = windows.size;
+      this.slide = windows.slide;
+      this.eventTime = eventTime;
+      this.aggregator = aggregator;
+    }
+
+    @Override
+    public List<Message<R>> onMessage(long now, Message<T> message) {
+      lastArrival = now;
+      long timestamp = eventTime.extractor.applyAsLong(message);
+      boolean assigned = false;
+      for (long start = timestamp - Math.floorMod(timestamp, slide); start > timestamp - size; start -= slide) {
+        if (start + size <= watermark) {
+          // Already closed.
+          continue;
+        }
+        ACC accumulator = open.get(start);
+        if (accumulator == null) {
+          accumulator = aggregator.create();
+        }
+        open.put(start, aggregator.add(accumulator, message.payload()));
+        assigned = true;
+      }
+      if (!assigned) {
+        late(message);
+      }
+      if (timestamp > maxTimestamp) {
+        maxTimestamp = timestamp;
+        advance(timestamp - eventTime.maxOutOfOrderness);
+      }
+      return fire();
+    }
+
+    @Override
+    public List<Message<R>> close(long now) {
+      long idle = now - lastArrival - eventTime.idleTimeout;
+      if (maxTimestamp != Long.MIN_VALUE && idle >= 0) {
+        // Idle source, the watermark follows the processing time from its last position, so the out-of-orderness
+        // allowance is kept.
+        advance(maxTimestamp - eventTime.maxOutOfOrderness + idle);
+      }
+      return fire();
+    }
+
+    private void advance(long candidate) {
+      watermark = Math.max(watermark, candidate);
+    }
+
+    private void late(Message<T> message) {
+      if (eventTime.lateSink != null) {
+        eventTime.lateSink.dispatch(message)
+          .subscribe(() -> {
+            // Dispatched.
+          }, err -> LOGGER.error("Unable to dispatch a late message to the late sink", err));
+      }
+    }
+
+    private List<Message<R>> fire() {
+      List<Message<R>> results = Collections.emptyList();
+      while (!open.isEmpty() && open.firstKey() + size <= watermark) {
+        Map.Entry<Long, ACC> window = open.pollFirstEntry();
+        results = append(results, result(aggregator, window.getValue(), window.getKey(), window.getKey() + size));
+      }
+      return results;
+    }
+
+    @Override
+    public List<Message<R>> flush() {
+      List<Message<R>> results = new ArrayList<>(open.size());
+      for (Map.Entry<Long, ACC> window : open.entrySet()) {
+        results.add(result(aggregator, window.getValue(), window.getKey(), window.getKey() + size));
+      }
+      open.clear();
+      return results;
+    }
+  }
+}
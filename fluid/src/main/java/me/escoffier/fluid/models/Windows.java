@@ -0,0 +1,126 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Describes how the messages of a {@link Source} are split into windows, see
+ * {@link Source#window(Windows, Aggregator)}.
+ * <p>
+ * Windows are either based on the number of messages ({@link #tumbling(int)}, {@link #sliding(int, int)}) or on the
+ * time at which the messages are received ({@link #tumbling(Duration)}, {@link #sliding(Duration, Duration)},
+ * {@link #session(Duration)}). Time-based windows read the time from a {@link Scheduler}, the RX computation scheduler
+ * by default, which can be changed using {@link #using(Scheduler)}.
+ *
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public final class Windows {
+
+  enum Kind {
+    COUNT, TIME, SESSION
+  }
+
+  final Kind kind;
+
+  /**
+   * The size of the windows: a number of messages or a number of milliseconds. For session windows, the gap.
+   */
+  final long size;
+
+  /**
+   * The distance between the start of two consecutive windows, same unit as {@link #size}.
+   */
+  final long slide;
+
+  final Scheduler scheduler;
+
+  private Windows(Kind kind, long size, long slide, Scheduler scheduler) {
+    this.kind = kind;
+    this.size = size;
+    this.slide = slide;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Creates non-overlapping windows of {@code count} messages.
+   *
+   * @param count the number of messages per window, must be strictly positive
+   * @return the window description
+   */
+  public static Windows tumbling(int count) {
+    return sliding(count, count);
+  }
+
+  /**
+   * Creates windows of {@code size} messages, a new window starting every {@code slide} messages. Each message is
+   * added to all the windows containing it.
+   *
+   * @param size  the number of messages per window, must be strictly positive
+   * @param slide the number of messages between the start of two consecutive windows, must be strictly positive
+   * @return the window description
+   */
+  public static Windows sliding(int size, int slide) {
+    return new Windows(Kind.COUNT, positive(size, "size"), positive(slide, "slide"), Schedulers.computation());
+  }
+
+  /**
+   * Creates non-overlapping windows of the given duration.
+   *
+   * @param duration the duration of the windows, must be at least 1 ms
+   * @return the window description
+   */
+  public static Windows tumbling(Duration duration) {
+    return sliding(duration, duration);
+  }
+
+  /**
+   * Creates windows of the given duration, a new window starting every {@code slide}. Windows are aligned on the epoch.
+   *
+   * @param size  the duration of the windows, must be at least 1 ms
+   * @param slide the duration between the start of two consecutive windows, must be at least 1 ms
+   * @return the window description
+   */
+  public static Windows sliding(Duration size, Duration slide) {
+    return new Windows(Kind.TIME, millis(size, "size"), millis(slide, "slide"), Schedulers.computation());
+  }
+
+  /**
+   * Creates session windows: a window is closed when no message has been received during the given gap.
+   *
+   * @param gap the inactivity gap closing the session, must be at least 1 ms
+   * @return the window description
+   */
+  public static Windows session(Duration gap) {
+    long millis = millis(gap, "gap");
+    return new Windows(Kind.SESSION, millis, millis, Schedulers.computation());
+  }
+
+  /**
+   * Creates a new window description reading the time from the given scheduler. This is ignored by count-based
+   * windows.
+   *
+   * @param scheduler the scheduler, must not be {@code null}
+   * @return the new window description
+   */
+  public Windows using(Scheduler scheduler) {
+    return new Windows(kind, size, slide, Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"));
+  }
+
+  private static long positive(int value, String name) {
+    if (value <= 0) {
+      throw new IllegalArgumentException("The `" + name + "` must be strictly positive");
+    }
+    return value;
+  }
+
+  private static long millis(Duration duration, String name) {
+    Objects.requireNonNull(duration, "The `" + name + "` must not be `null`");
+    if (duration.toMillis() <= 0) {
+      throw new IllegalArgumentException("The `" + name + "` must be at least 1 ms");
+    }
+    return duration.toMillis();
+  }
+}
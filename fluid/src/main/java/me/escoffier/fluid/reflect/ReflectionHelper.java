@@ -2,9 +2,11 @@ package me.escoffier.fluid.reflect;
 
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import me.escoffier.fluid.annotations.Blocking;
 import me.escoffier.fluid.annotations.Function;
 import me.escoffier.fluid.annotations.Inbound;
 import me.escoffier.fluid.annotations.Outbound;
+import me.escoffier.fluid.models.BlockingOptions;
 import me.escoffier.fluid.models.Message;
 import me.escoffier.fluid.models.Sink;
 import me.escoffier.fluid.models.Source;
@@ -76,13 +78,27 @@ public class ReflectionHelper {
     Method methodToBeInvoked = method;
     Sink<Object> theSink = sink;
 
-    Flowable<Optional<Object>> result;
+    Flowable<Object[]> invocations;
     if (sources.size() == 1) {
-      result = sources.get(0)
-        .map(item -> Optional.ofNullable(methodToBeInvoked.invoke(mediator, item)));
+      invocations = sources.get(0).map(item -> new Object[] {item});
+    } else {
+      invocations = Flowable.zip(sources, args -> args);
+    }
+
+    Flowable<Optional<Object>> result;
+    Blocking blocking = method.getAnnotation(Blocking.class);
+    if (blocking == null) {
+      result = invocations.map(args -> Optional.ofNullable(methodToBeInvoked.invoke(mediator, args)));
     } else {
-      result = Flowable.zip(sources, args -> args)
-        .map(args -> Optional.ofNullable(methodToBeInvoked.invoke(mediator, args)));
+      // Offload the invocations, the results are emitted in order.
+      BlockingOptions options = BlockingOptions.create().withConcurrency(blocking.concurrency());
+      if (blocking.pool().length() != 0) {
+        options = options.withPool(blocking.pool());
+      }
+      result = Source.fromPayloads(invocations)
+        .mapBlocking(args -> invoke(mediator, methodToBeInvoked, args), options)
+        .asFlowable()
+        .map(Message::payload);
     }
 
     result
@@ -98,6 +114,15 @@ public class ReflectionHelper {
       .subscribe();
   }
 
+  private static Optional<Object> invoke(Object mediator, Method method, Object[] args) {
+    try {
+      return Optional.ofNullable(method.invoke(mediator, args));
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Unable to invoke " + method.getName() + " from " + mediator.getClass()
+        .getName(), e);
+    }
+  }
+
   private static List<Flowable<Object>> getFlowableForParameters(Method method) {
     List<Flowable<Object>> sources = new ArrayList<>();
 
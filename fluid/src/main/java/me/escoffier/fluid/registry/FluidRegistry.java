@@ -1,13 +1,19 @@
 package me.escoffier.fluid.registry;
 
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
 import io.vertx.reactivex.core.Vertx;
 import me.escoffier.fluid.config.FluidConfig;
 import me.escoffier.fluid.models.Sink;
 import me.escoffier.fluid.models.Source;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Component storing the sources and sinks created from the configuration. It also provides a way to
@@ -17,14 +23,22 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class FluidRegistry {
 
+  private static final Logger LOGGER = LogManager.getLogger(FluidRegistry.class);
 
   private static final String NAME_NOT_PROVIDED_MESSAGE = "The source/sink has no name or " +
     "the given `name` is `null`";
 
   private static Map<String, Source> sources = new ConcurrentHashMap<>();
   private static Map<String, Sink> sinks = new ConcurrentHashMap<>();
+  private static Map<String, Scheduler> schedulers = new ConcurrentHashMap<>();
+
+  /**
+   * The resources of the pools created from the configuration, released on {@link #reset()}.
+   */
+  private static List<Disposable> resources = new CopyOnWriteArrayList<>();
 
   public static synchronized void initialize(Vertx vertx, FluidConfig config) {
+    schedulers.putAll(SchedulerBuilder.createSchedulersFromConfiguration(vertx, config, resources));
     sinks.putAll(SourceAndSinkBuilder.createSinksFromConfiguration(vertx, config));
     sources.putAll(SourceAndSinkBuilder.createSourcesFromConfiguration(vertx, config));
   }
@@ -33,9 +47,22 @@ public class FluidRegistry {
     // Avoid direct instantiation.
   }
 
-  public static void reset() {
+  /**
+   * Clears the registry and shuts down the thread pools created from the configuration. The schedulers registered
+   * using {@link #register(String, Scheduler)} are not shut down.
+   */
+  public static synchronized void reset() {
     sources.clear();
     sinks.clear();
+    schedulers.clear();
+    for (Disposable resource : resources) {
+      try {
+        resource.dispose();
+      } catch (RuntimeException e) {
+        LOGGER.warn("Unable to release a thread pool", e);
+      }
+    }
+    resources.clear();
   }
 
   public static synchronized <T> void register(Source<T> source) {
@@ -54,6 +81,21 @@ public class FluidRegistry {
     sinks.put(Objects.requireNonNull(name, NAME_NOT_PROVIDED_MESSAGE), sink);
   }
 
+  /**
+   * Registers a named thread pool, usable with {@link Source#dispatchOn(String)} and {@link Source#emitOn(String)}.
+   *
+   * @param name      the name, must not be {@code null}
+   * @param scheduler the scheduler, must not be {@code null}
+   */
+  public static synchronized void register(String name, Scheduler scheduler) {
+    schedulers.put(Objects.requireNonNull(name, "The `name` must not be `null`"),
+      Objects.requireNonNull(scheduler, "The `scheduler` must not be `null`"));
+  }
+
+  public static synchronized void unregisterScheduler(String name) {
+    schedulers.remove(Objects.requireNonNull(name, "The `name` must not be `null`"));
+  }
+
   public static synchronized void unregisterSource(String name) {
     sources.remove(Objects.requireNonNull(name, NAME_NOT_PROVIDED_MESSAGE));
   }
@@ -72,6 +114,17 @@ public class FluidRegistry {
     return (Sink<T>) sinks.get(Objects.requireNonNull(name, NAME_NOT_PROVIDED_MESSAGE));
   }
 
+  /**
+   * Looks for a named thread pool, configured in the {@code pools} section of the configuration or registered using
+   * {@link #register(String, Scheduler)}.
+   *
+   * @param name the name, must not be {@code null}
+   * @return the scheduler, {@code null} if not found
+   */
+  public static Scheduler scheduler(String name) {
+    return schedulers.get(Objects.requireNonNull(name, "The `name` must not be `null`"));
+  }
+
   @SuppressWarnings({"unused", "unchecked"})
   public static <T> Source<T> source(String name, Class<T> clazz) {
     return (Source<T>) sources.get(Objects.requireNonNull(name, NAME_NOT_PROVIDED_MESSAGE));
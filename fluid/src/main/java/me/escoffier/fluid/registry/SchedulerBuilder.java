@@ -0,0 +1,137 @@
+package me.escoffier.fluid.registry;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.schedulers.Schedulers;
+import io.vertx.reactivex.core.RxHelper;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.core.WorkerExecutor;
+import me.escoffier.fluid.config.Config;
+import me.escoffier.fluid.config.FluidConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the named thread pools (exposed as RX {@link Scheduler}) from the configuration. Pools are declared in the
+ * {@code pools} section:
+ * <pre>
+ * pools:
+ *   cpu:
+ *     type: fixed   # fixed (default), computation, io, single, worker or event-loop
+ *     size: 4       # only for fixed and worker, default to the number of processors
+ * </pre>
+ * <p>
+ * {@code fixed} creates a dedicated pool of daemon threads, {@code computation}, {@code io} and {@code single} reuse the
+ * RX Java schedulers, {@code worker} uses a shared Vert.x worker executor and {@code event-loop} a Vert.x event loop
+ * context.
+ * <p>
+ * The {@code fixed} pools and the {@code worker} executors are owned by the application: they must be released
+ * once not used anymore. The {@link FluidRegistry} releases the pools it has created on {@link FluidRegistry#reset()}.
+ */
+public class SchedulerBuilder {
+
+  private static final Logger LOGGER = LogManager.getLogger(SchedulerBuilder.class);
+
+  private SchedulerBuilder() {
+    // Avoid direct instantiation.
+  }
+
+  /**
+   * Creates the pools declared in the configuration. The created {@code fixed} pools and {@code worker} executors are
+   * never released, use {@link #createSchedulersFromConfiguration(Vertx, FluidConfig, List)} to release them.
+   *
+   * @param vertx  the Vert.x instance
+   * @param config the configuration
+   * @return the schedulers per name
+   */
+  public static Map<String, Scheduler> createSchedulersFromConfiguration(Vertx vertx, FluidConfig config) {
+    return createSchedulersFromConfiguration(vertx, config, new ArrayList<>());
+  }
+
+  /**
+   * Creates the pools declared in the configuration.
+   *
+   * @param vertx     the Vert.x instance
+   * @param config    the configuration
+   * @param resources the list receiving the resources owned by the created pools, disposing them shuts the pools
+   *                  down
+   * @return the schedulers per name
+   */
+  public static Map<String, Scheduler> createSchedulersFromConfiguration(Vertx vertx, FluidConfig config,
+                                                                         List<Disposable> resources) {
+    Map<String, Scheduler> map = new HashMap<>();
+    Optional<Config> pools = config.getConfig("pools");
+    if (pools.isPresent()) {
+      Iterator<String> names = pools.get().names();
+      while (names.hasNext()) {
+        String name = names.next();
+        LOGGER.info("Creating thread pool from configuration `" + name + "`");
+        Config conf = pools.get().getConfig(name)
+          .orElseThrow(() -> new IllegalStateException("Illegal configuration for pool `" + name + "`"));
+        map.put(name, buildScheduler(vertx, name, conf, resources));
+      }
+    }
+    return map;
+  }
+
+  static Scheduler buildScheduler(Vertx vertx, String name, Config config, List<Disposable> resources) {
+    String type = config.getString("type", "fixed");
+    int size = config.getInt("size", Runtime.getRuntime().availableProcessors());
+    if (size <= 0) {
+      throw new IllegalArgumentException("Invalid configuration, the size of the pool `" + name + "` must be positive");
+    }
+    switch (type.toLowerCase()) {
+      case "fixed":
+        ExecutorService executor = Executors.newFixedThreadPool(size, new PoolThreadFactory(name));
+        Scheduler scheduler = Schedulers.from(executor);
+        resources.add(Disposables.fromAction(() -> {
+          scheduler.shutdown();
+          executor.shutdownNow();
+        }));
+        return scheduler;
+      case "computation":
+        return Schedulers.computation();
+      case "io":
+        return Schedulers.io();
+      case "single":
+        return Schedulers.single();
+      case "worker":
+        WorkerExecutor worker = vertx.createSharedWorkerExecutor("fluid-" + name, size);
+        resources.add(Disposables.fromAction(worker::close));
+        return RxHelper.blockingScheduler(worker);
+      case "event-loop":
+        return RxHelper.scheduler(vertx);
+      default:
+        throw new IllegalArgumentException("Invalid configuration, the pool type `" + type + "` of `" + name
+          + "` is unknown");
+    }
+  }
+
+  private static class PoolThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    PoolThreadFactory(String name) {
+      this.prefix = "fluid-" + name + "-";
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
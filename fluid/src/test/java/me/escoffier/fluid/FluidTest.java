@@ -1,10 +1,13 @@
 package me.escoffier.fluid;
 
+import io.reactivex.Scheduler;
 import io.vertx.core.Vertx;
 import me.escoffier.fluid.annotations.Inbound;
 import me.escoffier.fluid.annotations.Outbound;
 import me.escoffier.fluid.annotations.Transformation;
 import me.escoffier.fluid.framework.Fluid;
+import me.escoffier.fluid.impl.BlockingPool;
+import me.escoffier.fluid.models.Message;
 import me.escoffier.fluid.models.Sink;
 import me.escoffier.fluid.models.Source;
 import me.escoffier.fluid.registry.FluidRegistry;
@@ -34,6 +37,20 @@ public class FluidTest {
     assertThat(called.get()).isTrue();
   }
 
+  @Test
+  public void testClosingAnInstanceKeepsTheBlockingPoolOfTheOthers() {
+    Fluid first = Fluid.create();
+    Fluid second = Fluid.create();
+    Scheduler scheduler = BlockingPool.scheduler();
+
+    first.close();
+    first.close();
+    assertThat(BlockingPool.scheduler()).isSameAs(scheduler);
+    assertThat(Source.from(1, 2, 3).mapBlocking(i -> i * 2).asFlowable().map(Message::payload).toList().blockingGet())
+      .containsExactly(2, 4, 6);
+    second.close();
+  }
+
   @Test
   public void testCreationWithVertx() {
     Vertx vertx = Vertx.vertx();
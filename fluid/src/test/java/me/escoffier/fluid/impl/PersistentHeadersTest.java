@@ -0,0 +1,96 @@
+package me.escoffier.fluid.impl;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Checks the behavior of {@link PersistentHeaders}.
+ */
+public class PersistentHeadersTest {
+
+  @Test
+  public void testEmpty() {
+    PersistentHeaders headers = PersistentHeaders.empty();
+    assertThat(headers).isEmpty();
+    assertThat(headers.get("foo")).isNull();
+    assertThat(headers.minus("foo")).isSameAs(headers);
+  }
+
+  @Test
+  public void testInlineKeepsInsertionOrder() {
+    PersistentHeaders headers = PersistentHeaders.empty()
+      .plus("key", "value")
+      .plus("foo", 25)
+      .plus("bar", null);
+    assertThat(headers).containsExactly(entry("key", "value"), entry("foo", 25), entry("bar", null));
+    assertThat(headers.containsKey("bar")).isTrue();
+    assertThat(headers.containsKey("baz")).isFalse();
+  }
+
+  @Test
+  public void testStructuralSharing() {
+    PersistentHeaders v1 = PersistentHeaders.empty().plus("a", 1);
+    PersistentHeaders v2 = v1.plus("b", 2);
+    PersistentHeaders v3 = v2.minus("a");
+
+    assertThat(v1).containsExactly(entry("a", 1));
+    assertThat(v2).containsExactly(entry("a", 1), entry("b", 2));
+    assertThat(v3).containsExactly(entry("b", 2));
+    assertThat(v2.plus("b", 2)).isSameAs(v2);
+    assertThat(PersistentHeaders.from(v2)).isSameAs(v2);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() {
+    PersistentHeaders.empty().plus("a", 1).put("b", 2);
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    Random random = new Random(42);
+    Map<String, Object> expected = new HashMap<>();
+    PersistentHeaders headers = PersistentHeaders.empty();
+    for (int i = 0; i < 10_000; i++) {
+      String key = "k" + random.nextInt(500);
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        headers = headers.minus(key);
+      } else {
+        expected.put(key, i);
+        headers = headers.plus(key, i);
+      }
+      assertThat(headers.size()).isEqualTo(expected.size());
+    }
+    assertThat(headers).isEqualTo(expected);
+    assertThat(headers.hashCode()).isEqualTo(expected.hashCode());
+  }
+
+  @Test
+  public void testCollisions() {
+    // "Aa" and "BB" have the same hash code.
+    PersistentHeaders headers = PersistentHeaders.empty();
+    for (int i = 0; i < PersistentHeaders.INLINE_THRESHOLD; i++) {
+      headers = headers.plus("x" + i, i);
+    }
+    headers = headers.plus("Aa", "a").plus("BB", "b").plus("AaAa", "c").plus("BBBB", "d");
+    assertThat(headers.get("Aa")).isEqualTo("a");
+    assertThat(headers.get("BB")).isEqualTo("b");
+    assertThat(headers.get("AaAa")).isEqualTo("c");
+    assertThat(headers.get("BBBB")).isEqualTo("d");
+    assertThat(headers).hasSize(PersistentHeaders.INLINE_THRESHOLD + 4);
+
+    headers = headers.minus("Aa");
+    assertThat(headers.get("Aa")).isNull();
+    assertThat(headers.get("BB")).isEqualTo("b");
+    headers = headers.minus("BB");
+    assertThat(headers).hasSize(PersistentHeaders.INLINE_THRESHOLD + 2);
+    assertThat(headers.containsKey("BB")).isFalse();
+  }
+
+}
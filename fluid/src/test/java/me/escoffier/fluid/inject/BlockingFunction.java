@@ -0,0 +1,25 @@
+package me.escoffier.fluid.inject;
+
+import me.escoffier.fluid.annotations.Blocking;
+import me.escoffier.fluid.annotations.Function;
+import me.escoffier.fluid.annotations.Inbound;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author <a href="http://escoffier.me">Clement Escoffier</a>
+ */
+public class BlockingFunction {
+
+  static final List<String> THREADS = new CopyOnWriteArrayList<>();
+
+  @Function(outbound = "my-sink")
+  @Blocking(concurrency = 4)
+  public String transform(@Inbound("my-source") String data) throws InterruptedException {
+    THREADS.add(Thread.currentThread().getName());
+    // The first items are the slowest, the order must be preserved anyway.
+    Thread.sleep(5 * (int) ('F' - data.toUpperCase().charAt(0)));
+    return data.toUpperCase();
+  }
+}
@@ -138,6 +138,15 @@ public class InjectionTest {
     assertThat(my_sink.values()).containsExactly("A", "B", "C", "D", "E");
   }
 
+  @Test
+  public void testBlockingFunction() {
+    fluid.deploy(BlockingFunction.class);
+
+    await().until(() -> my_sink.values().size() == 5);
+    assertThat(my_sink.values()).containsExactly("A", "B", "C", "D", "E");
+    assertThat(BlockingFunction.THREADS).hasSize(5).noneMatch(name -> name.startsWith("main"));
+  }
+
   @Test
   public void testFunctionWith2Sources() {
     fluid.deploy(FunctionGettingTwoPayloads.class);
@@ -0,0 +1,148 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the {@link AdaptiveBatchSize} and its use in {@link Source#to(Sink, SinkOptions)} and
+ * {@link Source#batch(AdaptiveBatchSize, Duration)}.
+ */
+public class AdaptiveBatchSizeTest {
+
+  @Test
+  public void testAdditiveIncreaseMultiplicativeDecrease() {
+    AdaptiveBatchSize adaptive = AdaptiveBatchSize.create(Duration.ofMillis(100), 2, 20, 3, 100);
+    assertThat(adaptive.size()).isEqualTo(2);
+    assertThat(adaptive.lastP99()).isNull();
+
+    record(adaptive, 99, Duration.ofMillis(10));
+    // The sample is not complete.
+    assertThat(adaptive.size()).isEqualTo(2);
+    adaptive.record(Duration.ofMillis(20));
+    assertThat(adaptive.size()).isEqualTo(5);
+    assertThat(adaptive.lastP99()).isEqualTo(Duration.ofMillis(10));
+
+    record(adaptive, 1000, Duration.ofMillis(50));
+    // Bounded by the maximum.
+    assertThat(adaptive.size()).isEqualTo(20);
+
+    record(adaptive, 98, Duration.ofMillis(10));
+    record(adaptive, 2, Duration.ofMillis(150));
+    assertThat(adaptive.size()).isEqualTo(10);
+    assertThat(adaptive.lastP99()).isEqualTo(Duration.ofMillis(150));
+    record(adaptive, 100, Duration.ofMillis(200));
+    assertThat(adaptive.size()).isEqualTo(5);
+    record(adaptive, 100, Duration.ofMillis(200));
+    // Bounded by the minimum.
+    assertThat(adaptive.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testASingleOutlierDoesNotDecreaseTheBatchSize() {
+    AdaptiveBatchSize adaptive = AdaptiveBatchSize.create(Duration.ofMillis(100), 10, 20);
+    record(adaptive, 99, Duration.ofMillis(10));
+    adaptive.record(Duration.ofSeconds(5));
+    assertThat(adaptive.lastP99()).isEqualTo(Duration.ofMillis(10));
+    assertThat(adaptive.size()).isEqualTo(11);
+
+    adaptive.record(Duration.ofSeconds(5));
+    record(adaptive, 98, Duration.ofMillis(10));
+    adaptive.record(Duration.ofSeconds(5));
+    assertThat(adaptive.lastP99()).isEqualTo(Duration.ofSeconds(5));
+    assertThat(adaptive.size()).isEqualTo(10);
+  }
+
+  @Test
+  public void testBatchSizeGrowsWithFastSink() {
+    AdaptiveBatchSize adaptive = AdaptiveBatchSize.create(Duration.ofSeconds(10), 1, 40, 10, 100);
+    List<Integer> sizes = new CopyOnWriteArrayList<>();
+    Sink<Integer> sink = new Sink<Integer>() {
+      @Override
+      public Completable dispatch(Message<Integer> message) {
+        return Completable.complete();
+      }
+
+      @Override
+      public Completable dispatchBatch(List<Message<Integer>> messages) {
+        sizes.add(messages.size());
+        return Completable.complete();
+      }
+    };
+
+    Source.fromPayloads(Flowable.range(0, 10000))
+      .to(sink, SinkOptions.create().withAdaptiveBatchSize(adaptive).withMaxInFlight(1));
+
+    assertThat(sizes.stream().mapToInt(i -> i).sum()).isEqualTo(10000);
+    assertThat(sizes.get(0)).isEqualTo(1);
+    assertThat(adaptive.size()).isEqualTo(40);
+    assertThat(sizes).contains(40);
+  }
+
+  @Test
+  public void testBatchSizeShrinksWithSlowSink() {
+    AdaptiveBatchSize adaptive = AdaptiveBatchSize.create(Duration.ofMillis(1), 1, 64, 1, 100);
+    record(adaptive, 100, Duration.ZERO);
+    Sink<Integer> sink = new Sink<Integer>() {
+      @Override
+      public Completable dispatch(Message<Integer> message) {
+        return Completable.complete();
+      }
+
+      @Override
+      public Completable dispatchBatch(List<Message<Integer>> messages) {
+        return Completable.fromAction(() -> Thread.sleep(5));
+      }
+    };
+
+    assertThat(adaptive.size()).isEqualTo(2);
+    Source.fromPayloads(Flowable.range(0, 200))
+      .to(sink, SinkOptions.create().withAdaptiveBatchSize(adaptive).withMaxInFlight(1));
+    assertThat(adaptive.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testBatchFollowsTheAdaptiveSize() {
+    AdaptiveBatchSize adaptive = AdaptiveBatchSize.create(Duration.ofMillis(100), 2, 10, 2, 100);
+    TestSubscriber<Message<List<Integer>>> subscriber = Source.fromPayloads(Flowable.range(0, 100))
+      .batch(adaptive, Duration.ofSeconds(10))
+      .asFlowable()
+      .test(0);
+
+    subscriber.request(1);
+    assertThat(subscriber.values().get(0).payload()).hasSize(2);
+    record(adaptive, 100, Duration.ofMillis(1));
+    subscriber.request(1);
+    assertThat(subscriber.values().get(1).payload()).hasSize(4);
+    assertThat(CommonHeaders.batchSize(subscriber.values().get(1))).isEqualTo(4);
+  }
+
+  @Test
+  public void testInvalidParameters() {
+    assertThatThrownBy(() -> AdaptiveBatchSize.create(Duration.ZERO, 1, 2))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> AdaptiveBatchSize.create(Duration.ofMillis(10), 0, 2))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> AdaptiveBatchSize.create(Duration.ofMillis(10), 3, 2))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> AdaptiveBatchSize.create(Duration.ofMillis(10), 1, 2, 0, 100))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> AdaptiveBatchSize.create(Duration.ofMillis(10), 1, 2, 1, 20))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static void record(AdaptiveBatchSize adaptive, int times, Duration latency) {
+    for (int i = 0; i < times; i++) {
+      adaptive.record(latency);
+    }
+  }
+
+}
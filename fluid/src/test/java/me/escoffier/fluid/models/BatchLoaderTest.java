@@ -0,0 +1,115 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.SingleSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static me.escoffier.fluid.models.Pair.pair;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the {@link BatchLoader} and {@link Source#enrich(java.util.function.Function, BatchLoader)}.
+ */
+public class BatchLoaderTest {
+
+  private final TestScheduler scheduler = new TestScheduler();
+
+  private final List<List<Integer>> calls = new CopyOnWriteArrayList<>();
+
+  /**
+   * Associates the even keys with their square, odd keys have no value.
+   */
+  private Single<Map<Integer, Integer>> squares(List<Integer> keys) {
+    calls.add(new ArrayList<>(keys));
+    Map<Integer, Integer> values = new HashMap<>();
+    for (Integer key : keys) {
+      if (key % 2 == 0) {
+        values.put(key, key * key);
+      }
+    }
+    return Single.just(values);
+  }
+
+  @Test
+  public void testEnrich() {
+    BatchLoader<Integer, Integer> loader = BatchLoader.create(this::squares, 3, Duration.ofMillis(10), scheduler);
+    TestSubscriber<Message<Pair<Integer, Optional<Integer>>>> subscriber = Source.from(2, 4, 2, 3, 6, 4)
+      .enrich(Message::payload, loader)
+      .asFlowable().test();
+
+    // 2 is requested twice, but sent once.
+    assertThat(calls).hasSize(1);
+    assertThat(calls.get(0)).containsExactly(2, 4, 3);
+    scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+    assertThat(calls).hasSize(2);
+    assertThat(calls.get(1)).containsExactly(6, 4);
+
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(
+      pair(2, Optional.of(4)), pair(4, Optional.of(16)), pair(2, Optional.of(4)), pair(3, Optional.empty()),
+      pair(6, Optional.of(36)), pair(4, Optional.of(16)));
+    subscriber.assertComplete();
+
+    assertThat(loader.loads()).isEqualTo(6);
+    assertThat(loader.hits()).isEqualTo(1);
+    assertThat(loader.misses()).isEqualTo(5);
+    assertThat(loader.batches()).isEqualTo(2);
+    assertThat(loader.averageBatchSize()).isEqualTo(2.5);
+  }
+
+  @Test
+  public void testCoalescingWhileInFlight() {
+    SingleSubject<Map<String, String>> response = SingleSubject.create();
+    List<List<String>> requests = new CopyOnWriteArrayList<>();
+    BatchLoader<String, String> loader = BatchLoader.create(keys -> {
+      requests.add(keys);
+      return response;
+    }, 1, Duration.ZERO, scheduler);
+
+    TestSubscriber<Message<Pair<String, Optional<String>>>> subscriber = Source.from("a", "a", "a")
+      .enrich(Message::payload, loader)
+      .asFlowable().test();
+    assertThat(requests).hasSize(1);
+    subscriber.assertNoValues();
+
+    Map<String, String> values = new HashMap<>();
+    values.put("a", "A");
+    response.onSuccess(values);
+    assertThat(subscriber.values()).extracting(m -> m.payload().right().get()).containsExactly("A", "A", "A");
+    assertThat(loader.hits()).isEqualTo(2);
+
+    // Values are not retained once delivered.
+    loader.load("a").test();
+    assertThat(requests).hasSize(2);
+  }
+
+  @Test
+  public void testFailure() {
+    BatchLoader<Integer, Integer> loader = BatchLoader.create(keys -> Single.error(new IllegalStateException("boom")),
+      2, Duration.ZERO, scheduler);
+    Source.from(1, 2)
+      .enrich(Message::payload, loader)
+      .asFlowable().test()
+      .assertError(IllegalStateException.class);
+  }
+
+  @Test
+  public void testInvalidParameters() {
+    assertThatThrownBy(() -> BatchLoader.create(this::squares, 0, Duration.ZERO))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> BatchLoader.create(this::squares, 1, Duration.ofMillis(-1)))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
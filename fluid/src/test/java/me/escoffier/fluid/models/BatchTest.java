@@ -0,0 +1,167 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+import me.escoffier.fluid.impl.ListSink;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the {@link Source#batch(int, Duration)} operator.
+ */
+public class BatchTest {
+
+  @Test
+  public void testBatchesAndHeaders() {
+    ListSink<List<Integer>> sink = Sink.list();
+    Source.from(new Message<>(1).with("k", "a"), new Message<>(2).with("k", "b"), new Message<>(3).with("k", "c"),
+      new Message<>(4).with("k", "d"), new Message<>(5).with("k", "e"))
+      .batch(2, Duration.ofSeconds(10))
+      .to(sink);
+
+    assertThat(sink.values()).containsExactly(Arrays.asList(1, 2), Arrays.asList(3, 4),
+      Arrays.asList(5));
+    assertThat(sink.data()).extracting(m -> m.get("k")).containsExactly("a", "c", "e");
+    assertThat(sink.data()).extracting(CommonHeaders::batchSize).containsExactly(2, 2, 1);
+  }
+
+  @Test
+  public void testMaxLatency() {
+    TestScheduler scheduler = new TestScheduler();
+    TestSubscriber<Message<List<Long>>> subscriber = Source.fromPayloads(Flowable.interval(10, TimeUnit.MILLISECONDS,
+      scheduler))
+      .batch(100, Duration.ofMillis(15), scheduler)
+      .asFlowable()
+      .test();
+
+    scheduler.advanceTimeBy(20, TimeUnit.MILLISECONDS);
+    subscriber.assertNoValues();
+    // The first message was received at 10 ms.
+    scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+    subscriber.assertValueCount(1);
+    assertThat(subscriber.values().get(0).payload()).containsExactly(0L, 1L);
+    // The second batch starts at 30 ms and is emitted at 45 ms.
+    scheduler.advanceTimeBy(20, TimeUnit.MILLISECONDS);
+    subscriber.assertValueCount(2);
+    assertThat(subscriber.values().get(1).payload()).containsExactly(2L, 3L);
+    subscriber.dispose();
+  }
+
+  @Test
+  public void testBackpressure() {
+    AtomicInteger emitted = new AtomicInteger();
+    TestSubscriber<Message<List<Integer>>> subscriber = Source.fromPayloads(Flowable.range(0, 100)
+      .doOnNext(i -> emitted.incrementAndGet()))
+      .batch(10, Duration.ofSeconds(10))
+      .asFlowable()
+      .test(0);
+
+    subscriber.assertNoValues();
+    assertThat(emitted.get()).isEqualTo(0);
+
+    subscriber.request(2);
+    subscriber.assertValueCount(2);
+    assertThat(emitted.get()).isEqualTo(20);
+
+    subscriber.request(Long.MAX_VALUE);
+    subscriber.assertValueCount(10).assertComplete();
+  }
+
+  @Test
+  public void testLingeredBatchesDoNotAccumulateUpstreamDemand() {
+    TestScheduler scheduler = new TestScheduler();
+    PublishProcessor<Integer> processor = PublishProcessor.create();
+    AtomicLong upstreamRequests = new AtomicLong();
+    TestSubscriber<Message<List<Integer>>> subscriber = Source.fromPayloads(processor
+      .doOnRequest(upstreamRequests::addAndGet))
+      .batch(10, Duration.ofMillis(50), scheduler)
+      .asFlowable()
+      .test(0);
+
+    for (int i = 0; i < 5; i++) {
+      subscriber.request(1);
+      processor.onNext(i);
+      scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+      subscriber.assertValueCount(i + 1);
+    }
+    // Each lingered batch carried a single item, the 9 remaining items of the first request are still expected.
+    assertThat(upstreamRequests.get()).isEqualTo(14);
+
+    subscriber.request(1);
+    assertThat(upstreamRequests.get()).isEqualTo(15);
+    subscriber.dispose();
+  }
+
+  @Test
+  public void testReusingBuffer() {
+    List<Integer> sums = new ArrayList<>();
+    List<List<Integer>> retained = new ArrayList<>();
+    List<Integer> sizes = new ArrayList<>();
+    Source.fromPayloads(Flowable.range(1, 10))
+      .batchReusingBuffer(4, Duration.ofSeconds(10), list -> {
+        retained.add(list);
+        return list.stream().mapToInt(i -> i).sum();
+      })
+      .to(Sink.forEach(message -> {
+        sums.add(message.payload());
+        sizes.add(CommonHeaders.batchSize(message));
+      }));
+
+    assertThat(sums).containsExactly(10, 26, 19);
+    assertThat(sizes).containsExactly(4, 4, 2);
+    // The buffers have been cleared and reused once processed.
+    assertThat(retained).allMatch(List::isEmpty);
+  }
+
+  @Test
+  public void testReusingBufferWithAsynchronousConsumer() {
+    List<Integer> sums = Source.fromPayloads(Flowable.range(1, 1000))
+      .batchReusingBuffer(10, Duration.ofSeconds(10), list -> list.stream().mapToInt(i -> i).sum())
+      .emitOn(Schedulers.computation())
+      .mapPayload(sum -> {
+        // Slow consumer, the next batches are filled in the meantime.
+        sleep();
+        return sum;
+      })
+      .asFlowable()
+      .map(Message::payload)
+      .toList()
+      .blockingGet();
+
+    assertThat(sums).hasSize(100);
+    for (int i = 0; i < 100; i++) {
+      // Sum of 10 * i + 1 .. 10 * i + 10.
+      assertThat(sums.get(i)).isEqualTo(100 * i + 55);
+    }
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void testInvalidParameters() {
+    assertThatThrownBy(() -> Source.from(1).batch(0, Duration.ofSeconds(1)))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> Source.from(1).batch(1, Duration.ZERO))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
@@ -0,0 +1,169 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.CompletableSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import me.escoffier.fluid.impl.ListSink;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the {@link Source#broadcast(int, BroadcastOptions)} operator.
+ */
+public class BroadcastTest {
+
+  @Test
+  public void testBlockLetsFastBranchRunAheadUpToTheBufferSize() {
+    Broadcast<Integer> broadcast = Source.fromPayloads(Flowable.range(0, 100))
+      .broadcast(2, BroadcastOptions.<Integer>create().withBufferSize(4));
+
+    TestSubscriber<Message<Integer>> slow = broadcast.branch(0).asFlowable().test(0);
+    TestSubscriber<Message<Integer>> fast = broadcast.branch(1).asFlowable().test();
+
+    assertThat(fast.values()).extracting(Message::payload).containsExactly(0, 1, 2, 3);
+    assertThat(broadcast.lag(0)).isEqualTo(4);
+    assertThat(broadcast.lag(1)).isEqualTo(0);
+
+    slow.request(1);
+    assertThat(fast.values()).hasSize(5);
+    assertThat(broadcast.lag(0)).isEqualTo(4);
+
+    slow.request(Long.MAX_VALUE);
+    slow.assertValueCount(100).assertComplete();
+    fast.assertValueCount(100).assertComplete();
+    assertThat(broadcast.dropped(0)).isEqualTo(0);
+  }
+
+  @Test
+  public void testDropNewest() {
+    Broadcast<Integer> broadcast = Source.fromPayloads(Flowable.range(0, 100))
+      .broadcast(2, BroadcastOptions.<Integer>create().withBufferSize(4)
+        .withOverflow(BroadcastOptions.Overflow.DROP_NEWEST));
+
+    TestSubscriber<Message<Integer>> slow = broadcast.branch(0).asFlowable().test(0);
+    TestSubscriber<Message<Integer>> fast = broadcast.branch(1).asFlowable().test();
+
+    fast.assertValueCount(100).assertComplete();
+    assertThat(broadcast.dropped(0)).isEqualTo(96);
+    assertThat(broadcast.dropped(1)).isEqualTo(0);
+
+    slow.request(Long.MAX_VALUE);
+    assertThat(slow.values()).extracting(Message::payload).containsExactly(0, 1, 2, 3);
+    slow.assertComplete();
+  }
+
+  @Test
+  public void testDropOldest() {
+    Broadcast<Integer> broadcast = Source.fromPayloads(Flowable.range(0, 100))
+      .broadcast(2, BroadcastOptions.<Integer>create().withBufferSize(4)
+        .withOverflow(BroadcastOptions.Overflow.DROP_OLDEST));
+
+    TestSubscriber<Message<Integer>> slow = broadcast.branch(0).asFlowable().test(0);
+    TestSubscriber<Message<Integer>> fast = broadcast.branch(1).asFlowable().test();
+
+    fast.assertValueCount(100).assertComplete();
+    assertThat(broadcast.dropped(0)).isEqualTo(96);
+    assertThat(broadcast.lag(0)).isEqualTo(4);
+
+    slow.request(Long.MAX_VALUE);
+    assertThat(slow.values()).extracting(Message::payload).containsExactly(96, 97, 98, 99);
+    slow.assertComplete();
+  }
+
+  @Test
+  public void testSpill() {
+    ListSink<Integer> spill = Sink.list();
+    Broadcast<Integer> broadcast = Source.fromPayloads(Flowable.range(0, 10))
+      .broadcast(3, BroadcastOptions.<Integer>create().withBufferSize(2).withSpill(spill));
+
+    assertThat(broadcast.size()).isEqualTo(3);
+    TestSubscriber<Message<Integer>> slow = broadcast.branch(0).asFlowable().test(0);
+    ListSink<Integer> first = Sink.list();
+    ListSink<Integer> second = Sink.list();
+    broadcast.branch(1).to(first);
+    broadcast.branch(2).to(second);
+
+    assertThat(first.values()).hasSize(10);
+    assertThat(second.values()).hasSize(10);
+    assertThat(spill.values()).containsExactly(2, 3, 4, 5, 6, 7, 8, 9);
+    assertThat(broadcast.spilled(0)).isEqualTo(8);
+    assertThat(broadcast.spilled(1)).isEqualTo(0);
+
+    slow.request(Long.MAX_VALUE);
+    assertThat(slow.values()).extracting(Message::payload).containsExactly(0, 1);
+  }
+
+  @Test
+  public void testBlockNeverExceedsTheBufferSizeWithConcurrentRequests() {
+    int size = 4;
+    Broadcast<Integer> broadcast = Source.fromPayloads(Flowable.range(0, 20000)
+      .subscribeOn(Schedulers.newThread(), false))
+      .broadcast(2, BroadcastOptions.<Integer>create().withBufferSize(size));
+    TestSubscriber<Message<Integer>> first = broadcast.branch(0).asFlowable().test(0);
+    TestSubscriber<Message<Integer>> second = broadcast.branch(1).asFlowable().test(0);
+
+    AtomicLong max = new AtomicLong();
+    // The downstream requests run on this thread while the upstream emits on its own thread.
+    while (!first.isTerminated() || !second.isTerminated()) {
+      first.request(1);
+      second.request(1);
+      max.accumulateAndGet(Math.max(broadcast.lag(0), broadcast.lag(1)), Math::max);
+    }
+    first.assertValueCount(20000).assertComplete();
+    second.assertValueCount(20000);
+    second.assertComplete();
+    assertThat(max.get()).isLessThanOrEqualTo(size);
+  }
+
+  @Test
+  public void testPendingSpillsAreBounded() {
+    List<CompletableSubject> pending = new ArrayList<>();
+    Sink<Integer> spill = message -> {
+      CompletableSubject subject = CompletableSubject.create();
+      pending.add(subject);
+      return subject;
+    };
+    Broadcast<Integer> broadcast = Source.fromPayloads(Flowable.range(0, 10))
+      .broadcast(2, BroadcastOptions.<Integer>create().withBufferSize(2).withSpill(spill, 3));
+
+    TestSubscriber<Message<Integer>> slow = broadcast.branch(0).asFlowable().test(0);
+    ListSink<Integer> fast = Sink.list();
+    broadcast.branch(1).to(fast);
+
+    assertThat(fast.values()).hasSize(10);
+    // 2, 3 and 4 are being spilled, 5 to 9 are dropped.
+    assertThat(pending).hasSize(3);
+    assertThat(broadcast.dropped(0)).isEqualTo(5);
+    assertThat(broadcast.spilled(0)).isEqualTo(0);
+
+    pending.get(0).onComplete();
+    pending.get(1).onError(new Exception("boom"));
+    assertThat(broadcast.spilled(0)).isEqualTo(1);
+    assertThat(broadcast.spillFailures(0)).isEqualTo(1);
+    assertThat(broadcast.spillFailures(1)).isEqualTo(0);
+
+    slow.request(Long.MAX_VALUE);
+    assertThat(slow.values()).extracting(Message::payload).containsExactly(0, 1);
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(() -> BroadcastOptions.create().withBufferSize(0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> BroadcastOptions.create().withOverflow(BroadcastOptions.Overflow.SPILL))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> BroadcastOptions.<Integer>create().withSpill(message -> Completable.complete(), 0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> Source.from(1, 2).broadcast(1, BroadcastOptions.create()))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
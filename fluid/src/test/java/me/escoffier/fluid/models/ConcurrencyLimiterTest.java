@@ -0,0 +1,153 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.CompletableSubject;
+import me.escoffier.fluid.impl.ListSink;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the {@link ConcurrencyLimiter} and the sinks created with {@link Sink#withConcurrencyLimit(ConcurrencyLimiter)}.
+ */
+public class ConcurrencyLimiterTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testVegas() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(10, 2, 12);
+    for (int i = 0; i < 10; i++) {
+      assertThat(limiter.tryAcquire()).isTrue();
+    }
+    assertThat(limiter.tryAcquire()).isFalse();
+
+    // No queueing, the limit is the bottleneck: increase.
+    limiter.release(MS, true);
+    assertThat(limiter.limit()).isEqualTo(11);
+    assertThat(limiter.minLatency()).isEqualTo(java.time.Duration.ofMillis(1));
+    limiter.acquire();
+    limiter.release(MS, true);
+    assertThat(limiter.limit()).isEqualTo(12);
+    limiter.acquire();
+    limiter.release(MS, true);
+    // Bounded by the maximum.
+    assertThat(limiter.limit()).isEqualTo(12);
+
+    // The latency is 10 times the minimum: the sink is saturated.
+    limiter.acquire();
+    limiter.release(10 * MS, true);
+    assertThat(limiter.limit()).isEqualTo(11);
+
+    // Failures halve the limit.
+    limiter.acquire();
+    limiter.release(MS, false);
+    assertThat(limiter.limit()).isEqualTo(5);
+    limiter.acquire();
+    limiter.release(MS, false);
+    limiter.acquire();
+    limiter.release(MS, false);
+    assertThat(limiter.limit()).isEqualTo(2);
+  }
+
+  @Test
+  public void testNoIncreaseWhenTheLimitIsNotReached() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(10, 1, 100);
+    for (int i = 0; i < 5; i++) {
+      limiter.acquire();
+      limiter.release(MS, true);
+    }
+    assertThat(limiter.limit()).isEqualTo(10);
+    assertThat(limiter.inFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBackpressure() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(3, 1, 10);
+    AtomicInteger emitted = new AtomicInteger();
+    List<CompletableSubject> pending = new CopyOnWriteArrayList<>();
+    Sink<Integer> sink = message -> {
+      CompletableSubject subject = CompletableSubject.create();
+      pending.add(subject);
+      return subject;
+    };
+
+    Source.fromPayloads(Flowable.range(0, 100).doOnNext(i -> emitted.incrementAndGet()))
+      .to(sink.withConcurrencyLimit(limiter));
+
+    assertThat(emitted.get()).isEqualTo(3);
+    assertThat(pending).hasSize(3);
+    assertThat(limiter.inFlight()).isEqualTo(3);
+
+    for (int i = 0; i < 10; i++) {
+      pending.get(i).onComplete();
+      assertThat(limiter.inFlight()).isLessThanOrEqualTo(limiter.limit());
+      assertThat(emitted.get()).isEqualTo(i + 1 + limiter.inFlight());
+    }
+  }
+
+  @Test
+  public void testDisposedDispatchReleasesThePermit() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(1, 1, 10);
+    Sink<Integer> sink = message -> Completable.never();
+    Sink<Integer> limited = sink.withConcurrencyLimit(limiter);
+
+    Disposable disposable = limited.dispatch(1).subscribe();
+    assertThat(limiter.inFlight()).isEqualTo(1);
+    disposable.dispose();
+    assertThat(limiter.inFlight()).isEqualTo(0);
+    assertThat(limiter.tryAcquire()).isTrue();
+  }
+
+  @Test
+  public void testFastSink() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(1, 1, 1000);
+    ListSink<Integer> list = Sink.list();
+    Source.fromPayloads(Flowable.range(0, 1000)).to(list.withConcurrencyLimit(limiter));
+
+    assertThat(list.values()).hasSize(1000);
+    assertThat(limiter.inFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPermitsAreReleasedOnFailure() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(5, 1, 10);
+    AtomicInteger dispatched = new AtomicInteger();
+    Sink<Integer> sink = message -> {
+      dispatched.incrementAndGet();
+      return message.payload() == 3 ? Completable.error(new Exception("boom")) : Completable.complete();
+    };
+
+    Source.fromPayloads(Flowable.range(0, 100)).to(sink.withConcurrencyLimit(limiter));
+    assertThat(dispatched.get()).isEqualTo(4);
+    assertThat(limiter.inFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDirectDispatch() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(1, 1, 10);
+    CompletableSubject subject = CompletableSubject.create();
+    LimitedSink<Integer> sink = Sink.<Integer>forEachAsync(m -> subject).withConcurrencyLimit(limiter);
+
+    sink.dispatch(1).subscribe();
+    sink.dispatch(2).subscribe();
+    assertThat(limiter.inFlight()).isEqualTo(2);
+    subject.onComplete();
+    assertThat(limiter.inFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testInvalidParameters() {
+    assertThatThrownBy(() -> ConcurrencyLimiter.create(1, 0, 10)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ConcurrencyLimiter.create(20, 1, 10)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
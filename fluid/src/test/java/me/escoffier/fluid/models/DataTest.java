@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
@@ -68,4 +69,31 @@ public class DataTest {
       .isEqualTo("{\"payload\":\"hello\", \"headers\":{\"key\":\"value\",\"foo\":\"25\"}}");
   }
 
+  @Test
+  public void testLazyHeaders() {
+    AtomicInteger decoded = new AtomicInteger();
+    Message<String> message = Message.lazy("hello", () -> {
+      decoded.incrementAndGet();
+      Map<String, Object> headers = new HashMap<>();
+      headers.put("foo", "bar");
+      headers.put(CommonHeaders.KEY, "ignored");
+      return headers;
+    }).with(HeaderKey.KEY, "key");
+
+    Message<Integer> mapped = message.with(5).with(HeaderKey.ADDRESS, "address");
+    assertThat(mapped.get(HeaderKey.KEY)).isEqualTo("key");
+    assertThat(decoded).hasValue(0);
+
+    assertThat(mapped.headers())
+      .containsOnly(entry("foo", "bar"), entry(CommonHeaders.KEY, "key"), entry(CommonHeaders.ADDRESS, "address"));
+    assertThat(decoded).hasValue(1);
+    String foo = mapped.get("foo");
+    assertThat(foo).isEqualTo("bar");
+    assertThat(decoded).hasValue(1);
+
+    // Not decoded yet for the original message
+    assertThat(message.without("foo").headers()).containsOnly(entry(CommonHeaders.KEY, "key"));
+    assertThat(decoded).hasValue(2);
+  }
+
 }
@@ -6,6 +6,9 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import io.vertx.reactivex.core.Context;
+import io.vertx.reactivex.core.Vertx;
 import me.escoffier.fluid.impl.ListSink;
 import org.junit.Test;
 import org.reactivestreams.Publisher;
@@ -386,5 +389,36 @@ public class DefaultSourceTest {
     return new Message<>(Math.random()).with("X-Timestamp", System.currentTimeMillis()).with("Random", true);
   }
 
+  @Test
+  public void testDispatchOn() {
+    List<Message<String>> list = Source.from(new Message<>(1).with("k", "v"), new Message<>(2).with("k", "v"))
+      .dispatchOn(Schedulers.computation(), 1)
+      .mapPayload(i -> Thread.currentThread().getName())
+      .asFlowable()
+      .toList()
+      .blockingGet();
+    assertThat(list).extracting(Message::payload).allMatch(name -> name.startsWith("RxComputation"));
+    assertThat(list).extracting(m -> m.get("k")).containsExactly("v", "v");
+
+    Vertx vertx = Vertx.vertx();
+    try {
+      Context context = vertx.getOrCreateContext();
+      List<Boolean> onContext = Source.from(1, 2)
+        .emitOn(context)
+        .mapPayload(i -> Vertx.currentContext() != null && Vertx.currentContext().getDelegate() == context.getDelegate())
+        .asFlowable()
+        .map(Message::payload)
+        .toList()
+        .blockingGet();
+      assertThat(onContext).containsExactly(true, true);
+    } finally {
+      vertx.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDispatchOnUnknownPool() {
+    Source.from(1, 2).dispatchOn("missing");
+  }
 
 }
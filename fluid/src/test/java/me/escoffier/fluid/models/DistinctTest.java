@@ -0,0 +1,127 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks {@link Source#distinct(java.util.function.Function, DistinctSpec)}.
+ */
+public class DistinctTest {
+
+  private final TestScheduler scheduler = new TestScheduler();
+
+  private static Message<String> keyed(String key, String payload) {
+    return new Message<>(payload).with(HeaderKey.KEY, key);
+  }
+
+  private static List<Integer> distinct(DistinctSpec spec, Integer... payloads) {
+    return Source.from(payloads)
+      .distinct(Message::payload, spec)
+      .asFlowable().map(Message::payload).toList().blockingGet();
+  }
+
+  @Test
+  public void testDefaultsToTheKeyHeader() {
+    List<String> payloads = Source.from(keyed("1", "a"), keyed("2", "b"), keyed("1", "a'"), new Message<>("c"),
+      new Message<>("c"), keyed("2", "b'"))
+      .distinct(DistinctSpec.exact(10))
+      .asFlowable().map(Message::payload).toList().blockingGet();
+
+    // Messages without key are never removed.
+    assertThat(payloads).containsExactly("a", "b", "c", "c");
+  }
+
+  @Test
+  public void testExactCountBounded() {
+    assertThat(distinct(DistinctSpec.exact(2), 1, 2, 1, 3, 2, 1, 1))
+      // 1 is forgotten once 2 and 3 are remembered.
+      .containsExactly(1, 2, 3, 1);
+  }
+
+  @Test
+  public void testExactTimeBounded() {
+    PublishProcessor<Integer> processor = PublishProcessor.create();
+    TestSubscriber<Message<Integer>> subscriber = Source.fromPayloads(processor)
+      .distinct(Message::payload, DistinctSpec.exact(Duration.ofSeconds(1)).using(scheduler))
+      .asFlowable().test();
+
+    processor.onNext(1);
+    scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+    processor.onNext(2);
+    processor.onNext(1);
+    scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+    // 1 is forgotten, not 2.
+    processor.onNext(1);
+    processor.onNext(2);
+
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(1, 2, 1);
+  }
+
+  @Test
+  public void testWindowed() {
+    PublishProcessor<Integer> processor = PublishProcessor.create();
+    TestSubscriber<Message<Integer>> subscriber = Source.fromPayloads(processor)
+      .distinct(Message::payload, DistinctSpec.windowed(Duration.ofSeconds(1)).using(scheduler))
+      .asFlowable().test();
+
+    processor.onNext(1);
+    processor.onNext(1);
+    scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+    processor.onNext(1);
+    processor.onNext(2);
+    scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+    // New window, all the keys are forgotten.
+    processor.onNext(2);
+    processor.onNext(1);
+    processor.onNext(2);
+
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(1, 2, 2, 1);
+  }
+
+  @Test
+  public void testApproximate() {
+    List<Integer> payloads = Source.fromPayloads(Flowable.range(0, 10_000).concatWith(Flowable.range(9_000, 1_000)))
+      .distinct(Message::payload, DistinctSpec.approximate(1_000, 0.01))
+      .asFlowable().map(Message::payload).toList().blockingGet();
+
+    // The last 1000 keys are always remembered, so their duplicates are removed.
+    assertThat(payloads).allMatch(i -> i < 10_000).doesNotHaveDuplicates();
+    // A few distinct messages may be mistaken for duplicates.
+    assertThat(payloads.size()).isBetween(9_800, 10_000);
+  }
+
+  @Test
+  public void testApproximateDistinguishesKeysWithTheSameHashCode() {
+    assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+    List<String> payloads = Source.from("Aa", "BB", "Aa", "BB")
+      .distinct(Message::payload, DistinctSpec.approximate(100, 0.01))
+      .asFlowable().map(Message::payload).toList().blockingGet();
+    assertThat(payloads).containsExactly("Aa", "BB");
+  }
+
+  @Test
+  public void testEachSubscriptionHasItsOwnKeys() {
+    Source<Integer> source = Source.from(1, 1, 2).distinct(Message::payload, DistinctSpec.exact(10));
+    assertThat(source.asFlowable().count().blockingGet()).isEqualTo(2);
+    assertThat(source.asFlowable().count().blockingGet()).isEqualTo(2);
+  }
+
+  @Test
+  public void testInvalidSpecs() {
+    assertThatThrownBy(() -> DistinctSpec.exact(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> DistinctSpec.exact(Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> DistinctSpec.approximate(10, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> DistinctSpec.windowed(null)).isInstanceOf(NullPointerException.class);
+  }
+
+}
@@ -0,0 +1,85 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import me.escoffier.fluid.impl.ListSink;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the fusion of consecutive map and filter stages.
+ */
+public class FusionTest {
+
+  @Test
+  public void testPlan() {
+    Source<Integer> source = Source.from(1, 2, 3);
+    assertThat(source.plan()).isEqualTo("source");
+    assertThat(source.named("numbers").mapPayload(i -> i + 1).filter(m -> m.payload() > 2).filterNotPayload(i -> i == 3)
+      .plan()).isEqualTo("numbers -> fused[mapPayload -> filter -> filterNotPayload]");
+    assertThat(source.map(m -> m.with("x")).withAttribute("a", "b").filterPayload(s -> true).plan())
+      .isEqualTo("source -> fused[map -> filterPayload]");
+  }
+
+  @Test
+  public void testFusedStages() {
+    ListSink<String> sink = Sink.list();
+    Source.from(new Message<>(1).with("k", "a"), new Message<>(2).with("k", "b"), new Message<>(3).with("k", "c"),
+      new Message<>(4).with("k", "d"))
+      .mapPayload(i -> i * 10)
+      .filterPayload(i -> i != 20)
+      .map(m -> m.with("seen", true))
+      .filterNot(m -> m.get("k").equals("c"))
+      .mapPayload(i -> "v" + i)
+      .to(sink);
+
+    assertThat(sink.values()).containsExactly("v10", "v40");
+    assertThat(sink.data()).extracting(m -> m.get("k")).containsExactly("a", "d");
+    assertThat(sink.data()).extracting(m -> m.get("seen")).containsExactly(true, true);
+  }
+
+  @Test
+  public void testBackpressureWithFilter() {
+    AtomicInteger emitted = new AtomicInteger();
+    TestSubscriber<Message<Integer>> subscriber = Source.fromPayloads(Flowable.range(0, 100)
+      .doOnNext(i -> emitted.incrementAndGet()))
+      .filterPayload(i -> i % 2 == 0)
+      .mapPayload(i -> i + 1)
+      .asFlowable()
+      .test(0);
+
+    subscriber.assertNoValues();
+    subscriber.request(3);
+    subscriber.assertValueCount(3);
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(1, 3, 5);
+    assertThat(emitted.get()).isEqualTo(5);
+
+    subscriber.request(Long.MAX_VALUE);
+    subscriber.assertValueCount(50).assertComplete();
+  }
+
+  @Test
+  public void testFailingMapper() {
+    Source.from(1, 2, 3)
+      .mapPayload(i -> {
+        if (i == 2) {
+          throw new IllegalArgumentException("boom");
+        }
+        return i;
+      })
+      .asFlowable()
+      .test()
+      .assertValueCount(1)
+      .assertError(IllegalArgumentException.class);
+
+    Source.from(1, 2, 3)
+      .<Integer>mapPayload(i -> null)
+      .asFlowable()
+      .test()
+      .assertError(NullPointerException.class);
+  }
+
+}
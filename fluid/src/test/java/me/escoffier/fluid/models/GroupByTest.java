@@ -0,0 +1,83 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of {@link Source#groupBy(java.util.function.Function, GroupByOptions)}.
+ */
+public class GroupByTest {
+
+  @Test
+  public void testGroupElementsAreNotRewritten() {
+    Message<String> message = new Message<>("apple");
+    List<GroupedDataStream<Character, String>> groups = Flowable.fromPublisher(Source.from(message)
+      .groupBy(m -> m.payload().charAt(0)))
+      .toList().blockingGet();
+
+    assertThat(groups).hasSize(1);
+    assertThat(groups.get(0).key()).isEqualTo('a');
+    assertThat(Flowable.fromPublisher(groups.get(0)).blockingFirst()).isSameAs(message);
+  }
+
+  @Test
+  public void testKeyHeader() {
+    List<Object> keys = Flowable.fromPublisher(Source.from("apple", "banana").groupBy(m -> m.payload().charAt(0)))
+      .flatMap(GroupedDataStream::withKeyHeader)
+      .map(m -> m.get(HeaderKey.GROUP_KEY))
+      .toList().blockingGet();
+    assertThat(keys).containsExactly('a', 'b');
+  }
+
+  @Test
+  public void testMaxGroups() {
+    List<String> evicted = new ArrayList<>();
+    List<String> opened = new ArrayList<>();
+    List<String> completed = new ArrayList<>();
+    Flowable.fromPublisher(Source.from("a1", "b1", "a2", "c1", "b2", "a3")
+      .groupBy(m -> m.payload().substring(0, 1),
+        GroupByOptions.<String>create().withMaxGroups(2).withEvictionCallback(evicted::add)))
+      .doOnNext(group -> opened.add(group.key()))
+      .flatMap(group -> Flowable.fromPublisher(group).doOnComplete(() -> completed.add(group.key())))
+      .blockingSubscribe();
+
+    // c1 evicts b (least recently used), b2 evicts a, a3 evicts c.
+    assertThat(evicted).containsExactly("b", "a", "c");
+    assertThat(opened).containsExactly("a", "b", "c", "b", "a");
+    assertThat(completed).startsWith("b", "a", "c").hasSize(5);
+  }
+
+  @Test
+  public void testIdleTimeout() {
+    TestScheduler scheduler = new TestScheduler();
+    PublishProcessor<String> processor = PublishProcessor.create();
+    List<String> evicted = new ArrayList<>();
+    List<String> opened = new ArrayList<>();
+    Flowable.fromPublisher(Source.fromPayloads(processor)
+      .groupBy(Message::payload, GroupByOptions.<String>create()
+        .withIdleTimeout(Duration.ofSeconds(10))
+        .withEvictionCallback(evicted::add)
+        .using(scheduler)))
+      .doOnNext(group -> opened.add(group.key()))
+      .flatMap(group -> group)
+      .subscribe();
+
+    processor.onNext("a");
+    scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+    processor.onNext("b");
+    scheduler.advanceTimeBy(6, TimeUnit.SECONDS);
+    processor.onNext("b");
+    assertThat(evicted).containsExactly("a");
+    processor.onNext("a");
+    assertThat(opened).containsExactly("a", "b", "a");
+  }
+}
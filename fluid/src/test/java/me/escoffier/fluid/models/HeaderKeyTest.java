@@ -0,0 +1,65 @@
+package me.escoffier.fluid.models;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Checks the behavior of {@link HeaderKey} and its integration in {@link Message}.
+ */
+public class HeaderKeyTest {
+
+  @Test
+  public void testWellKnownKeys() {
+    assertThat(HeaderKey.KEY.isWellKnown()).isTrue();
+    assertThat(HeaderKey.of(CommonHeaders.KEY, String.class)).isSameAs(HeaderKey.KEY);
+    assertThat(HeaderKey.of("foo", String.class).isWellKnown()).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWellKnownKeyWithInvalidType() {
+    HeaderKey.of(CommonHeaders.KEY, Integer.class);
+  }
+
+  @Test
+  public void testTypedAndStringAccessAreEquivalent() {
+    Message<String> message = new Message<>("hello")
+      .with(HeaderKey.KEY, "k")
+      .with(CommonHeaders.ADDRESS, "address")
+      .with(HeaderKey.of("count", Integer.class), 2);
+
+    assertThat(message.get(HeaderKey.KEY)).isEqualTo("k");
+    assertThat((String) message.get(CommonHeaders.KEY)).isEqualTo("k");
+    assertThat(message.get(HeaderKey.ADDRESS)).isEqualTo("address");
+    assertThat(message.get(HeaderKey.of("count", Integer.class))).isEqualTo(2);
+    assertThat((int) message.get("count")).isEqualTo(2);
+    assertThat(message.headers())
+      .containsOnly(entry(CommonHeaders.KEY, "k"), entry(CommonHeaders.ADDRESS, "address"), entry("count", 2));
+
+    Message<String> without = message.without(HeaderKey.KEY).without(CommonHeaders.ADDRESS);
+    assertThat(without.get(HeaderKey.KEY)).isNull();
+    assertThat(without.getOpt(HeaderKey.ADDRESS)).isEmpty();
+    assertThat(without.headers()).containsOnly(entry("count", 2));
+    // The original message is unchanged
+    assertThat(message.get(HeaderKey.KEY)).isEqualTo("k");
+  }
+
+  @Test
+  public void testWellKnownHeadersFromMap() {
+    Map<String, Object> headers = new HashMap<>();
+    headers.put(CommonHeaders.KEY, "k");
+    headers.put(CommonHeaders.ORIGINAL, null);
+    headers.put("foo", "bar");
+    Message<String> message = new Message<>("hello", headers);
+
+    assertThat(message.get(HeaderKey.KEY)).isEqualTo("k");
+    assertThat(message.get(HeaderKey.ORIGINAL)).isNull();
+    assertThat(message.headers()).isEqualTo(headers);
+    assertThat(message.with(1).headers()).isEqualTo(headers);
+  }
+
+}
@@ -0,0 +1,147 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static me.escoffier.fluid.models.Pair.pair;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the windowed joins: {@link Source#join(org.reactivestreams.Publisher, Function, Function, Duration)},
+ * {@code leftJoin} and {@code outerJoin}.
+ */
+public class JoinTest {
+
+  private final TestScheduler scheduler = new TestScheduler();
+  private final PublishProcessor<Message<String>> orders = PublishProcessor.create();
+  private final PublishProcessor<Message<Integer>> payments = PublishProcessor.create();
+
+  /**
+   * Orders are "id:item" strings.
+   */
+  private final Function<Message<String>, String> orderId = m -> m.payload().split(":")[0];
+
+  /**
+   * Payments are matched to orders using the "order" header.
+   */
+  private final Function<Message<Integer>, String> paymentOrder = m -> m.get("order");
+
+  private static Message<Integer> payment(String order, int amount) {
+    return new Message<>(amount).with("order", order);
+  }
+
+  @Test
+  public void testInnerJoin() {
+    TestSubscriber<Message<Pair<String, Integer>>> subscriber = Source.from(orders)
+      .join(payments, orderId, paymentOrder, Duration.ofSeconds(1), scheduler)
+      .asFlowable().test();
+
+    orders.onNext(new Message<>("1:book").with("origin", "web"));
+    orders.onNext(new Message<>("2:pen"));
+    payments.onNext(payment("2", 5));
+    payments.onNext(payment("3", 7));
+    scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+    // Received exactly 1 s later: still in the window.
+    payments.onNext(payment("1", 20));
+    // The order 3 arrives too late.
+    scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+    orders.onNext(new Message<>("3:cup"));
+    // Each payment of the order 1 is associated with it.
+    payments.onNext(payment("1", 30));
+
+    assertThat(subscriber.values()).extracting(Message::payload)
+      .containsExactly(pair("2:pen", 5), pair("1:book", 20));
+    assertThat((String) subscriber.values().get(1).get("origin")).isEqualTo("web");
+
+    orders.onComplete();
+    payments.onComplete();
+    subscriber.assertValueCount(2).assertComplete();
+  }
+
+  @Test
+  public void testLeftJoin() {
+    TestSubscriber<Message<Pair<String, Optional<Integer>>>> subscriber = Source.from(orders)
+      .leftJoin(payments, orderId, paymentOrder, Duration.ofMillis(100), scheduler)
+      .asFlowable().test();
+
+    orders.onNext(new Message<>("1:book"));
+    orders.onNext(new Message<>("2:pen"));
+    payments.onNext(payment("1", 20));
+    payments.onNext(payment("3", 7));
+    subscriber.assertValueCount(1);
+
+    // The unmatched order is emitted by the timer once it expires, without waiting for another message.
+    scheduler.advanceTimeBy(150, TimeUnit.MILLISECONDS);
+    assertThat(subscriber.values()).extracting(Message::payload)
+      .containsExactly(pair("1:book", Optional.of(20)), pair("2:pen", Optional.empty()));
+
+    orders.onNext(new Message<>("4:cup"));
+    orders.onComplete();
+    payments.onComplete();
+    assertThat(subscriber.values()).extracting(Message::payload)
+      .endsWith(pair("4:cup", Optional.empty()));
+    subscriber.assertValueCount(3).assertComplete();
+  }
+
+  @Test
+  public void testOuterJoin() {
+    TestSubscriber<Message<Pair<Optional<String>, Optional<Integer>>>> subscriber = Source.from(orders)
+      .outerJoin(payments, orderId, paymentOrder, Duration.ofMillis(100), scheduler)
+      .asFlowable().test();
+
+    orders.onNext(new Message<>("1:book"));
+    payments.onNext(payment("1", 20));
+    orders.onNext(new Message<>("2:pen"));
+    payments.onNext(payment("3", 7));
+    scheduler.advanceTimeBy(150, TimeUnit.MILLISECONDS);
+
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(
+      pair(Optional.of("1:book"), Optional.of(20)),
+      pair(Optional.of("2:pen"), Optional.empty()),
+      pair(Optional.empty(), Optional.of(7)));
+    // Headers from the right message when there is no left message.
+    assertThat((String) subscriber.values().get(2).get("order")).isEqualTo("3");
+  }
+
+  @Test
+  public void testMemoryIsBoundedByTheWindow() {
+    TestSubscriber<Message<Pair<String, Integer>>> subscriber = Source.from(orders)
+      .join(payments, orderId, paymentOrder, Duration.ofMillis(10), scheduler)
+      .asFlowable().test();
+
+    for (int i = 0; i < 1000; i++) {
+      orders.onNext(new Message<>(i + ":item"));
+      scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+    }
+    // Only the last orders are still retained.
+    payments.onNext(payment("0", 1));
+    payments.onNext(payment("995", 1));
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(pair("995:item", 1));
+  }
+
+  @Test
+  public void testFailure() {
+    TestSubscriber<Message<Pair<String, Integer>>> subscriber = Source.from(orders)
+      .join(payments, orderId, paymentOrder, Duration.ofSeconds(1), scheduler)
+      .asFlowable().test();
+
+    payments.onError(new Exception("boom"));
+    subscriber.assertError(Exception.class);
+    assertThat(orders.hasSubscribers()).isFalse();
+  }
+
+  @Test
+  public void testInvalidWindow() {
+    assertThatThrownBy(() -> Source.from(orders).join(payments, orderId, paymentOrder, Duration.ZERO))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
@@ -0,0 +1,67 @@
+package me.escoffier.fluid.models;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of {@link KeyedSource#aggregate(Object, java.util.function.BiFunction)} and
+ * {@link KeyedSource#aggregate(Aggregator)}.
+ */
+public class KeyedSourceTest {
+
+  @Test
+  public void testAggregateEmitsOnChange() {
+    List<Message<Integer>> results = Source.from(
+      new Message<>(3).with("course", "a").with("id", 1),
+      new Message<>(5).with("course", "b").with("id", 2),
+      new Message<>(2).with("course", "a").with("id", 3),
+      new Message<>(7).with("course", "a").with("id", 4),
+      new Message<>(5).with("course", "b").with("id", 5))
+      .keyBy(m -> m.<String>get("course"))
+      .aggregate(0, Math::max)
+      .asFlowable().toList().blockingGet();
+
+    assertThat(results).extracting(Message::payload).containsExactly(3, 5, 7);
+    assertThat(results).extracting(m -> m.get("id")).containsExactly(1, 2, 4);
+    assertThat(results).extracting(m -> m.get(HeaderKey.GROUP_KEY)).containsExactly("a", "b", "a");
+  }
+
+  @Test
+  public void testAggregateWithQueryableStore() {
+    KeyedStateStore<Integer, Long> store = KeyedStateStore.create(2);
+    List<Long> counts = Source.from(1, 2, 1, 3, 2, 1)
+      .keyBy(Message::payload)
+      .aggregate(0L, (count, i) -> count + 1, store)
+      .asFlowable().map(Message::payload).toList().blockingGet();
+
+    // The store is bounded to 2 keys: 3 evicts 2, then 2 evicts 1 and 1 evicts 3, so their counts restart.
+    assertThat(counts).containsExactly(1L, 1L, 2L, 1L, 1L, 1L);
+    assertThat(store.get(1)).isEqualTo(1L);
+    assertThat(store.get(2)).isEqualTo(1L);
+    assertThat(store.get(3)).isNull();
+    assertThat(store.evictions()).isEqualTo(3);
+  }
+
+  @Test
+  public void testAggregateWithMutableAccumulator() {
+    KeyedStateStore<String, long[]> store = KeyedStateStore.create();
+    List<Message<Double>> results = Source.from(
+      new Message<>(4).with("course", "a"),
+      new Message<>(2).with("course", "b"),
+      new Message<>(2).with("course", "a"),
+      new Message<>(2).with("course", "b"),
+      new Message<>(6).with("course", "a"))
+      .keyBy(m -> m.<String>get("course"))
+      .aggregate(Aggregator.<Integer>average(i -> i), store)
+      .asFlowable().toList().blockingGet();
+
+    // The second rating of `b` does not change its average.
+    assertThat(results).extracting(Message::payload).containsExactly(4.0, 2.0, 3.0, 4.0);
+    assertThat(results).extracting(m -> m.get(HeaderKey.GROUP_KEY)).containsExactly("a", "b", "a", "a");
+    assertThat(store.get("a")).containsExactly(3, 12);
+    assertThat(store.get("b")).containsExactly(2, 4);
+  }
+}
@@ -0,0 +1,91 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.schedulers.TestScheduler;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of {@link KeyedStateStore}.
+ */
+public class KeyedStateStoreTest {
+
+  @Test
+  public void testAgainstLinkedHashMap() {
+    Random random = new Random(42);
+    KeyedStateStore<Integer, Integer> store = KeyedStateStore.create(50);
+    Map<Integer, Integer> model = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+        return size() > 50;
+      }
+    };
+
+    for (int i = 0; i < 100_000; i++) {
+      int key = random.nextInt(200);
+      switch (random.nextInt(3)) {
+        case 0:
+          assertThat(store.put(key, i)).isEqualTo(model.put(key, i));
+          break;
+        case 1:
+          assertThat(store.get(key)).isEqualTo(model.get(key));
+          break;
+        default:
+          assertThat(store.remove(key)).isEqualTo(model.remove(key));
+          break;
+      }
+      assertThat(store.size()).isEqualTo(model.size());
+    }
+
+    List<Integer> keys = new ArrayList<>();
+    store.forEach((k, v) -> keys.add(k));
+    assertThat(keys).containsExactlyElementsOf(model.keySet());
+    assertThat(store.evictions()).isPositive();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    KeyedStateStore<String, Integer> store = KeyedStateStore.create(2);
+    store.put("a", 1);
+    store.put("b", 2);
+    store.get("a");
+    store.put("c", 3);
+    assertThat(store.get("b")).isNull();
+    assertThat(store.get("a")).isEqualTo(1);
+    assertThat(store.get("c")).isEqualTo(3);
+    assertThat(store.evictions()).isEqualTo(1);
+  }
+
+  @Test
+  public void testTimeToLive() {
+    TestScheduler scheduler = new TestScheduler();
+    KeyedStateStore<String, Integer> store = KeyedStateStore.create(Integer.MAX_VALUE, Duration.ofSeconds(10),
+      scheduler);
+    store.put("a", 1);
+    scheduler.advanceTimeBy(6, TimeUnit.SECONDS);
+    store.put("b", 2);
+    scheduler.advanceTimeBy(6, TimeUnit.SECONDS);
+    assertThat(store.get("a")).isNull();
+    assertThat(store.get("b")).isEqualTo(2);
+    scheduler.advanceTimeBy(8, TimeUnit.SECONDS);
+    // Reading "b" has extended its lifetime.
+    assertThat(store.get("b")).isEqualTo(2);
+    scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+    assertThat(store.get("b")).isNull();
+    assertThat(store.size()).isEqualTo(0);
+    assertThat(store.evictions()).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    KeyedStateStore.create(0);
+  }
+}
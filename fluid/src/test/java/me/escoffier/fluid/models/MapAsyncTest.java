@@ -0,0 +1,119 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.SingleSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the {@code mapAsync} family of operators.
+ */
+public class MapAsyncTest {
+
+  private final TestScheduler scheduler = new TestScheduler();
+
+  /**
+   * The later the message, the faster the call.
+   */
+  private Single<String> call(int i) {
+    return Single.timer((5 - i) * 10, TimeUnit.MILLISECONDS, scheduler).map(x -> "r" + i);
+  }
+
+  @Test
+  public void testMapAsyncOrdered() {
+    TestSubscriber<Message<String>> subscriber = Source.from(1, 2, 3, 4)
+      .mapPayloadAsyncOrdered(this::call, 4)
+      .asFlowable()
+      .test();
+
+    // All the calls run concurrently, the slowest (first) one completes after 40 ms.
+    scheduler.advanceTimeBy(39, TimeUnit.MILLISECONDS);
+    subscriber.assertNoValues();
+    scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly("r1", "r2", "r3", "r4");
+    subscriber.assertComplete();
+  }
+
+  @Test
+  public void testMapAsync() {
+    TestSubscriber<Message<String>> subscriber = Source.from(1, 2, 3, 4)
+      .mapPayloadAsync(this::call, 4)
+      .asFlowable()
+      .test();
+
+    scheduler.advanceTimeBy(40, TimeUnit.MILLISECONDS);
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly("r4", "r3", "r2", "r1");
+    subscriber.assertComplete();
+  }
+
+  @Test
+  public void testConcurrencyIsBounded() {
+    List<SingleSubject<Message<Integer>>> calls = new CopyOnWriteArrayList<>();
+    TestSubscriber<Message<Integer>> subscriber = Source.from(1, 2, 3, 4, 5, 6)
+      .<Integer>mapAsyncOrdered(m -> {
+        SingleSubject<Message<Integer>> subject = SingleSubject.create();
+        calls.add(subject);
+        return subject;
+      }, 2)
+      .asFlowable()
+      .test();
+
+    assertThat(calls).hasSize(2);
+    calls.get(1).onSuccess(new Message<>(20));
+    // The second result waits for the first one, and keeps its slot until it is emitted.
+    subscriber.assertNoValues();
+    assertThat(calls).hasSize(2);
+    calls.get(0).onSuccess(new Message<>(10));
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(10, 20);
+    assertThat(calls).hasSize(4);
+  }
+
+  @Test
+  public void testHeadersArePreserved() {
+    TestSubscriber<Message<Integer>> subscriber = Source.from(new Message<>(1).with("k", "a"),
+      new Message<>(2).with("k", "b"))
+      .mapPayloadAsyncOrdered(i -> Single.just(i * 10), 2)
+      .asFlowable()
+      .test();
+
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(10, 20);
+    assertThat(subscriber.values()).extracting(m -> m.get("k")).containsExactly("a", "b");
+  }
+
+  @Test
+  public void testCompletionStage() {
+    CompletableFuture<String> first = new CompletableFuture<>();
+    TestSubscriber<Message<String>> subscriber = Source.from(1, 2, 3)
+      .mapPayloadAsyncStageOrdered(i -> i == 1 ? first : CompletableFuture.completedFuture("v" + i), 3)
+      .asFlowable()
+      .test();
+
+    subscriber.assertNoValues();
+    first.complete("v1");
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly("v1", "v2", "v3");
+
+    CompletableFuture<String> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("boom"));
+    Source.from(1)
+      .mapPayloadAsyncStage(i -> failed, 1)
+      .asFlowable()
+      .test()
+      .assertError(IllegalStateException.class);
+  }
+
+  @Test
+  public void testInvalidConcurrency() {
+    assertThatThrownBy(() -> Source.from(1).mapPayloadAsync(Single::just, 0))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
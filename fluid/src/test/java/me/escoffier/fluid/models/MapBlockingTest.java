@@ -0,0 +1,107 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import me.escoffier.fluid.impl.BlockingPool;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Checks {@link Source#mapBlocking(java.util.function.Function, BlockingOptions)}.
+ */
+public class MapBlockingTest {
+
+  @Test
+  public void testOrderIsPreserved() {
+    String caller = Thread.currentThread().getName();
+    List<Message<String>> results = Source.from(1, 2, 3, 4, 5)
+      .mapBlocking(i -> {
+        sleep((6 - i) * 10);
+        return i + "@" + Thread.currentThread().getName();
+      })
+      .asFlowable()
+      .toList()
+      .blockingGet();
+
+    assertThat(results).extracting(m -> m.payload().substring(0, 1)).containsExactly("1", "2", "3", "4", "5");
+    assertThat(results).extracting(Message::payload).noneMatch(p -> p.endsWith("@" + caller));
+    if (!BlockingPool.usesVirtualThreads()) {
+      assertThat(results).extracting(Message::payload).allMatch(p -> p.contains("@fluid-blocking-"));
+    }
+  }
+
+  @Test
+  public void testConcurrencyIsBounded() throws InterruptedException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger max = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+    Source.from(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)
+      .mapBlocking(i -> {
+        max.accumulateAndGet(running.incrementAndGet(), Math::max);
+        sleep(10);
+        running.decrementAndGet();
+        return i;
+      }, BlockingOptions.create().withConcurrency(3).unordered().withScheduler(Schedulers.io()))
+      .asFlowable()
+      .doOnComplete(latch::countDown)
+      .subscribe();
+
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(max.get()).isBetween(1, 3);
+  }
+
+  @Test
+  public void testFailure() {
+    Source.from(1, 2)
+      .mapBlocking(i -> {
+        throw new IllegalStateException("boom");
+      })
+      .asFlowable()
+      .test()
+      .awaitDone(5, TimeUnit.SECONDS)
+      .assertError(IllegalStateException.class);
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(() -> BlockingOptions.create().withConcurrency(0))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> BlockingOptions.create().withPool("missing"))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testShutdownReleasesThePool() {
+    Scheduler scheduler = BlockingPool.scheduler();
+    assertThat(Source.from(1, 2, 3).mapBlocking(i -> i * 2).asFlowable().map(Message::payload).toList().blockingGet())
+      .containsExactly(2, 4, 6);
+
+    BlockingPool.shutdown();
+    if (!BlockingPool.usesVirtualThreads()) {
+      await().atMost(5, TimeUnit.SECONDS).until(() -> Thread.getAllStackTraces().keySet().stream()
+        .noneMatch(thread -> thread.isAlive() && thread.getName().startsWith("fluid-blocking-")));
+    }
+
+    // A new pool is created on demand.
+    assertThat(BlockingPool.scheduler()).isNotSameAs(scheduler);
+    assertThat(Source.from(1, 2, 3).mapBlocking(i -> i * 2).asFlowable().map(Message::payload).toList().blockingGet())
+      .containsExactly(2, 4, 6);
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
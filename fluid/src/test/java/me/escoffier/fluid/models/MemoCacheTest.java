@@ -0,0 +1,136 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.schedulers.TestScheduler;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the {@link MemoCache} and {@link Source#mapPayloadCached(java.util.function.Function,
+ * java.util.function.Function, CacheSpec)}.
+ */
+public class MemoCacheTest {
+
+  @Test
+  public void testMapPayloadCached() {
+    AtomicInteger calls = new AtomicInteger();
+    MemoCache<String, Integer> cache = MemoCache.create(CacheSpec.create());
+    List<Integer> lengths = Source.from("a", "bb", "a", "ccc", "bb", "a")
+      .mapPayloadCached(s -> s, s -> {
+        calls.incrementAndGet();
+        return s.length();
+      }, cache)
+      .asFlowable().map(Message::payload).toList().blockingGet();
+
+    assertThat(lengths).containsExactly(1, 2, 1, 3, 2, 1);
+    assertThat(calls.get()).isEqualTo(3);
+    assertThat(cache.hits()).isEqualTo(3);
+    assertThat(cache.misses()).isEqualTo(3);
+    assertThat(cache.hitRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  public void testScanResistance() {
+    MemoCache<Integer, Integer> cache = MemoCache.create(CacheSpec.create().withMaximumSize(10));
+    // Hot entries, read several times.
+    for (int i = 0; i < 5; i++) {
+      cache.put(i, i);
+      cache.getIfPresent(i);
+    }
+    // A scan over many keys read once.
+    for (int i = 100; i < 1000; i++) {
+      cache.get(i, k -> k);
+    }
+    assertThat(cache.size()).isEqualTo(10);
+    assertThat(cache.evictions()).isEqualTo(895);
+    for (int i = 0; i < 5; i++) {
+      assertThat(cache.getIfPresent(i)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testLeastRecentlyUsedProtectedEntryIsDemoted() {
+    MemoCache<Integer, Integer> cache = MemoCache.create(CacheSpec.create().withMaximumSize(5));
+    for (int i = 0; i < 5; i++) {
+      cache.put(i, i);
+      cache.getIfPresent(i);
+    }
+    // Only 4 entries fit in the protected segment, and only 1, 2 and 3 are read again.
+    cache.getIfPresent(1);
+    cache.getIfPresent(2);
+    cache.getIfPresent(3);
+    cache.put(5, 5);
+    cache.put(6, 6);
+    cache.put(7, 7);
+
+    assertThat(cache.size()).isEqualTo(5);
+    assertThat(cache.getIfPresent(1)).isNotNull();
+    assertThat(cache.getIfPresent(2)).isNotNull();
+    assertThat(cache.getIfPresent(3)).isNotNull();
+  }
+
+  @Test
+  public void testTtl() {
+    TestScheduler scheduler = new TestScheduler();
+    MemoCache<String, String> cache = MemoCache.create(CacheSpec.create().withTtl(Duration.ofSeconds(1))
+      .using(scheduler));
+    cache.put("a", "A");
+    scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+    assertThat(cache.getIfPresent("a")).isEqualTo("A");
+    scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+    assertThat(cache.getIfPresent("a")).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testInvalidate() {
+    MemoCache<String, String> cache = MemoCache.create(CacheSpec.create().withMaximumSize(2));
+    cache.put("a", "A");
+    cache.put("b", "B");
+    cache.invalidate("a");
+    assertThat(cache.getIfPresent("a")).isNull();
+    cache.invalidateAll();
+    assertThat(cache.size()).isEqualTo(0);
+    cache.put("c", "C");
+    cache.put("d", "D");
+    cache.put("e", "E");
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testConcurrentAccesses() throws InterruptedException {
+    MemoCache<Integer, Integer> cache = MemoCache.create(CacheSpec.create().withMaximumSize(50));
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    CountDownLatch done = new CountDownLatch(4);
+    for (int t = 0; t < 4; t++) {
+      int seed = t;
+      executor.execute(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          int key = (i * 31 + seed) % 200;
+          assertThat(cache.get(key, k -> k * 2)).isEqualTo(key * 2);
+        }
+        done.countDown();
+      });
+    }
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    executor.shutdown();
+    assertThat(cache.size()).isLessThanOrEqualTo(50);
+    assertThat(cache.hits() + cache.misses()).isEqualTo(40_000);
+  }
+
+  @Test
+  public void testInvalidSpec() {
+    assertThatThrownBy(() -> CacheSpec.create().withMaximumSize(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CacheSpec.create().withTtl(Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
@@ -0,0 +1,88 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of {@link ParallelSource}.
+ */
+public class ParallelSourceTest {
+
+  private final Random random = new Random();
+
+  private List<Message<Integer>> messages(int count) {
+    return IntStream.range(0, count).mapToObj(i -> new Message<>(i).with("id", "m-" + i)).collect(Collectors.toList());
+  }
+
+  private int slow(int i) {
+    try {
+      Thread.sleep(random.nextInt(3));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return i;
+  }
+
+  @Test
+  public void testOrderedRejoin() {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    List<Message<Integer>> list = Source.from(messages(200))
+      .parallel(4, Schedulers.io())
+      .mapPayload(i -> {
+        threads.add(Thread.currentThread().getName());
+        return slow(i) * 2;
+      })
+      .filterPayload(i -> i % 3 != 0)
+      .flatMapPayload(i -> Flowable.just(i, i + 1))
+      .sequentialOrdered()
+      .asFlowable()
+      .toList()
+      .blockingGet();
+
+    List<Integer> expected = IntStream.range(0, 200).map(i -> i * 2).filter(i -> i % 3 != 0)
+      .flatMap(i -> IntStream.of(i, i + 1)).boxed().collect(Collectors.toList());
+    assertThat(list).extracting(Message::payload).containsExactlyElementsOf(expected);
+    assertThat(list).allMatch(m -> m.get("id").equals("m-" + m.payload() / 2));
+    assertThat(threads.size()).isGreaterThan(1);
+  }
+
+  @Test
+  public void testUnorderedRejoin() {
+    List<Message<Integer>> list = Source.from(messages(100))
+      .parallel(3)
+      .map(m -> m.with(slow(m.payload()) + 1).with("rail", Thread.currentThread().getName()))
+      .filter(m -> m.payload() % 2 == 0)
+      .sequential()
+      .asFlowable()
+      .toList()
+      .blockingGet();
+
+    assertThat(list).hasSize(50);
+    assertThat(list).extracting(Message::payload)
+      .containsExactlyInAnyOrderElementsOf(IntStream.rangeClosed(1, 100).filter(i -> i % 2 == 0).boxed()
+        .collect(Collectors.toList()));
+    assertThat(list).allMatch(m -> m.get("id").equals("m-" + (m.payload() - 1)) && m.get("rail") != null);
+  }
+
+  @Test
+  public void testNameAndParallelism() {
+    ParallelSource<String> parallel = Source.from("a", "b").named("letters").parallel(2);
+    assertThat(parallel.parallelism()).isEqualTo(2);
+    assertThat(parallel.sequential().name()).isEqualTo("letters");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    Source.from("a").parallel(0);
+  }
+}
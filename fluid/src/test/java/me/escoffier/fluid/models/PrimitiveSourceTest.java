@@ -0,0 +1,63 @@
+package me.escoffier.fluid.models;
+
+import me.escoffier.fluid.impl.ListSink;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of {@link LongSource} and {@link DoubleSource}.
+ */
+public class PrimitiveSourceTest {
+
+  @Test
+  public void testLongAggregations() {
+    ListSink<Long> sum = Sink.list();
+    Source.from(1, 2, 3, 4).mapToLong(i -> i).sum().boxed().to(sum);
+    assertThat(sum.values()).containsExactly(1L, 3L, 6L, 10L);
+
+    ListSink<Long> min = Sink.list();
+    Source.from(3, 4, 1, 2).mapToLong(i -> i).min().boxed().to(min);
+    assertThat(min.values()).containsExactly(3L, 3L, 1L, 1L);
+
+    ListSink<Long> max = Sink.list();
+    Source.from(3, 4, 1, 5).mapToLong(i -> i).max().boxed().to(max);
+    assertThat(max.values()).containsExactly(3L, 4L, 4L, 5L);
+
+    ListSink<Double> average = Sink.list();
+    Source.from(1, 2, 3, 6).mapToLong(i -> i).average().boxed().to(average);
+    assertThat(average.values()).containsExactly(1.0, 1.5, 2.0, 3.0);
+  }
+
+  @Test
+  public void testDoubleAggregations() {
+    ListSink<Double> sum = Sink.list();
+    Source.from("1.5", "2.5", "3").mapToDouble(Double::parseDouble).sum().boxed().to(sum);
+    assertThat(sum.values()).containsExactly(1.5, 4.0, 7.0);
+
+    ListSink<Double> average = Sink.list();
+    Source.from(1.0, 2.0, 6.0).mapToDouble(d -> d).average().boxed().to(average);
+    assertThat(average.values()).containsExactly(1.0, 1.5, 3.0);
+
+    ListSink<Double> minMax = Sink.list();
+    Source.from(2.0, 1.0, 3.0).mapToDouble(d -> d).min().map(d -> d * 10).boxed().to(minMax);
+    assertThat(minMax.values()).containsExactly(20.0, 10.0, 10.0);
+  }
+
+  @Test
+  public void testTransformationsAndHeaders() {
+    ListSink<String> sink = Sink.list();
+    Source.from(new Message<>("a").with("k", 1), new Message<>("bb").with("k", 2), new Message<>("ccc").with("k", 3))
+      .mapToLong(String::length)
+      .filter(l -> l != 2)
+      .map(l -> l * 10)
+      .mapToDouble(l -> l / 4.0)
+      .scan(0.0, (acc, d) -> acc + d)
+      .mapToObj(d -> "v" + d)
+      .to(sink);
+
+    assertThat(sink.values()).containsExactly("v2.5", "v10.0");
+    assertThat(sink.data()).extracting(m -> m.get("k")).containsExactly(1, 3);
+  }
+
+}
@@ -0,0 +1,129 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import me.escoffier.fluid.impl.ListSink;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the {@link Source#route} operators.
+ */
+public class RouteTest {
+
+  @Test
+  public void testRouteCallsTheClassifierOnce() {
+    AtomicInteger calls = new AtomicInteger();
+    List<Source<Integer>> sources = Source.from(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)
+      .route(3, m -> {
+        calls.incrementAndGet();
+        return m.payload() % 3;
+      });
+
+    ListSink<Integer> zero = Sink.list();
+    ListSink<Integer> one = Sink.list();
+    ListSink<Integer> two = Sink.list();
+    sources.get(0).to(zero);
+    sources.get(1).to(one);
+    sources.get(2).to(two);
+
+    assertThat(zero.values()).containsExactly(3, 6, 9);
+    assertThat(one.values()).containsExactly(1, 4, 7, 10);
+    assertThat(two.values()).containsExactly(2, 5, 8);
+    assertThat(calls.get()).isEqualTo(10);
+  }
+
+  @Test
+  public void testNamedRoutes() {
+    Map<String, Source<String>> sources = Source.from("apple", "banana", "avocado", "cherry")
+      .route(m -> m.payload().startsWith("a") ? "a" : "other", "a", "other");
+
+    assertThat(sources.keySet()).containsExactly("a", "other");
+    ListSink<String> a = Sink.list();
+    ListSink<String> other = Sink.list();
+    sources.get("a").to(a);
+    sources.get("other").to(other);
+
+    assertThat(a.values()).containsExactly("apple", "avocado");
+    assertThat(other.values()).containsExactly("banana", "cherry");
+  }
+
+  @Test
+  public void testUpstreamIsSubscribedWhenAllOutputsAreSubscribed() {
+    AtomicInteger subscriptions = new AtomicInteger();
+    List<Source<Integer>> sources = Source.fromPayloads(Flowable.range(0, 10)
+      .doOnSubscribe(s -> subscriptions.incrementAndGet()))
+      .route(2, m -> m.payload() % 2);
+
+    TestSubscriber<Message<Integer>> even = sources.get(0).asFlowable().test();
+    assertThat(subscriptions.get()).isEqualTo(0);
+    even.assertNoValues();
+
+    TestSubscriber<Message<Integer>> odd = sources.get(1).asFlowable().test();
+    assertThat(subscriptions.get()).isEqualTo(1);
+    even.assertValueCount(5).assertComplete();
+    odd.assertValueCount(5).assertComplete();
+
+    sources.get(0).asFlowable().test().assertError(IllegalStateException.class);
+  }
+
+  @Test
+  public void testPerOutputBuffersBoundTheUpstreamDemand() {
+    AtomicInteger emitted = new AtomicInteger();
+    List<Source<Integer>> sources = Source.fromPayloads(Flowable.range(0, 100)
+      .doOnNext(i -> emitted.incrementAndGet()))
+      .route(2, 4, m -> m.payload() % 2);
+
+    TestSubscriber<Message<Integer>> slow = sources.get(0).asFlowable().test(0);
+    TestSubscriber<Message<Integer>> fast = sources.get(1).asFlowable().test();
+
+    // The slow output buffers at most 4 messages, and the upstream stops once it is full.
+    slow.assertNoValues();
+    assertThat(fast.values()).extracting(Message::payload).containsExactly(1, 3, 5);
+    assertThat(emitted.get()).isEqualTo(7);
+
+    slow.request(2);
+    assertThat(slow.values()).extracting(Message::payload).containsExactly(0, 2);
+    assertThat(emitted.get()).isEqualTo(11);
+
+    slow.request(Long.MAX_VALUE);
+    slow.assertValueCount(50).assertComplete();
+    fast.assertValueCount(50).assertComplete();
+  }
+
+  @Test
+  public void testCancelledOutputDoesNotBlockTheOthers() {
+    List<Source<Integer>> sources = Source.fromPayloads(Flowable.range(0, 100))
+      .route(2, 4, m -> m.payload() % 2);
+
+    TestSubscriber<Message<Integer>> cancelled = sources.get(0).asFlowable().test(0);
+    cancelled.cancel();
+    TestSubscriber<Message<Integer>> other = sources.get(1).asFlowable().test();
+
+    cancelled.assertNoValues().assertNotComplete();
+    other.assertValueCount(50).assertComplete();
+  }
+
+  @Test
+  public void testInvalidRouteFailsAllOutputs() {
+    List<Source<Integer>> sources = Source.from(1, 2, 3)
+      .route(2, m -> m.payload());
+
+    TestSubscriber<Message<Integer>> first = sources.get(0).asFlowable().test();
+    TestSubscriber<Message<Integer>> second = sources.get(1).asFlowable().test();
+
+    first.assertNoValues().assertError(IllegalArgumentException.class);
+    second.assertValueCount(1).assertError(IllegalArgumentException.class);
+
+    Map<String, Source<Integer>> named = Source.from(1, 2, 3).route(m -> "unknown", "a", "b");
+    TestSubscriber<Message<Integer>> a = named.get("a").asFlowable().test();
+    named.get("b").asFlowable().test().assertError(IllegalArgumentException.class);
+    a.assertError(IllegalArgumentException.class);
+  }
+
+}
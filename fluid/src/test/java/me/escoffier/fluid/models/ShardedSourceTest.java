@@ -0,0 +1,102 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of {@link KeyedSource#parallel(int)}.
+ */
+public class ShardedSourceTest {
+
+  @Test
+  public void testPerKeyOrder() {
+    List<Message<Integer>> input = IntStream.range(0, 1000)
+      .mapToObj(i -> new Message<>(i).with("account", "account-" + (i % 10)))
+      .collect(Collectors.toList());
+
+    ShardedSource<String> sharded = Source.from(input)
+      .keyBy(m -> m.<String>get("account"))
+      .parallel(4)
+      .map(m -> m.with("thread", Thread.currentThread().getName()))
+      .filterPayload(i -> i % 7 != 0)
+      .mapPayload(i -> Integer.toString(i));
+
+    List<Message<String>> output = sharded.sequential().asFlowable().toList().blockingGet();
+    assertThat(output).hasSize((int) IntStream.range(0, 1000).filter(i -> i % 7 != 0).count());
+
+    Map<String, List<Integer>> perKey = new HashMap<>();
+    Map<String, String> threads = new HashMap<>();
+    for (Message<String> message : output) {
+      String account = message.get("account");
+      perKey.computeIfAbsent(account, k -> new ArrayList<>()).add(Integer.parseInt(message.payload()));
+      String thread = message.get("thread");
+      assertThat(thread).startsWith("fluid-shard-");
+      assertThat(threads.computeIfAbsent(account, k -> thread)).isEqualTo(thread);
+    }
+    assertThat(perKey).hasSize(10);
+    perKey.values().forEach(list -> assertThat(list).isSorted());
+
+    long processed = 0;
+    for (int i = 0; i < sharded.parallelism(); i++) {
+      assertThat(sharded.queueDepth(i)).isEqualTo(0);
+      processed += sharded.processed(i);
+    }
+    assertThat(processed).isEqualTo(1000);
+  }
+
+  @Test
+  public void testMetricsArePerSubscription() {
+    // The first subscription only receives the items once the gate is opened.
+    PublishProcessor<Integer> gate = PublishProcessor.create();
+    AtomicInteger subscriptions = new AtomicInteger();
+    ShardedSource<Integer> sharded = Source.fromPayloads(Flowable.defer(() -> subscriptions.getAndIncrement() == 0
+      ? Flowable.range(0, 100).delaySubscription(gate) : Flowable.range(0, 100)))
+      .keyBy(Message::payload)
+      .parallel(2);
+    Source<Integer> merged = sharded.sequential();
+
+    TestSubscriber<Message<Integer>> first = merged.asFlowable().test();
+    assertThat(merged.asFlowable().toList().blockingGet()).hasSize(100);
+    assertThat(processed(sharded)).isEqualTo(100);
+
+    // The first subscription does not alter the metrics of the latest one.
+    gate.onNext(0);
+    first.awaitDone(10, TimeUnit.SECONDS).assertValueCount(100);
+    assertThat(processed(sharded)).isEqualTo(100);
+  }
+
+  private static long processed(ShardedSource<?> sharded) {
+    long processed = 0;
+    for (int i = 0; i < sharded.parallelism(); i++) {
+      processed += sharded.processed(i);
+    }
+    return processed;
+  }
+
+  @Test
+  public void testShardIsStable() {
+    for (int i = 0; i < 100; i++) {
+      int shard = KeyedSource.shard("key-" + i, 5);
+      assertThat(shard).isBetween(0, 4).isEqualTo(KeyedSource.shard("key-" + i, 5));
+    }
+    assertThat(KeyedSource.shard(null, 3)).isEqualTo(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumberOfShards() {
+    Source.from(1, 2).keyBy(Message::payload).parallel(0);
+  }
+}
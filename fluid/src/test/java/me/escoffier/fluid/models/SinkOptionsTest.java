@@ -0,0 +1,123 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.CompletableSubject;
+import me.escoffier.fluid.impl.ListSink;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks {@link Source#to(Sink, SinkOptions)}.
+ */
+public class SinkOptionsTest {
+
+  @Test
+  public void testBatches() {
+    BatchSink<Integer> sink = new BatchSink<>();
+    Source.fromPayloads(Flowable.range(0, 10)).to(sink, SinkOptions.create().withBatchSize(4));
+
+    assertThat(sink.batches).containsExactly(
+      Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7), Arrays.asList(8, 9));
+  }
+
+  @Test
+  public void testDefaultBatchDispatchKeepsTheOrder() {
+    ListSink<Integer> sink = Sink.list();
+    Sink<Integer> loop = sink::dispatch;
+    Source.fromPayloads(Flowable.range(0, 10)).to(loop, SinkOptions.create().withBatchSize(3));
+    assertThat(sink.values()).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+  }
+
+  @Test
+  public void testLinger() {
+    TestScheduler scheduler = new TestScheduler();
+    BatchSink<Long> sink = new BatchSink<>();
+    Source.fromPayloads(Flowable.interval(10, TimeUnit.MILLISECONDS, scheduler).take(5))
+      .to(sink, SinkOptions.create().withBatchSize(100).withLinger(Duration.ofMillis(25)).using(scheduler));
+
+    scheduler.advanceTimeBy(30, TimeUnit.MILLISECONDS);
+    assertThat(sink.batches).isEmpty();
+    // The first message was received at 10 ms, its batch is dispatched at 35 ms.
+    scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+    assertThat(sink.batches).containsExactly(Arrays.asList(0L, 1L, 2L));
+    scheduler.advanceTimeBy(15, TimeUnit.MILLISECONDS);
+    // Completion dispatches the last batch without waiting.
+    assertThat(sink.batches).containsExactly(Arrays.asList(0L, 1L, 2L), Arrays.asList(3L, 4L));
+  }
+
+  @Test
+  public void testMaxInFlight() {
+    List<CompletableSubject> pending = new CopyOnWriteArrayList<>();
+    Sink<Integer> sink = message -> {
+      CompletableSubject subject = CompletableSubject.create();
+      pending.add(subject);
+      return subject;
+    };
+    Source.fromPayloads(Flowable.range(0, 100)).to(sink, SinkOptions.create().withMaxInFlight(3));
+
+    assertThat(pending).hasSize(3);
+    pending.get(0).onComplete();
+    assertThat(pending).hasSize(4);
+  }
+
+  @Test
+  public void testMaxInFlightWithBatches() {
+    List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    List<CompletableSubject> pending = new CopyOnWriteArrayList<>();
+    Sink<Integer> sink = new Sink<Integer>() {
+      @Override
+      public Completable dispatch(Message<Integer> message) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Completable dispatchBatch(List<Message<Integer>> messages) {
+        batches.add(messages.stream().map(Message::payload).collect(Collectors.toList()));
+        CompletableSubject subject = CompletableSubject.create();
+        pending.add(subject);
+        return subject;
+      }
+    };
+    Source.fromPayloads(Flowable.range(0, 100)).to(sink, SinkOptions.create().withBatchSize(10).withMaxInFlight(2));
+
+    assertThat(batches).hasSize(2);
+    pending.forEach(CompletableSubject::onComplete);
+    assertThat(batches).hasSize(4);
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(() -> SinkOptions.create().withBatchSize(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> SinkOptions.create().withMaxInFlight(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> SinkOptions.create().withLinger(Duration.ZERO))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static class BatchSink<T> implements Sink<T> {
+    private final List<List<T>> batches = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Completable dispatch(Message<T> message) {
+      return dispatchBatch(Collections.singletonList(message));
+    }
+
+    @Override
+    public Completable dispatchBatch(List<Message<T>> messages) {
+      return Completable.fromAction(() ->
+        batches.add(messages.stream().map(Message::payload).collect(Collectors.toList())));
+    }
+  }
+
+}
@@ -0,0 +1,245 @@
+package me.escoffier.fluid.models;
+
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+import me.escoffier.fluid.impl.ListSink;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of {@link Source#window(Windows, Aggregator)}.
+ */
+public class WindowTest {
+
+  private final Aggregator<Integer, Integer, Integer> sum = Aggregator.fold(0, Integer::sum);
+
+  @Test
+  public void testTumblingCountWindows() {
+    List<Message<Integer>> results = Source.from(1, 2, 3, 4, 5, 6, 7)
+      .window(Windows.tumbling(3), sum)
+      .asFlowable().toList().blockingGet();
+
+    assertThat(results).extracting(Message::payload).containsExactly(6, 15, 7);
+    assertThat(results).extracting(CommonHeaders::windowStart).containsExactly(0L, 3L, 6L);
+    assertThat(results).extracting(CommonHeaders::windowEnd).containsExactly(3L, 6L, 7L);
+  }
+
+  @Test
+  public void testSlidingCountWindows() {
+    List<Message<Long>> results = Source.from("a", "b", "c", "d", "e")
+      .window(Windows.sliding(3, 2), Aggregator.count())
+      .asFlowable().toList().blockingGet();
+
+    // Windows [0, 3), [2, 5), and the partial [4, 5) emitted on completion.
+    assertThat(results).extracting(Message::payload).containsExactly(3L, 3L, 1L);
+    assertThat(results).extracting(CommonHeaders::windowStart).containsExactly(0L, 2L, 4L);
+
+    List<Message<String>> concat = Source.from("a", "b", "c", "d")
+      .window(Windows.sliding(2, 1), Aggregator.<String, StringBuilder, String>of(StringBuilder::new,
+        StringBuilder::append, StringBuilder::toString))
+      .asFlowable().toList().blockingGet();
+    assertThat(concat).extracting(Message::payload).containsExactly("ab", "bc", "cd", "d");
+  }
+
+  @Test
+  public void testCollectIntoMutableContainer() {
+    Aggregator<Integer, List<Integer>, List<Integer>> collect = Aggregator.collect(ArrayList::new, List::add);
+    List<Message<List<Integer>>> results = Source.from(1, 2, 3, 4, 5)
+      .window(Windows.tumbling(2), collect)
+      .asFlowable().toList().blockingGet();
+
+    // Each window starts from a new list.
+    assertThat(results).extracting(Message::payload)
+      .containsExactly(Arrays.asList(1, 2), Arrays.asList(3, 4), Collections.singletonList(5));
+  }
+
+  @Test
+  public void testTumblingTimeWindows() {
+    TestScheduler scheduler = new TestScheduler();
+    PublishProcessor<Integer> processor = PublishProcessor.create();
+    TestSubscriber<Message<Integer>> subscriber = Source.fromPayloads(processor)
+      .window(Windows.tumbling(Duration.ofSeconds(1)).using(scheduler), sum)
+      .asFlowable().test();
+
+    processor.onNext(1);
+    processor.onNext(2);
+    scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+    processor.onNext(3);
+    subscriber.assertNoValues();
+
+    // The timer closes the first window, even without new message.
+    scheduler.advanceTimeBy(600, TimeUnit.MILLISECONDS);
+    subscriber.assertValueCount(1);
+    assertThat(subscriber.values().get(0).payload()).isEqualTo(6);
+    assertThat(CommonHeaders.windowStart(subscriber.values().get(0))).isEqualTo(0L);
+    assertThat(CommonHeaders.windowEnd(subscriber.values().get(0))).isEqualTo(1000L);
+
+    processor.onNext(10);
+    processor.onComplete();
+    subscriber.assertValueCount(2).assertComplete();
+    assertThat(subscriber.values().get(1).payload()).isEqualTo(10);
+    assertThat(CommonHeaders.windowStart(subscriber.values().get(1))).isEqualTo(1000L);
+  }
+
+  @Test
+  public void testLongWindowClosedShortlyAfterItsEnd() {
+    TestScheduler scheduler = new TestScheduler();
+    // Windows are aligned on the clock, so the subscription (and the timer) starts in the middle of the first window.
+    scheduler.advanceTimeBy(7, TimeUnit.MINUTES);
+    PublishProcessor<Integer> processor = PublishProcessor.create();
+    TestSubscriber<Message<Integer>> subscriber = Source.fromPayloads(processor)
+      .window(Windows.tumbling(Duration.ofHours(1)).using(scheduler), sum)
+      .asFlowable().test();
+
+    processor.onNext(1);
+    scheduler.advanceTimeTo(TimeUnit.HOURS.toSeconds(1) - 1, TimeUnit.SECONDS);
+    subscriber.assertNoValues();
+    scheduler.advanceTimeBy(2, TimeUnit.SECONDS);
+    subscriber.assertValueCount(1);
+    assertThat(CommonHeaders.windowEnd(subscriber.values().get(0))).isEqualTo(TimeUnit.HOURS.toMillis(1));
+    subscriber.dispose();
+  }
+
+  @Test
+  public void testSlidingTimeWindows() {
+    TestScheduler scheduler = new TestScheduler();
+    PublishProcessor<Integer> processor = PublishProcessor.create();
+    TestSubscriber<Message<Integer>> subscriber = Source.fromPayloads(processor)
+      .window(Windows.sliding(Duration.ofSeconds(2), Duration.ofSeconds(1)).using(scheduler), sum)
+      .asFlowable().test();
+
+    scheduler.advanceTimeBy(1500, TimeUnit.MILLISECONDS);
+    processor.onNext(1); // windows [0, 2000) and [1000, 3000)
+    scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+    processor.onNext(2); // windows [1000, 3000) and [2000, 4000)
+    subscriber.assertValueCount(1);
+    scheduler.advanceTimeBy(2000, TimeUnit.MILLISECONDS);
+
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(1, 3, 2);
+    assertThat(subscriber.values()).extracting(CommonHeaders::windowStart).containsExactly(0L, 1000L, 2000L);
+  }
+
+  @Test
+  public void testSessionWindows() {
+    TestScheduler scheduler = new TestScheduler();
+    PublishProcessor<String> processor = PublishProcessor.create();
+    TestSubscriber<Message<Long>> subscriber = Source.fromPayloads(processor)
+      .window(Windows.session(Duration.ofMillis(100)).using(scheduler), Aggregator.count())
+      .asFlowable().test();
+
+    processor.onNext("a");
+    scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+    processor.onNext("b");
+    scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+    processor.onNext("c");
+    subscriber.assertNoValues();
+    scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+    subscriber.assertValueCount(1);
+    processor.onNext("d");
+    processor.onComplete();
+
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(3L, 1L);
+    assertThat(subscriber.values()).extracting(CommonHeaders::windowStart).containsExactly(0L, 300L);
+    assertThat(subscriber.values()).extracting(CommonHeaders::windowEnd).containsExactly(200L, 400L);
+    subscriber.assertComplete();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidWindow() {
+    Windows.sliding(3, 0);
+  }
+
+  private Message<Integer> event(int payload, long timestamp) {
+    return new Message<>(payload).with("timestamp", timestamp);
+  }
+
+  @Test
+  public void testEventTimeWindowsWithLateData() {
+    ListSink<Integer> late = Sink.list();
+    EventTime<Integer> eventTime = EventTime.<Integer>fromHeader("timestamp")
+      .withMaxOutOfOrderness(Duration.ofMillis(5))
+      .withLateSink(late);
+
+    List<Message<Integer>> results = Source.from(event(1, 1), event(5, 5), event(12, 12), event(3, 3),
+      event(16, 16), event(2, 2), event(25, 25))
+      .window(Windows.tumbling(Duration.ofMillis(10)), eventTime, sum)
+      .asFlowable().toList().blockingGet();
+
+    assertThat(results).extracting(Message::payload).containsExactly(9, 28, 25);
+    assertThat(results).extracting(CommonHeaders::windowStart).containsExactly(0L, 10L, 20L);
+    assertThat(late.values()).containsExactly(2);
+  }
+
+  @Test
+  public void testEventTimeSlidingWindowsIgnoreArrivalTime() {
+    TestScheduler scheduler = new TestScheduler();
+    PublishProcessor<Message<Integer>> processor = PublishProcessor.create();
+    TestSubscriber<Message<Integer>> subscriber = Source.from(processor)
+      .window(Windows.sliding(Duration.ofMillis(20), Duration.ofMillis(10)).using(scheduler),
+        EventTime.of(m -> m.get("timestamp")), sum)
+      .asFlowable().test();
+
+    processor.onNext(event(1, 1_000_005));
+    scheduler.advanceTimeBy(1, TimeUnit.HOURS);
+    subscriber.assertNoValues();
+    processor.onNext(event(2, 1_000_015));
+    subscriber.assertValueCount(1);
+    processor.onNext(event(4, 1_000_030));
+    assertThat(subscriber.values()).extracting(Message::payload).containsExactly(1, 3, 2);
+    assertThat(subscriber.values()).extracting(CommonHeaders::windowStart)
+      .containsExactly(999_990L, 1_000_000L, 1_000_010L);
+  }
+
+  @Test
+  public void testEventTimeIdleSource() {
+    TestScheduler scheduler = new TestScheduler();
+    PublishProcessor<Message<Integer>> processor = PublishProcessor.create();
+    TestSubscriber<Message<Integer>> subscriber = Source.from(processor)
+      .window(Windows.tumbling(Duration.ofMillis(10)).using(scheduler),
+        EventTime.<Integer>fromHeader("timestamp").withMaxOutOfOrderness(Duration.ofSeconds(1))
+          .withIdleTimeout(Duration.ofMillis(100)), sum)
+      .asFlowable().test();
+
+    processor.onNext(event(1, 1000));
+    processor.onNext(event(2, 1005));
+    scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+    subscriber.assertNoValues();
+    // Idle, but the watermark (1005 - 1000) still has to pass the end of the window (1010).
+    scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+    subscriber.assertNoValues();
+    scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+    subscriber.assertValueCount(1);
+    assertThat(subscriber.values().get(0).payload()).isEqualTo(3);
+  }
+
+  @Test
+  public void testEventTimeShortIdleTimeout() {
+    TestScheduler scheduler = new TestScheduler();
+    PublishProcessor<Message<Integer>> processor = PublishProcessor.create();
+    TestSubscriber<Message<Integer>> subscriber = Source.from(processor)
+      .window(Windows.tumbling(Duration.ofMillis(10)).using(scheduler),
+        EventTime.<Integer>fromHeader("timestamp").withIdleTimeout(Duration.ofMillis(2)), sum)
+      .asFlowable().test();
+
+    processor.onNext(event(1, 1000));
+    subscriber.assertNoValues();
+    // The timer still runs with a timeout shorter than 4 ms.
+    scheduler.advanceTimeBy(20, TimeUnit.MILLISECONDS);
+    subscriber.assertValueCount(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEventTimeWithCountWindows() {
+    Source.from(event(1, 1)).window(Windows.tumbling(2), EventTime.fromHeader("timestamp"), sum);
+  }
+
+}
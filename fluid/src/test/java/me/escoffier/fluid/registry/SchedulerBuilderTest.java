@@ -0,0 +1,108 @@
+package me.escoffier.fluid.registry;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.vertx.core.json.JsonObject;
+import io.vertx.reactivex.core.Vertx;
+import me.escoffier.fluid.config.Config;
+import me.escoffier.fluid.framework.Fluid;
+import me.escoffier.fluid.models.Message;
+import me.escoffier.fluid.models.Source;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Checks that the named thread pools can be created from the configuration.
+ */
+public class SchedulerBuilderTest {
+
+  private Vertx vertx;
+  private Fluid fluid;
+
+  @Before
+  public void setup() {
+    System.setProperty("fluid-config", "src/test/resources/config/pools.yml");
+    FluidRegistry.reset();
+    fluid = Fluid.create();
+    vertx = fluid.vertx();
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty("fluid-config");
+    FluidRegistry.reset();
+    vertx.close();
+  }
+
+  @Test
+  public void loadPoolsTest() {
+    List<Disposable> resources = new ArrayList<>();
+    Map<String, Scheduler> pools = SchedulerBuilder.createSchedulersFromConfiguration(vertx, fluid.getConfig(),
+      resources);
+    assertThat(pools).containsOnlyKeys("cpu", "blocking", "loop", "shared");
+    assertThat(pools.get("shared")).isSameAs(Schedulers.computation());
+    assertThat(FluidRegistry.scheduler("cpu")).isNotNull();
+    // The fixed pool and the worker executor.
+    assertThat(resources).hasSize(2);
+    resources.forEach(Disposable::dispose);
+  }
+
+  @Test
+  public void testResetShutsDownThePools() {
+    Source.from(1, 2, 3)
+      .dispatchOn("cpu")
+      .mapPayload(i -> Thread.currentThread().getName())
+      .asFlowable()
+      .blockingSubscribe();
+    assertThat(poolThreads()).isPositive();
+
+    FluidRegistry.reset();
+    assertThat(FluidRegistry.scheduler("cpu")).isNull();
+    await().atMost(5, TimeUnit.SECONDS).until(() -> poolThreads() == 0);
+  }
+
+  private static long poolThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+      .filter(thread -> thread.isAlive() && thread.getName().startsWith("fluid-cpu-"))
+      .count();
+  }
+
+  @Test
+  public void testDispatchOnNamedPool() {
+    List<String> threads = Source.from(1, 2, 3)
+      .dispatchOn("cpu")
+      .mapPayload(i -> Thread.currentThread().getName())
+      .asFlowable()
+      .map(Message::payload)
+      .toList()
+      .blockingGet();
+    assertThat(threads).hasSize(3).allMatch(name -> name.startsWith("fluid-cpu-"));
+
+    List<String> workers = Source.from(1, 2, 3)
+      .emitOn("blocking")
+      .mapPayload(i -> Thread.currentThread().getName())
+      .asFlowable()
+      .map(Message::payload)
+      .toList()
+      .blockingGet();
+    assertThat(workers).hasSize(3).allMatch(name -> name.startsWith("fluid-blocking"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPoolType() throws IOException {
+    SchedulerBuilder.buildScheduler(vertx, "invalid", new Config(new JsonObject().put("type", "unknown")),
+      new ArrayList<>());
+  }
+
+}
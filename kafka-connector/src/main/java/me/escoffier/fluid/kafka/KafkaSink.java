@@ -4,14 +4,17 @@ import io.reactivex.Completable;
 import io.vertx.core.Future;
 import io.vertx.kafka.client.producer.KafkaWriteStream;
 import io.vertx.reactivex.core.Vertx;
-import io.vertx.reactivex.core.impl.AsyncResultCompletable;
+import io.vertx.reactivex.impl.AsyncResultCompletable;
 import me.escoffier.fluid.config.Config;
+import me.escoffier.fluid.models.HeaderKey;
 import me.escoffier.fluid.models.Message;
 import me.escoffier.fluid.models.Sink;
 import me.escoffier.fluid.spi.DataExpression;
 import org.apache.kafka.clients.producer.ProducerRecord;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static me.escoffier.fluid.impl.DataExpressionFactories.requiredEventExpression;
@@ -24,7 +27,17 @@ public class KafkaSink<T> implements Sink<T> {
   private final KafkaWriteStream<String, T> stream;
   private final String topic;
   private final Integer partition;
+  /**
+   * The expression computing the record key, {@code null} if not configured. In this case, the records have no key,
+   * unless {@code key-from-header} is enabled.
+   */
   private final DataExpression key;
+  /**
+   * Whether the {@link HeaderKey#KEY} header of the message is used as record key when no {@code key} is configured,
+   * to preserve the key of the records received from another topic. Disabled by default, as it changes the
+   * partitioning.
+   */
+  private final boolean keyFromHeader;
   private final String name;
   private final String brokers;
   private Long timestamp;
@@ -35,7 +48,8 @@ public class KafkaSink<T> implements Sink<T> {
     topic = config.getString("topic", name);
     partition = config.getInt("partition", 0);
     timestamp = config.getLong("timestamp").orElse(null);
-    key = requiredEventExpression(config.getString("key", null));
+    key = config.getString("key").map(expression -> requiredEventExpression(expression)).orElse(null);
+    keyFromHeader = config.getBoolean("key-from-header", false);
     brokers = map.get("bootstrap.servers").toString();
     this.name = name;
   }
@@ -63,8 +77,14 @@ public class KafkaSink<T> implements Sink<T> {
   public Completable dispatch(Message<T> message) {
     // TODO Override publication configuration using headers
     // TODO Modify the evaluation to support Data<T>
+    Object k;
+    if (key != null) {
+      k = key.evaluate(message);
+    } else {
+      k = keyFromHeader ? message.get(HeaderKey.KEY) : null;
+    }
     ProducerRecord<String, T> record
-      = new ProducerRecord(topic, partition, timestamp, key.evaluate(message), message.payload());
+      = new ProducerRecord(topic, partition, timestamp, k, message.payload());
     return new AsyncResultCompletable(
       handler ->
         stream.write(record, x -> {
@@ -76,6 +96,19 @@ public class KafkaSink<T> implements Sink<T> {
         }));
   }
 
+  /**
+   * Writes all the records without waiting for the acknowledgement of the previous ones, so the producer can group
+   * them in its own batches.
+   */
+  @Override
+  public Completable dispatchBatch(List<Message<T>> messages) {
+    List<Completable> writes = new ArrayList<>(messages.size());
+    for (Message<T> message : messages) {
+      writes.add(dispatch(message));
+    }
+    return Completable.merge(writes);
+  }
+
   @Override
   public String name() {
     return name;
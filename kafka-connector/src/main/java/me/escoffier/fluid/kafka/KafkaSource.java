@@ -5,6 +5,7 @@ import io.vertx.reactivex.kafka.client.consumer.KafkaConsumer;
 import io.vertx.reactivex.kafka.client.consumer.KafkaConsumerRecord;
 import me.escoffier.fluid.config.Config;
 import me.escoffier.fluid.models.DefaultSource;
+import me.escoffier.fluid.models.HeaderKey;
 import me.escoffier.fluid.models.Message;
 import me.escoffier.fluid.models.Source;
 
@@ -13,8 +14,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-import static me.escoffier.fluid.models.CommonHeaders.*;
-
 /**
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
@@ -50,15 +49,20 @@ public class KafkaSource<T> extends DefaultSource<T> implements Source<T> {
   }
 
   private static <T> Message<T> createDataFromRecord(KafkaConsumerRecord<String, T> record) {
+    // The record metadata is only decoded if the headers are read.
+    return Message.lazy(record.value(), () -> headers(record))
+      .with(HeaderKey.ORIGINAL, record)
+      .with(HeaderKey.KEY, record.key())
+      .with(HeaderKey.ADDRESS, record.topic());
+  }
+
+  private static <T> Map<String, Object> headers(KafkaConsumerRecord<String, T> record) {
     Map<String, Object> headers = new HashMap<>();
     headers.put("timestamp", record.timestamp());
     headers.put("timestamp-type", record.timestampType());
-    headers.put(ORIGINAL, record);
     headers.put("partition", record.partition());
     headers.put("checksum", record.checksum());
-    headers.put(KEY, record.key());
-    headers.put(ADDRESS, record.topic());
-    return new Message<>(record.value(), headers);
+    return headers;
   }
 
   private static Map<String, String> toMap(Config config) {
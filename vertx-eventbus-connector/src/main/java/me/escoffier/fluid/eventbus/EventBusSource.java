@@ -1,9 +1,10 @@
 package me.escoffier.fluid.eventbus;
 
+import io.vertx.reactivex.core.MultiMap;
 import io.vertx.reactivex.core.Vertx;
 import me.escoffier.fluid.config.Config;
-import me.escoffier.fluid.models.CommonHeaders;
 import me.escoffier.fluid.models.DefaultSource;
+import me.escoffier.fluid.models.HeaderKey;
 import me.escoffier.fluid.models.Message;
 
 import java.util.HashMap;
@@ -36,9 +37,21 @@ public class EventBusSource<T> extends DefaultSource<T> {
   }
 
   private static <T> Message<T> createData(io.vertx.reactivex.core.eventbus.Message<T> msg) {
+    // The event bus headers are only copied if the headers are read.
+    Message<T> message = Message.lazy(msg.body(), () -> headers(msg));
+    // Except the well-known headers (such as the key), which are not read from the lazy headers.
+    MultiMap headers = msg.headers();
+    for (String name : headers.names()) {
+      if (HeaderKey.lookup(name) != null) {
+        message = message.with(name, headers.get(name));
+      }
+    }
+    return message.with(HeaderKey.ORIGINAL, msg);
+  }
+
+  private static <T> Map<String, Object> headers(io.vertx.reactivex.core.eventbus.Message<T> msg) {
     Map<String, Object> map = new HashMap<>();
     msg.headers().names().forEach(s -> map.put(s, msg.headers().get(s)));
-    map.put(CommonHeaders.ORIGINAL, msg);
-    return new Message<>(msg.body(), map);
+    return map;
   }
 }
@@ -1,9 +1,13 @@
 package me.escoffier.fluid.eventbus;
 
 import com.fasterxml.jackson.databind.node.NullNode;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.json.JsonObject;
 import io.vertx.reactivex.core.Vertx;
 import me.escoffier.fluid.config.Config;
+import me.escoffier.fluid.models.CommonHeaders;
+import me.escoffier.fluid.models.HeaderKey;
+import me.escoffier.fluid.models.Message;
 import me.escoffier.fluid.models.Sink;
 import me.escoffier.fluid.models.Source;
 import org.junit.After;
@@ -14,6 +18,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -64,6 +69,27 @@ public class EventBusSourceTest {
 
   }
 
+  @Test
+  public void testWellKnownHeadersSentWithTheMessage() {
+    String topic = UUID.randomUUID().toString();
+
+    EventBusSource<String> source = new EventBusSource<>(vertx, null, topic, new Config(NullNode.getInstance()));
+
+    List<Message<String>> results = new CopyOnWriteArrayList<>();
+    source.to(Sink.forEach(results::add));
+
+    vertx.eventBus().send(topic, "hello", new DeliveryOptions()
+      .addHeader(CommonHeaders.KEY, "my-key")
+      .addHeader("custom", "value"));
+
+    await().atMost(1, TimeUnit.MINUTES).until(() -> results.size() == 1);
+    Message<String> message = results.get(0);
+    assertThat(message.get(HeaderKey.KEY)).isEqualTo("my-key");
+    assertThat(CommonHeaders.key(message)).isEqualTo("my-key");
+    assertThat(message.<String>get("custom")).isEqualTo("value");
+    assertThat(message.get(HeaderKey.ORIGINAL)).isNotNull();
+  }
+
   @Test
   public void testMulticastWithBufferSize() throws IOException {
     String topic = UUID.randomUUID().toString();